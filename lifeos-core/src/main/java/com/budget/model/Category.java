@@ -0,0 +1,45 @@
+package com.budget.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kategoria transakcji jako flyweight: jedna instancja na nazwę w całym procesie, więc milion transakcji
+ * z pięciu kategorii trzyma pięć obiektów, a porównanie kategorii to porównanie referencji.
+ * <p>
+ * Klucz w bazie (tabela {@code categories}) nadaje warstwa danych - tu jest tylko nazwa.
+ */
+public final class Category implements Comparable<Category> {
+
+    private static final Map<String, Category> POOL = new ConcurrentHashMap<>();
+
+    public static final Category DEFAULT = of("Inne");
+
+    private final String name;
+
+    private Category(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Jedyna instancja dla nazwy (bez białych znaków na brzegach); pusta nazwa to {@link #DEFAULT}.
+     */
+    public static Category of(String name) {
+        if (name == null || name.isBlank()) return DEFAULT;
+        return POOL.computeIfAbsent(name.strip(), Category::new);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int compareTo(Category other) {
+        return name.compareTo(other.name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
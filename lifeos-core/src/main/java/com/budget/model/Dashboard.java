@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -15,18 +16,17 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Dashboard {
-    // Finanse
-    private BigDecimal totalBalance;
-    private BigDecimal monthlyIncome;
-    private BigDecimal monthlyExpenses;
-    private BigDecimal savingsThisMonth;
+    // Finanse (grosze, patrz Money)
+    private long totalBalanceMinor;
+    private long monthlyIncomeMinor;
+    private long monthlyExpensesMinor;
     
     // Cele
     private int totalGoals;
     private int completedGoals;
     private int activeGoals;
-    private BigDecimal totalGoalAmount;
-    private BigDecimal achievedGoalAmount;
+    private long totalGoalAmountMinor;
+    private long achievedGoalAmountMinor;
     
     // Zadania
     private int totalTasks;
@@ -57,11 +57,41 @@ public class Dashboard {
         return (double) (totalTasks - pendingTasks) / totalTasks * 100;
     }
     
+    public long getSavingsThisMonthMinor() {
+        return monthlyIncomeMinor - monthlyExpensesMinor;
+    }
+
     public BigDecimal getSavingsRate() {
-        if (monthlyIncome == null || monthlyIncome.compareTo(BigDecimal.ZERO) == 0) {
+        if (monthlyIncomeMinor == 0) {
             return BigDecimal.ZERO;
         }
-        return savingsThisMonth.divide(monthlyIncome, 4, BigDecimal.ROUND_HALF_UP)
-            .multiply(BigDecimal.valueOf(100));
+        return BigDecimal.valueOf(getSavingsThisMonthMinor() * 100)
+            .divide(BigDecimal.valueOf(monthlyIncomeMinor), 2, RoundingMode.HALF_UP);
+    }
+
+    // --- ZGODNOŚĆ WSTECZ (BigDecimal dla widoków) ---
+
+    public BigDecimal getTotalBalance() {
+        return Money.toBigDecimal(totalBalanceMinor);
+    }
+
+    public BigDecimal getMonthlyIncome() {
+        return Money.toBigDecimal(monthlyIncomeMinor);
+    }
+
+    public BigDecimal getMonthlyExpenses() {
+        return Money.toBigDecimal(monthlyExpensesMinor);
+    }
+
+    public BigDecimal getSavingsThisMonth() {
+        return Money.toBigDecimal(getSavingsThisMonthMinor());
+    }
+
+    public BigDecimal getTotalGoalAmount() {
+        return Money.toBigDecimal(totalGoalAmountMinor);
+    }
+
+    public BigDecimal getAchievedGoalAmount() {
+        return Money.toBigDecimal(achievedGoalAmountMinor);
     }
 }
\ No newline at end of file
@@ -11,16 +11,16 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Goal {
     private Long id;
     private String name;
     private String description;
-    private BigDecimal targetAmount;
-    @Builder.Default
-    private BigDecimal currentAmount = BigDecimal.ZERO;
+    // Kwoty w groszach (patrz Money)
+    private long targetAmountMinor;
+    private long currentAmountMinor;
     private LocalDate startDate;
     private LocalDate targetDate;
     private LocalDate completedDate;
@@ -33,60 +33,85 @@ public class Goal {
     @Builder.Default
     private List<GoalProgress> progressHistory = new ArrayList<>();
 
-    
+    // Kopia razem z kamieniami milowymi i historią postępu - addProgress zmienia je w miejscu
+    public Goal copy() {
+        return toBuilder()
+            .milestones(milestones == null ? null : new ArrayList<>(milestones.stream().map(m -> m.toBuilder().build()).toList()))
+            .progressHistory(progressHistory == null ? null : new ArrayList<>(progressHistory.stream().map(p -> p.toBuilder().build()).toList()))
+            .build();
+    }
+
     public void addProgress(BigDecimal amount) {
-        if (this.currentAmount == null) {
-            this.currentAmount = BigDecimal.ZERO;
-        }
-        this.currentAmount = this.currentAmount.add(amount);
-        
+        addProgressMinor(Money.fromBigDecimal(amount));
+    }
+
+    public void addProgressMinor(long amountMinor) {
+        this.currentAmountMinor += amountMinor;
+
         GoalProgress progress = new GoalProgress();
-        progress.setAmount(amount);
+        progress.setAmount(Money.toBigDecimal(amountMinor));
         progress.setDate(LocalDate.now());
-        progress.setTotalAmount(this.currentAmount);
-        
+        progress.setTotalAmount(Money.toBigDecimal(currentAmountMinor));
+
         if (progressHistory == null) {
             progressHistory = new ArrayList<>();
         }
         progressHistory.add(progress);
-        
+
         checkMilestones();
         checkCompletion();
     }
-    
+
     private void checkMilestones() {
         if (milestones == null) return;
-        
+
         for (GoalMilestone milestone : milestones) {
-            if (!milestone.isAchieved() && currentAmount.compareTo(milestone.getAmount()) >= 0) {
+            if (!milestone.isAchieved() && currentAmountMinor >= Money.fromBigDecimal(milestone.getAmount())) {
                 milestone.setAchieved(true);
                 milestone.setAchievedDate(LocalDate.now());
             }
         }
     }
-    
+
     private void checkCompletion() {
-        if (currentAmount.compareTo(targetAmount) >= 0) {
+        if (targetAmountMinor > 0 && currentAmountMinor >= targetAmountMinor) {
             status = GoalStatus.COMPLETED;
             completedDate = LocalDate.now();
         }
     }
-    
+
     public double getProgressPercentage() {
-        if (targetAmount == null || currentAmount == null || targetAmount.compareTo(BigDecimal.ZERO) == 0) {
-            return 0.0;
-        }
-        return currentAmount.doubleValue() / targetAmount.doubleValue() * 100;
+        return targetAmountMinor <= 0 ? 0.0 : Money.percent(currentAmountMinor, targetAmountMinor);
     }
-    
+
     public long getDaysRemaining() {
         if (targetDate == null) return 0;
         return LocalDate.now().until(targetDate).getDays();
     }
-    
+
+    public long getRemainingAmountMinor() {
+        return Math.max(targetAmountMinor - currentAmountMinor, 0L);
+    }
+
+    // --- ZGODNOŚĆ WSTECZ (BigDecimal dla formularzy i tabel UI) ---
+
+    public BigDecimal getTargetAmount() {
+        return Money.toBigDecimal(targetAmountMinor);
+    }
+
+    public void setTargetAmount(BigDecimal targetAmount) {
+        this.targetAmountMinor = Money.fromBigDecimal(targetAmount);
+    }
+
+    public BigDecimal getCurrentAmount() {
+        return Money.toBigDecimal(currentAmountMinor);
+    }
+
+    public void setCurrentAmount(BigDecimal currentAmount) {
+        this.currentAmountMinor = Money.fromBigDecimal(currentAmount);
+    }
+
     public BigDecimal getRemainingAmount() {
-        if (targetAmount == null || currentAmount == null) return BigDecimal.ZERO;
-        BigDecimal remaining = targetAmount.subtract(currentAmount);
-        return remaining.compareTo(BigDecimal.ZERO) > 0 ? remaining : BigDecimal.ZERO;
+        return Money.toBigDecimal(getRemainingAmountMinor());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.budget.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Kwoty pieniężne jako {@code long} w groszach (jednostkach podrzędnych PLN).
+ * <p>
+ * Modele, kolumny bazy i agregacje trzymają grosze - sumowanie to zwykłe dodawanie liczb całkowitych,
+ * bez błędów zaokrągleń double i bez alokacji BigDecimal. Konwersje do double/BigDecimal tylko na brzegach
+ * (wejście z formularza, wyświetlanie, starsze API).
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long MINOR_PER_UNIT = 100;
+
+    private Money() {}
+
+    // --- KONWERSJE ---
+
+    /**
+     * Kwota w złotych (double) -> grosze, zaokrąglenie do najbliższego grosza (np. 0.1 + 0.2 -> 30).
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * MINOR_PER_UNIT);
+    }
+
+    public static double toDouble(long minor) {
+        return minor / (double) MINOR_PER_UNIT;
+    }
+
+    /**
+     * Kwota BigDecimal -> grosze (HALF_UP). null traktujemy jak zero.
+     */
+    public static long fromBigDecimal(BigDecimal amount) {
+        if (amount == null) return 0L;
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    /**
+     * Parsuje kwotę wpisaną przez użytkownika ("12,5", "1 200.99", "-3") bez przechodzenia przez double.
+     *
+     * @throws NumberFormatException gdy tekst nie jest kwotą
+     */
+    public static long parse(String text) {
+        if (text == null) throw new NumberFormatException("Brak kwoty");
+        String normalized = text.trim().replace(" ", "").replace("\u00A0", "").replace(',', '.');
+        return fromBigDecimal(new BigDecimal(normalized));
+    }
+
+    // --- FORMATOWANIE ---
+
+    /**
+     * Grosze -> "1234.56" (zawsze dwa miejsca po kropce, bez separatora tysięcy). Format zgodny z CSV i raportami.
+     */
+    public static String format(long minor) {
+        long abs = Math.abs(minor);
+        long units = abs / MINOR_PER_UNIT;
+        long cents = abs % MINOR_PER_UNIT;
+        return (minor < 0 ? "-" : "") + units + (cents < 10 ? ".0" : ".") + cents;
+    }
+
+    /**
+     * Grosze -> "1234.56 zł".
+     */
+    public static String formatPln(long minor) {
+        return format(minor) + " zł";
+    }
+
+    // --- ARYTMETYKA ---
+
+    /**
+     * Udział procentowy part/whole (np. savings rate), 0 gdy whole = 0.
+     */
+    public static double percent(long part, long whole) {
+        return whole == 0 ? 0.0 : part * 100.0 / whole;
+    }
+}
@@ -1,20 +1,57 @@
 package com.budget.model;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+
 public enum RecurringPattern {
-    DAILY("Codziennie"),
-    WEEKLY("Co tydzień"),
-    BIWEEKLY("Co dwa tygodnie"),
-    MONTHLY("Co miesiąc"),
-    QUARTERLY("Co kwartał"),
-    YEARLY("Co rok");
-    
+    DAILY("Codziennie", 1, 0),
+    WEEKLY("Co tydzień", 7, 0),
+    BIWEEKLY("Co dwa tygodnie", 14, 0),
+    MONTHLY("Co miesiąc", 0, 1),
+    QUARTERLY("Co kwartał", 0, 3),
+    YEARLY("Co rok", 0, 12);
+
     private final String displayName;
-    
-    RecurringPattern(String displayName) {
+    // Krok serii: w dniach albo w miesiącach (dokładnie jedno z nich jest niezerowe)
+    private final int stepDays;
+    private final int stepMonths;
+
+    RecurringPattern(String displayName, int stepDays, int stepMonths) {
         this.displayName = displayName;
+        this.stepDays = stepDays;
+        this.stepMonths = stepMonths;
     }
-    
+
     public String getDisplayName() {
         return displayName;
     }
-}
\ No newline at end of file
+
+    // Średni odstęp między wystąpieniami w dniach - do szacowania liczby wystąpień w oknie
+    public double averageStepDays() {
+        return stepDays > 0 ? stepDays : stepMonths * 30.436875;
+    }
+
+    /**
+     * Pierwsze wystąpienie serii zaczynającej się w {@code start}, które wypada ściśle po {@code after}.
+     * Wzorce miesięczne trafiają w {@code dayOfMonth} (w krótszym miesiącu - w jego ostatni dzień; 0 = dzień z {@code start}),
+     * tygodniowe i dzienne liczą krok od {@code start}. Wynik jest liczony wprost, więc po długiej przerwie
+     * nie trzeba przechodzić po wszystkich pominiętych wystąpieniach.
+     */
+    public LocalDate nextOccurrence(LocalDate start, int dayOfMonth, LocalDate after) {
+        if (stepDays > 0) {
+            long elapsed = after.toEpochDay() - start.toEpochDay();
+            long steps = elapsed < 0 ? 0 : elapsed / stepDays + 1;
+            return start.plusDays(steps * stepDays);
+        }
+        int day = dayOfMonth > 0 ? dayOfMonth : start.getDayOfMonth();
+        YearMonth first = YearMonth.from(start);
+        long steps = Math.max(0, first.until(YearMonth.from(after), ChronoUnit.MONTHS) / stepMonths);
+        while (true) {
+            YearMonth month = first.plusMonths(steps * stepMonths);
+            LocalDate candidate = month.atDay(Math.min(day, month.lengthOfMonth()));
+            if (candidate.isAfter(after) && !candidate.isBefore(start)) return candidate;
+            steps++;
+        }
+    }
+}
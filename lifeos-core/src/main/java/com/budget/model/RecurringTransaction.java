@@ -0,0 +1,54 @@
+package com.budget.model;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Reguła transakcji cyklicznej (czynsz, pensja, abonament). Wystąpienia zapisuje do transakcji harmonogram;
+ * {@code materializedThrough} to dzień, do którego (włącznie) wszystkie wystąpienia są już zapisane.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringTransaction {
+    private int id;
+    private String name;
+    @Builder.Default
+    private TransactionType type = TransactionType.EXPENSE;
+    private Category category;
+    private long amountMinor; // kwota w groszach (patrz Money)
+    private RecurringPattern pattern;
+    private int dayOfMonth; // dla wzorców miesięcznych; 0 = dzień z startDate
+    @Builder.Default
+    private boolean active = true;
+    private LocalDate startDate;
+    private LocalDate materializedThrough;
+
+    /**
+     * Pierwsze wystąpienie po podanym dniu albo null, gdy reguła nie ma serii (brak wzorca lub daty startu).
+     */
+    public LocalDate nextOccurrence(LocalDate after) {
+        if (pattern == null || startDate == null) return null;
+        return pattern.nextOccurrence(startDate, dayOfMonth, after);
+    }
+
+    /**
+     * Najwcześniejsze wystąpienie, którego jeszcze nie zapisano.
+     */
+    public LocalDate nextDue() {
+        if (startDate == null) return null;
+        return nextOccurrence(materializedThrough != null ? materializedThrough : startDate.minusDays(1));
+    }
+
+    /**
+     * Transakcja dla wystąpienia w podanym dniu (jeszcze bez ID).
+     */
+    public Transaction toTransaction(LocalDate date) {
+        return Transaction.ofMinor(0, type, category, amountMinor, date, name);
+    }
+}
@@ -1,18 +1,44 @@
 package com.budget.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Transaction {
     private int id;
-    private String type; // "INCOME" lub "EXPENSE"
-    private String category;
-    private double amount;
+    private TransactionType type;
+    private Category category; // współdzielona instancja (Category.of)
+    private long amountMinor; // kwota w groszach (patrz Money)
     private LocalDate date;
     private String description;
-}
\ No newline at end of file
+
+    // Kwota w złotych - dla formularzy UI; wewnętrznie zaokrąglana do grosza
+    public Transaction(int id, TransactionType type, Category category, double amount, LocalDate date, String description) {
+        this(id, type, category, Money.fromDouble(amount), date, description);
+    }
+
+    private Transaction(int id, TransactionType type, Category category, long amountMinor, LocalDate date, String description) {
+        this.id = id;
+        this.type = type;
+        this.category = category;
+        this.amountMinor = amountMinor;
+        this.date = date;
+        this.description = description;
+    }
+
+    public static Transaction ofMinor(int id, TransactionType type, Category category, long amountMinor, LocalDate date, String description) {
+        return new Transaction(id, type, category, amountMinor, date, description);
+    }
+
+    // --- ZGODNOŚĆ WSTECZ (kwota w złotych) ---
+
+    public double getAmount() {
+        return Money.toDouble(amountMinor);
+    }
+
+    public void setAmount(double amount) {
+        this.amountMinor = Money.fromDouble(amount);
+    }
+}
@@ -0,0 +1,45 @@
+package com.budget.model;
+
+/**
+ * Typ transakcji. W bazie zapisywany jako {@link #getCode()} (TINYINT), w UI, CSV i sumach kategorii - jako nazwa.
+ */
+public enum TransactionType {
+    INCOME(1, "PRZYCHÓD"),
+    EXPENSE(2, "WYDATEK");
+
+    private final int code;
+    private final String displayName;
+
+    TransactionType(int code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // null dla nieznanego kodu (kolumna type dopuszcza NULL)
+    public static TransactionType fromCode(int code) {
+        for (TransactionType type : values()) {
+            if (type.code == code) return type;
+        }
+        return null;
+    }
+
+    public static TransactionType fromDisplayName(String name) {
+        for (TransactionType type : values()) {
+            if (type.displayName.equals(name)) return type;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
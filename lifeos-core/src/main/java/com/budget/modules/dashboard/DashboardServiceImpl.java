@@ -4,8 +4,11 @@ import com.budget.model.*;
 import com.budget.model.GoalCategory;
 import com.budget.modules.finance.domain.Purse;
 import com.budget.modules.habits.HabitService;
+import com.budget.modules.habits.HabitStats;
 import com.budget.modules.finance.domain.PurseService;
+import com.budget.modules.finance.domain.TransactionAnalytics;
 import com.budget.modules.goals.GoalService;
+import com.budget.modules.tasks.TaskOccurrence;
 import com.budget.modules.tasks.TaskService;
 
 import java.math.BigDecimal;
@@ -19,13 +22,16 @@ public class DashboardServiceImpl implements DashboardService {
     private final PurseService purseService;
     private final GoalService goalService;
     private final TaskService taskService;
+    private final TransactionAnalytics transactionAnalytics;
 
     public DashboardServiceImpl(HabitService habitService, PurseService purseService,
-                                GoalService goalService, TaskService taskService) {
+                                GoalService goalService, TaskService taskService,
+                                TransactionAnalytics transactionAnalytics) {
         this.habitService = habitService;
         this.purseService = purseService;
         this.goalService = goalService;
         this.taskService = taskService;
+        this.transactionAnalytics = transactionAnalytics;
     }
 
     @Override
@@ -50,37 +56,22 @@ public class DashboardServiceImpl implements DashboardService {
     private void populateFinancialData(Dashboard dashboard) {
         try {
             List<Purse> purses = purseService.getAllPurses();
-            // Finanse używają double (zgodnie z DB)
-            double totalBalance = purses.stream()
-                    .mapToDouble(Purse::getAllocatedAmount)
+            // Kwoty w groszach - sumowanie na long, bez błędów zaokrągleń
+            long totalBalance = purses.stream()
+                    .mapToLong(Purse::getAllocatedMinor)
                     .sum();
-            dashboard.setTotalBalance(BigDecimal.valueOf(totalBalance));
+            dashboard.setTotalBalanceMinor(totalBalance);
 
+            // Sumy z kolumnowego snapshotu - bez ładowania transakcji miesiąca jako obiektów
             LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
-            LocalDate endOfMonth = LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth());
-
-            List<Transaction> thisMonthTransactions = getTransactionsForPeriod(startOfMonth, endOfMonth);
-
-            double income = thisMonthTransactions.stream()
-                    .filter(t -> t.getAmount() > 0)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-
-            double expenses = thisMonthTransactions.stream()
-                    .filter(t -> t.getAmount() < 0)
-                    .mapToDouble(Transaction::getAmount)
-                    .sum();
-            expenses = Math.abs(expenses);
-
-            dashboard.setMonthlyIncome(BigDecimal.valueOf(income));
-            dashboard.setMonthlyExpenses(BigDecimal.valueOf(expenses));
-            dashboard.setSavingsThisMonth(BigDecimal.valueOf(income - expenses));
+            LocalDate nextMonth = startOfMonth.plusMonths(1);
+            dashboard.setMonthlyIncomeMinor(transactionAnalytics.sumMinor(startOfMonth, nextMonth, TransactionType.INCOME));
+            dashboard.setMonthlyExpensesMinor(transactionAnalytics.sumMinor(startOfMonth, nextMonth, TransactionType.EXPENSE));
 
         } catch (Exception e) {
-            dashboard.setTotalBalance(BigDecimal.ZERO);
-            dashboard.setMonthlyIncome(BigDecimal.ZERO);
-            dashboard.setMonthlyExpenses(BigDecimal.ZERO);
-            dashboard.setSavingsThisMonth(BigDecimal.ZERO);
+            dashboard.setTotalBalanceMinor(0);
+            dashboard.setMonthlyIncomeMinor(0);
+            dashboard.setMonthlyExpensesMinor(0);
         }
     }
 
@@ -95,28 +86,19 @@ public class DashboardServiceImpl implements DashboardService {
                     .filter(g -> g.getStatus() == GoalStatus.ACTIVE)
                     .count());
 
-            // NAPRAWA: Konwersja BigDecimal (z Goal) na double do sumowania
-            double totalGoalAmount = allGoals.stream()
-                    .map(Goal::getTargetAmount)
-                    .filter(Objects::nonNull)
-                    .mapToDouble(BigDecimal::doubleValue) // <-- KLUCZOWA ZMIANA
-                    .sum();
-
-            double achievedGoalAmount = allGoals.stream()
-                    .map(Goal::getCurrentAmount)
-                    .filter(Objects::nonNull)
-                    .mapToDouble(BigDecimal::doubleValue) // <-- KLUCZOWA ZMIANA
-                    .sum();
-
-            dashboard.setTotalGoalAmount(BigDecimal.valueOf(totalGoalAmount));
-            dashboard.setAchievedGoalAmount(BigDecimal.valueOf(achievedGoalAmount));
+            dashboard.setTotalGoalAmountMinor(allGoals.stream()
+                    .mapToLong(Goal::getTargetAmountMinor)
+                    .sum());
+            dashboard.setAchievedGoalAmountMinor(allGoals.stream()
+                    .mapToLong(Goal::getCurrentAmountMinor)
+                    .sum());
 
         } catch (Exception e) {
             dashboard.setTotalGoals(0);
             dashboard.setCompletedGoals(0);
             dashboard.setActiveGoals(0);
-            dashboard.setTotalGoalAmount(BigDecimal.ZERO);
-            dashboard.setAchievedGoalAmount(BigDecimal.ZERO);
+            dashboard.setTotalGoalAmountMinor(0);
+            dashboard.setAchievedGoalAmountMinor(0);
         }
     }
 
@@ -149,21 +131,21 @@ public class DashboardServiceImpl implements DashboardService {
 
     private void populateHabitsData(Dashboard dashboard) {
         try {
-            List<Habit> allHabits = habitService.getAllHabits();
-            dashboard.setTotalHabits(allHabits.size());
+            // Jeden przebieg po bitmapach wszystkich nawyków zamiast osobnych zapytań per nawyk
+            Collection<HabitStats> habitStats = habitService.getHabitStats(LocalDate.now()).values();
+            dashboard.setTotalHabits(habitStats.size());
 
-            LocalDate today = LocalDate.now();
-            dashboard.setHabitsCompletedToday((int) habitService.getRecordsForDate(today).stream()
-                    .filter(HabitRecord::isCompleted)
+            dashboard.setHabitsCompletedToday((int) habitStats.stream()
+                    .filter(HabitStats::completedToday)
                     .count());
 
-            dashboard.setAverageHabitCompletionRate(allHabits.stream()
-                    .mapToDouble(Habit::getCompletionRate)
+            dashboard.setAverageHabitCompletionRate(habitStats.stream()
+                    .mapToDouble(HabitStats::completionRate)
                     .average()
                     .orElse(0.0));
 
-            dashboard.setCurrentLongestStreak(allHabits.stream()
-                    .mapToInt(habit -> habitService.getCurrentStreak(habit.getId()))
+            dashboard.setCurrentLongestStreak(habitStats.stream()
+                    .mapToInt(HabitStats::currentStreak)
                     .max()
                     .orElse(0));
 
@@ -201,12 +183,24 @@ public class DashboardServiceImpl implements DashboardService {
 
     @Override
     public Map<String, BigDecimal> getMonthlyExpenseByCategory() {
-        return new HashMap<>();
+        return getMonthlyByCategory(TransactionType.EXPENSE);
     }
 
     @Override
     public Map<String, BigDecimal> getMonthlyIncomeByCategory() {
-        return new HashMap<>();
+        return getMonthlyByCategory(TransactionType.INCOME);
+    }
+
+    private Map<String, BigDecimal> getMonthlyByCategory(TransactionType type) {
+        try {
+            LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
+            Map<String, BigDecimal> result = new HashMap<>();
+            transactionAnalytics.sumByCategoryMinor(startOfMonth, startOfMonth.plusMonths(1), type)
+                    .forEach((category, minor) -> result.put(category.getName(), Money.toBigDecimal(minor)));
+            return result;
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
     }
 
     @Override
@@ -247,9 +241,10 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<Task> getTodayTasks() {
         try {
+            // Zadania cykliczne też - wystąpienie dzisiaj liczone wprost, bez rozwijania serii
             LocalDate today = LocalDate.now();
-            return taskService.getAllTasks().stream()
-                    .filter(t -> t.getDueDate() != null && t.getDueDate().equals(today))
+            return taskService.getOccurrences(today, today).stream()
+                    .map(TaskOccurrence::task)
                     .filter(t -> t.getStatus() != TaskStatus.COMPLETED)
                     .collect(Collectors.toList());
         } catch (Exception e) {
@@ -351,12 +346,6 @@ public class DashboardServiceImpl implements DashboardService {
     }
 
     // Metody pomocnicze
-    private List<Transaction> getTransactionsForPeriod(LocalDate startDate, LocalDate endDate) {
-        // Implementacja powinna pobierać z TransactionDAO
-        // Na razie placeholder, aby kod się kompilował
-        return new ArrayList<>();
-    }
-
     private List<Task> getTasksForPeriod(LocalDate startDate, LocalDate endDate) {
         try {
             return taskService.getAllTasks().stream()
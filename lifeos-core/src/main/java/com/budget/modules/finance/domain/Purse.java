@@ -1,5 +1,6 @@
 package com.budget.modules.finance.domain;
 
+import com.budget.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,18 +12,41 @@ public class Purse {
     private int id;
     private String name;
     private PurseType type;
-    private double allocatedAmount;
-    private double spentAmount;
+    // Kwoty w groszach (patrz Money)
+    private long allocatedMinor;
+    private long spentMinor;
     private boolean isLocked;
-    private double bufferAllowance;
+    private long bufferAllowanceMinor;
+
+    public Purse copy() {
+        return new Purse(id, name, type, allocatedMinor, spentMinor, isLocked, bufferAllowanceMinor);
+    }
 
     // Obliczanie dostępnych środków
-    public double getAvailable() {
-        return allocatedAmount - spentAmount;
+    public long getAvailableMinor() {
+        return allocatedMinor - spentMinor;
     }
 
     // Czy jesteśmy "pod kreską"?
     public double getProgress() {
-        return (allocatedAmount > 0) ? spentAmount / allocatedAmount : 0;
+        return (allocatedMinor > 0) ? (double) spentMinor / allocatedMinor : 0;
+    }
+
+    // --- ZGODNOŚĆ WSTECZ (kwoty w złotych, do wyświetlania) ---
+
+    public double getAllocatedAmount() {
+        return Money.toDouble(allocatedMinor);
+    }
+
+    public double getSpentAmount() {
+        return Money.toDouble(spentMinor);
+    }
+
+    public double getBufferAllowance() {
+        return Money.toDouble(bufferAllowanceMinor);
+    }
+
+    public double getAvailable() {
+        return Money.toDouble(getAvailableMinor());
     }
-}
\ No newline at end of file
+}
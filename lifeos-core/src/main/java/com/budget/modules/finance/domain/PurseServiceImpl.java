@@ -1,39 +1,39 @@
 package com.budget.modules.finance.domain;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// Bezpieczna wątkowo (AsyncRunner wywołuje serwisy z wielu wątków puli); w mapie własne kopie, na zewnątrz też kopie
 public class PurseServiceImpl implements PurseService {
     
-    private final Map<Long, Purse> purses = new HashMap<>();
-    private long purseIdCounter = 1;
+    private final Map<Long, Purse> purses = new ConcurrentHashMap<>();
+    private final AtomicInteger purseIdCounter = new AtomicInteger(1);
     
     @Override
     public List<Purse> getAllPurses() {
-        return new ArrayList<>(purses.values());
+        return purses.values().stream().map(Purse::copy).toList();
     }
     
     @Override
     public Purse getPurseById(Long id) {
-        return purses.get(id);
+        Purse purse = purses.get(id);
+        return purse != null ? purse.copy() : null;
     }
     
     @Override
     public Purse createPurse(Purse purse) {
-        purse.setId((int) purseIdCounter++);
-        purses.put((long) purse.getId(), purse);
+        purse.setId(purseIdCounter.getAndIncrement());
+        purses.put((long) purse.getId(), purse.copy());
         return purse;
     }
     
     @Override
     public Purse updatePurse(Purse purse) {
-        if (purses.containsKey(purse.getId())) {
-            purses.put((long) purse.getId(), purse);
-            return purse;
-        }
-        return null;
+        // Klucz jako long - containsKey(int) nigdy nie trafiał w mapę
+        Purse own = purse.copy();
+        return purses.computeIfPresent((long) purse.getId(), (id, old) -> own) != null ? purse : null;
     }
     
     @Override
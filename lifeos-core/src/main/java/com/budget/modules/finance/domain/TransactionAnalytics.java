@@ -0,0 +1,33 @@
+package com.budget.modules.finance.domain;
+
+import com.budget.model.Category;
+import com.budget.model.TransactionType;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Kontrakt analityki transakcji: core liczy dashboard i raporty, a sumy dostarcza warstwa danych
+ * (kolumnowy snapshot w pamięci zamiast list obiektów Transaction).
+ * <p>
+ * Kwoty w groszach. Zakresy dat to [from, toExclusive); null oznacza zakres otwarty z tej strony.
+ */
+public interface TransactionAnalytics {
+
+    long sumMinor(LocalDate from, LocalDate toExclusive, TransactionType type);
+
+    int count(LocalDate from, LocalDate toExclusive);
+
+    Map<Category, Long> sumByCategoryMinor(LocalDate from, LocalDate toExclusive, TransactionType type);
+
+    /**
+     * Sumy dzienne: element i to dzień {@code from.plusDays(i)}.
+     */
+    long[] sumByDayMinor(LocalDate from, LocalDate toExclusive, TransactionType type);
+
+    /**
+     * Sumy miesięczne: element i to miesiąc {@code from.plusMonths(i)}.
+     */
+    long[] sumByMonthMinor(YearMonth from, YearMonth toInclusive, TransactionType type);
+}
@@ -1,40 +1,40 @@
 package com.budget.modules.goals;
 
 import com.budget.model.Goal;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Bezpieczna wątkowo (AsyncRunner wywołuje serwisy z wielu wątków puli); w mapie własne kopie, na zewnątrz też kopie
 public class GoalServiceImpl implements GoalService {
     
-    private final Map<Long, Goal> goals = new HashMap<>();
-    private long goalIdCounter = 1;
+    private final Map<Long, Goal> goals = new ConcurrentHashMap<>();
+    private final AtomicLong goalIdCounter = new AtomicLong(1);
     
     @Override
     public Goal createGoal(Goal goal) {
-        goal.setId(goalIdCounter++);
-        goals.put(goal.getId(), goal);
+        goal.setId(goalIdCounter.getAndIncrement());
+        goals.put(goal.getId(), goal.copy());
         return goal;
     }
     
     @Override
     public Goal getGoalById(Long id) {
-        return goals.get(id);
+        Goal goal = goals.get(id);
+        return goal != null ? goal.copy() : null;
     }
     
     @Override
     public List<Goal> getAllGoals() {
-        return new ArrayList<>(goals.values());
+        return goals.values().stream().map(Goal::copy).toList();
     }
     
     @Override
     public Goal updateGoal(Goal goal) {
-        if (goals.containsKey(goal.getId())) {
-            goals.put(goal.getId(), goal);
-            return goal;
-        }
-        return null;
+        // Atomowo: równoległe deleteGoal nie zostanie nadpisane
+        Goal own = goal.copy();
+        return goals.computeIfPresent(goal.getId(), (id, old) -> own) != null ? goal : null;
     }
     
     @Override
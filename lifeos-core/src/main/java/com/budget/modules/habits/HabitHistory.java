@@ -0,0 +1,384 @@
+package com.budget.modules.habits;
+
+import com.budget.model.HabitRecord;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Zwarta historia jednego nawyku: dzień to bit, a nie obiekt {@link HabitRecord}.
+ * <ul>
+ *   <li>{@code tracked} - w tym dniu jest wpis (także "nie wykonano"), {@code done} - wpis z wykonaniem.
+ *       Bit 0 to dzień {@code baseDay} (epochDay, wielokrotność 64), więc słowo i to zawsze te same 64 dni.</li>
+ *   <li>Trudność (0-7, 0 = brak) zajmuje 3 bity na dzień: 64 dni to dokładnie 3 słowa tablicy {@code difficulty}.</li>
+ *   <li>Notatki tylko tam, gdzie są - mapa dzień -> tekst.</li>
+ * </ul>
+ * Dziesięć lat codziennych wpisów to ok. 2 KB zamiast kilkuset KB obiektów. Format zapisu - {@link HabitHistoryCodec}.
+ * <p>
+ * Statystyki (liczba wpisów i wykonań, najlepsza seria, ostatni dzień wykonania i seria kończąca się w nim) są licznikami
+ * aktualizowanymi przy każdej zmianie, więc ich odczyt to O(1). Zmiana dnia przesuwa tylko serię, w której ten dzień
+ * leży; od nowa z bitmap liczona jest jedynie najlepsza seria, gdy cofnięto dzień właśnie tej serii.
+ * {@link #verifyCounters()} porównuje liczniki z bitmapami i w razie rozbieżności je przebudowuje.
+ * Nie jest bezpieczna wątkowo.
+ */
+public final class HabitHistory {
+
+    public static final int MAX_DIFFICULTY = 7;
+    private static final int DIFFICULTY_BITS = 3;
+    private static final long[] EMPTY = new long[0];
+
+    private int baseDay;
+    private long[] tracked = EMPTY;
+    private long[] done = EMPTY;
+    private long[] difficulty = EMPTY;
+    private final NavigableMap<Integer, String> notes = new TreeMap<>();
+
+    // --- LICZNIKI ---
+    private static final int NONE = Integer.MIN_VALUE;
+    private int trackedCount;
+    private int completedCount;
+    private int bestStreak;
+    private int lastCompletedDay = NONE; // epochDay
+    private int lastStreak;              // seria kończąca się w lastCompletedDay
+
+    public HabitHistory() {}
+
+    // Dla kodeka: tablice przejmowane bez kopiowania, liczniki liczone raz z bitmap
+    HabitHistory(int baseDay, long[] tracked, long[] done, long[] difficulty, Map<Integer, String> notes) {
+        this.baseDay = baseDay;
+        this.tracked = tracked;
+        this.done = done;
+        this.difficulty = difficulty;
+        this.notes.putAll(notes);
+        rebuildCounters();
+    }
+
+    public static HabitHistory of(Collection<HabitRecord> records) {
+        HabitHistory history = new HabitHistory();
+        for (HabitRecord r : records) {
+            if (r.getDate() != null) history.record(r.getDate(), r.isCompleted(), r.getDifficulty(), r.getNotes());
+        }
+        return history;
+    }
+
+    // Niezależna kopia (tablice i notatki kopiowane)
+    public HabitHistory copy() {
+        return new HabitHistory(baseDay, tracked.clone(), done.clone(), difficulty.clone(), notes);
+    }
+
+    // --- ZAPIS ---
+
+    /**
+     * Wpis na dany dzień (zastępuje poprzedni). Trudność spoza 0-{@link #MAX_DIFFICULTY} jest przycinana.
+     */
+    public void record(LocalDate date, boolean completed, int difficultyLevel, String note) {
+        int index = indexOf(date.toEpochDay());
+        setDay(index, true, completed);
+        setDifficulty(index, Math.max(0, Math.min(MAX_DIFFICULTY, difficultyLevel)));
+        int day = (int) date.toEpochDay();
+        if (note == null || note.isEmpty()) notes.remove(day);
+        else notes.put(day, note);
+    }
+
+    public void setCompleted(LocalDate date, boolean completed) {
+        setDay(indexOf(date.toEpochDay()), true, completed);
+    }
+
+    /**
+     * Usuwa wpis z danego dnia (dzień wraca do stanu "brak wpisu").
+     */
+    public void remove(LocalDate date) {
+        long day = date.toEpochDay();
+        if (!covers(day)) return;
+        int index = (int) (day - baseDay);
+        setDay(index, false, false);
+        setDifficulty(index, 0);
+        notes.remove((int) day);
+    }
+
+    // --- ODCZYT ---
+
+    public boolean isTracked(LocalDate date) {
+        long day = date.toEpochDay();
+        return covers(day) && bit(tracked, (int) (day - baseDay));
+    }
+
+    public boolean isCompleted(LocalDate date) {
+        long day = date.toEpochDay();
+        return covers(day) && bit(done, (int) (day - baseDay));
+    }
+
+    public int getDifficulty(LocalDate date) {
+        long day = date.toEpochDay();
+        return covers(day) ? difficultyAt((int) (day - baseDay)) : 0;
+    }
+
+    public String getNotes(LocalDate date) {
+        return notes.get((int) date.toEpochDay());
+    }
+
+    // --- STATYSTYKI (O(1) z liczników) ---
+
+    public int trackedCount() {
+        return trackedCount;
+    }
+
+    public int completedCount() {
+        return completedCount;
+    }
+
+    public int bestStreak() {
+        return bestStreak;
+    }
+
+    public LocalDate lastCompleted() {
+        return lastCompletedDay == NONE ? null : LocalDate.ofEpochDay(lastCompletedDay);
+    }
+
+    /**
+     * Wykonania dzień po dniu kończące się w {@code date} (0, gdy tego dnia nie wykonano).
+     * Dla dnia ostatniego wykonania i późniejszych - z liczników; dla wcześniejszych liczone z bitmapy.
+     */
+    public int currentStreak(LocalDate date) {
+        long day = date.toEpochDay();
+        if (lastCompletedDay == NONE || day > lastCompletedDay) return 0;
+        if (day == lastCompletedDay) return lastStreak;
+        return HabitStreakEngine.currentStreak(this, date);
+    }
+
+    /**
+     * Porównuje liczniki z tym, co wynika z bitmap; przy rozbieżności zostają przebudowane.
+     *
+     * @return true, gdy liczniki były zgodne
+     */
+    public boolean verifyCounters() {
+        int tracked = trackedCount, completed = completedCount, best = bestStreak, last = lastCompletedDay, streak = lastStreak;
+        rebuildCounters();
+        return tracked == trackedCount && completed == completedCount && best == bestStreak
+                && last == lastCompletedDay && streak == lastStreak;
+    }
+
+    /**
+     * Liczy wszystkie liczniki od nowa z bitmap (O(słów)).
+     */
+    public void rebuildCounters() {
+        trackedCount = cardinality(tracked);
+        completedCount = cardinality(done);
+        bestStreak = HabitStreakEngine.bestStreak(this);
+        lastCompletedDay = lastDoneDay();
+        lastStreak = lastCompletedDay == NONE ? 0 : HabitStreakEngine.currentStreak(this, LocalDate.ofEpochDay(lastCompletedDay));
+    }
+
+    /**
+     * Wpisy jako obiekty (bez ID) w kolejności dat - dla kodu, który potrzebuje {@link HabitRecord}.
+     * Za każdym razem nowe obiekty, więc wywołujący może je dowolnie zmieniać.
+     */
+    public List<HabitRecord> toRecords(Long habitId) {
+        return tracked.length == 0 ? new ArrayList<>()
+                : toRecords(habitId, baseDay, (long) baseDay + ((long) tracked.length << 6) - 1);
+    }
+
+    /**
+     * Wpisy z zakresu [from, to] (włącznie) w kolejności dat.
+     */
+    public List<HabitRecord> toRecords(Long habitId, LocalDate from, LocalDate to) {
+        return toRecords(habitId, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Wpis z danego dnia albo null, gdy go nie ma.
+     */
+    public HabitRecord recordAt(Long habitId, LocalDate date) {
+        long day = date.toEpochDay();
+        if (!covers(day)) return null;
+        int index = (int) (day - baseDay);
+        return bit(tracked, index) ? recordAt(habitId, index) : null;
+    }
+
+    /**
+     * Pamięć tablic bitów (bez notatek) w bajtach.
+     */
+    public long bitmapBytes() {
+        return (long) (tracked.length + done.length + difficulty.length) * Long.BYTES;
+    }
+
+    // --- DLA KODEKA ---
+
+    int baseDay() {
+        return baseDay;
+    }
+
+    long[] trackedWords() {
+        return tracked;
+    }
+
+    long[] doneWords() {
+        return done;
+    }
+
+    long[] difficultyWords() {
+        return difficulty;
+    }
+
+    Map<Integer, String> notes() {
+        return Collections.unmodifiableMap(notes);
+    }
+
+    // --- POMOCNICZE ---
+
+    // Jedyne miejsce zmiany bitów tracked/done - razem z licznikami
+    private void setDay(int index, boolean isTracked, boolean isDone) {
+        boolean wasTracked = bit(tracked, index);
+        boolean wasDone = bit(done, index);
+        setBit(tracked, index, isTracked);
+        setBit(done, index, isDone);
+        if (wasTracked != isTracked) trackedCount += isTracked ? 1 : -1;
+        if (wasDone == isDone) return;
+
+        int day = baseDay + index;
+        int before = index > 0 ? runEndingAt(index - 1) : 0;
+        int after = onesFrom(index + 1L);
+        if (isDone) {
+            completedCount++;
+            bestStreak = Math.max(bestStreak, before + 1 + after);
+            if (lastCompletedDay == NONE || day > lastCompletedDay) {
+                lastCompletedDay = day;
+                lastStreak = before + 1;
+            } else if (day + after >= lastCompletedDay) {
+                lastStreak += before + 1; // dzień połączył serię ostatniego wykonania z wcześniejszą
+            }
+        } else {
+            completedCount--;
+            // Najlepsza seria mogła się skrócić tylko wtedy, gdy to była ona - wtedy szukamy jej od nowa
+            if (before + 1 + after == bestStreak) bestStreak = HabitStreakEngine.bestStreak(this);
+            if (day == lastCompletedDay) {
+                lastCompletedDay = before > 0 ? day - 1 : lastDoneDay();
+                lastStreak = before > 0 ? before
+                        : lastCompletedDay == NONE ? 0 : runEndingAt(lastCompletedDay - baseDay);
+            } else if (day + after >= lastCompletedDay) {
+                lastStreak = after; // seria ostatniego wykonania zaczyna się teraz dzień po "day"
+            }
+        }
+    }
+
+    private int runEndingAt(long index) {
+        return HabitStreakEngine.currentStreak(this, LocalDate.ofEpochDay(baseDay + index));
+    }
+
+    // Wykonania dzień po dniu od bitu "index" w przód
+    private int onesFrom(long index) {
+        int count = 0;
+        long end = (long) done.length << 6;
+        while (index < end) {
+            int bit = (int) (index & 63);
+            int ones = Long.numberOfTrailingZeros(~(done[(int) (index >> 6)] >>> bit));
+            count += Math.min(ones, 64 - bit);
+            if (ones < 64 - bit) break;
+            index += 64 - bit;
+        }
+        return count;
+    }
+
+    private int lastDoneDay() {
+        for (int w = done.length - 1; w >= 0; w--) {
+            if (done[w] != 0) return baseDay + (w << 6) + 63 - Long.numberOfLeadingZeros(done[w]);
+        }
+        return NONE;
+    }
+
+    private boolean covers(long day) {
+        return day >= baseDay && day < baseDay + ((long) tracked.length << 6);
+    }
+
+    // Indeks bitu dnia; rozszerza tablice w przód lub w tył całymi słowami (64 dni)
+    private int indexOf(long day) {
+        if (tracked.length == 0) {
+            baseDay = (int) Math.floorDiv(day, 64) * 64;
+            resize(0, 1);
+        } else if (day < baseDay) {
+            int prepend = (int) Math.floorDiv(baseDay - day + 63, 64);
+            resize(prepend, tracked.length + prepend);
+            baseDay -= prepend * 64;
+        } else if (day >= baseDay + ((long) tracked.length << 6)) {
+            int words = (int) ((day - baseDay) >> 6) + 1;
+            resize(0, Math.max(words, tracked.length + (tracked.length >> 1)));
+        }
+        return (int) (day - baseDay);
+    }
+
+    private void resize(int shiftWords, int words) {
+        tracked = shifted(tracked, shiftWords, words);
+        done = shifted(done, shiftWords, words);
+        difficulty = shifted(difficulty, shiftWords * DIFFICULTY_BITS, words * DIFFICULTY_BITS);
+    }
+
+    private List<HabitRecord> toRecords(Long habitId, long fromDay, long toDay) {
+        long first = Math.max(fromDay - baseDay, 0);
+        long last = Math.min(toDay - baseDay, ((long) tracked.length << 6) - 1);
+        List<HabitRecord> records = new ArrayList<>();
+        for (long w = first >> 6; w <= last >> 6 && first <= last; w++) {
+            long bits = tracked[(int) w];
+            if (w == first >> 6) bits &= -1L << (first & 63);
+            if (w == last >> 6 && (last & 63) != 63) bits &= (1L << ((last & 63) + 1)) - 1;
+            for (; bits != 0; bits &= bits - 1) {
+                records.add(recordAt(habitId, (int) (w << 6) + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        return records;
+    }
+
+    private HabitRecord recordAt(Long habitId, int index) {
+        LocalDate date = LocalDate.ofEpochDay((long) baseDay + index);
+        return new HabitRecord(null, habitId, date, bit(done, index), notes.get(baseDay + index), difficultyAt(index));
+    }
+
+    private static long[] shifted(long[] words, int shift, int length) {
+        if (shift == 0) return Arrays.copyOf(words, length);
+        long[] result = new long[length];
+        System.arraycopy(words, 0, result, shift, words.length);
+        return result;
+    }
+
+    private static boolean bit(long[] words, int index) {
+        return (words[index >> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] words, int index, boolean value) {
+        if (value) words[index >> 6] |= 1L << index;
+        else words[index >> 6] &= ~(1L << index);
+    }
+
+    // 3 bity trudności mogą przechodzić przez granicę dwóch słów
+    private int difficultyAt(int index) {
+        long bitPos = (long) index * DIFFICULTY_BITS;
+        int word = (int) (bitPos >> 6);
+        int offset = (int) (bitPos & 63);
+        long value = difficulty[word] >>> offset;
+        if (offset > 64 - DIFFICULTY_BITS) value |= difficulty[word + 1] << (64 - offset);
+        return (int) (value & MAX_DIFFICULTY);
+    }
+
+    private void setDifficulty(int index, int value) {
+        long bitPos = (long) index * DIFFICULTY_BITS;
+        int word = (int) (bitPos >> 6);
+        int offset = (int) (bitPos & 63);
+        difficulty[word] = (difficulty[word] & ~((long) MAX_DIFFICULTY << offset)) | ((long) value << offset);
+        if (offset > 64 - DIFFICULTY_BITS) {
+            int high = 64 - offset;
+            difficulty[word + 1] = (difficulty[word + 1] & ~((long) MAX_DIFFICULTY >>> high)) | ((long) value >>> high);
+        }
+    }
+
+    private static int cardinality(long[] words) {
+        int count = 0;
+        for (long w : words) count += Long.bitCount(w);
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package com.budget.modules.habits;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binarny format {@link HabitHistory} (jedna kolumna VARBINARY albo plik):
+ * <pre>
+ * byte wersja | byte flagi | int baseDay | int słowa | long[słowa] tracked
+ *   | long[słowa] done          (brak, gdy FLAG_ALL_DONE - każdy wpis wykonany)
+ *   | long[3*słowa] difficulty  (brak, gdy FLAG_NO_DIFFICULTY)
+ *   | int notatki | (int dzień, UTF tekst)*
+ * </pre>
+ * Zapisywany jest tylko zakres od pierwszego do ostatniego niepustego słowa, więc zapas z rozszerzania tablic nic nie kosztuje.
+ */
+public final class HabitHistoryCodec {
+
+    private static final byte VERSION = 1;
+    private static final int FLAG_ALL_DONE = 1;
+    private static final int FLAG_NO_DIFFICULTY = 2;
+    // 64 dni na słowo - ok. 11 tys. lat, więcej to na pewno uszkodzone dane
+    private static final int MAX_WORDS = 1 << 16;
+
+    private HabitHistoryCodec() {}
+
+    public static byte[] encode(HabitHistory history) {
+        long[] tracked = history.trackedWords();
+        int first = 0;
+        int last = tracked.length;
+        while (first < last && tracked[first] == 0) first++;
+        while (last > first && tracked[last - 1] == 0) last--;
+        long[] done = Arrays.copyOfRange(history.doneWords(), first, last);
+        long[] difficulty = Arrays.copyOfRange(history.difficultyWords(), first * 3, last * 3);
+        tracked = Arrays.copyOfRange(tracked, first, last);
+
+        int flags = 0;
+        if (Arrays.equals(tracked, done)) flags |= FLAG_ALL_DONE;
+        if (Arrays.stream(difficulty).allMatch(w -> w == 0)) flags |= FLAG_NO_DIFFICULTY;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + tracked.length * 40);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(flags);
+            out.writeInt(history.baseDay() + first * 64);
+            out.writeInt(tracked.length);
+            writeWords(out, tracked);
+            if ((flags & FLAG_ALL_DONE) == 0) writeWords(out, done);
+            if ((flags & FLAG_NO_DIFFICULTY) == 0) writeWords(out, difficulty);
+            Map<Integer, String> notes = history.notes();
+            out.writeInt(notes.size());
+            for (Map.Entry<Integer, String> note : notes.entrySet()) {
+                out.writeInt(note.getKey());
+                out.writeUTF(note.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream nie rzuca
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException gdy dane są uszkodzone albo w nieznanej wersji
+     */
+    public static HabitHistory decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != VERSION) throw new IOException("Nieznana wersja historii nawyku: " + version);
+            int flags = in.readByte();
+            int baseDay = in.readInt();
+            int words = in.readInt();
+            if (words < 0 || words > MAX_WORDS) throw new IOException("Uszkodzona historia nawyku: " + words + " słów");
+            long[] tracked = readWords(in, words);
+            long[] done = (flags & FLAG_ALL_DONE) != 0 ? tracked.clone() : readWords(in, words);
+            long[] difficulty = (flags & FLAG_NO_DIFFICULTY) != 0 ? new long[words * 3] : readWords(in, words * 3);
+            int noteCount = in.readInt();
+            if (noteCount < 0 || noteCount > words * 64) throw new IOException("Uszkodzona historia nawyku: " + noteCount + " notatek");
+            Map<Integer, String> notes = new HashMap<>();
+            for (int i = 0; i < noteCount; i++) {
+                notes.put(in.readInt(), in.readUTF());
+            }
+            return new HabitHistory(baseDay, tracked, done, difficulty, notes);
+        }
+    }
+
+    private static void writeWords(DataOutputStream out, long[] words) throws IOException {
+        for (long w : words) out.writeLong(w);
+    }
+
+    private static long[] readWords(DataInputStream in, int count) throws IOException {
+        long[] words = new long[count];
+        for (int i = 0; i < count; i++) words[i] = in.readLong();
+        return words;
+    }
+}
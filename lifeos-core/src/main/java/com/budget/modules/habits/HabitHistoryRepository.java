@@ -0,0 +1,10 @@
+package com.budget.modules.habits;
+
+import java.util.Map;
+
+// Kontrakt zapisu historii nawyków - implementuje go warstwa danych (HabitHistoryDAO), tak jak GoalRepository.
+public interface HabitHistoryRepository {
+    Map<Long, HabitHistory> loadAll();
+    void save(Long habitId, HabitHistory history);
+    void delete(Long habitId);
+}
@@ -0,0 +1,12 @@
+package com.budget.modules.habits;
+
+import com.budget.model.Habit;
+
+import java.util.List;
+
+// Kontrakt zapisu definicji nawyków (ID nadaje serwis, więc zapis to MERGE po ID) - implementuje go HabitDAO.
+public interface HabitRepository {
+    List<Habit> loadAll();
+    void save(Habit habit);
+    void delete(Long habitId);
+}
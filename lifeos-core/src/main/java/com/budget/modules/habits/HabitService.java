@@ -22,14 +22,23 @@ public interface HabitService {
     // Rekordy nawyków
     HabitRecord addRecord(HabitRecord record);
     List<HabitRecord> getRecordsForHabit(Long habitId);
+    List<HabitRecord> getRecordsForHabit(Long habitId, LocalDate startDate, LocalDate endDate);
     List<HabitRecord> getRecordsForDate(LocalDate date);
     HabitRecord getRecordForHabitAndDate(Long habitId, LocalDate date);
+
+    // Zwarta historia (bitmapy dni) - magazyn wpisów nawyku; getHistory zwraca kopię
+    HabitHistory getHistory(Long habitId);
+    void restoreHistory(Long habitId, HabitHistory history);
     
     // Statystyki
     Map<HabitCategory, Double> getCompletionRateByCategory();
     int getCurrentStreak(Long habitId);
     int getBestStreak(Long habitId);
     Map<LocalDate, Boolean> getCompletionCalendar(Long habitId, LocalDate startDate, LocalDate endDate);
+    // Statystyki wszystkich nawyków naraz (klucz: ID nawyku) - dla dashboardu
+    Map<Long, HabitStats> getHabitStats(LocalDate date);
+    // Sprawdza liczniki statystyk z bitmapami, rozbieżne przebudowuje; zwraca liczbę przebudowanych
+    int verifyHabitStats();
     
     // Operacje dziennie
     List<Habit> getHabitsForToday();
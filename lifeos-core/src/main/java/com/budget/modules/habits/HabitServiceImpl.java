@@ -7,104 +7,286 @@ import com.budget.model.HabitFrequency;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Bezpieczna wątkowo (AsyncRunner wywołuje serwisy z wielu wątków puli).
+ * Jedynym magazynem wpisów jest {@link HabitHistory} nawyku - {@link HabitRecord} powstają z niej dopiero przy odczycie
+ * (nowe obiekty, więc wywołujący może je zmieniać). Statystyki to liczniki utrzymywane przez historię przy każdej zmianie
+ * (odczyt O(1)); {@link #verifyHabitStats()} sprawdza je z bitmapami.
+ * Nawyki leżą w mapie współbieżnej jako własne kopie serwisu - na zewnątrz wychodzą zawsze kopie, więc zmiana
+ * obiektu w UI nie dotyka stanu czytanego przez inne wątki, dopóki nie przejdzie przez {@link #updateHabit}.
+ * Historie są pod jednym {@link ReadWriteLock}: zmiany biorą blokadę zapisu, odczyty - blokadę odczytu.
+ * Zapis do bazy (MERGE + fsync dziennika zmian) idzie już po zwolnieniu blokady, więc odczyty nie czekają na dysk.
+ * Kolejność zapisów jednego nawyku pilnuje osobny monitor nawyku, a pod nim zapisywany jest zawsze najnowszy stan
+ * (nie ten z chwili zmiany) - zapis, który przegrał wyścig o monitor, niczego nie cofa.
+ * <p>
+ * Nawyki zapisuje {@link HabitRepository} pod ID nadanym tutaj, więc historia wraca po restarcie do tego samego nawyku.
+ * Wpisy dla nieznanego (np. usuniętego) nawyku są odrzucane.
+ * <p>
+ * Bitmapy historii zastępują osobne indeksy (nawyk -&gt; mapa wpisów po dacie, data -&gt; wpisy): wpis z dnia to test
+ * bitu O(1), zakres dat to przejście po słowach bitmapy O(k), a {@link #getRecordsForDate} to jeden test bitu na nawyk.
+ * Drugi indeks trzeba by utrzymywać przy każdej zmianie i przy restarcie; pomiar na 100 tys. wpisów -
+ * {@code com.budget.bench.HabitDashboardBenchmark}.
+ */
 public class HabitServiceImpl implements HabitService {
     
-    private final Map<Long, Habit> habits = new HashMap<>();
-    private final Map<Long, HabitRecord> records = new HashMap<>();
-    private long habitIdCounter = 1;
-    private long recordIdCounter = 1;
+    private final Map<Long, Habit> habits = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // --- pod blokadą "lock" ---
+    private final Map<Long, HabitHistory> histories = new HashMap<>();
+    // Monitory zapisu do bazy, po jednym na nawyk (kolejność: monitor -> blokada odczytu)
+    private final Map<Long, Object> saveLocks = new ConcurrentHashMap<>();
+    private final HabitRepository habitRepository;
+    private final HabitHistoryRepository repository;
+    private final AtomicLong habitIdCounter;
+    
+    // Bez zapisu - nawyki i historia tylko w pamięci
+    public HabitServiceImpl() {
+        this(null, null);
+    }
+    
+    /**
+     * Wczytuje zapisane nawyki i ich historie. Historia bez nawyku (np. zapisana, zanim nawyki trafiały do bazy)
+     * zostaje w bazie, ale nie jest wczytywana, a nowe ID są nadawane powyżej wszystkich zapisanych - nowy nawyk
+     * nigdy nie przejmie cudzej historii.
+     */
+    public HabitServiceImpl(HabitRepository habitRepository, HabitHistoryRepository repository) {
+        this.habitRepository = habitRepository;
+        this.repository = repository;
+        long maxId = 0;
+        if (habitRepository != null) {
+            for (Habit habit : habitRepository.loadAll()) {
+                habits.put(habit.getId(), habit);
+                maxId = Math.max(maxId, habit.getId());
+            }
+        }
+        if (repository != null) {
+            int orphans = 0;
+            for (Map.Entry<Long, HabitHistory> entry : repository.loadAll().entrySet()) {
+                maxId = Math.max(maxId, entry.getKey());
+                if (habits.containsKey(entry.getKey())) histories.put(entry.getKey(), entry.getValue());
+                else orphans++;
+            }
+            if (orphans > 0) System.err.println("⚠️ Pominięto historie bez nawyku: " + orphans);
+        }
+        for (Long habitId : habits.keySet()) {
+            histories.putIfAbsent(habitId, new HabitHistory());
+        }
+        habitIdCounter = new AtomicLong(maxId + 1);
+    }
     
     @Override
     public Habit createHabit(Habit habit) {
-        habit.setId(habitIdCounter++);
-        habit.setRecords(new ArrayList<>());
-        habits.put(habit.getId(), habit);
+        habit.setId(habitIdCounter.getAndIncrement());
+        Habit own = habit.toBuilder().build();
+        write(() -> {
+            // Zastępuje, nie scala - nowe ID nie ma prawa mieć historii
+            histories.put(own.getId(), new HabitHistory());
+            habits.put(own.getId(), own);
+        });
+        persistHabit(own.getId());
         return habit;
     }
     
     @Override
     public Habit getHabitById(Long id) {
-        return habits.get(id);
+        Habit habit = habits.get(id);
+        return habit != null ? habit.toBuilder().build() : null;
     }
     
     @Override
     public List<Habit> getAllHabits() {
-        return new ArrayList<>(habits.values());
+        return habits.values().stream()
+            .map(habit -> habit.toBuilder().build())
+            .toList();
     }
     
     @Override
     public List<Habit> getHabitsByCategory(HabitCategory category) {
         return habits.values().stream()
             .filter(habit -> habit.getCategory() == category)
-            .collect(Collectors.toList());
+            .map(habit -> habit.toBuilder().build())
+            .toList();
     }
     
     @Override
     public List<Habit> getActiveHabits() {
         return habits.values().stream()
             .filter(Habit::isActive)
-            .collect(Collectors.toList());
+            .map(habit -> habit.toBuilder().build())
+            .toList();
     }
     
     @Override
     public Habit updateHabit(Habit habit) {
-        if (habits.containsKey(habit.getId())) {
-            habits.put(habit.getId(), habit);
-            return habit;
-        }
-        return null;
+        Habit own = habit.toBuilder().build();
+        boolean[] updated = new boolean[1];
+        write(() -> {
+            // Atomowo: równoległe deleteHabit nie zostanie nadpisane
+            updated[0] = habits.computeIfPresent(habit.getId(), (id, old) -> own) != null;
+        });
+        if (updated[0]) persistHabit(habit.getId());
+        return updated[0] ? habit : null;
     }
     
     @Override
     public void deleteHabit(Long id) {
-        habits.remove(id);
-        // Usuń również powiązane rekordy
-        records.entrySet().removeIf(entry -> entry.getValue().getHabitId().equals(id));
+        boolean[] removed = new boolean[2];
+        write(() -> {
+            removed[0] = habits.remove(id) != null;
+            // Usuń również historię wpisów
+            removed[1] = histories.remove(id) != null;
+        });
+        if (removed[0]) persistHabit(id);
+        if (removed[1]) persistHistory(id);
     }
     
+    /**
+     * Wpis zastępuje wcześniejszy z tego samego dnia. Wpisy nie mają ID - identyfikuje je nawyk i dzień.
+     *
+     * @throws IllegalArgumentException gdy brakuje ID nawyku albo daty, albo nawyk nie istnieje
+     */
     @Override
     public HabitRecord addRecord(HabitRecord record) {
-        record.setId(recordIdCounter++);
-        records.put(record.getId(), record);
-        
-        // Dodaj rekord do listy w nawyku
-        Habit habit = habits.get(record.getHabitId());
-        if (habit != null) {
-            habit.addRecord(record);
+        if (record.getHabitId() == null || record.getDate() == null) {
+            throw new IllegalArgumentException("Wpis nawyku wymaga ID nawyku i daty");
         }
-        
+        change(record.getHabitId(), history ->
+            history.record(record.getDate(), record.isCompleted(), record.getDifficulty(), record.getNotes()));
         return record;
     }
     
+    // Kopia - historia w serwisie zmienia się dalej pod blokadą
+    @Override
+    public HabitHistory getHistory(Long habitId) {
+        return read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? history.copy() : null;
+        });
+    }
+    
+    @Override
+    public void restoreHistory(Long habitId, HabitHistory history) {
+        HabitHistory own = history.copy();
+        write(() -> {
+            requireHabit(habitId);
+            histories.put(habitId, own);
+        });
+        persistHistory(habitId);
+    }
+    
     @Override
     public List<HabitRecord> getRecordsForHabit(Long habitId) {
-        return records.values().stream()
-            .filter(record -> record.getHabitId().equals(habitId))
-            .sorted(Comparator.comparing(HabitRecord::getDate))
-            .collect(Collectors.toList());
+        return read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? history.toRecords(habitId) : List.of();
+        });
+    }
+    
+    @Override
+    public List<HabitRecord> getRecordsForHabit(Long habitId, LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) return List.of();
+        return read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? history.toRecords(habitId, startDate, endDate) : List.of();
+        });
     }
     
+    // Jeden bit na nawyk - O(liczba nawyków), bez osobnego indeksu po dniach (patrz opis klasy)
     @Override
     public List<HabitRecord> getRecordsForDate(LocalDate date) {
-        return records.values().stream()
-            .filter(record -> record.getDate().equals(date))
-            .collect(Collectors.toList());
+        return read(() -> {
+            List<HabitRecord> result = new ArrayList<>();
+            for (Long habitId : habits.keySet()) {
+                HabitHistory history = histories.get(habitId);
+                HabitRecord record = history != null ? history.recordAt(habitId, date) : null;
+                if (record != null) result.add(record);
+            }
+            return result;
+        });
     }
     
     @Override
     public HabitRecord getRecordForHabitAndDate(Long habitId, LocalDate date) {
-        return records.values().stream()
-            .filter(record -> record.getHabitId().equals(habitId) && record.getDate().equals(date))
-            .findFirst()
-            .orElse(null);
+        return read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? history.recordAt(habitId, date) : null;
+        });
+    }
+    
+    // --- BLOKADY ---
+    
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Zmiana pod blokadą zapisu, zapis do bazy już po jej zwolnieniu
+    private void change(Long habitId, Consumer<HabitHistory> action) {
+        write(() -> {
+            requireHabit(habitId);
+            HabitHistory history = histories.computeIfAbsent(habitId, id -> new HabitHistory());
+            action.accept(history);
+        });
+        persistHistory(habitId);
+    }
+    
+    // --- ZAPIS ---
+    
+    // Najnowsza definicja nawyku albo usunięcie, gdy nawyku już nie ma
+    private void persistHabit(Long habitId) {
+        if (habitRepository == null) return;
+        synchronized (saveLock(habitId)) {
+            Habit habit = habits.get(habitId);
+            if (habit != null) habitRepository.save(habit);
+            else habitRepository.delete(habitId);
+        }
+    }
+    
+    // Kopia najnowszej historii (pod blokadą odczytu) zapisywana już bez blokady
+    private void persistHistory(Long habitId) {
+        if (repository == null) return;
+        synchronized (saveLock(habitId)) {
+            HabitHistory history = getHistory(habitId);
+            if (history != null) repository.save(habitId, history);
+            else repository.delete(habitId);
+        }
+    }
+    
+    private Object saveLock(Long habitId) {
+        return saveLocks.computeIfAbsent(habitId, id -> new Object());
+    }
+    
+    // Pod blokadą zapisu: deleteHabit też ją bierze, więc nawyk nie zniknie przed zmianą historii
+    private void requireHabit(Long habitId) {
+        if (!habits.containsKey(habitId)) throw new IllegalArgumentException("Nieznany nawyk: " + habitId);
     }
     
     @Override
     public Map<HabitCategory, Double> getCompletionRateByCategory() {
         Map<HabitCategory, List<Habit>> habitsByCategory = getAllHabits().stream()
             .collect(Collectors.groupingBy(Habit::getCategory));
+        Map<Long, HabitStats> stats = getHabitStats(LocalDate.now());
         
         Map<HabitCategory, Double> completionRates = new HashMap<>();
         
@@ -116,7 +298,7 @@ public class HabitServiceImpl implements HabitService {
             }
             
             double averageRate = categoryHabits.stream()
-                .mapToDouble(Habit::getCompletionRate)
+                .mapToDouble(habit -> stats.getOrDefault(habit.getId(), HabitStats.empty(habit.getId())).completionRate())
                 .average()
                 .orElse(0.0);
             
@@ -128,57 +310,60 @@ public class HabitServiceImpl implements HabitService {
     
     @Override
     public int getCurrentStreak(Long habitId) {
-        Habit habit = getHabitById(habitId);
-        return habit != null ? habit.getCurrentStreak() : 0;
+        return read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? history.currentStreak(LocalDate.now()) : 0;
+        });
     }
     
     @Override
     public int getBestStreak(Long habitId) {
-        List<HabitRecord> habitRecords = getRecordsForHabit(habitId);
-        if (habitRecords.isEmpty()) return 0;
-        
-        int bestStreak = 0;
-        int currentStreak = 0;
-        LocalDate lastDate = null;
-        
-        for (HabitRecord record : habitRecords) {
-            if (record.isCompleted()) {
-                if (lastDate != null && lastDate.plusDays(1).equals(record.getDate())) {
-                    currentStreak++;
-                } else {
-                    currentStreak = 1;
+        return read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? history.bestStreak() : 0;
+        });
+    }
+    
+    @Override
+    public int verifyHabitStats() {
+        int[] rebuilt = new int[1];
+        write(() -> {
+            for (Map.Entry<Long, HabitHistory> entry : histories.entrySet()) {
+                if (!entry.getValue().verifyCounters()) {
+                    rebuilt[0]++;
+                    System.err.println("⚠️ Przebudowano liczniki statystyk nawyku " + entry.getKey());
                 }
-                bestStreak = Math.max(bestStreak, currentStreak);
-                lastDate = record.getDate();
-            } else {
-                currentStreak = 0;
             }
-        }
-        
-        return bestStreak;
+        });
+        return rebuilt[0];
     }
     
     @Override
     public Map<LocalDate, Boolean> getCompletionCalendar(Long habitId, LocalDate startDate, LocalDate endDate) {
         Map<LocalDate, Boolean> calendar = new HashMap<>();
-        List<HabitRecord> habitRecords = getRecordsForHabit(habitId);
-        
+        BitSet completed = read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? HabitStreakEngine.completedBetween(history, startDate, endDate) : new BitSet();
+        });
+        int day = 0;
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            LocalDate finalDate = date;
-            boolean completed = habitRecords.stream()
-                .anyMatch(record -> record.getDate().equals(finalDate) && record.isCompleted());
-            calendar.put(date, completed);
+            calendar.put(date, completed.get(day++));
         }
         
         return calendar;
     }
     
+    @Override
+    public Map<Long, HabitStats> getHabitStats(LocalDate date) {
+        return read(() -> HabitStreakEngine.statsFor(habits.keySet(), histories, date));
+    }
+    
     @Override
     public List<Habit> getHabitsForToday() {
         LocalDate today = LocalDate.now();
         return getActiveHabits().stream()
             .filter(habit -> shouldHabitBeDoneToday(habit, today))
-            .collect(Collectors.toList());
+            .toList();
     }
     
     private boolean shouldHabitBeDoneToday(Habit habit, LocalDate date) {
@@ -199,30 +384,22 @@ public class HabitServiceImpl implements HabitService {
     @Override
     public void completeHabitForToday(Long habitId, String notes, int difficulty) {
         LocalDate today = LocalDate.now();
-        HabitRecord existingRecord = getRecordForHabitAndDate(habitId, today);
-        
-        if (existingRecord != null) {
-            existingRecord.setCompleted(true);
-            existingRecord.setNotes(notes);
-            existingRecord.setDifficulty(difficulty);
-        } else {
-            HabitRecord newRecord = new HabitRecord();
-            newRecord.setHabitId(habitId);
-            newRecord.setDate(today);
-            newRecord.setCompleted(true);
-            newRecord.setNotes(notes);
-            newRecord.setDifficulty(difficulty);
-            addRecord(newRecord);
-        }
+        // Wpis z dnia zastępuje poprzedni - dwa równoległe wywołania nie utworzą dwóch wpisów
+        change(habitId, history -> history.record(today, true, difficulty, notes));
     }
     
     @Override
     public void uncompleteHabitForToday(Long habitId) {
         LocalDate today = LocalDate.now();
-        HabitRecord existingRecord = getRecordForHabitAndDate(habitId, today);
-        if (existingRecord != null) {
-            existingRecord.setCompleted(false);
-        }
+        boolean[] changed = new boolean[1];
+        write(() -> {
+            HabitHistory history = histories.get(habitId);
+            if (history != null && history.isTracked(today)) {
+                history.setCompleted(today, false);
+                changed[0] = true;
+            }
+        });
+        if (changed[0]) persistHistory(habitId);
     }
     
     @Override
@@ -233,9 +410,13 @@ public class HabitServiceImpl implements HabitService {
         
         analytics.put("habit", habit);
         analytics.put("totalRecords", habitRecords.size());
-        analytics.put("completionRate", habit.getCompletionRate());
-        analytics.put("currentStreak", getCurrentStreak(habitId));
-        analytics.put("bestStreak", getBestStreak(habitId));
+        HabitStats stats = read(() -> {
+            HabitHistory history = histories.get(habitId);
+            return history != null ? HabitStreakEngine.stats(habitId, history, LocalDate.now()) : HabitStats.empty(habitId);
+        });
+        analytics.put("completionRate", stats.completionRate());
+        analytics.put("currentStreak", stats.currentStreak());
+        analytics.put("bestStreak", stats.bestStreak());
         analytics.put("averageDifficulty", habitRecords.stream()
             .filter(HabitRecord::isCompleted)
             .mapToInt(HabitRecord::getDifficulty)
@@ -248,15 +429,15 @@ public class HabitServiceImpl implements HabitService {
     @Override
     public Map<String, Object> getGlobalHabitStats() {
         Map<String, Object> stats = new HashMap<>();
-        List<Habit> allHabits = getAllHabits();
+        Collection<HabitStats> habitStats = getHabitStats(LocalDate.now()).values();
         
-        stats.put("totalHabits", allHabits.size());
+        stats.put("totalHabits", habitStats.size());
         stats.put("activeHabits", getActiveHabits().size());
-        stats.put("habitsCompletedToday", getRecordsForDate(LocalDate.now()).stream()
-            .filter(HabitRecord::isCompleted)
+        stats.put("habitsCompletedToday", habitStats.stream()
+            .filter(HabitStats::completedToday)
             .count());
-        stats.put("averageCompletionRate", allHabits.stream()
-            .mapToDouble(Habit::getCompletionRate)
+        stats.put("averageCompletionRate", habitStats.stream()
+            .mapToDouble(HabitStats::completionRate)
             .average()
             .orElse(0.0));
         stats.put("completionByCategory", getCompletionRateByCategory());
@@ -0,0 +1,23 @@
+package com.budget.modules.habits;
+
+/**
+ * Statystyki jednego nawyku na dany dzień - wynik {@link HabitStreakEngine}.
+ *
+ * @param trackedDays    dni z wpisem
+ * @param completedDays  dni z wykonaniem
+ * @param currentStreak  wykonania dzień po dniu, kończące się w dniu odniesienia (0, gdy tego dnia nie wykonano)
+ * @param bestStreak     najdłuższa seria wykonań dzień po dniu
+ * @param completedToday czy nawyk wykonano w dniu odniesienia
+ */
+public record HabitStats(Long habitId, int trackedDays, int completedDays, int currentStreak, int bestStreak,
+                         boolean completedToday) {
+
+    public static HabitStats empty(Long habitId) {
+        return new HabitStats(habitId, 0, 0, 0, 0, false);
+    }
+
+    // Procent wykonanych wpisów
+    public double completionRate() {
+        return trackedDays == 0 ? 0.0 : (double) completedDays / trackedDays * 100;
+    }
+}
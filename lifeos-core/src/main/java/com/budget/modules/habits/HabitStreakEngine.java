@@ -0,0 +1,112 @@
+package com.budget.modules.habits;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serie, skuteczność i okna kalendarza liczone na bitmapach dni {@link HabitHistory} - całymi słowami (64 dni naraz),
+ * bez przechodzenia po wpisach i bez sortowania. Dziesięć lat historii to ok. 60 słów.
+ */
+public final class HabitStreakEngine {
+
+    private HabitStreakEngine() {}
+
+    /**
+     * Statystyki wszystkich nawyków w jednym przebiegu; nawyk bez historii dostaje {@link HabitStats#empty}.
+     */
+    public static Map<Long, HabitStats> statsFor(Iterable<Long> habitIds, Map<Long, HabitHistory> histories, LocalDate today) {
+        Map<Long, HabitStats> stats = new LinkedHashMap<>();
+        for (Long habitId : habitIds) {
+            HabitHistory history = histories.get(habitId);
+            stats.put(habitId, history != null ? stats(habitId, history, today) : HabitStats.empty(habitId));
+        }
+        return stats;
+    }
+
+    // Z liczników historii - O(1) dla dnia dzisiejszego
+    public static HabitStats stats(Long habitId, HabitHistory history, LocalDate today) {
+        return new HabitStats(habitId, history.trackedCount(), history.completedCount(), history.currentStreak(today),
+                history.bestStreak(), history.isCompleted(today));
+    }
+
+    /**
+     * Wykonania dzień po dniu kończące się w {@code day} (włącznie), liczone z bitmapy.
+     * Bieżące wartości trzyma {@link HabitHistory}; to jest obliczenie od zera (przebudowa i weryfikacja liczników).
+     */
+    public static int currentStreak(HabitHistory history, LocalDate day) {
+        long index = day.toEpochDay() - history.baseDay();
+        long[] done = history.doneWords();
+        if (index < 0 || index >= (long) done.length << 6) return 0;
+        int word = (int) (index >> 6);
+        int bit = (int) (index & 63);
+        int streak = 0;
+        while (word >= 0) {
+            // dzień "day" na najstarszym bicie, młodsze dni poniżej; liczymy jedynki od góry
+            int ones = Long.numberOfLeadingZeros(~(done[word] << (63 - bit)));
+            streak += ones;
+            if (ones < bit + 1) break;
+            word--;
+            bit = 63;
+        }
+        return streak;
+    }
+
+    // Od zera z bitmapy (jak currentStreak)
+    public static int bestStreak(HabitHistory history) {
+        int best = 0;
+        int run = 0; // seria jedynek przechodząca przez granicę słów
+        for (long word : history.doneWords()) {
+            if (word == -1L) {
+                run += 64;
+                continue;
+            }
+            run += Long.numberOfTrailingZeros(~word);
+            best = Math.max(best, Math.max(run, longestRun(word)));
+            run = Long.numberOfLeadingZeros(~word);
+        }
+        return Math.max(best, run);
+    }
+
+    /**
+     * Wykonania w [from, to] jako bity względem {@code from} (bit 0 = from).
+     */
+    public static BitSet completedBetween(HabitHistory history, LocalDate from, LocalDate to) {
+        long length = to.toEpochDay() - from.toEpochDay() + 1;
+        if (length <= 0) return new BitSet();
+        long[] done = history.doneWords();
+        long offset = from.toEpochDay() - history.baseDay();
+        long[] window = new long[(int) ((length + 63) >> 6)];
+        for (int i = 0; i < window.length; i++) {
+            window[i] = wordAt(done, offset + ((long) i << 6));
+        }
+        int tail = (int) (length & 63);
+        if (tail != 0) window[window.length - 1] &= (1L << tail) - 1;
+        return BitSet.valueOf(window);
+    }
+
+    public static int completedCountBetween(HabitHistory history, LocalDate from, LocalDate to) {
+        return completedBetween(history, from, to).cardinality();
+    }
+
+    // 64 bity zaczynające się od bitu "start" (może być ujemny albo poza tablicą - tam same zera)
+    private static long wordAt(long[] words, long start) {
+        long word = start >> 6; // floor także dla ujemnych
+        int shift = (int) (start & 63);
+        long low = word >= 0 && word < words.length ? words[(int) word] : 0L;
+        if (shift == 0) return low;
+        long high = word + 1 >= 0 && word + 1 < words.length ? words[(int) word + 1] : 0L;
+        return (low >>> shift) | (high << (64 - shift));
+    }
+
+    // Najdłuższa seria jedynek w słowie: każde x &= x << 1 skraca wszystkie serie o jeden
+    private static int longestRun(long word) {
+        int length = 0;
+        while (word != 0) {
+            word &= word << 1;
+            length++;
+        }
+        return length;
+    }
+}
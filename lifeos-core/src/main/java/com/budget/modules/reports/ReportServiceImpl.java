@@ -3,6 +3,7 @@ package com.budget.modules.reports;
 import com.budget.model.*;
 import com.budget.model.ReportPeriod;
 import com.budget.modules.habits.HabitService;
+import com.budget.modules.habits.HabitStats;
 import com.budget.modules.dashboard.DashboardService;
 import com.budget.modules.goals.GoalService;
 import com.budget.modules.tasks.TaskService;
@@ -12,6 +13,8 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class ReportServiceImpl implements ReportService {
@@ -22,10 +25,11 @@ public class ReportServiceImpl implements ReportService {
     private final TaskService taskService;
     private final PurseService purseService;
     
-    private final Map<Long, Report> reports = new HashMap<>();
-    private final Map<Long, Report> templates = new HashMap<>();
-    private long reportIdCounter = 1;
-    private long templateIdCounter = 1;
+    // Bezpieczne wątkowo - raporty generuje AsyncRunner na wątkach puli
+    private final Map<Long, Report> reports = new ConcurrentHashMap<>();
+    private final Map<Long, Report> templates = new ConcurrentHashMap<>();
+    private final AtomicLong reportIdCounter = new AtomicLong(1);
+    private final AtomicLong templateIdCounter = new AtomicLong(1);
     
     public ReportServiceImpl(HabitService habitService, DashboardService dashboardService,
                            GoalService goalService, TaskService taskService, PurseService purseService) {
@@ -45,7 +49,7 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public Report generateReport(ReportType type, LocalDate startDate, LocalDate endDate) {
         Report report = new Report();
-        report.setId(reportIdCounter++);
+        report.setId(reportIdCounter.getAndIncrement());
         report.setType(type);
         report.setPeriod(ReportPeriod.CUSTOM);
         report.setStartDate(startDate);
@@ -77,7 +81,7 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public Report generateCustomReport(Map<String, Object> parameters) {
         Report report = new Report();
-        report.setId(reportIdCounter++);
+        report.setId(reportIdCounter.getAndIncrement());
         report.setType(ReportType.CUSTOM);
         report.setGeneratedAt(LocalDateTime.now());
         report.setGeneratedBy("User");
@@ -149,12 +153,13 @@ public class ReportServiceImpl implements ReportService {
         
         Map<String, Object> data = new HashMap<>();
         List<Habit> habits = habitService.getAllHabits();
+        Map<Long, HabitStats> habitStats = habitService.getHabitStats(LocalDate.now());
         
         // Statystyki ogólne
         data.put("totalHabits", habits.size());
         data.put("activeHabits", habits.stream().filter(Habit::isActive).count());
         data.put("averageCompletionRate", habits.stream()
-            .mapToDouble(Habit::getCompletionRate)
+            .mapToDouble(habit -> statsOf(habitStats, habit).completionRate())
             .average()
             .orElse(0.0));
         
@@ -192,7 +197,7 @@ public class ReportServiceImpl implements ReportService {
         habitsTable.setTitle("Lista nawyków");
         habitsTable.setHeaders(List.of("Nazwa", "Kategoria", "Częstotliwość", "Realizacja %", "Seria"));
         habitsTable.setColumnTypes(new String[]{"text", "text", "text", "percentage", "number"});
-        habitsTable.setRows(createHabitsTableData(habits));
+        habitsTable.setRows(createHabitsTableData(habits, habitStats));
         
         habitsTableSection.setTables(List.of(habitsTable));
         
@@ -428,16 +433,21 @@ public class ReportServiceImpl implements ReportService {
         );
     }
     
-    private List<Map<String, Object>> createHabitsTableData(List<Habit> habits) {
+    private List<Map<String, Object>> createHabitsTableData(List<Habit> habits, Map<Long, HabitStats> habitStats) {
         return habits.stream().map(habit -> Map.of(
             "Nazwa", (Object) habit.getName(),
             "Kategoria", habit.getCategory().getDisplayName(),
             "Częstotliwość", habit.getFrequency().getDisplayName(),
-            "Realizacja %", Math.round(habit.getCompletionRate()),
-            "Seria", habit.getCurrentStreak()
+            "Realizacja %", Math.round(statsOf(habitStats, habit).completionRate()),
+            "Seria", statsOf(habitStats, habit).currentStreak()
         )).collect(Collectors.toList());
     }
     
+    // Nawyk dodany po pobraniu statystyk nie ma jeszcze wpisów
+    private static HabitStats statsOf(Map<Long, HabitStats> habitStats, Habit habit) {
+        return habitStats.getOrDefault(habit.getId(), HabitStats.empty(habit.getId()));
+    }
+    
     private List<Map<String, Object>> createGoalStatusData(List<Goal> goals) {
         Map<GoalStatus, Long> statusCount = goals.stream()
             .collect(Collectors.groupingBy(Goal::getStatus, Collectors.counting()));
@@ -508,7 +518,7 @@ public class ReportServiceImpl implements ReportService {
     // Implementacje podstawowych metod CRUD
     @Override
     public Report saveReport(Report report) {
-        report.setId(reportIdCounter++);
+        report.setId(reportIdCounter.getAndIncrement());
         reports.put(report.getId(), report);
         return report;
     }
@@ -520,7 +530,7 @@ public class ReportServiceImpl implements ReportService {
     
     @Override
     public List<Report> getAllReports() {
-        return new ArrayList<>(reports.values());
+        return List.copyOf(reports.values());
     }
     
     @Override
@@ -608,7 +618,7 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public Report createTemplate(ReportType type, String name, Map<String, Object> configuration) {
         Report template = new Report();
-        template.setId(templateIdCounter++);
+        template.setId(templateIdCounter.getAndIncrement());
         template.setTitle(name);
         template.setType(type);
         template.setData(configuration);
@@ -620,7 +630,7 @@ public class ReportServiceImpl implements ReportService {
     
     @Override
     public List<Report> getTemplates() {
-        return new ArrayList<>(templates.values());
+        return List.copyOf(templates.values());
     }
     
     @Override
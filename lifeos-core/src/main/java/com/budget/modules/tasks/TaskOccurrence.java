@@ -0,0 +1,12 @@
+package com.budget.modules.tasks;
+
+import com.budget.model.Task;
+
+import java.time.LocalDate;
+
+/**
+ * Wystąpienie zadania w konkretnym dniu. Dla zadania jednorazowego to jego termin, dla cyklicznego - jeden
+ * dzień serii; {@code task} jest wtedy wspólny dla wszystkich wystąpień (serii nie kopiujemy).
+ */
+public record TaskOccurrence(Task task, LocalDate date) {
+}
@@ -0,0 +1,132 @@
+package com.budget.modules.tasks;
+
+import com.budget.model.RecurringPattern;
+import com.budget.model.Task;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rozwijanie zadań (także cyklicznych) w wystąpienia w oknie dat [from, to].
+ * <p>
+ * Serie nie są nigdzie zapisywane: spliterator liczy pierwsze wystąpienie w oknie wprost z {@link RecurringPattern}
+ * i dalej generuje kolejne dopiero przy odczycie, więc koszt zapytania to liczba zwróconych wystąpień
+ * (plus stała praca na zadanie). Tysiące codziennych zadań nic nie kosztują, dopóki nikt nie pyta o ich dni.
+ * Seria zaczyna się w {@code dueDate} i kończy w {@code recurringEndDate} (włącznie, null = bez końca).
+ */
+public final class TaskOccurrences {
+
+    private TaskOccurrences() {}
+
+    public static Stream<TaskOccurrence> stream(Task task, LocalDate from, LocalDate to) {
+        return StreamSupport.stream(spliterator(task, from, to), false);
+    }
+
+    /**
+     * Wystąpienia wielu zadań - każde zadanie chronologicznie, zadania w kolejności kolekcji.
+     */
+    public static Stream<TaskOccurrence> stream(Collection<Task> tasks, LocalDate from, LocalDate to) {
+        return tasks.stream().flatMap(task -> stream(task, from, to));
+    }
+
+    public static Spliterator<TaskOccurrence> spliterator(Task task, LocalDate from, LocalDate to) {
+        return new OccurrenceSpliterator(task, from, to);
+    }
+
+    /**
+     * Pierwsze wystąpienie w dniu {@code day} lub później albo null, gdy już żadnego nie będzie.
+     */
+    public static LocalDate next(Task task, LocalDate day) {
+        LocalDate start = task.getDueDate();
+        if (start == null) return null;
+        if (!isSeries(task)) return start.isBefore(day) ? null : start;
+        LocalDate next = task.getRecurringPattern().nextOccurrence(start, 0, day.minusDays(1));
+        LocalDate end = task.getRecurringEndDate();
+        return end != null && next.isAfter(end) ? null : next;
+    }
+
+    public static boolean isSeries(Task task) {
+        return task.isRecurring() && task.getRecurringPattern() != null;
+    }
+
+    /**
+     * Wystąpienia jednego zadania w [next, last]. Podział okna na pół wyznacza początek drugiej połowy wprost,
+     * więc strumień równoległy też nie przechodzi po wystąpieniach, których nie zwraca.
+     */
+    private static final class OccurrenceSpliterator implements Spliterator<TaskOccurrence> {
+        private final Task task;
+        private final RecurringPattern pattern; // null = zadanie jednorazowe
+        private final LocalDate start;
+        private LocalDate next; // null = koniec
+        private final LocalDate last;
+
+        OccurrenceSpliterator(Task task, LocalDate from, LocalDate to) {
+            this.task = task;
+            this.pattern = isSeries(task) ? task.getRecurringPattern() : null;
+            this.start = task.getDueDate();
+            LocalDate end = pattern != null ? task.getRecurringEndDate() : start;
+            this.last = end != null && end.isBefore(to) ? end : to;
+            LocalDate first = start == null ? null : next(task, from);
+            this.next = first != null && !first.isAfter(last) ? first : null;
+        }
+
+        private OccurrenceSpliterator(OccurrenceSpliterator parent, LocalDate next, LocalDate last) {
+            this.task = parent.task;
+            this.pattern = parent.pattern;
+            this.start = parent.start;
+            this.next = next;
+            this.last = last;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TaskOccurrence> action) {
+            if (next == null) return false;
+            LocalDate day = next;
+            next = advance(day);
+            action.accept(new TaskOccurrence(task, day));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super TaskOccurrence> action) {
+            for (LocalDate day = next; day != null; day = advance(day)) {
+                action.accept(new TaskOccurrence(task, day));
+            }
+            next = null;
+        }
+
+        private LocalDate advance(LocalDate day) {
+            if (pattern == null) return null;
+            LocalDate following = pattern.nextOccurrence(start, 0, day);
+            return following.isAfter(last) ? null : following;
+        }
+
+        @Override
+        public Spliterator<TaskOccurrence> trySplit() {
+            if (next == null || pattern == null) return null;
+            LocalDate mid = next.plusDays((last.toEpochDay() - next.toEpochDay()) / 2);
+            LocalDate secondHalf = pattern.nextOccurrence(start, 0, mid);
+            if (secondHalf.isAfter(last)) return null;
+            // Ta instancja zostaje z drugą połową, pierwsza (wcześniejsza) idzie do prefiksu - zgodnie z ORDERED
+            OccurrenceSpliterator prefix = new OccurrenceSpliterator(this, next, mid);
+            next = secondHalf;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (next == null) return 0;
+            if (pattern == null) return 1;
+            return (long) ((last.toEpochDay() - next.toEpochDay()) / pattern.averageStepDays()) + 1;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+}
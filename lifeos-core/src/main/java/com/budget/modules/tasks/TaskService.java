@@ -1,6 +1,7 @@
 package com.budget.modules.tasks;
 
 import com.budget.model.Task;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface TaskService {
@@ -9,4 +10,6 @@ public interface TaskService {
     List<Task> getAllTasks();
     Task updateTask(Task task);
     void deleteTask(Long id);
+    // Wystąpienia zadań (cykliczne rozwinięte w dni) w oknie [from, to] - patrz TaskOccurrences
+    List<TaskOccurrence> getOccurrences(LocalDate from, LocalDate to);
 }
\ No newline at end of file
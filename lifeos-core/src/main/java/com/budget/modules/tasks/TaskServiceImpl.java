@@ -1,44 +1,50 @@
 package com.budget.modules.tasks;
 
 import com.budget.model.Task;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Bezpieczna wątkowo (AsyncRunner wywołuje serwisy z wielu wątków puli); w mapie własne kopie, na zewnątrz też kopie
 public class TaskServiceImpl implements TaskService {
     
-    private final Map<Long, Task> tasks = new HashMap<>();
-    private long taskIdCounter = 1;
+    private final Map<Long, Task> tasks = new ConcurrentHashMap<>();
+    private final AtomicLong taskIdCounter = new AtomicLong(1);
     
     @Override
     public Task createTask(Task task) {
-        task.setId(taskIdCounter++);
-        tasks.put(task.getId(), task);
+        task.setId(taskIdCounter.getAndIncrement());
+        tasks.put(task.getId(), task.toBuilder().build());
         return task;
     }
     
     @Override
     public Task getTaskById(Long id) {
-        return tasks.get(id);
+        Task task = tasks.get(id);
+        return task != null ? task.toBuilder().build() : null;
     }
     
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        return tasks.values().stream().map(task -> task.toBuilder().build()).toList();
     }
     
     @Override
     public Task updateTask(Task task) {
-        if (tasks.containsKey(task.getId())) {
-            tasks.put(task.getId(), task);
-            return task;
-        }
-        return null;
+        // Atomowo: równoległe deleteTask nie zostanie nadpisane
+        Task own = task.toBuilder().build();
+        return tasks.computeIfPresent(task.getId(), (id, old) -> own) != null ? task : null;
     }
     
     @Override
     public void deleteTask(Long id) {
         tasks.remove(id);
     }
+
+    @Override
+    public List<TaskOccurrence> getOccurrences(LocalDate from, LocalDate to) {
+        return TaskOccurrences.stream(getAllTasks(), from, to).toList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.budget.bench;
+
+import com.budget.model.Dashboard;
+import com.budget.model.Habit;
+import com.budget.model.HabitCategory;
+import com.budget.model.HabitFrequency;
+import com.budget.model.HabitRecord;
+import com.budget.modules.dashboard.DashboardServiceImpl;
+import com.budget.modules.habits.HabitServiceImpl;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Pomiar ścieżek dashboardu nawyków na dużej historii (domyślnie 50 nawyków x 2000 dni = 100 tys. wpisów).
+ * Mierzy {@link HabitServiceImpl} w postaci, w jakiej trafia do aplikacji - w tym zapytania, dla których kiedyś
+ * planowano indeksy (nawyk -&gt; wpisy po dacie, data -&gt; wpisy): zakres dat nawyku, wpis z jednego dnia i dzień dla
+ * wszystkich nawyków.
+ * Zwykła klasa z main (nie test - surefire jej nie uruchamia):
+ * <pre>
+ * mvn -pl lifeos-core test-compile
+ * java -cp lifeos-core/target/classes:lifeos-core/target/test-classes com.budget.bench.HabitDashboardBenchmark [nawyki] [dni] [rundy]
+ * </pre>
+ * Pierwsze rundy to rozgrzewka JIT - porównywać ostatnie.
+ */
+public class HabitDashboardBenchmark {
+
+    public static void main(String[] args) {
+        int habitCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        HabitServiceImpl habits = new HabitServiceImpl();
+        LocalDate today = LocalDate.now();
+        Random random = new Random(1); // stałe ziarno - te same dane przy każdym uruchomieniu
+        HabitCategory[] categories = HabitCategory.values();
+        for (int h = 0; h < habitCount; h++) {
+            Habit habit = habits.createHabit(Habit.builder()
+                    .name("nawyk " + h)
+                    .category(categories[h % categories.length])
+                    .frequency(HabitFrequency.DAILY)
+                    .startDate(today.minusDays(days))
+                    .active(true)
+                    .build());
+            for (int d = days - 1; d >= 0; d--) {
+                habits.addRecord(new HabitRecord(null, habit.getId(), today.minusDays(d), random.nextInt(10) < 8, null, 3));
+            }
+        }
+        System.out.printf("Dane: %d nawyków x %d dni = %d wpisów%n", habitCount, days, (long) habitCount * days);
+
+        DashboardServiceImpl dashboard = new DashboardServiceImpl(habits, null, null, null, null);
+        LocalDate weekStart = today.minusDays(today.getDayOfWeek().getValue() - 1);
+        for (int round = 1; round <= rounds; round++) {
+            long t0 = System.nanoTime();
+            Dashboard result = dashboard.getDashboard();
+
+            long t1 = System.nanoTime();
+            long weekly = 0;
+            for (LocalDate day = weekStart; !day.isAfter(today); day = day.plusDays(1)) {
+                weekly += habits.getRecordsForDate(day).stream().filter(HabitRecord::isCompleted).count();
+            }
+
+            long t2 = System.nanoTime();
+            int calendarDays = 0;
+            for (Habit habit : habits.getAllHabits()) {
+                calendarDays += habits.getCompletionCalendar(habit.getId(), today.minusDays(29), today).size();
+            }
+
+            long t3 = System.nanoTime();
+            for (Habit habit : habits.getAllHabits()) {
+                habits.uncompleteHabitForToday(habit.getId());
+                habits.completeHabitForToday(habit.getId(), null, 2);
+            }
+
+            long t4 = System.nanoTime();
+            int best = 0;
+            for (Habit habit : habits.getAllHabits()) {
+                best = Math.max(best, habits.getBestStreak(habit.getId()));
+            }
+
+            long t5 = System.nanoTime();
+            int inRange = 0;
+            for (Habit habit : habits.getAllHabits()) {
+                inRange += habits.getRecordsForHabit(habit.getId(), today.minusDays(89), today).size();
+            }
+
+            long t6 = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < 10_000; i++) {
+                long habitId = 1 + random.nextInt(habitCount);
+                if (habits.getRecordForHabitAndDate(habitId, today.minusDays(random.nextInt(days))) != null) found++;
+            }
+            long t7 = System.nanoTime();
+
+            System.out.printf("runda %d: dashboard %.2f ms [dziś %d] | tydzień po dniach %.2f ms [%d] | kalendarze 30 dni %.2f ms [%d]"
+                            + " | odhacz/cofnij dziś %.2f ms | najlepsze serie %.2f ms [%d] | zakresy 90 dni %.2f ms [%d]"
+                            + " | 10 tys. wpisów z dnia %.2f ms [%d]%n",
+                    round, ms(t0, t1), result.getHabitsCompletedToday(), ms(t1, t2), weekly, ms(t2, t3), calendarDays,
+                    ms(t3, t4), ms(t4, t5), best, ms(t5, t6), inRange, ms(t6, t7), found);
+        }
+    }
+
+    private static double ms(long from, long to) {
+        return (to - from) / 1e6;
+    }
+}
@@ -0,0 +1,72 @@
+package com.budget.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecurringPatternTest {
+
+    @Test
+    void monthEndAndLeapDayAreClampedPerMonth() {
+        LocalDate jan31 = LocalDate.of(2024, 1, 31);
+        assertEquals(LocalDate.of(2024, 2, 29), RecurringPattern.MONTHLY.nextOccurrence(jan31, 0, jan31));
+        assertEquals(LocalDate.of(2024, 3, 31), RecurringPattern.MONTHLY.nextOccurrence(jan31, 0, LocalDate.of(2024, 2, 29)));
+        assertEquals(LocalDate.of(2025, 2, 28), RecurringPattern.MONTHLY.nextOccurrence(jan31, 0, LocalDate.of(2025, 1, 31)));
+        assertEquals(LocalDate.of(2024, 4, 30), RecurringPattern.QUARTERLY.nextOccurrence(jan31, 0, jan31));
+
+        LocalDate leapDay = LocalDate.of(2024, 2, 29);
+        assertEquals(LocalDate.of(2025, 2, 28), RecurringPattern.YEARLY.nextOccurrence(leapDay, 0, leapDay));
+        assertEquals(LocalDate.of(2028, 2, 29), RecurringPattern.YEARLY.nextOccurrence(leapDay, 0, LocalDate.of(2027, 2, 28)));
+
+        // Dzień z reguły zamiast dnia startu; pierwsze wystąpienie nie może wypaść przed startem
+        LocalDate jan20 = LocalDate.of(2024, 1, 20);
+        assertEquals(LocalDate.of(2024, 1, 31), RecurringPattern.MONTHLY.nextOccurrence(jan20, 31, LocalDate.of(2023, 12, 1)));
+        assertEquals(LocalDate.of(2024, 2, 5), RecurringPattern.MONTHLY.nextOccurrence(jan20, 5, LocalDate.of(2023, 12, 1)));
+    }
+
+    @Test
+    void matchesSeriesWalkedStepByStep() {
+        LocalDate[] starts = {
+                LocalDate.of(2023, 12, 31), LocalDate.of(2024, 1, 29), LocalDate.of(2024, 1, 30), LocalDate.of(2024, 1, 31),
+                LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 15), LocalDate.of(2024, 11, 30)};
+        int[] daysOfMonth = {0, 1, 15, 28, 29, 30, 31};
+        for (RecurringPattern pattern : RecurringPattern.values()) {
+            for (LocalDate start : starts) {
+                for (int dayOfMonth : daysOfMonth) {
+                    LocalDate[] series = walk(pattern, start, dayOfMonth, start.plusYears(9));
+                    int i = 0;
+                    for (LocalDate after = start.minusDays(40); after.isBefore(start.plusYears(8)); after = after.plusDays(3)) {
+                        while (!series[i].isAfter(after)) i++;
+                        assertEquals(series[i], pattern.nextOccurrence(start, dayOfMonth, after),
+                                pattern + " od " + start + ", dzień " + dayOfMonth + ", po " + after);
+                    }
+                }
+            }
+        }
+    }
+
+    // Seria krok po kroku: dni od startu albo kolejne miesiące z dniem obciętym do długości miesiąca
+    private static LocalDate[] walk(RecurringPattern pattern, LocalDate start, int dayOfMonth, LocalDate until) {
+        List<LocalDate> days = new ArrayList<>();
+        switch (pattern) {
+            case DAILY, WEEKLY, BIWEEKLY -> {
+                int step = pattern == RecurringPattern.DAILY ? 1 : pattern == RecurringPattern.WEEKLY ? 7 : 14;
+                for (LocalDate d = start; !d.isAfter(until); d = d.plusDays(step)) days.add(d);
+            }
+            default -> {
+                int step = pattern == RecurringPattern.MONTHLY ? 1 : pattern == RecurringPattern.QUARTERLY ? 3 : 12;
+                int day = dayOfMonth > 0 ? dayOfMonth : start.getDayOfMonth();
+                for (YearMonth m = YearMonth.from(start); !m.atDay(1).isAfter(until); m = m.plusMonths(step)) {
+                    LocalDate d = m.atDay(Math.min(day, m.lengthOfMonth()));
+                    if (!d.isBefore(start)) days.add(d);
+                }
+            }
+        }
+        return days.toArray(LocalDate[]::new);
+    }
+}
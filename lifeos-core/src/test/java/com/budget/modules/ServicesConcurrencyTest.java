@@ -0,0 +1,163 @@
+package com.budget.modules;
+
+import com.budget.model.Goal;
+import com.budget.model.Habit;
+import com.budget.model.HabitRecord;
+import com.budget.model.Report;
+import com.budget.model.Task;
+import com.budget.model.TaskStatus;
+import com.budget.modules.finance.domain.Purse;
+import com.budget.modules.finance.domain.PurseServiceImpl;
+import com.budget.modules.goals.GoalServiceImpl;
+import com.budget.modules.habits.HabitServiceImpl;
+import com.budget.modules.reports.ReportServiceImpl;
+import com.budget.modules.tasks.TaskServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serwisy z wielu wątków naraz (tak jak wywołuje je AsyncRunner) - na końcu nic nie może zginąć ani się zdublować.
+ */
+class ServicesConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPS = 2_000;
+    private static final int SHARED_HABITS = 16;
+
+    @Test
+    void concurrentWritesKeepEveryEntity() throws Exception {
+        HabitServiceImpl habits = new HabitServiceImpl();
+        GoalServiceImpl goals = new GoalServiceImpl();
+        TaskServiceImpl tasks = new TaskServiceImpl();
+        PurseServiceImpl purses = new PurseServiceImpl();
+        ReportServiceImpl reports = new ReportServiceImpl(habits, null, goals, tasks, purses);
+
+        List<Long> shared = new ArrayList<>();
+        for (int i = 0; i < SHARED_HABITS; i++) {
+            shared.add(habits.createHabit(Habit.builder().name("nawyk " + i).active(true).build()).getId());
+        }
+        LocalDate today = LocalDate.now();
+        // Każdy wątek pisze na własne dni - żaden wpis nie zastępuje cudzego
+        LocalDate base = today.minusDays((long) THREADS * OPS + 10);
+        ConcurrentLinkedQueue<Long> deletedHabits = new ConcurrentLinkedQueue<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            workers.add(pool.submit(() -> {
+                start.await();
+                Random random = new Random(thread);
+                for (int i = 0; i < OPS; i++) {
+                    goals.createGoal(new Goal());
+                    tasks.createTask(new Task());
+                    purses.createPurse(new Purse());
+                    reports.saveReport(new Report());
+
+                    Long habitId = shared.get(random.nextInt(SHARED_HABITS));
+                    habits.addRecord(new HabitRecord(null, habitId, base.plusDays((long) thread * OPS + i),
+                            random.nextBoolean(), null, 1));
+                    if (random.nextBoolean()) habits.completeHabitForToday(habitId, null, 2);
+                    else habits.uncompleteHabitForToday(habitId);
+
+                    if (i % 50 == 0) {
+                        // Nawyk tymczasowy: wpisy i usunięcie razem z historią
+                        Long temporary = habits.createHabit(Habit.builder().name("tymczasowy").build()).getId();
+                        for (int k = 0; k < 5; k++) {
+                            habits.addRecord(new HabitRecord(null, temporary, base.plusDays(k), true, null, 1));
+                        }
+                        habits.deleteHabit(temporary);
+                        deletedHabits.add(temporary);
+                    }
+                    if (i % 200 == 0) {
+                        habits.getHabitStats(today);
+                        habits.getRecordsForDate(today);
+                        goals.getAllGoals();
+                    }
+                }
+                return null;
+            }));
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            start.countDown();
+            for (Future<?> worker : workers) worker.get();
+        });
+        pool.shutdown();
+
+        int expected = THREADS * OPS;
+        assertEquals(expected, uniqueIds(goals.getAllGoals().stream().map(Goal::getId).toList()));
+        assertEquals(expected, uniqueIds(tasks.getAllTasks().stream().map(Task::getId).toList()));
+        assertEquals(expected, uniqueIds(purses.getAllPurses().stream().map(Purse::getId).toList()));
+        assertEquals(expected, reports.getAllReports().size());
+
+        long datedRecords = 0;
+        for (Long habitId : shared) {
+            List<HabitRecord> records = habits.getRecordsForHabit(habitId);
+            datedRecords += records.stream().filter(r -> !r.getDate().equals(today)).count();
+            assertEquals(records.size(), habits.getHistory(habitId).trackedCount());
+        }
+        assertEquals(expected, datedRecords);
+        assertTrue(habits.getRecordsForDate(today).size() <= SHARED_HABITS);
+        for (Long deleted : deletedHabits) {
+            assertNull(habits.getHabitById(deleted));
+            assertNull(habits.getHistory(deleted));
+        }
+        assertEquals(SHARED_HABITS, habits.getAllHabits().size());
+    }
+
+    @Test
+    void servicesHandOutCopies() {
+        GoalServiceImpl goals = new GoalServiceImpl();
+        Goal goal = goals.createGoal(Goal.builder().name("Wakacje").targetAmountMinor(100_00).build());
+        goal.setName("zmienione po utworzeniu");
+        Goal read = goals.getGoalById(goal.getId());
+        read.addProgressMinor(50_00);
+        assertEquals("Wakacje", goals.getAllGoals().get(0).getName());
+        assertEquals(0, goals.getGoalById(goal.getId()).getCurrentAmountMinor());
+        assertTrue(goals.getGoalById(goal.getId()).getProgressHistory().isEmpty());
+        goals.updateGoal(read);
+        assertEquals(50_00, goals.getGoalById(goal.getId()).getCurrentAmountMinor());
+
+        TaskServiceImpl tasks = new TaskServiceImpl();
+        Task task = tasks.createTask(Task.builder().title("Zakupy").build());
+        tasks.getTaskById(task.getId()).complete();
+        tasks.getAllTasks().get(0).setTitle("inne");
+        assertEquals(TaskStatus.PENDING, tasks.getTaskById(task.getId()).getStatus());
+        assertEquals("Zakupy", tasks.getTaskById(task.getId()).getTitle());
+
+        PurseServiceImpl purses = new PurseServiceImpl();
+        Purse purse = purses.createPurse(new Purse());
+        purses.getPurseById((long) purse.getId()).setSpentMinor(10_00);
+        purses.getAllPurses().get(0).setLocked(true);
+        assertEquals(0, purses.getPurseById((long) purse.getId()).getSpentMinor());
+        assertFalse(purses.getPurseById((long) purse.getId()).isLocked());
+    }
+
+    // Liczba różnych, niepustych ID - zgubiony wpis albo zdublowane ID zaniżają wynik
+    private static int uniqueIds(List<?> ids) {
+        Set<Object> unique = new HashSet<>();
+        for (Object id : ids) {
+            if (id != null) unique.add(id);
+        }
+        return unique.size();
+    }
+}
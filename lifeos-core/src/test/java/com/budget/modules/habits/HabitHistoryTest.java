@@ -0,0 +1,82 @@
+package com.budget.modules.habits;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitHistoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void countersFollowRandomChanges() {
+        Random random = new Random(24);
+        for (int round = 0; round < 200; round++) {
+            HabitHistory history = new HabitHistory();
+            for (int op = 0; op < 150; op++) {
+                // Dni po obu stronach granic słów i z rozszerzaniem tablic w tył
+                LocalDate day = DAY.plusDays(random.nextInt(200) - 60);
+                switch (random.nextInt(4)) {
+                    case 0, 1 -> history.record(day, random.nextInt(4) != 0, random.nextInt(8), null);
+                    case 2 -> history.setCompleted(day, random.nextBoolean());
+                    default -> history.remove(day);
+                }
+                assertMatchesBitmaps(history, day);
+            }
+            assertTrue(history.verifyCounters());
+        }
+    }
+
+    @Test
+    void streaksAcrossWordBoundary() {
+        HabitHistory history = new HabitHistory();
+        for (int i = 0; i < 100; i++) history.record(DAY.plusDays(i), true, 0, null);
+        assertEquals(100, history.bestStreak());
+        assertEquals(100, history.currentStreak(DAY.plusDays(99)));
+
+        history.setCompleted(DAY.plusDays(40), false);
+        assertEquals(59, history.bestStreak());
+        assertEquals(59, history.currentStreak(DAY.plusDays(99)));
+        assertEquals(40, history.currentStreak(DAY.plusDays(39)));
+        assertEquals(0, history.currentStreak(DAY.plusDays(100)));
+
+        history.setCompleted(DAY.plusDays(40), true);
+        assertEquals(100, history.bestStreak());
+        assertEquals(DAY.plusDays(99), history.lastCompleted());
+
+        history.remove(DAY.plusDays(99));
+        assertEquals(DAY.plusDays(98), history.lastCompleted());
+        assertEquals(99, history.trackedCount());
+    }
+
+    @Test
+    void verifyRebuildsDriftedCounters() {
+        HabitHistory history = new HabitHistory();
+        history.record(DAY, true, 1, null);
+        assertTrue(history.verifyCounters());
+
+        HabitHistory empty = new HabitHistory();
+        assertNull(empty.lastCompleted());
+        assertFalse(empty.isCompleted(DAY));
+        assertTrue(empty.verifyCounters());
+    }
+
+    // Kopia liczy liczniki od zera z bitmap
+    private static void assertMatchesBitmaps(HabitHistory history, LocalDate day) {
+        HabitHistory fresh = history.copy();
+        assertEquals(fresh.trackedCount(), history.trackedCount(), "wpisy po zmianie " + day);
+        assertEquals(fresh.completedCount(), history.completedCount(), "wykonania po zmianie " + day);
+        assertEquals(fresh.bestStreak(), history.bestStreak(), "najlepsza seria po zmianie " + day);
+        assertEquals(fresh.lastCompleted(), history.lastCompleted(), "ostatnie wykonanie po zmianie " + day);
+        LocalDate last = history.lastCompleted();
+        if (last != null) {
+            assertEquals(HabitStreakEngine.currentStreak(history, last), history.currentStreak(last), "seria po zmianie " + day);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.budget.modules.habits;
+
+import com.budget.model.Habit;
+import com.budget.model.HabitCategory;
+import com.budget.model.HabitFrequency;
+import com.budget.model.HabitRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitServiceImplTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    // Repozytorium w pamięci - trzyma zakodowane historie, tak jak kolumna habit_history
+    static class MemoryRepository implements HabitHistoryRepository {
+        final Map<Long, byte[]> rows = new HashMap<>();
+
+        @Override
+        public Map<Long, HabitHistory> loadAll() {
+            Map<Long, HabitHistory> histories = new HashMap<>();
+            rows.forEach((id, data) -> {
+                try {
+                    histories.put(id, HabitHistoryCodec.decode(data));
+                } catch (java.io.IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            return histories;
+        }
+
+        @Override public void save(Long habitId, HabitHistory history) { rows.put(habitId, HabitHistoryCodec.encode(history)); }
+        @Override public void delete(Long habitId) { rows.remove(habitId); }
+    }
+
+    static class MemoryHabitRepository implements HabitRepository {
+        final Map<Long, Habit> rows = new HashMap<>();
+
+        @Override public List<Habit> loadAll() { return rows.values().stream().map(h -> h.toBuilder().build()).toList(); }
+        @Override public void save(Habit habit) { rows.put(habit.getId(), habit.toBuilder().build()); }
+        @Override public void delete(Long habitId) { rows.remove(habitId); }
+    }
+
+    static Habit habit(String name) {
+        Habit habit = new Habit();
+        habit.setName(name);
+        habit.setCategory(HabitCategory.HEALTH);
+        habit.setFrequency(HabitFrequency.DAILY);
+        habit.setStartDate(DAY);
+        habit.setActive(true);
+        return habit;
+    }
+
+    @Test
+    void recordsAreReadBackFromHistory() {
+        HabitServiceImpl service = new HabitServiceImpl();
+        Long id = service.createHabit(habit("Bieganie")).getId();
+        service.addRecord(new HabitRecord(null, id, DAY, true, "5 km", 3));
+        service.addRecord(new HabitRecord(null, id, DAY.plusDays(1), false, null, 0));
+        service.addRecord(new HabitRecord(null, id, DAY.plusDays(2), true, null, 2));
+        // Drugi wpis z tego samego dnia zastępuje pierwszy
+        service.addRecord(new HabitRecord(null, id, DAY.plusDays(2), true, "poprawka", 4));
+
+        List<HabitRecord> records = service.getRecordsForHabit(id);
+        assertEquals(3, records.size());
+        assertEquals("5 km", records.get(0).getNotes());
+        assertFalse(records.get(1).isCompleted());
+        assertEquals(4, records.get(2).getDifficulty());
+        assertEquals(2, service.getRecordsForHabit(id, DAY.plusDays(1), DAY.plusDays(5)).size());
+        assertEquals(1, service.getRecordsForDate(DAY).size());
+        assertNull(service.getRecordForHabitAndDate(id, DAY.minusDays(1)));
+
+        // Zwracane wpisy to kopie - zmiana nie dotyka serwisu
+        records.get(0).setCompleted(false);
+        assertTrue(service.getRecordForHabitAndDate(id, DAY).isCompleted());
+
+        HabitStats stats = service.getHabitStats(DAY.plusDays(2)).get(id);
+        assertEquals(3, stats.trackedDays());
+        assertEquals(2, stats.completedDays());
+        assertEquals(1, stats.currentStreak());
+        assertEquals(1, service.getBestStreak(id));
+        assertEquals(0, service.verifyHabitStats());
+    }
+
+    @Test
+    void returnedHabitsAreCopies() {
+        HabitServiceImpl service = new HabitServiceImpl();
+        Habit created = service.createHabit(habit("Bieganie"));
+        created.setName("zmienione po utworzeniu");
+
+        Habit read = service.getHabitById(created.getId());
+        assertEquals("Bieganie", read.getName());
+        read.setName("Spacer");
+        assertEquals("Bieganie", service.getAllHabits().get(0).getName());
+
+        service.updateHabit(read);
+        assertEquals("Spacer", service.getHabitById(created.getId()).getName());
+    }
+
+    @Test
+    void recordWithoutDateIsRejected() {
+        HabitServiceImpl service = new HabitServiceImpl();
+        Long id = service.createHabit(habit("Czytanie")).getId();
+        assertThrows(IllegalArgumentException.class, () -> service.addRecord(new HabitRecord(null, id, null, true, null, 0)));
+        assertEquals(0, service.getHabitStats(DAY).get(id).trackedDays());
+    }
+
+    @Test
+    void historyIsSavedAndLoadedThroughRepository() {
+        MemoryHabitRepository habits = new MemoryHabitRepository();
+        MemoryRepository repository = new MemoryRepository();
+        HabitServiceImpl service = new HabitServiceImpl(habits, repository);
+        Long id = service.createHabit(habit("Medytacja")).getId();
+        for (int i = 0; i < 10; i++) {
+            service.addRecord(new HabitRecord(null, id, DAY.plusDays(i), true, null, 1));
+        }
+
+        HabitServiceImpl restarted = new HabitServiceImpl(habits, repository);
+        assertEquals("Medytacja", restarted.getHabitById(id).getName());
+        assertEquals(10, restarted.getRecordsForHabit(id).size());
+        assertEquals(10, restarted.getBestStreak(id));
+        // Nowy nawyk po restarcie dostaje nowe ID i pustą historię
+        Long next = restarted.createHabit(habit("Bieganie")).getId();
+        assertTrue(next > id);
+        assertTrue(restarted.getRecordsForHabit(next).isEmpty());
+
+        restarted.deleteHabit(id);
+        assertFalse(repository.rows.containsKey(id));
+        assertFalse(habits.rows.containsKey(id));
+    }
+
+    @Test
+    void orphanedHistoryIsNotGivenToNewHabit() {
+        MemoryRepository repository = new MemoryRepository();
+        HabitHistory old = new HabitHistory();
+        old.record(DAY, true, 1, "z poprzedniej sesji");
+        repository.save(1L, old);
+
+        HabitServiceImpl service = new HabitServiceImpl(new MemoryHabitRepository(), repository);
+        Long id = service.createHabit(habit("Nowy")).getId();
+
+        assertTrue(id > 1L);
+        assertTrue(service.getRecordsForHabit(id).isEmpty());
+        assertTrue(repository.rows.containsKey(1L)); // osierocona historia zostaje w bazie
+    }
+
+    @Test
+    void recordsForUnknownHabitAreRejected() {
+        HabitServiceImpl service = new HabitServiceImpl();
+        Long id = service.createHabit(habit("Czytanie")).getId();
+        service.deleteHabit(id);
+
+        assertThrows(IllegalArgumentException.class, () -> service.addRecord(new HabitRecord(null, id, DAY, true, null, 0)));
+        assertThrows(IllegalArgumentException.class, () -> service.completeHabitForToday(99L, null, 1));
+        assertNull(service.getHistory(id));
+    }
+
+    @Test
+    void readersDoNotWaitForSave() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MemoryRepository repository = new MemoryRepository() {
+            @Override
+            public void save(Long habitId, HabitHistory history) {
+                saving.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.save(habitId, history);
+            }
+        };
+        HabitServiceImpl service = new HabitServiceImpl(new MemoryHabitRepository(), repository);
+        Long id = service.createHabit(habit("Medytacja")).getId();
+
+        Thread writer = new Thread(() -> service.addRecord(new HabitRecord(null, id, DAY, true, null, 2)));
+        writer.start();
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+        // Zapis wisi na "dysku" - odczyty i zmiany innych nawyków idą dalej
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals(1, service.getRecordsForHabit(id).size());
+            service.getHabitStats(DAY);
+            service.createHabit(habit("Inny"));
+        });
+        release.countDown();
+        writer.join(5_000);
+
+        assertEquals(1, repository.loadAll().get(id).trackedCount());
+    }
+
+    @Test
+    void latestStateWinsWhenSavesOverlap() throws Exception {
+        MemoryRepository repository = new MemoryRepository() {
+            @Override
+            public synchronized void save(Long habitId, HabitHistory history) {
+                super.save(habitId, history);
+            }
+        };
+        HabitServiceImpl service = new HabitServiceImpl(new MemoryHabitRepository(), repository);
+        Long id = service.createHabit(habit("Woda")).getId();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> {
+                for (int d = 0; d < 200; d++) {
+                    service.addRecord(new HabitRecord(null, id, DAY.plusDays(thread * 200L + d), true, null, 1));
+                }
+            }));
+        }
+        for (Future<?> writer : writers) writer.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(800, repository.loadAll().get(id).trackedCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.budget.modules.tasks;
+
+import com.budget.model.RecurringPattern;
+import com.budget.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskOccurrencesTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 15);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 10);
+
+    @Test
+    void monthEndSeriesInWindow() {
+        Task task = series(RecurringPattern.MONTHLY, LocalDate.of(2023, 10, 31), LocalDate.of(2024, 6, 30));
+
+        assertEquals(List.of(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 31),
+                LocalDate.of(2024, 4, 30), LocalDate.of(2024, 5, 31), LocalDate.of(2024, 6, 30)), days(task, FROM, TO));
+
+        Task leapDay = series(RecurringPattern.YEARLY, LocalDate.of(2020, 2, 29), null);
+        assertEquals(List.of(LocalDate.of(2024, 2, 29), LocalDate.of(2025, 2, 28), LocalDate.of(2026, 2, 28)),
+                days(leapDay, FROM, TO));
+    }
+
+    @Test
+    void splitsCoverWindowWithoutGapsOrDuplicates() {
+        LocalDate[] starts = {LocalDate.of(2023, 1, 31), LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 29), LocalDate.of(2025, 12, 31)};
+        LocalDate[] ends = {null, LocalDate.of(2024, 1, 15), LocalDate.of(2025, 7, 1), LocalDate.of(2030, 1, 1)};
+        for (RecurringPattern pattern : RecurringPattern.values()) {
+            for (LocalDate start : starts) {
+                for (LocalDate end : ends) {
+                    if (end != null && end.isBefore(start)) continue;
+                    Task task = series(pattern, start, end);
+                    List<LocalDate> expected = days(task, FROM, TO);
+                    String label = pattern + " od " + start + " do " + end;
+
+                    List<LocalDate> leaves = new ArrayList<>();
+                    splitToLeaves(TaskOccurrences.spliterator(task, FROM, TO), leaves);
+                    assertEquals(expected, leaves, label);
+                    assertEquals(expected, StreamSupport.stream(TaskOccurrences.spliterator(task, FROM, TO), true)
+                            .map(TaskOccurrence::date).toList(), label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void oneOffTaskDoesNotSplit() {
+        Task task = Task.builder().title("raz").dueDate(LocalDate.of(2024, 3, 1)).build();
+        Spliterator<TaskOccurrence> spliterator = TaskOccurrences.spliterator(task, FROM, TO);
+
+        assertEquals(null, spliterator.trySplit());
+        assertEquals(List.of(LocalDate.of(2024, 3, 1)), days(task, FROM, TO));
+        assertTrue(days(task, LocalDate.of(2024, 3, 2), TO).isEmpty());
+    }
+
+    // Dzieli, dopóki się da; prefiks jest wcześniejszy, więc odwiedzanie prefiks -> reszta zachowuje kolejność
+    private static void splitToLeaves(Spliterator<TaskOccurrence> spliterator, List<LocalDate> into) {
+        Spliterator<TaskOccurrence> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            spliterator.forEachRemaining(o -> into.add(o.date()));
+            return;
+        }
+        splitToLeaves(prefix, into);
+        splitToLeaves(spliterator, into);
+    }
+
+    // Wzorzec: seria przechodzona po kolei od startu, obcięta do okna i końca serii
+    private static List<LocalDate> days(Task task, LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<>();
+        LocalDate day = task.getDueDate();
+        while (day != null && !day.isAfter(to) && (task.getRecurringEndDate() == null || !day.isAfter(task.getRecurringEndDate()))) {
+            if (!day.isBefore(from)) days.add(day);
+            day = task.isRecurring() ? task.getRecurringPattern().nextOccurrence(task.getDueDate(), 0, day) : null;
+        }
+        List<LocalDate> streamed = TaskOccurrences.stream(task, from, to).map(TaskOccurrence::date).toList();
+        assertEquals(days, streamed);
+        return days;
+    }
+
+    private static Task series(RecurringPattern pattern, LocalDate start, LocalDate end) {
+        return Task.builder()
+                .title("seria")
+                .dueDate(start)
+                .recurring(true)
+                .recurringPattern(pattern)
+                .recurringEndDate(end)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.budget.dao;
+
+import com.budget.model.Money;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Wynik {@link BalanceLedgerDAO#verify()}: saldo z księgi vs. przeliczone z transakcji.
+ */
+public record BalanceLedgerCheck(
+        boolean consistent,
+        long ledgerBalanceMinor,
+        long actualBalanceMinor,
+        List<YearMonth> driftedMonths
+) {
+    @Override
+    public String toString() {
+        return consistent
+                ? String.format("Księga sald zgodna (saldo %s)", Money.format(ledgerBalanceMinor))
+                : String.format("Rozjazd księgi sald: księga %s, transakcje %s, miesiące: %s",
+                        Money.format(ledgerBalanceMinor), Money.format(actualBalanceMinor), driftedMonths);
+    }
+}
@@ -0,0 +1,214 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
+import com.budget.model.Money;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Utrzymywane saldo zamiast SUM po całej tabeli transakcji.
+ * <p>
+ * {@code balance_monthly} trzyma sumy przychodów/wydatków per miesiąc, {@code balance_total} - jeden wiersz z sumą całkowitą.
+ * Obie tabele są aktualizowane w tej samej transakcji co zapis do {@code transactions}
+ * (patrz {@link TransactionDAO}, {@link TransactionBatchWriter}), więc saldo bieżące to odczyt jednego wiersza,
+ * a saldo na dzień - suma miesięcy + jeden niepełny miesiąc z surowych danych.
+ */
+public class BalanceLedgerDAO {
+
+    private static final String MERGE_MONTH_SQL = """
+            MERGE INTO balance_monthly m
+            USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS INT))) AS d(month_start, income, expense, tx_count)
+            ON m.month_start = d.month_start
+            WHEN MATCHED THEN UPDATE SET income_minor = m.income_minor + d.income, expense_minor = m.expense_minor + d.expense,
+                tx_count = m.tx_count + d.tx_count
+            WHEN NOT MATCHED THEN INSERT (month_start, income_minor, expense_minor, tx_count) VALUES (d.month_start, d.income, d.expense, d.tx_count)""";
+
+    private static final String UPDATE_TOTAL_SQL =
+            "UPDATE balance_total SET income_minor = income_minor + ?, expense_minor = expense_minor + ?, tx_count = tx_count + ? WHERE id = 1";
+
+    // Zapytanie "prawdziwych" sum z surowych transakcji - do weryfikacji i przebudowy (type: 1 = przychód, 2 = wydatek)
+    private static final String ACTUAL_MONTHLY_SQL = """
+            SELECT month_start, SUM(income) AS income_minor, SUM(expense) AS expense_minor, COUNT(*) AS tx_count FROM (
+                SELECT CAST(DATE_TRUNC('MONTH', date) AS DATE) AS month_start,
+                       CASE WHEN type = 1 THEN amount_minor ELSE 0 END AS income,
+                       CASE WHEN type = 2 THEN amount_minor ELSE 0 END AS expense
+                FROM transactions WHERE date IS NOT NULL
+            ) GROUP BY month_start""";
+
+    // --- ODCZYT ---
+
+    /**
+     * Saldo wszystkich transakcji w groszach - jeden wiersz, niezależnie od wielkości tabeli.
+     */
+    public long getCurrentBalanceMinor() {
+        return QueryCache.get("BalanceLedgerDAO.getCurrentBalance", List.of(), this::loadCurrentBalance, "transactions");
+    }
+
+    public double getCurrentBalance() {
+        return Money.toDouble(getCurrentBalanceMinor());
+    }
+
+    private long loadCurrentBalance() {
+        String sql = "SELECT income_minor - expense_minor FROM balance_total WHERE id = 1";
+        try (Connection conn = DatabaseService.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) return rs.getLong(1);
+        } catch (SQLException e) { e.printStackTrace(); }
+        return 0L;
+    }
+
+    /**
+     * Saldo w groszach na koniec podanego dnia (włącznie): pełne miesiące z księgi + bieżący miesiąc z indeksu dat.
+     */
+    public long getBalanceAtMinor(LocalDate date) {
+        LocalDate monthStart = date.withDayOfMonth(1);
+        String sql = """
+            SELECT
+                (SELECT COALESCE(SUM(income_minor - expense_minor), 0) FROM balance_monthly WHERE month_start < ?) +
+                (SELECT COALESCE(SUM(CASE WHEN type = 1 THEN amount_minor ELSE 0 END), 0) -
+                        COALESCE(SUM(CASE WHEN type = 2 THEN amount_minor ELSE 0 END), 0)
+                 FROM transactions WHERE date >= ? AND date < ?)""";
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(monthStart));
+            pstmt.setDate(2, Date.valueOf(monthStart));
+            pstmt.setDate(3, Date.valueOf(date.plusDays(1)));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return rs.getLong(1);
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return 0L;
+    }
+
+    public double getBalanceAt(LocalDate date) {
+        return Money.toDouble(getBalanceAtMinor(date));
+    }
+
+    // --- AKTUALIZACJA (w transakcji wywołującego) ---
+
+    /**
+     * Nanosi zmiany na księgę. {@code sign} = +1 dla dodanych, -1 dla usuniętych transakcji.
+     * Nie zatwierdza - robi to wywołujący razem z zapisem do {@code transactions}.
+     */
+    static void apply(Connection conn, Collection<Transaction> transactions, int sign) throws SQLException {
+        // Paczka importu zwykle dotyczy kilku miesięcy - jedna aktualizacja na miesiąc, nie na wiersz
+        Map<LocalDate, long[]> deltas = new HashMap<>();
+        long[] total = new long[3];
+        for (Transaction t : transactions) {
+            if (t.getDate() == null) continue;
+            long[] d = deltas.computeIfAbsent(t.getDate().withDayOfMonth(1), k -> new long[3]);
+            if (t.getType() == TransactionType.INCOME) d[0] += sign * t.getAmountMinor();
+            else if (t.getType() == TransactionType.EXPENSE) d[1] += sign * t.getAmountMinor();
+            d[2] += sign;
+        }
+        if (deltas.isEmpty()) return;
+        for (long[] d : deltas.values()) {
+            total[0] += d[0];
+            total[1] += d[1];
+            total[2] += d[2];
+        }
+
+        // Najpierw wiersz sumy: jego blokada szereguje zapisujących do commitu, więc dwa równoległe MERGE
+        // nie wstawią tego samego nowego miesiąca (naruszenie klucza). Dotyczy też CategoryRollupDAO wołanego po nas.
+        try (PreparedStatement update = conn.prepareStatement(UPDATE_TOTAL_SQL)) {
+            update.setLong(1, total[0]);
+            update.setLong(2, total[1]);
+            update.setInt(3, (int) total[2]);
+            update.executeUpdate();
+        }
+        try (PreparedStatement merge = conn.prepareStatement(MERGE_MONTH_SQL)) {
+            for (Map.Entry<LocalDate, long[]> e : deltas.entrySet()) {
+                long[] d = e.getValue();
+                merge.setDate(1, Date.valueOf(e.getKey()));
+                merge.setLong(2, d[0]);
+                merge.setLong(3, d[1]);
+                merge.setInt(4, (int) d[2]);
+                merge.addBatch();
+            }
+            merge.executeBatch();
+        }
+    }
+
+    // --- WERYFIKACJA / PRZEBUDOWA ---
+
+    /**
+     * Porównuje księgę z sumami liczonymi od zera z tabeli transakcji (pełny skan - do diagnostyki, nie do UI).
+     * Kwoty są w groszach, więc porównanie jest dokładne - bez tolerancji na zaokrąglenia.
+     */
+    public BalanceLedgerCheck verify() {
+        Map<LocalDate, long[]> ledger = new TreeMap<>();
+        Map<LocalDate, long[]> actual = new TreeMap<>();
+        long ledgerTotal = 0;
+        try (Connection conn = DatabaseService.connect();
+             Statement stmt = conn.createStatement()) {
+            readMonths(stmt, "SELECT month_start, income_minor, expense_minor, tx_count FROM balance_monthly", ledger);
+            readMonths(stmt, ACTUAL_MONTHLY_SQL, actual);
+            try (ResultSet rs = stmt.executeQuery("SELECT income_minor - expense_minor FROM balance_total WHERE id = 1")) {
+                if (rs.next()) ledgerTotal = rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd weryfikacji księgi sald", e);
+        }
+
+        List<YearMonth> drifted = new ArrayList<>();
+        TreeMap<LocalDate, long[]> allMonths = new TreeMap<>(ledger);
+        actual.forEach(allMonths::putIfAbsent);
+        for (LocalDate month : allMonths.keySet()) {
+            long[] l = ledger.getOrDefault(month, new long[3]);
+            long[] a = actual.getOrDefault(month, new long[3]);
+            if (!Arrays.equals(l, a)) {
+                drifted.add(YearMonth.from(month));
+            }
+        }
+        long actualTotal = actual.values().stream().mapToLong(a -> a[0] - a[1]).sum();
+        boolean consistent = drifted.isEmpty() && ledgerTotal == actualTotal;
+        return new BalanceLedgerCheck(consistent, ledgerTotal, actualTotal, drifted);
+    }
+
+    /**
+     * Przelicza księgę od zera w jednej transakcji (po ręcznych zmianach w bazie lub wykrytym rozjeździe).
+     */
+    public void rebuild() {
+        try (Connection conn = DatabaseService.connect()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DELETE FROM balance_monthly");
+                stmt.execute("INSERT INTO balance_monthly (month_start, income_minor, expense_minor, tx_count) " + ACTUAL_MONTHLY_SQL);
+                stmt.execute("""
+                    MERGE INTO balance_total (id, income_minor, expense_minor, tx_count) KEY(id)
+                    SELECT 1, COALESCE(SUM(income_minor), 0), COALESCE(SUM(expense_minor), 0), COALESCE(SUM(tx_count), 0)
+                    FROM balance_monthly""");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            QueryCache.invalidate("transactions");
+            System.out.println("✅ Księga sald przebudowana.");
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd przebudowy księgi sald", e);
+        }
+    }
+
+    private static void readMonths(Statement stmt, String sql, Map<LocalDate, long[]> into) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                into.put(rs.getDate("month_start").toLocalDate(),
+                        new long[]{rs.getLong("income_minor"), rs.getLong("expense_minor"), rs.getInt("tx_count")});
+            }
+        }
+    }
+}
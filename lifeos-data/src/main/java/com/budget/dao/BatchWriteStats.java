@@ -0,0 +1,17 @@
+package com.budget.dao;
+
+/**
+ * Podsumowanie zapisu wsadowego (ile wierszy, w ilu paczkach, jak szybko).
+ */
+public record BatchWriteStats(long rows, long chunks, long elapsedNanos) {
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d wierszy w %d paczkach, %.0f ms (%.0f wierszy/s)",
+                rows, chunks, elapsedNanos / 1_000_000.0, rowsPerSecond());
+    }
+}
@@ -1,33 +1,47 @@
 package com.budget.dao;
 
 import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
+
 import java.sql.*;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class BudgetDAO {
 
-    public Map<String, Double> getAllBudgets() {
-        Map<String, Double> budgets = new HashMap<>();
+    // Limity w groszach. Wynik z QueryCache - współdzielony, ale niemodyfikowalny (klucze i wartości niemutowalne)
+    public Map<String, Long> getAllBudgetsMinor() {
+        return QueryCache.get("BudgetDAO.getAllBudgets", List.of(), this::loadAllBudgets, "category_budgets");
+    }
+
+    private Map<String, Long> loadAllBudgets() {
+        Map<String, Long> budgets = new HashMap<>();
         String sql = "SELECT * FROM category_budgets";
         try (Connection conn = DatabaseService.connect();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                budgets.put(rs.getString("category"), rs.getDouble("monthly_limit"));
+                budgets.put(rs.getString("category"), rs.getLong("monthly_limit_minor"));
             }
         } catch (SQLException e) { e.printStackTrace(); }
-        return budgets;
+        return Collections.unmodifiableMap(budgets);
     }
 
-    public void setBudget(String category, double limit) {
+    public void setBudget(String category, long limitMinor) {
         // MERGE działa jak "Insert or Update" w H2
-        String sql = "MERGE INTO category_budgets (category, monthly_limit) KEY(category) VALUES (?, ?)";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, category);
-            pstmt.setDouble(2, limit);
-            pstmt.executeUpdate();
+        String sql = "MERGE INTO category_budgets (category, monthly_limit_minor) KEY(category) VALUES (?, ?)";
+        try {
+            // Ustawia wartość bezwzględnie - kolejne zmiany limitu tej samej kategorii można scalić
+            DatabaseService.write("category_budgets", "category_budgets:" + category, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, category);
+                    pstmt.setLong(2, limitMinor);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logRow(conn, "category_budgets", "category", category);
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 }
\ No newline at end of file
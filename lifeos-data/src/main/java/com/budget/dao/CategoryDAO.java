@@ -0,0 +1,177 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.changelog.Change;
+import com.budget.model.Category;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Słownik kategorii ({@code categories}): klucz w bazie <-> współdzielony obiekt {@link Category}.
+ * <p>
+ * Kategorii jest kilkadziesiąt, a każdy odczyt transakcji zamienia {@code category_id} na kategorię, więc cały
+ * słownik trzymamy w pamięci (wspólny dla wszystkich instancji DAO). Cały słownik czytamy raz; brakujący klucz
+ * (wiersz dopisany z zewnątrz, nowa nazwa z importu) doczytujemy pojedynczo, bez ponownego ładowania całości. Nowa kategoria jest zapisywana od razu,
+ * we własnej zatwierdzonej transakcji - zapis transakcji, który jej użył, może się jeszcze wycofać, ale klucz
+ * w pamięci musi wskazywać istniejący wiersz.
+ */
+public class CategoryDAO {
+
+    private static final Map<Integer, Category> BY_ID = new ConcurrentHashMap<>();
+    private static final Map<Category, Integer> IDS = new ConcurrentHashMap<>();
+    private static final Object CREATE_LOCK = new Object();
+    private static volatile boolean loaded;
+    private static final AtomicInteger fullLoads = new AtomicInteger();
+
+    private static final List<String> LOG_COLUMNS = List.of("id", "name");
+
+    // --- ODCZYT ---
+
+    /**
+     * Kategoria o podanym kluczu. Brak w pamięci oznacza wiersz dopisany z zewnątrz (drugi proces, odtworzenie kopii)
+     * - doczytujemy wtedy tylko ten wiersz.
+     */
+    public Category getById(int id) {
+        Category category = BY_ID.get(id);
+        if (category != null) return category;
+        if (!loaded) reload();
+        category = BY_ID.get(id);
+        if (category != null) return category;
+        synchronized (CREATE_LOCK) {
+            try (Connection conn = DatabaseService.connect();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM categories WHERE id = ?")) {
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return Category.DEFAULT;
+                    category = Category.of(rs.getString(1));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return Category.DEFAULT;
+            }
+            remember(id, category);
+            return category;
+        }
+    }
+
+    /**
+     * Klucz istniejącej kategorii albo -1, gdy nikt jej jeszcze nie użył (np. filtr - niczego nie znajdzie).
+     */
+    public int findId(Category category) {
+        Integer id = IDS.get(category);
+        if (id != null) return id;
+        if (!loaded) reload();
+        id = IDS.get(category);
+        if (id != null) return id;
+        synchronized (CREATE_LOCK) {
+            try (Connection conn = DatabaseService.connect()) {
+                id = selectId(conn, category);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return -1;
+            }
+            if (id == null) return -1;
+            remember(id, category);
+            return id;
+        }
+    }
+
+    public List<Category> getAllCategories() {
+        if (!loaded) reload();
+        List<Category> categories = new ArrayList<>(IDS.keySet());
+        Collections.sort(categories);
+        return categories;
+    }
+
+    // --- ZAPIS ---
+
+    /**
+     * Klucz kategorii; nieznaną dopisuje do słownika (i do dziennika zmian - odtworzenie kopii przyrostowej
+     * musi mieć kategorię, zanim nałoży transakcje, które na nią wskazują).
+     * Nie wołać w trakcie własnej transakcji z odłożonymi zmianami - commit kategorii zabrałby je ze sobą.
+     */
+    public int getOrCreateId(Category category) throws SQLException {
+        Integer id = IDS.get(category);
+        if (id != null) return id;
+        if (!loaded) reload();
+        synchronized (CREATE_LOCK) {
+            id = IDS.get(category);
+            if (id != null) return id;
+            try (Connection conn = DatabaseService.connect()) {
+                // Wiersz mógł dopisać inny proces - wtedy tylko go zapamiętujemy
+                id = selectId(conn, category);
+                if (id != null) {
+                    remember(id, category);
+                    return id;
+                }
+                conn.setAutoCommit(false);
+                try (PreparedStatement merge = conn.prepareStatement("MERGE INTO categories (name) KEY (name) VALUES (?)")) {
+                    merge.setString(1, category.getName());
+                    merge.executeUpdate();
+                    id = selectId(conn, category);
+                    DatabaseService.logChange(Change.upsert("categories", "id", LOG_COLUMNS, List.of(id, category.getName())));
+                    DatabaseService.commit(conn);
+                } catch (SQLException e) {
+                    DatabaseService.rollback(conn);
+                    throw e;
+                }
+            }
+            remember(id, category);
+            return id;
+        }
+    }
+
+    /**
+     * Zapomina słownik - po odtworzeniu kopii klucze mogą wskazywać inne nazwy.
+     */
+    public static void invalidateCache() {
+        synchronized (CREATE_LOCK) {
+            loaded = false;
+            BY_ID.clear();
+            IDS.clear();
+        }
+    }
+
+    // --- POMOCNICZE ---
+
+    // Cały słownik - przy pierwszym użyciu i po invalidateCache(); pojedyncze braki doczytują getById/findId
+    private static void reload() {
+        synchronized (CREATE_LOCK) {
+            if (loaded) return;
+            fullLoads.incrementAndGet();
+            try (Connection conn = DatabaseService.connect();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id, name FROM categories")) {
+                while (rs.next()) {
+                    remember(rs.getInt("id"), Category.of(rs.getString("name")));
+                }
+                loaded = true;
+            } catch (SQLException e) { e.printStackTrace(); }
+        }
+    }
+
+    private static Integer selectId(Connection conn, Category category) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM categories WHERE name = ?")) {
+            pstmt.setString(1, category.getName());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    // Ile razy słownik był czytany w całości (do testów)
+    static int fullLoads() {
+        return fullLoads.get();
+    }
+
+    private static void remember(int id, Category category) {
+        BY_ID.put(id, category);
+        IDS.put(category, id);
+    }
+}
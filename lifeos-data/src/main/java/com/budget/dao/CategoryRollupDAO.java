@@ -0,0 +1,146 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.model.Category;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sumy transakcji per miesiąc, kategoria i typ ({@code monthly_category_totals}).
+ * <p>
+ * Aktualizowane w tej samej transakcji co zapis do {@code transactions}, tak jak księga sald.
+ * Wykresy, paski budżetów i raporty czytają stąd kilkadziesiąt wierszy zamiast grupować tysiące transakcji.
+ * Klucz zostaje tekstowy (nazwa kategorii i typu) - tabela ma kilkaset wierszy, a budżety też są po nazwie.
+ */
+public class CategoryRollupDAO {
+
+    // Kategoria jest częścią klucza - brak kategorii liczymy jak "Inne"
+    public static final String DEFAULT_CATEGORY = Category.DEFAULT.getName();
+
+    private static final String MERGE_SQL = """
+            MERGE INTO monthly_category_totals m
+            USING (VALUES (CAST(? AS DATE), CAST(? AS VARCHAR(100)), CAST(? AS VARCHAR(20)), CAST(? AS BIGINT), CAST(? AS INT)))
+                AS d(month_start, category, type, total, tx_count)
+            ON m.month_start = d.month_start AND m.type = d.type AND m.category = d.category
+            WHEN MATCHED THEN UPDATE SET total_minor = m.total_minor + d.total, tx_count = m.tx_count + d.tx_count
+            WHEN NOT MATCHED THEN INSERT (month_start, category, type, total_minor, tx_count)
+                VALUES (d.month_start, d.category, d.type, d.total, d.tx_count)""";
+
+    // --- ODCZYT ---
+
+    /**
+     * Suma per kategoria w jednym miesiącu, w groszach (np. wydatki do wykresu kołowego i pasków budżetu).
+     */
+    public Map<String, Long> getCategoryTotalsMinor(YearMonth month, TransactionType type) {
+        Map<String, Long> totals = new HashMap<>();
+        getCategoryMatrixMinor(month, month, type).values().forEach(totals::putAll);
+        return totals;
+    }
+
+    /**
+     * Macierz miesiąc x kategoria (grosze) dla zakresu [from, toInclusive]. Miesiące bez transakcji nie występują w mapie.
+     */
+    public Map<YearMonth, Map<String, Long>> getCategoryMatrixMinor(YearMonth from, YearMonth toInclusive, TransactionType type) {
+        Map<YearMonth, Map<String, Long>> matrix = new TreeMap<>();
+        String sql = "SELECT month_start, category, total_minor FROM monthly_category_totals "
+                + "WHERE month_start >= ? AND month_start <= ? AND type = ? AND tx_count > 0";
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(from.atDay(1)));
+            pstmt.setDate(2, Date.valueOf(toInclusive.atDay(1)));
+            pstmt.setString(3, type.getDisplayName());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    YearMonth month = YearMonth.from(rs.getDate("month_start").toLocalDate());
+                    matrix.computeIfAbsent(month, m -> new HashMap<>()).put(rs.getString("category"), rs.getLong("total_minor"));
+                }
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return matrix;
+    }
+
+    /**
+     * Wszystkie kategorie, które mają jakiekolwiek transakcje (z sum, nie z pełnej tabeli), od najczęstszych.
+     */
+    public Set<String> getKnownCategories() {
+        Set<String> categories = new LinkedHashSet<>();
+        String sql = "SELECT category FROM monthly_category_totals GROUP BY category ORDER BY SUM(tx_count) DESC";
+        try (Connection conn = DatabaseService.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                categories.add(rs.getString(1));
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return categories;
+    }
+
+    // --- AKTUALIZACJA (w transakcji wywołującego) ---
+
+    /**
+     * Nanosi zmiany na sumy. {@code sign} = +1 dla dodanych, -1 dla usuniętych transakcji. Nie zatwierdza.
+     */
+    static void apply(Connection conn, Collection<Transaction> transactions, int sign) throws SQLException {
+        Map<List<Object>, long[]> deltas = new HashMap<>();
+        for (Transaction t : transactions) {
+            if (t.getDate() == null || t.getType() == null) continue;
+            List<Object> key = List.of(t.getDate().withDayOfMonth(1),
+                    Objects.requireNonNullElse(t.getCategory(), Category.DEFAULT).getName(), t.getType().getDisplayName());
+            long[] d = deltas.computeIfAbsent(key, k -> new long[2]);
+            d[0] += sign * t.getAmountMinor();
+            d[1] += sign;
+        }
+        if (deltas.isEmpty()) return;
+
+        try (PreparedStatement merge = conn.prepareStatement(MERGE_SQL)) {
+            for (Map.Entry<List<Object>, long[]> e : deltas.entrySet()) {
+                List<Object> key = e.getKey();
+                merge.setDate(1, Date.valueOf((LocalDate) key.get(0)));
+                merge.setString(2, (String) key.get(1));
+                merge.setString(3, (String) key.get(2));
+                merge.setLong(4, e.getValue()[0]);
+                merge.setInt(5, (int) e.getValue()[1]);
+                merge.addBatch();
+            }
+            merge.executeBatch();
+        }
+    }
+
+    /**
+     * Przelicza sumy od zera w jednej transakcji.
+     */
+    public void rebuild() {
+        try (Connection conn = DatabaseService.connect()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DELETE FROM monthly_category_totals");
+                stmt.execute("""
+                    INSERT INTO monthly_category_totals (month_start, category, type, total_minor, tx_count)
+                    SELECT month_start, category, type, SUM(amount_minor), COUNT(*) FROM (
+                        SELECT CAST(DATE_TRUNC('MONTH', t.date) AS DATE) AS month_start, c.name AS category,
+                               CASE t.type WHEN 1 THEN 'PRZYCHÓD' WHEN 2 THEN 'WYDATEK' END AS type, t.amount_minor
+                        FROM transactions t JOIN categories c ON c.id = t.category_id
+                        WHERE t.date IS NOT NULL AND t.type IS NOT NULL
+                    ) GROUP BY month_start, category, type""");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd przebudowy sum kategorii", e);
+        }
+    }
+}
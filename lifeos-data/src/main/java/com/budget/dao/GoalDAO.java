@@ -1,17 +1,26 @@
 package com.budget.dao;
 
 import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
 import com.budget.model.Goal;
 import com.budget.model.GoalStatus;
+import com.budget.model.Money;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class GoalDAO {
 
+    // Wynik z QueryCache - każdy wywołujący dostaje własne kopie celów (z kamieniami milowymi)
     public List<Goal> getAllGoals() {
+        return QueryCache.get("GoalDAO.getAllGoals", List.of(), this::loadAllGoals,
+                QueryCache.copyEach(Goal::copy), "goals");
+    }
+
+    private List<Goal> loadAllGoals() {
         List<Goal> list = new ArrayList<>();
         String sql = "SELECT * FROM goals";
 
@@ -24,9 +33,9 @@ public class GoalDAO {
                 g.setId(rs.getLong("id"));
                 g.setName(rs.getString("name"));
 
-                // Konwersja double (z bazy) -> BigDecimal (w modelu)
-                g.setTargetAmount(BigDecimal.valueOf(rs.getDouble("target_amount")));
-                g.setCurrentAmount(BigDecimal.valueOf(rs.getDouble("current_amount")));
+                // Kwoty w groszach - w bazie i w modelu
+                g.setTargetAmountMinor(rs.getLong("target_amount_minor"));
+                g.setCurrentAmountMinor(rs.getLong("current_amount_minor"));
 
                 java.sql.Date d = rs.getDate("deadline");
                 // W Twoim modelu pole nazywa się targetDate, a w bazie deadline
@@ -34,52 +43,68 @@ public class GoalDAO {
 
                 // Status domyślny, bo w bazie go nie ma w prostej wersji
                 g.setStatus(GoalStatus.ACTIVE);
-                if (g.getCurrentAmount().compareTo(g.getTargetAmount()) >= 0) {
+                if (g.getCurrentAmountMinor() >= g.getTargetAmountMinor()) {
                     g.setStatus(GoalStatus.COMPLETED);
                 }
 
                 list.add(g);
             }
         } catch (SQLException e) { e.printStackTrace(); }
-        return list;
+        return Collections.unmodifiableList(list);
     }
 
     public void addGoal(Goal g) {
-        String sql = "INSERT INTO goals (name, target_amount, current_amount, deadline) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, g.getName());
-            // Konwersja BigDecimal -> Double
-            pstmt.setDouble(2, g.getTargetAmount() != null ? g.getTargetAmount().doubleValue() : 0.0);
-            pstmt.setDouble(3, g.getCurrentAmount() != null ? g.getCurrentAmount().doubleValue() : 0.0);
-
-            if (g.getTargetDate() != null) {
-                pstmt.setDate(4, Date.valueOf(g.getTargetDate()));
-            } else {
-                pstmt.setDate(4, null);
-            }
-
-            pstmt.executeUpdate();
+        String sql = "INSERT INTO goals (name, target_amount_minor, current_amount_minor, deadline) VALUES (?, ?, ?, ?)";
+        try {
+            DatabaseService.write("goals", null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setString(1, g.getName());
+                    pstmt.setLong(2, g.getTargetAmountMinor());
+                    pstmt.setLong(3, g.getCurrentAmountMinor());
+
+                    if (g.getTargetDate() != null) {
+                        pstmt.setDate(4, Date.valueOf(g.getTargetDate()));
+                    } else {
+                        pstmt.setDate(4, null);
+                    }
+
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) DatabaseService.logRow(conn, "goals", "id", keys.getLong(1));
+                    }
+                }
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
     public void updateGoalAmount(Long id, BigDecimal newAmount) {
-        String sql = "UPDATE goals SET current_amount = ? WHERE id = ?";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, newAmount.doubleValue());
-            pstmt.setLong(2, id);
-            pstmt.executeUpdate();
+        updateGoalAmountMinor(id, Money.fromBigDecimal(newAmount));
+    }
+
+    public void updateGoalAmountMinor(Long id, long newAmountMinor) {
+        String sql = "UPDATE goals SET current_amount_minor = ? WHERE id = ?";
+        try {
+            DatabaseService.write("goals", "goals.current_amount:" + id, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, newAmountMinor);
+                    pstmt.setLong(2, id);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logRow(conn, "goals", "id", id);
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
     public void deleteGoal(Long id) {
         String sql = "DELETE FROM goals WHERE id = ?";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, id);
-            pstmt.executeUpdate();
+        try {
+            DatabaseService.write("goals", null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, id);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logDelete("goals", "id", id);
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 }
\ No newline at end of file
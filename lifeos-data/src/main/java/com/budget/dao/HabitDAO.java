@@ -0,0 +1,95 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.model.Habit;
+import com.budget.model.HabitCategory;
+import com.budget.model.HabitFrequency;
+import com.budget.modules.habits.HabitRepository;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Definicje nawyków ({@code habits}). ID nadaje {@link com.budget.modules.habits.HabitServiceImpl}, więc zapis to MERGE
+ * po kluczu - historia w {@code habit_history} wraca po restarcie do tego samego nawyku.
+ */
+public class HabitDAO implements HabitRepository {
+
+    @Override
+    public List<Habit> loadAll() {
+        List<Habit> habits = new ArrayList<>();
+        try (Connection conn = DatabaseService.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM habits ORDER BY id")) {
+            while (rs.next()) {
+                Habit h = new Habit();
+                h.setId(rs.getLong("id"));
+                h.setName(rs.getString("name"));
+                h.setDescription(rs.getString("description"));
+                h.setCategory(enumOrNull(HabitCategory.class, rs.getString("category")));
+                h.setFrequency(enumOrNull(HabitFrequency.class, rs.getString("frequency")));
+                h.setStartDate(toLocalDate(rs.getDate("start_date")));
+                h.setEndDate(toLocalDate(rs.getDate("end_date")));
+                h.setActive(rs.getBoolean("active"));
+                h.setTargetStreak(rs.getInt("target_streak"));
+                habits.add(h);
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return habits;
+    }
+
+    @Override
+    public void save(Habit habit) {
+        // Kopia pól od razu - w trybie write-behind obiekt może się zmienić, zanim zapis trafi do bazy
+        Habit h = habit.toBuilder().build();
+        String sql = """
+            MERGE INTO habits (id, name, description, category, frequency, start_date, end_date, active, target_streak)
+            KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+        try {
+            DatabaseService.write("habits", "habits:" + h.getId(), conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, h.getId());
+                    pstmt.setString(2, h.getName());
+                    pstmt.setString(3, h.getDescription());
+                    pstmt.setString(4, h.getCategory() != null ? h.getCategory().name() : null);
+                    pstmt.setString(5, h.getFrequency() != null ? h.getFrequency().name() : null);
+                    pstmt.setDate(6, h.getStartDate() != null ? Date.valueOf(h.getStartDate()) : null);
+                    pstmt.setDate(7, h.getEndDate() != null ? Date.valueOf(h.getEndDate()) : null);
+                    pstmt.setBoolean(8, h.isActive());
+                    pstmt.setInt(9, h.getTargetStreak());
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logRow(conn, "habits", "id", h.getId());
+            });
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+
+    @Override
+    public void delete(Long habitId) {
+        try {
+            DatabaseService.write("habits", "habits:" + habitId, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM habits WHERE id = ?")) {
+                    pstmt.setLong(1, habitId);
+                    if (pstmt.executeUpdate() > 0) DatabaseService.logDelete("habits", "id", habitId);
+                }
+            });
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+
+    // Nieznana nazwa (np. usunięta wartość enuma) nie może zablokować wczytania pozostałych nawyków
+    private static <E extends Enum<E>> E enumOrNull(Class<E> type, String name) {
+        if (name == null) return null;
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠️ Nieznana wartość " + type.getSimpleName() + ": " + name);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.modules.habits.HabitHistory;
+import com.budget.modules.habits.HabitHistoryCodec;
+import com.budget.modules.habits.HabitHistoryRepository;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Historie nawyków ({@code habit_history}) - jeden wiersz z blobem {@link HabitHistoryCodec} na nawyk.
+ */
+public class HabitHistoryDAO implements HabitHistoryRepository {
+
+    /**
+     * Wszystkie historie jednym zapytaniem (kilkadziesiąt KB nawet dla dziesięciu lat codziennych wpisów).
+     * Uszkodzony blob jest pomijany z ostrzeżeniem - reszta historii się wczytuje.
+     */
+    @Override
+    public Map<Long, HabitHistory> loadAll() {
+        Map<Long, HabitHistory> histories = new HashMap<>();
+        try (Connection conn = DatabaseService.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT habit_id, data FROM habit_history")) {
+            while (rs.next()) {
+                long habitId = rs.getLong(1);
+                try {
+                    histories.put(habitId, HabitHistoryCodec.decode(rs.getBytes(2)));
+                } catch (IOException e) {
+                    System.err.println("⚠️ Pominięto historię nawyku " + habitId + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return histories;
+    }
+
+    @Override
+    public void save(Long habitId, HabitHistory history) {
+        // Kodowanie od razu - w trybie write-behind historia może się zmienić, zanim zapis trafi do bazy
+        byte[] data = HabitHistoryCodec.encode(history);
+        try {
+            DatabaseService.write("habit_history", "habit_history:" + habitId, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "MERGE INTO habit_history (habit_id, data, updated_at) KEY (habit_id) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+                    pstmt.setLong(1, habitId);
+                    pstmt.setBytes(2, data);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logRow(conn, "habit_history", "habit_id", habitId);
+            });
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+
+    @Override
+    public void delete(Long habitId) {
+        try {
+            DatabaseService.write("habit_history", "habit_history:" + habitId, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM habit_history WHERE habit_id = ?")) {
+                    pstmt.setLong(1, habitId);
+                    if (pstmt.executeUpdate() > 0) DatabaseService.logDelete("habit_history", "habit_id", habitId);
+                }
+            });
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+}
@@ -0,0 +1,12 @@
+package com.budget.dao;
+
+/**
+ * Stan przerwanego importu CSV: do którego bajtu (i linii) plik jest już zapisany w bazie.
+ * Rozmiar i data modyfikacji pliku pozwalają wykryć, że pod tą samą ścieżką leży już inny plik.
+ *
+ * @param byteOffset pierwszy bajt, od którego trzeba czytać dalej
+ * @param lineNumber numer linii (od 1) zaczynającej się w {@code byteOffset}
+ */
+public record ImportCheckpoint(String source, long fileSize, long fileModified, long byteOffset, long lineNumber,
+                               long rowsImported, long rowsRejected) {
+}
@@ -0,0 +1,64 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.SqlWrite;
+
+import java.sql.*;
+
+/**
+ * Punkty wznowienia importu CSV ({@code import_checkpoints}). Zapis idzie w transakcji paczki importowanych wierszy
+ * (patrz {@link TransactionBatchWriter#flush(SqlWrite)}), więc punkt nigdy nie wyprzedza ani nie zostaje za danymi.
+ */
+public class ImportCheckpointDAO {
+
+    private static final String MERGE_SQL = """
+            MERGE INTO import_checkpoints
+                (source, file_size, file_modified, byte_offset, line_number, rows_imported, rows_rejected, updated_at)
+            KEY(source) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)""";
+
+    /**
+     * Punkt wznowienia pliku albo null, gdy import zaczyna się od początku. Błąd bazy rzuca dalej - potraktowany
+     * jak brak punktu zacząłby import od bajtu 0 i zdublował zapisane już wiersze.
+     */
+    public ImportCheckpoint find(String source) throws SQLException {
+        String sql = "SELECT * FROM import_checkpoints WHERE source = ?";
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, source);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new ImportCheckpoint(rs.getString("source"), rs.getLong("file_size"), rs.getLong("file_modified"),
+                            rs.getLong("byte_offset"), rs.getLong("line_number"),
+                            rs.getLong("rows_imported"), rs.getLong("rows_rejected"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Zapis punktu do wykonania na połączeniu paczki (bez commitu).
+     */
+    public static SqlWrite save(ImportCheckpoint cp) {
+        return conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(MERGE_SQL)) {
+                pstmt.setString(1, cp.source());
+                pstmt.setLong(2, cp.fileSize());
+                pstmt.setLong(3, cp.fileModified());
+                pstmt.setLong(4, cp.byteOffset());
+                pstmt.setLong(5, cp.lineNumber());
+                pstmt.setLong(6, cp.rowsImported());
+                pstmt.setLong(7, cp.rowsRejected());
+                pstmt.executeUpdate();
+            }
+        };
+    }
+
+    public void delete(String source) {
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM import_checkpoints WHERE source = ?")) {
+            pstmt.setString(1, source);
+            pstmt.executeUpdate();
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+}
@@ -1,16 +1,24 @@
 package com.budget.dao;
 
 import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
 import com.budget.modules.finance.domain.Purse;
 import com.budget.modules.finance.domain.PurseType;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class PurseDAO {
 
+    // Wynik z QueryCache - każdy wywołujący dostaje własne kopie sakiewek
     public List<Purse> getAllPurses() {
+        return QueryCache.get("PurseDAO.getAllPurses", List.of(), this::loadAllPurses,
+                QueryCache.copyEach(Purse::copy), "purses");
+    }
+
+    private List<Purse> loadAllPurses() {
         List<Purse> list = new ArrayList<>();
         String sql = "SELECT * FROM purses ORDER BY id";
         try (Connection conn = DatabaseService.connect();
@@ -19,50 +27,79 @@ public class PurseDAO {
             while (rs.next()) {
                 list.add(new Purse(
                         rs.getInt("id"), rs.getString("name"), PurseType.valueOf(rs.getString("type")),
-                        rs.getDouble("allocated_amount"), rs.getDouble("spent_amount"),
-                        rs.getBoolean("is_locked"), rs.getDouble("buffer_allowance")
+                        rs.getLong("allocated_minor"), rs.getLong("spent_minor"),
+                        rs.getBoolean("is_locked"), rs.getLong("buffer_allowance_minor")
                 ));
             }
         } catch (SQLException e) { e.printStackTrace(); }
-        return list;
+        return Collections.unmodifiableList(list);
     }
 
     // --- NOWE METODY DO TRANSAKCJI ---
 
-    // Aktualizuje kwotę w portfelu (np. przesunięcie środków)
-    public void updatePurseAllocation(Connection conn, int purseId, double newAmount) throws SQLException {
-        String sql = "UPDATE purses SET allocated_amount = ? WHERE id = ?";
+    // Aktualizuje kwotę (grosze) w portfelu (np. przesunięcie środków). Wołający zatwierdza przez DatabaseService.commit
+    // (zmiany trafiają do dziennika) i unieważnia "purses" w QueryCache
+    public void updatePurseAllocation(Connection conn, int purseId, long newAmountMinor) throws SQLException {
+        String sql = "UPDATE purses SET allocated_minor = ? WHERE id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, newAmount);
+            pstmt.setLong(1, newAmountMinor);
             pstmt.setInt(2, purseId);
             pstmt.executeUpdate();
         }
+        DatabaseService.logRow(conn, "purses", "id", purseId);
     }
 
-    // Zapisuje log audytowy (kto, co, gdzie)
-    public void logAudit(Connection conn, int purseId, String action, double amount, String reason) throws SQLException {
-        String sql = "INSERT INTO purse_audit_log (purse_id, action_type, amount, reason) VALUES (?, ?, ?, ?)";
+    // Zmienia kwotę (grosze) o deltę - względnie, więc nie nadpisuje zmian innej transakcji. Wołający zatwierdza
+    // przez DatabaseService.commit i unieważnia "purses" w QueryCache
+    public void addToPurseAllocation(Connection conn, int purseId, long deltaMinor) throws SQLException {
+        String sql = "UPDATE purses SET allocated_minor = allocated_minor + ? WHERE id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, deltaMinor);
+            pstmt.setInt(2, purseId);
+            pstmt.executeUpdate();
+        }
+        DatabaseService.logRow(conn, "purses", "id", purseId);
+    }
+
+    // Zapisuje log audytowy (kto, co, gdzie)
+    public void logAudit(Connection conn, int purseId, String action, long amountMinor, String reason) throws SQLException {
+        String sql = "INSERT INTO purse_audit_log (purse_id, action_type, amount_minor, reason) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, purseId);
             pstmt.setString(2, action);
-            pstmt.setDouble(3, amount);
+            pstmt.setLong(3, amountMinor);
             pstmt.setString(4, reason);
             pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) DatabaseService.logRow(conn, "purse_audit_log", "id", keys.getLong(1));
+            }
         }
     }
 
-    // Pobiera portfel wewnątrz aktywnej transakcji (blokada wiersza opcjonalna, tu standardowy select)
+    // Pobiera portfel wewnątrz aktywnej transakcji (bez blokady wiersza)
     public Purse getPurseById(Connection conn, int id) throws SQLException {
-        String sql = "SELECT * FROM purses WHERE id = ?";
+        return selectPurse(conn, "SELECT * FROM purses WHERE id = ?", id);
+    }
+
+    /**
+     * Pobiera portfel i blokuje jego wiersz do końca transakcji (inne zapisy i FOR UPDATE czekają).
+     * Kilka portfeli blokować zawsze w tej samej kolejności (rosnąco po ID), inaczej grozi zakleszczenie.
+     */
+    public Purse getPurseForUpdate(Connection conn, int id) throws SQLException {
+        return selectPurse(conn, "SELECT * FROM purses WHERE id = ? FOR UPDATE", id);
+    }
+
+    private static Purse selectPurse(Connection conn, String sql, int id) throws SQLException {
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return new Purse(
-                        rs.getInt("id"), rs.getString("name"), PurseType.valueOf(rs.getString("type")),
-                        rs.getDouble("allocated_amount"), rs.getDouble("spent_amount"),
-                        rs.getBoolean("is_locked"), rs.getDouble("buffer_allowance")
-                );
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Purse(
+                            rs.getInt("id"), rs.getString("name"), PurseType.valueOf(rs.getString("type")),
+                            rs.getLong("allocated_minor"), rs.getLong("spent_minor"),
+                            rs.getBoolean("is_locked"), rs.getLong("buffer_allowance_minor")
+                    );
+                }
             }
         }
         return null;
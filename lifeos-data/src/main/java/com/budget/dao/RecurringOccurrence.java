@@ -0,0 +1,20 @@
+package com.budget.dao;
+
+import com.budget.model.Transaction;
+
+import java.time.LocalDate;
+
+/**
+ * Jedno wystąpienie reguły cyklicznej i transakcja, która je zapisuje.
+ * Klucz wystąpienia (reguła:dzień) jest kluczem głównym {@code recurring_occurrences}.
+ */
+public record RecurringOccurrence(int ruleId, LocalDate date, Transaction transaction) {
+
+    public static String key(int ruleId, LocalDate date) {
+        return ruleId + ":" + date;
+    }
+
+    public String key() {
+        return key(ruleId, date);
+    }
+}
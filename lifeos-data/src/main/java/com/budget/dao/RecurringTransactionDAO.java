@@ -0,0 +1,169 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.SqlWrite;
+import com.budget.db.changelog.Change;
+import com.budget.model.Category;
+import com.budget.model.RecurringPattern;
+import com.budget.model.RecurringTransaction;
+import com.budget.model.TransactionType;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reguły transakcji cyklicznych ({@code recurring_transactions}) i ich zapisane wystąpienia ({@code recurring_occurrences}).
+ */
+public class RecurringTransactionDAO {
+
+    private static final List<String> OCCURRENCE_COLUMNS = List.of("occurrence_key", "rule_id", "occurrence_date", "transaction_id");
+
+    // --- REGUŁY ---
+
+    public List<RecurringTransaction> getActiveRules() {
+        List<RecurringTransaction> rules = new ArrayList<>();
+        String sql = "SELECT * FROM recurring_transactions WHERE is_active = TRUE ORDER BY id";
+        try (Connection conn = DatabaseService.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                RecurringTransaction rule = fromRow(rs);
+                if (rule.getPattern() == null) {
+                    System.err.println("⚠️ Reguła cykliczna " + rule.getId() + " ma nieznaną częstotliwość: " + rs.getString("frequency"));
+                    continue;
+                }
+                rules.add(rule);
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return rules;
+    }
+
+    public void addRule(RecurringTransaction rule) {
+        String sql = """
+                INSERT INTO recurring_transactions (name, type, category, amount_minor, frequency, day_of_month, is_active, start_date)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+        try {
+            DatabaseService.write("recurring_transactions", null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setString(1, rule.getName());
+                    TransactionDAO.setType(pstmt, 2, rule.getType());
+                    pstmt.setString(3, (rule.getCategory() != null ? rule.getCategory() : Category.DEFAULT).getName());
+                    pstmt.setLong(4, rule.getAmountMinor());
+                    pstmt.setString(5, rule.getPattern().name());
+                    pstmt.setInt(6, rule.getDayOfMonth());
+                    pstmt.setBoolean(7, rule.isActive());
+                    pstmt.setDate(8, Date.valueOf(rule.getStartDate() != null ? rule.getStartDate() : LocalDate.now()));
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            rule.setId(keys.getInt(1));
+                            DatabaseService.logRow(conn, "recurring_transactions", "id", rule.getId());
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+
+    public void setActive(int ruleId, boolean active) {
+        try {
+            DatabaseService.write("recurring_transactions", "recurring:" + ruleId, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("UPDATE recurring_transactions SET is_active = ? WHERE id = ?")) {
+                    pstmt.setBoolean(1, active);
+                    pstmt.setInt(2, ruleId);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logRow(conn, "recurring_transactions", "id", ruleId);
+            });
+        } catch (SQLException e) { e.printStackTrace(); }
+    }
+
+    // --- WYSTĄPIENIA ---
+
+    /**
+     * Dni już zapisanych wystąpień reguły po podanym dniu (null = wszystkie).
+     */
+    public Set<LocalDate> findOccurrenceDates(int ruleId, LocalDate after) throws SQLException {
+        Set<LocalDate> dates = new HashSet<>();
+        String sql = "SELECT occurrence_date FROM recurring_occurrences WHERE rule_id = ?"
+                + (after != null ? " AND occurrence_date > ?" : "");
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, ruleId);
+            if (after != null) pstmt.setDate(2, Date.valueOf(after));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) dates.add(rs.getDate(1).toLocalDate());
+            }
+        }
+        return dates;
+    }
+
+    /**
+     * Zapis wystąpień i nowych pozycji reguł do wykonania na połączeniu paczki transakcji (bez commitu) - patrz
+     * {@link TransactionBatchWriter#flush(SqlWrite)}. Transakcje muszą mieć już ID. Wystąpienie zapisane wcześniej
+     * (np. przez drugi proces) łamie klucz główny i wycofuje całą paczkę.
+     *
+     * @param cursors reguła -> dzień, do którego wszystkie jej wystąpienia są po tym zapisie w bazie
+     */
+    public static SqlWrite saveOccurrences(List<RecurringOccurrence> occurrences, Map<Integer, LocalDate> cursors) {
+        return conn -> {
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO recurring_occurrences (occurrence_key, rule_id, occurrence_date, transaction_id) VALUES (?, ?, ?, ?)")) {
+                for (RecurringOccurrence o : occurrences) {
+                    insert.setString(1, o.key());
+                    insert.setInt(2, o.ruleId());
+                    insert.setDate(3, Date.valueOf(o.date()));
+                    insert.setInt(4, o.transaction().getId());
+                    insert.addBatch();
+                    DatabaseService.logChange(Change.upsert("recurring_occurrences", "occurrence_key", OCCURRENCE_COLUMNS,
+                            List.of(o.key(), o.ruleId(), o.date(), o.transaction().getId())));
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement update = conn.prepareStatement(
+                    "UPDATE recurring_transactions SET materialized_through = ? WHERE id = ?")) {
+                for (Map.Entry<Integer, LocalDate> cursor : cursors.entrySet()) {
+                    update.setDate(1, Date.valueOf(cursor.getValue()));
+                    update.setInt(2, cursor.getKey());
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+            for (Integer ruleId : cursors.keySet()) {
+                DatabaseService.logRow(conn, "recurring_transactions", "id", ruleId);
+            }
+        };
+    }
+
+    // --- POMOCNICZE ---
+
+    private static RecurringTransaction fromRow(ResultSet rs) throws SQLException {
+        RecurringTransaction rule = new RecurringTransaction();
+        rule.setId(rs.getInt("id"));
+        rule.setName(rs.getString("name"));
+        rule.setType(TransactionType.fromCode(rs.getInt("type")));
+        rule.setCategory(Category.of(rs.getString("category")));
+        rule.setAmountMinor(rs.getLong("amount_minor"));
+        rule.setPattern(patternOf(rs.getString("frequency")));
+        rule.setDayOfMonth(rs.getInt("day_of_month"));
+        rule.setActive(rs.getBoolean("is_active"));
+        rule.setStartDate(rs.getDate("start_date").toLocalDate());
+        Date through = rs.getDate("materialized_through");
+        rule.setMaterializedThrough(through != null ? through.toLocalDate() : null);
+        return rule;
+    }
+
+    private static RecurringPattern patternOf(String frequency) {
+        if (frequency == null) return null;
+        try {
+            return RecurringPattern.valueOf(frequency.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
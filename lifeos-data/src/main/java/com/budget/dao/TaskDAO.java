@@ -1,84 +1,137 @@
 package com.budget.dao;
 
 import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
 import com.budget.model.Priority;
+import com.budget.model.RecurringPattern;
 import com.budget.model.Task;
 import com.budget.model.TaskStatus;
+import com.budget.modules.tasks.TaskOccurrence;
+import com.budget.modules.tasks.TaskOccurrences;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 public class TaskDAO {
 
-    public List<Task> getAllTasks() {
-        List<Task> list = new ArrayList<>();
-        String sql = "SELECT * FROM tasks ORDER BY is_done ASC, due_date ASC";
-
-        try (Connection conn = DatabaseService.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    // Odczyty przez QueryCache - wywołujący dostaje kopie zadań, obiekty w cache zostają nietknięte
 
-            while (rs.next()) {
-                list.add(mapRow(rs));
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return list;
+    public List<Task> getAllTasks() {
+        return QueryCache.get("TaskDAO.getAllTasks", List.of(),
+                () -> query("SELECT * FROM tasks ORDER BY is_done ASC, due_date ASC"), COPY_TASKS, "tasks");
     }
 
     // --- PRZYWRÓCONA METODA (Dla Kokpitu) ---
     public List<Task> getUrgentTasks() {
-        List<Task> list = new ArrayList<>();
         // Pobieramy 5 zadań, które nie są wykonane, sortując od najpilniejszych
-        String sql = "SELECT * FROM tasks WHERE is_done = false ORDER BY due_date ASC LIMIT 5";
+        return QueryCache.get("TaskDAO.getUrgentTasks", List.of(),
+                () -> query("SELECT * FROM tasks WHERE is_done = false ORDER BY due_date ASC LIMIT 5"), COPY_TASKS, "tasks");
+    }
 
-        try (Connection conn = DatabaseService.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Wystąpienia zadań w dniach [from, to] - cykliczne rozwinięte w dni (patrz {@link TaskOccurrences}).
+     * Z bazy czytamy tylko zadania, które mogą mieć wystąpienie w oknie; serii nie rozwijamy poza nim.
+     */
+    public List<TaskOccurrence> getOccurrences(LocalDate from, LocalDate to) {
+        return QueryCache.get("TaskDAO.getOccurrences", List.of(from, to), () -> {
+            List<Task> candidates = query("""
+                    SELECT * FROM tasks WHERE due_date <= ?
+                      AND (due_date >= ? OR recurring_pattern IS NOT NULL AND (recurring_end_date IS NULL OR recurring_end_date >= ?))
+                    ORDER BY due_date""", to, from, from);
+            return TaskOccurrences.stream(candidates, from, to).collect(Collectors.toUnmodifiableList());
+        }, TaskDAO::copyOccurrences, "tasks");
+    }
 
-            while (rs.next()) {
-                list.add(mapRow(rs));
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return list;
+    private static final UnaryOperator<List<Task>> COPY_TASKS = QueryCache.copyEach(task -> task.toBuilder().build());
+
+    // Wystąpienia jednej serii dzielą zadanie - kopiujemy je raz, żeby w kopii też było wspólne
+    private static List<TaskOccurrence> copyOccurrences(List<TaskOccurrence> occurrences) {
+        Map<Task, Task> copies = new IdentityHashMap<>();
+        List<TaskOccurrence> result = new ArrayList<>(occurrences.size());
+        for (TaskOccurrence o : occurrences) {
+            result.add(new TaskOccurrence(copies.computeIfAbsent(o.task(), t -> t.toBuilder().build()), o.date()));
+        }
+        return Collections.unmodifiableList(result);
     }
 
-    public void addTask(Task t) {
-        String sql = "INSERT INTO tasks (title, is_done, due_date, priority) VALUES (?, ?, ?, ?)";
+    private List<Task> query(String sql, Object... params) {
+        List<Task> list = new ArrayList<>();
         try (Connection conn = DatabaseService.connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, t.getTitle());
-            pstmt.setBoolean(2, t.getStatus() == TaskStatus.COMPLETED);
-
-            if (t.getDueDate() != null) {
-                pstmt.setDate(3, Date.valueOf(t.getDueDate()));
-            } else {
-                pstmt.setDate(3, null);
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
             }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return Collections.unmodifiableList(list);
+    }
 
-            pstmt.setString(4, t.getPriority() != null ? t.getPriority().name() : "MEDIUM");
+    // Zapisy idą przez DatabaseService.write - w trybie write-behind trafiają do wspólnej kolejki w tej samej kolejności
 
-            pstmt.executeUpdate();
+    public void addTask(Task t) {
+        String sql = "INSERT INTO tasks (title, is_done, due_date, priority, recurring_pattern, recurring_end_date) VALUES (?, ?, ?, ?, ?, ?)";
+        try {
+            DatabaseService.write("tasks", null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setString(1, t.getTitle());
+                    pstmt.setBoolean(2, t.getStatus() == TaskStatus.COMPLETED);
+
+                    if (t.getDueDate() != null) {
+                        pstmt.setDate(3, Date.valueOf(t.getDueDate()));
+                    } else {
+                        pstmt.setDate(3, null);
+                    }
+
+                    pstmt.setString(4, t.getPriority() != null ? t.getPriority().name() : "MEDIUM");
+                    pstmt.setString(5, TaskOccurrences.isSeries(t) ? t.getRecurringPattern().name() : null);
+                    pstmt.setDate(6, TaskOccurrences.isSeries(t) && t.getRecurringEndDate() != null
+                            ? Date.valueOf(t.getRecurringEndDate()) : null);
+
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) DatabaseService.logRow(conn, "tasks", "id", keys.getLong(1));
+                    }
+                }
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
     public void toggleTaskStatus(Long id, boolean isDone) {
         String sql = "UPDATE tasks SET is_done = ? WHERE id = ?";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setBoolean(1, isDone);
-            pstmt.setLong(2, id);
-            pstmt.executeUpdate();
+        try {
+            // Wielokrotne klikanie tego samego zadania scala się do ostatniego stanu
+            DatabaseService.write("tasks", "tasks.is_done:" + id, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setBoolean(1, isDone);
+                    pstmt.setLong(2, id);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logRow(conn, "tasks", "id", id);
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
     public void deleteTask(Long id) {
         String sql = "DELETE FROM tasks WHERE id = ?";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, id);
-            pstmt.executeUpdate();
+        try {
+            DatabaseService.write("tasks", null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, id);
+                    pstmt.executeUpdate();
+                }
+                DatabaseService.logDelete("tasks", "id", id);
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
@@ -97,6 +150,14 @@ public class TaskDAO {
         if (p != null) t.setPriority(Priority.valueOf(p));
         else t.setPriority(Priority.MEDIUM);
 
+        String pattern = rs.getString("recurring_pattern");
+        if (pattern != null) {
+            t.setRecurring(true);
+            t.setRecurringPattern(RecurringPattern.valueOf(pattern));
+            java.sql.Date end = rs.getDate("recurring_end_date");
+            if (end != null) t.setRecurringEndDate(end.toLocalDate());
+        }
+
         return t;
     }
 }
\ No newline at end of file
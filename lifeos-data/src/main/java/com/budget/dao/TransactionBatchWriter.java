@@ -0,0 +1,201 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
+import com.budget.db.SqlWrite;
+import com.budget.model.Transaction;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strumieniowy zapis wielu transakcji (import wyciągów, masowe dane).
+ * <p>
+ * Wiersze trafiają do batcha JDBC, a co {@code batchSize} wierszy paczka jest wysyłana
+ * i zatwierdzana jednym commitem (razem z aktualizacją tabel pochodnych). Wygenerowane ID są wpisywane z powrotem do obiektów.
+ * Bez {@code commitEachBatch} paczki są tylko wysyłane, a całość zatwierdza {@link #commit()} - jedna transakcja.
+ * Wpisy dziennika zmian są wtedy odkładane dopiero tuż przed tym commitem: commit nowej kategorii (osobne połączenie,
+ * ten sam wątek - patrz {@link CategoryDAO#getOrCreateId}) nie zabierze ze sobą wierszy, które mogą się jeszcze wycofać.
+ * Użycie: try-with-resources; close() wycofuje wszystko, czego nie zatwierdzono przez flush()/commit().
+ */
+public class TransactionBatchWriter implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO transactions(type, category_id, amount_minor, date, description) VALUES(?, ?, ?, ?, ?)";
+
+    private final Connection conn;
+    private final PreparedStatement pstmt;
+    private final int batchSize;
+    private final boolean returnGeneratedKeys;
+    private final boolean commitEachBatch;
+    private final List<Transaction> pending;
+    // Bez commitEachBatch: wysłane, jeszcze niezatwierdzone wiersze (do dziennika zmian przy commit())
+    private final List<Transaction> sent = new ArrayList<>();
+
+    private final long startNanos = System.nanoTime();
+    private long rows;
+    private long chunks;
+    private boolean closed;
+
+    public TransactionBatchWriter() throws SQLException {
+        this(DEFAULT_BATCH_SIZE, true);
+    }
+
+    public TransactionBatchWriter(int batchSize, boolean returnGeneratedKeys) throws SQLException {
+        this(batchSize, returnGeneratedKeys, true);
+    }
+
+    public TransactionBatchWriter(int batchSize, boolean returnGeneratedKeys, boolean commitEachBatch) throws SQLException {
+        if (batchSize <= 0) throw new IllegalArgumentException("Rozmiar paczki musi być dodatni");
+        this.batchSize = batchSize;
+        // Dziennik zmian zapisuje wiersze z ID, więc przy włączonym dzienniku klucze pobieramy zawsze
+        this.returnGeneratedKeys = returnGeneratedKeys || DatabaseService.isChangeLogEnabled();
+        this.commitEachBatch = commitEachBatch;
+        this.pending = new ArrayList<>(Math.min(batchSize, DEFAULT_BATCH_SIZE));
+        this.conn = DatabaseService.connect();
+        try {
+            conn.setAutoCommit(false);
+            this.pstmt = this.returnGeneratedKeys
+                    ? conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)
+                    : conn.prepareStatement(INSERT_SQL);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    public void add(Transaction t) throws SQLException {
+        if (closed) throw new IllegalStateException("Writer jest już zamknięty");
+        TransactionDAO.setType(pstmt, 1, t.getType());
+        pstmt.setInt(2, TransactionDAO.categoryIdOf(t));
+        pstmt.setLong(3, t.getAmountMinor());
+        pstmt.setDate(4, Date.valueOf(t.getDate()));
+        pstmt.setString(5, t.getDescription());
+        pstmt.addBatch();
+        pending.add(t);
+
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Wysyła bieżącą paczkę i zatwierdza ją (bez {@code commitEachBatch} - tylko wysyła).
+     * Przy błędzie wycofywane jest wszystko niezatwierdzone.
+     */
+    public void flush() throws SQLException {
+        flush(null);
+    }
+
+    /**
+     * Jak {@link #flush()}, ale przed commitem wykonuje na tym samym połączeniu dodatkowy zapis
+     * (np. punkt wznowienia importu) - paczka i ten zapis są zatwierdzane razem albo wcale.
+     * Z dodatkowym zapisem commit następuje także przy pustej paczce.
+     */
+    public void flush(SqlWrite beforeCommit) throws SQLException {
+        if (pending.isEmpty() && beforeCommit == null) return;
+        try {
+            pstmt.executeBatch();
+            if (returnGeneratedKeys) {
+                assignGeneratedKeys();
+            }
+            TransactionDAO.applyDerived(conn, pending, +1);
+            if (commitEachBatch) {
+                logChanges(pending);
+                if (beforeCommit != null) beforeCommit.execute(conn);
+                DatabaseService.commit(conn);
+                QueryCache.invalidate("transactions");
+            } else {
+                if (beforeCommit != null) beforeCommit.execute(conn);
+                sent.addAll(pending);
+            }
+        } catch (SQLException | RuntimeException e) {
+            pstmt.clearBatch();
+            DatabaseService.rollback(conn);
+            pending.clear();
+            sent.clear();
+            throw e;
+        }
+        rows += pending.size();
+        chunks++;
+        pending.clear();
+    }
+
+    /**
+     * Wysyła resztę i zatwierdza wszystko od poprzedniego commitu.
+     */
+    public void commit() throws SQLException {
+        flush();
+        if (commitEachBatch) return;
+        try {
+            logChanges(sent);
+            DatabaseService.commit(conn);
+        } catch (SQLException | RuntimeException e) {
+            DatabaseService.rollback(conn);
+            throw e;
+        } finally {
+            sent.clear();
+        }
+        QueryCache.invalidate("transactions");
+    }
+
+    /**
+     * Wycofuje wszystko niezatwierdzone - bez {@code commitEachBatch} także wysłane już paczki.
+     */
+    public void rollback() throws SQLException {
+        discard();
+        sent.clear();
+        DatabaseService.rollback(conn);
+    }
+
+    /**
+     * Porzuca wiersze dodane od ostatniego {@link #flush()} - nic z nich nie trafi do bazy.
+     */
+    public void discard() throws SQLException {
+        pstmt.clearBatch();
+        pending.clear();
+    }
+
+    private static void logChanges(List<Transaction> rows) {
+        for (Transaction t : rows) {
+            DatabaseService.logChange(TransactionDAO.changeOf(t));
+        }
+    }
+
+    private void assignGeneratedKeys() throws SQLException {
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            int i = 0;
+            while (keys.next() && i < pending.size()) {
+                pending.get(i++).setId(keys.getInt(1));
+            }
+        }
+    }
+
+    public BatchWriteStats getStats() {
+        return new BatchWriteStats(rows, chunks, System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) return;
+        closed = true;
+        try {
+            // Wyjście z try-with-resources po wyjątku nie może zatwierdzić tego, co już wysłano
+            if (!pending.isEmpty() || !sent.isEmpty()) rollback();
+        } finally {
+            try {
+                pstmt.close();
+            } finally {
+                conn.close(); // oddaje połączenie do puli (autocommit zostanie przywrócony)
+            }
+        }
+    }
+}
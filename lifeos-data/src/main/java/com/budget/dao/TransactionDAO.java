@@ -1,136 +1,465 @@
 package com.budget.dao;
 
 import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
+import com.budget.db.changelog.Change;
+import com.budget.model.Category;
+import com.budget.model.Money;
 import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TransactionDAO {
 
+    // Kolumny obrazu wiersza w dzienniku zmian (patrz changeOf)
+    private static final List<String> LOG_COLUMNS = List.of("id", "type", "category_id", "amount_minor", "date", "description");
+
+    // Słownik kategorii jest wspólny (statyczny) - mapRow zamienia nim category_id na współdzieloną kategorię
+    private static final CategoryDAO CATEGORIES = new CategoryDAO();
+
+    private final BalanceLedgerDAO ledger = new BalanceLedgerDAO();
+
+    /**
+     * Dodaje transakcję razem z aktualizacją tabel pochodnych. W trybie write-behind ID jest nadawane
+     * dopiero przy zapisie paczki - kto go potrzebuje, woła {@link DatabaseService#awaitWrites()}.
+     */
     public void addTransaction(Transaction t) {
-        String sql = "INSERT INTO transactions(type, category, amount, date, description) VALUES(?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, t.getType());
-            pstmt.setString(2, t.getCategory());
-            pstmt.setDouble(3, t.getAmount());
-            pstmt.setDate(4, Date.valueOf(t.getDate()));
-            pstmt.setString(5, t.getDescription());
-            pstmt.executeUpdate();
+        String sql = "INSERT INTO transactions(type, category_id, amount_minor, date, description) VALUES(?, ?, ?, ?, ?)";
+        try {
+            // Klucz kategorii przed zapisem: nowa kategoria jest zatwierdzana osobno, nie w transakcji zapisu
+            int categoryId = categoryIdOf(t);
+            DatabaseService.write("transactions", null, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    setType(pstmt, 1, t.getType());
+                    pstmt.setInt(2, categoryId);
+                    pstmt.setLong(3, t.getAmountMinor());
+                    pstmt.setDate(4, Date.valueOf(t.getDate()));
+                    pstmt.setString(5, t.getDescription());
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) t.setId(keys.getInt(1));
+                    }
+                }
+                applyDerived(conn, List.of(t), +1);
+                DatabaseService.logChange(changeOf(t));
+            });
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
+    /**
+     * Zapis wielu transakcji wsadowo (paczki JDBC) w jednej transakcji - trafiają do bazy wszystkie albo żadna.
+     * Wygenerowane ID są wpisywane do przekazanych obiektów (po błędzie zerowane).
+     *
+     * @throws SQLException gdy zapis się nie udał; nic nie zostaje zapisane
+     */
+    public BatchWriteStats addTransactions(Collection<Transaction> transactions) throws SQLException {
+        return addTransactions(transactions, TransactionBatchWriter.DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchWriteStats addTransactions(Collection<Transaction> transactions, int batchSize) throws SQLException {
+        // Klucze kategorii przed zapisem (jak w addTransaction): nowa kategoria jest zatwierdzana osobno
+        for (Transaction t : transactions) {
+            categoryIdOf(t);
+        }
+        try (TransactionBatchWriter writer = new TransactionBatchWriter(batchSize, true, false)) {
+            try {
+                for (Transaction t : transactions) {
+                    writer.add(t);
+                }
+                writer.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    writer.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                for (Transaction t : transactions) t.setId(0);
+                throw e;
+            }
+            BatchWriteStats stats = writer.getStats();
+            if (DatabaseService.isDebugStats()) System.out.println("✅ Import transakcji: " + stats);
+            return stats;
+        }
+    }
+
+    /**
+     * Usuwa transakcję razem z korektą tabel pochodnych. Tak jak {@link #addTransaction}: idzie przez
+     * {@link DatabaseService#write}, więc w trybie write-behind wykona się po zleconych wcześniej zapisach,
+     * a błąd jest tylko logowany (zapis odroczony nie ma go komu zgłosić).
+     */
     public void deleteTransaction(int id) {
-        String sql = "DELETE FROM transactions WHERE id = ?";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        try {
+            DatabaseService.write("transactions", null, conn -> deleteById(conn, id));
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
-    // --- NOWA METODA: Pobieranie tylko dla konkretnego roku i miesiąca ---
-    public List<Transaction> getTransactionsForMonth(int year, int month) {
-        List<Transaction> list = new ArrayList<>();
-        // H2 Database używa funkcji EXTRACT lub YEAR()/MONTH()
-        String sql = "SELECT * FROM transactions WHERE EXTRACT(YEAR FROM date) = ? AND EXTRACT(MONTH FROM date) = ? ORDER BY date DESC";
+    // --- ZAPYTANIA ZAKRESOWE (korzystają z indeksów idx_transactions_date / idx_transactions_category_date) ---
+
+    /**
+     * Transakcje z przedziału [from, toExclusive), od najnowszych.
+     * Granica null oznacza brak ograniczenia z tej strony.
+     */
+    public List<Transaction> getTransactions(LocalDate from, LocalDate toExclusive, TransactionFilter filter) {
+        List<Object> params = new ArrayList<>();
+        return query(selectSql(from, toExclusive, filter, params), params);
+    }
+
+    /**
+     * Saldo (przychody - wydatki) w przedziale [from, toExclusive), liczone w SQL, w groszach.
+     */
+    public long getBalanceMinor(LocalDate from, LocalDate toExclusive, TransactionFilter filter) {
+        List<Object> params = new ArrayList<>();
+        // type: kody TransactionType (1 = przychód, 2 = wydatek)
+        String sql = """
+            SELECT
+                COALESCE(SUM(CASE WHEN type = 1 THEN amount_minor ELSE 0 END), 0) -
+                COALESCE(SUM(CASE WHEN type = 2 THEN amount_minor ELSE 0 END), 0)
+            as balance
+            FROM transactions""" + whereClause(from, toExclusive, filter, params);
 
         try (Connection conn = DatabaseService.connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, year);
-            pstmt.setInt(2, month);
-
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                list.add(new Transaction(
-                        rs.getInt("id"),
-                        rs.getString("type"),
-                        rs.getString("category"),
-                        rs.getDouble("amount"),
-                        rs.getDate("date").toLocalDate(),
-                        rs.getString("description")
-                ));
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong("balance");
+                }
             }
         } catch (SQLException e) { e.printStackTrace(); }
-        return list;
+        return 0L;
+    }
+
+    public double getBalance(LocalDate from, LocalDate toExclusive, TransactionFilter filter) {
+        return Money.toDouble(getBalanceMinor(from, toExclusive, filter));
+    }
+
+    // Pobieranie tylko dla konkretnego roku i miesiąca (zakres dat zamiast EXTRACT, żeby działał indeks)
+    public List<Transaction> getTransactionsForMonth(int year, int month) {
+        LocalDate first = LocalDate.of(year, month, 1);
+        return getTransactions(first, first.plusMonths(1), TransactionFilter.all());
     }
-    // 1. Obliczanie salda (Przychody - Wydatki) bezpośrednio w SQL
+
+    // 1. Saldo (Przychody - Wydatki) z utrzymywanej księgi - bez SUM po całej tabeli
+    public long getCurrentBalanceMinor() {
+        return ledger.getCurrentBalanceMinor();
+    }
+
     public double getCurrentBalance() {
-        String sql = """
-            SELECT 
-                COALESCE(SUM(CASE WHEN type = 'PRZYCHÓD' THEN amount ELSE 0 END), 0) - 
-                COALESCE(SUM(CASE WHEN type = 'WYDATEK' THEN amount ELSE 0 END), 0) 
-            as balance 
-            FROM transactions
-        """;
-
-        try (java.sql.Connection conn = DatabaseService.connect();
-             java.sql.Statement stmt = conn.createStatement();
-             java.sql.ResultSet rs = stmt.executeQuery(sql)) {
-
-            if (rs.next()) {
-                return rs.getDouble("balance");
-            }
-        } catch (java.sql.SQLException e) {
-            e.printStackTrace();
-        }
-        return 0.0;
+        return Money.toDouble(getCurrentBalanceMinor());
     }
+
+    // To samo co deleteTransaction (ten sam kontrakt błędów) - zostaje dla starszych wywołań
     public void delete(int transactionId) {
-        String sql = "DELETE FROM transactions WHERE id = ?";
-        try (Connection conn = DatabaseService.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, transactionId);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Błąd usuwania transakcji: " + transactionId, e);
+        deleteTransaction(transactionId);
+    }
+
+    // Wiersz czytamy z blokadą, żeby wiedzieć, co odjąć; brak wiersza = już usunięta (transakcję kończy write)
+    private static void deleteById(Connection conn, int id) throws SQLException {
+        try (PreparedStatement select = conn.prepareStatement("SELECT * FROM transactions WHERE id = ? FOR UPDATE");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM transactions WHERE id = ?")) {
+            select.setInt(1, id);
+            Transaction removed = null;
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) removed = mapRow(rs);
+            }
+            if (removed == null) return;
+
+            delete.setInt(1, id);
+            delete.executeUpdate();
+            applyDerived(conn, List.of(removed), -1);
+            DatabaseService.logDelete("transactions", "id", id);
         }
     }
 
     // 2. Pobieranie ostatnich N transakcji (dla Kokpitu)
     public List<Transaction> getRecentTransactions(int limit) {
-        List<Transaction> list = new ArrayList<>();
-        String sql = "SELECT * FROM transactions ORDER BY date DESC LIMIT ?";
-
-        try (java.sql.Connection conn = DatabaseService.connect();
-             java.sql.PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, limit);
-
-            java.sql.ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                list.add(new Transaction(
-                        rs.getInt("id"),
-                        rs.getString("type"),
-                        rs.getString("category"),
-                        rs.getDouble("amount"),
-                        rs.getDate("date").toLocalDate(),
-                        rs.getString("description")
-                ));
+        return getTransactions(null, null, TransactionFilter.builder().limit(limit).build());
+    }
+
+    // Metoda dla raportów i eksportu (pobiera wszystko)
+    public List<Transaction> getAllTransactions() {
+        return getTransactions(null, null, TransactionFilter.all());
+    }
+
+    // --- STRONICOWANIE (keyset po (date, id) - koszt strony nie zależy od tego, jak daleko jesteśmy) ---
+
+    /**
+     * Strona transakcji starszych niż {@code after} (null = od najnowszej), w porządku date DESC, id DESC.
+     */
+    public List<Transaction> getTransactionsPage(LocalDate from, LocalDate toExclusive, TransactionFilter filter,
+                                                 TransactionKey after, int pageSize) {
+        List<Object> params = new ArrayList<>();
+        return query(keysetSql(from, toExclusive, filter, after, pageSize, params), params);
+    }
+
+    private static String keysetSql(LocalDate from, LocalDate toExclusive, TransactionFilter filter,
+                                    TransactionKey after, int pageSize, List<Object> params) {
+        String where = whereClause(from, toExclusive, filter, params);
+        if (after != null) {
+            // Porównanie wierszy H2 zamienia na zakres w indeksie; rozpisane "date < ? OR (...)" skanuje od początku
+            where += (where.isEmpty() ? " WHERE" : " AND") + " (date, id) < (?, ?)";
+            params.add(Date.valueOf(after.date()));
+            params.add(after.id());
+        }
+        return "SELECT * FROM transactions" + where + " ORDER BY date DESC, id DESC LIMIT " + pageSize;
+    }
+
+    /**
+     * Strona transakcji o ID większym niż {@code afterId}, rosnąco po ID - przejście całej tabeli krótkimi zapytaniami
+     * (jeden leniwy kursor na miliony wierszy H2 potrafi przerwać błędem "Chunk ... not found").
+     * W odróżnieniu od reszty odczytów błąd rzuca dalej: kto ładuje całą tabelę, musi wiedzieć, że dostał tylko część.
+     */
+    public List<Transaction> getTransactionsAfterId(int afterId, int pageSize) throws SQLException {
+        List<Transaction> list = new ArrayList<>(pageSize);
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM transactions WHERE id > ? ORDER BY id LIMIT ?")) {
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
             }
-        } catch (java.sql.SQLException e) {
-            e.printStackTrace();
         }
         return list;
     }
 
-    // Metoda dla raportów i eksportu (pobiera wszystko)
-    public List<Transaction> getAllTransactions() {
+    /**
+     * Same klucze (date, id) od podanej pozycji. Czyta tylko indeks, więc nadaje się do jednorazowego
+     * wyznaczenia granic stron przy skoku w dowolne miejsce listy - dalej strony czyta się keysetem.
+     */
+    public List<TransactionKey> getTransactionKeys(LocalDate from, LocalDate toExclusive, TransactionFilter filter,
+                                                   int offset, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT date, id FROM transactions" + whereClause(from, toExclusive, filter, params)
+                + " ORDER BY date DESC, id DESC LIMIT " + limit + " OFFSET " + offset;
+
+        List<TransactionKey> keys = new ArrayList<>();
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(new TransactionKey(rs.getDate(1).toLocalDate(), rs.getInt(2)));
+                }
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return keys;
+    }
+
+    public int countTransactions(LocalDate from, LocalDate toExclusive, TransactionFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM transactions" + whereClause(from, toExclusive, filter, params);
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        } catch (SQLException e) { e.printStackTrace(); }
+        return 0;
+    }
+
+    // --- ODCZYT STRUMIENIOWY (eksport, raporty - stała pamięć niezależnie od wielkości tabeli) ---
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    public void forEachTransaction(Consumer<Transaction> action) {
+        forEachTransaction(null, null, TransactionFilter.all(), DEFAULT_FETCH_SIZE, false, action);
+    }
+
+    /**
+     * Przechodzi po transakcjach stronami, bez budowania listy w pamięci.
+     *
+     * @param reuseRow gdy true, akcja dostaje obiekty z bufora strony, wypełniane od nowa przy następnej stronie -
+     *                 nie wolno ich przechowywać poza wywołaniem
+     */
+    public void forEachTransaction(LocalDate from, LocalDate toExclusive, TransactionFilter filter,
+                                   int pageSize, boolean reuseRow, Consumer<Transaction> action) {
+        try (Stream<Transaction> stream = streamTransactions(from, toExclusive, filter, pageSize, reuseRow)) {
+            stream.forEach(action);
+        }
+    }
+
+    /**
+     * Strumień transakcji (date DESC, id DESC) czytany stronami keyset po {@code pageSize} wierszy, jak
+     * {@link #getTransactionsPage} - jeden leniwy kursor na dużej tabeli H2 potrafi przerwać błędem "Chunk ... not found".
+     * Połączenie z puli jest zajęte tylko na czas odczytu strony. Strony to osobne zapytania, nie jedna transakcja:
+     * wiersz dopisany w trakcie przejścia pojawi się tylko wtedy, gdy jego klucz jest jeszcze przed bieżącą stroną.
+     */
+    public Stream<Transaction> streamTransactions(LocalDate from, LocalDate toExclusive, TransactionFilter filter,
+                                                  int pageSize, boolean reuseRow) {
+        return StreamSupport.stream(new PageSpliterator(from, toExclusive, filter, pageSize, reuseRow), false);
+    }
+
+    private static final class PageSpliterator extends Spliterators.AbstractSpliterator<Transaction> {
+        private final LocalDate from;
+        private final LocalDate toExclusive;
+        private final TransactionFilter filter;
+        private final int pageSize;
+        private final Transaction[] reusable; // null = nowy obiekt na każdy wiersz
+        private final List<Transaction> page = new ArrayList<>();
+        private int position;
+        private int remaining; // limit filtra
+        private TransactionKey after;
+        private boolean exhausted;
+
+        PageSpliterator(LocalDate from, LocalDate toExclusive, TransactionFilter filter, int pageSize, boolean reuseRow) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.from = from;
+            this.toExclusive = toExclusive;
+            this.filter = filter;
+            this.pageSize = Math.max(pageSize, 1);
+            this.reusable = reuseRow ? new Transaction[this.pageSize] : null;
+            this.remaining = filter.getLimit() > 0 ? filter.getLimit() : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            if (position == page.size()) {
+                if (exhausted) return false;
+                loadPage();
+                if (page.isEmpty()) return false;
+            }
+            action.accept(page.get(position++));
+            return true;
+        }
+
+        private void loadPage() {
+            int size = Math.min(pageSize, remaining);
+            List<Object> params = new ArrayList<>();
+            String sql = keysetSql(from, toExclusive, filter, after, size, params);
+            page.clear();
+            position = 0;
+            try (Connection conn = DatabaseService.connect();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                bind(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(reusable != null ? fillRow(rs, reusableAt(page.size())) : mapRow(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Błąd odczytu strumieniowego transakcji", e);
+            }
+            remaining -= page.size();
+            exhausted = page.size() < size || remaining == 0;
+            if (!page.isEmpty()) {
+                Transaction last = page.get(page.size() - 1);
+                after = new TransactionKey(last.getDate(), last.getId());
+            }
+        }
+
+        private Transaction reusableAt(int index) {
+            if (reusable[index] == null) reusable[index] = new Transaction();
+            return reusable[index];
+        }
+    }
+
+    // --- POMOCNICZE ---
+
+    /**
+     * Aktualizuje tabele pochodne (księga sald, sumy kategorii) w transakcji zapisu.
+     * Wywoływane też przez {@link TransactionBatchWriter}. Kolejność ma znaczenie: księga sald blokuje wiersz sumy
+     * i tym samym szereguje zapisujących, zanim sumy kategorii wstawią nowe wiersze.
+     */
+    static void applyDerived(Connection conn, Collection<Transaction> transactions, int sign) throws SQLException {
+        BalanceLedgerDAO.apply(conn, transactions, sign);
+        CategoryRollupDAO.apply(conn, transactions, sign);
+    }
+
+    /**
+     * Obraz wiersza transakcji do dziennika zmian - z obiektu, bez ponownego odczytu z bazy. Tabel pochodnych
+     * nie logujemy: przy odtwarzaniu kopii są przeliczane od zera.
+     */
+    static Change changeOf(Transaction t) {
+        return Change.upsert("transactions", "id", LOG_COLUMNS, Arrays.asList(
+                t.getId(), t.getType() != null ? t.getType().getCode() : null, CATEGORIES.findId(t.getCategory()),
+                t.getAmountMinor(), t.getDate(), t.getDescription()));
+    }
+
+    /**
+     * Klucz kategorii transakcji (nową dopisuje do słownika); brak kategorii zapisujemy jako {@link Category#DEFAULT}.
+     */
+    static int categoryIdOf(Transaction t) throws SQLException {
+        if (t.getCategory() == null) t.setCategory(Category.DEFAULT);
+        return CATEGORIES.getOrCreateId(t.getCategory());
+    }
+
+    // Typ jako kod TINYINT; null zostaje NULL-em
+    static void setType(PreparedStatement pstmt, int index, TransactionType type) throws SQLException {
+        if (type != null) pstmt.setInt(index, type.getCode());
+        else pstmt.setNull(index, Types.TINYINT);
+    }
+
+    private static String selectSql(LocalDate from, LocalDate toExclusive, TransactionFilter filter, List<Object> params) {
+        return "SELECT * FROM transactions" + whereClause(from, toExclusive, filter, params)
+                + " ORDER BY date DESC, id DESC" + (filter.getLimit() > 0 ? " LIMIT " + filter.getLimit() : "");
+    }
+
+    private static String whereClause(LocalDate from, LocalDate toExclusive, TransactionFilter filter, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (from != null) {
+            where.append(" AND date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (toExclusive != null) {
+            where.append(" AND date < ?");
+            params.add(Date.valueOf(toExclusive));
+        }
+        if (filter.getType() != null) {
+            where.append(" AND type = ?");
+            params.add(filter.getType().getCode());
+        }
+        if (filter.getCategory() != null) {
+            where.append(" AND category_id = ?");
+            params.add(CATEGORIES.findId(filter.getCategory()));
+        }
+        return where.length() == 0 ? "" : " WHERE" + where.substring(4);
+    }
+
+    private static List<Transaction> query(String sql, List<Object> params) {
         List<Transaction> list = new ArrayList<>();
-        String sql = "SELECT * FROM transactions ORDER BY date DESC";
         try (Connection conn = DatabaseService.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                list.add(new Transaction(
-                        rs.getInt("id"), rs.getString("type"), rs.getString("category"),
-                        rs.getDouble("amount"), rs.getDate("date").toLocalDate(), rs.getString("description")
-                ));
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
             }
         } catch (SQLException e) { e.printStackTrace(); }
         return list;
     }
+
+    private static void bind(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static Transaction mapRow(ResultSet rs) throws SQLException {
+        return fillRow(rs, new Transaction());
+    }
+
+    private static Transaction fillRow(ResultSet rs, Transaction t) throws SQLException {
+        t.setId(rs.getInt("id"));
+        int type = rs.getInt("type");
+        t.setType(rs.wasNull() ? null : TransactionType.fromCode(type));
+        t.setCategory(CATEGORIES.getById(rs.getInt("category_id")));
+        t.setAmountMinor(rs.getLong("amount_minor"));
+        t.setDate(rs.getDate("date").toLocalDate());
+        t.setDescription(rs.getString("description"));
+        return t;
+    }
 }
\ No newline at end of file
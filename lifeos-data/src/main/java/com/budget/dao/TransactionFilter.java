@@ -0,0 +1,29 @@
+package com.budget.dao;
+
+import com.budget.model.Category;
+import com.budget.model.TransactionType;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Dodatkowe warunki dla zapytań zakresowych w {@link TransactionDAO}.
+ * Pola null / 0 oznaczają "bez ograniczenia".
+ */
+@Getter
+@Builder(toBuilder = true)
+public class TransactionFilter {
+
+    private static final TransactionFilter ALL = TransactionFilter.builder().build();
+
+    private final TransactionType type;
+    private final Category category;
+    private final int limit;        // 0 = wszystkie wiersze
+
+    public static TransactionFilter all() {
+        return ALL;
+    }
+
+    public static TransactionFilter ofType(TransactionType type) {
+        return TransactionFilter.builder().type(type).build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.budget.dao;
+
+import com.budget.model.Transaction;
+
+import java.time.LocalDate;
+
+/**
+ * Pozycja w porządku (date DESC, id DESC) - "zakładka" dla stronicowania keyset.
+ * Następna strona zaczyna się od pierwszego wiersza starszego niż ten klucz.
+ */
+public record TransactionKey(LocalDate date, int id) {
+
+    public static TransactionKey of(Transaction t) {
+        return new TransactionKey(t.getDate(), t.getId());
+    }
+}
@@ -0,0 +1,380 @@
+package com.budget.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ograniczona pula połączeń JDBC.
+ * <p>
+ * Zamiast otwierać nowe połączenie H2 (z handshake'iem blokady pliku AUTO_SERVER) przy każdym zapytaniu,
+ * DAO wypożyczają gotowe połączenie i oddają je przez zwykłe {@code close()}.
+ * Pula sama sprawdza połączenia przed wydaniem, zamyka bezczynne i zgłasza wycieki.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final PoolConfig config;
+
+    // LIFO: najświeżej oddane połączenie wychodzi pierwsze (najmniej potrzebuje walidacji)
+    private final Deque<PhysicalConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // --- METRYKI ---
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong physicallyClosed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong borrowNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, PoolConfig config) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lifeos-db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getHousekeepingIntervalMs();
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wypożycza połączenie. {@code close()} na zwróconym obiekcie oddaje je do puli.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Pula połączeń jest zamknięta");
+        long start = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(config.getConnectionTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Brak wolnego połączenia po " + config.getConnectionTimeoutMs()
+                        + " ms (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Przerwano oczekiwanie na połączenie", e);
+        }
+
+        try {
+            PhysicalConnection physical = takeIdle();
+            if (physical == null) physical = open();
+
+            Lease lease = new Lease(physical, 1);
+            leased.add(lease);
+            borrowed.incrementAndGet();
+            borrowNanos.addAndGet(System.nanoTime() - start);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Wypożycza połączenie na wyłączność: czeka, aż wrócą wszystkie wypożyczone, a do {@code close()}
+     * nikt inny nic nie dostanie (semafor jest sprawiedliwy, więc nowi czekają w kolejce za nami).
+     * Dla operacji, które podmieniają całą bazę (odtwarzanie kopii).
+     */
+    public Connection borrowExclusive(long timeoutMs) throws SQLException {
+        if (closed) throw new SQLException("Pula połączeń jest zamknięta");
+        int all = config.getMaxSize();
+        try {
+            if (!permits.tryAcquire(all, timeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Nie udało się przejąć puli na wyłączność po " + timeoutMs
+                        + " ms (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Przerwano oczekiwanie na wyłączny dostęp do puli", e);
+        }
+
+        try {
+            PhysicalConnection physical = takeIdle();
+            if (physical == null) physical = open();
+
+            Lease lease = new Lease(physical, all);
+            leased.add(lease);
+            borrowed.incrementAndGet();
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release(all);
+            throw e;
+        }
+    }
+
+    private PhysicalConnection takeIdle() {
+        long now = System.currentTimeMillis();
+        PhysicalConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (isExpired(pc, now)) {
+                closePhysical(pc);
+                continue;
+            }
+            if (now - pc.lastReturnedAt > config.getValidationIntervalMs() && !isValid(pc)) {
+                validationFailures.incrementAndGet();
+                closePhysical(pc);
+                continue;
+            }
+            return pc;
+        }
+        return null;
+    }
+
+    private PhysicalConnection open() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        created.incrementAndGet();
+        return new PhysicalConnection(raw);
+    }
+
+    private boolean isValid(PhysicalConnection pc) {
+        try {
+            return pc.raw.isValid(config.getValidationTimeoutSec());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PhysicalConnection pc, long now) {
+        return config.getMaxLifetimeMs() > 0 && now - pc.createdAt > config.getMaxLifetimeMs();
+    }
+
+    // Wywoływane przez close() na proxy
+    private void release(Lease lease) {
+        if (!leased.remove(lease)) return; // podwójne close() - ignorujemy
+
+        PhysicalConnection pc = lease.physical;
+        boolean reusable = !closed && resetState(lease);
+        if (reusable) {
+            pc.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } else {
+            closePhysical(pc);
+        }
+        permits.release(lease.permits);
+    }
+
+    /**
+     * Przywraca połączenie do stanu "jak nowe": zamyka zapomniane Statementy,
+     * wycofuje niezatwierdzoną transakcję i włącza autocommit.
+     */
+    private boolean resetState(Lease lease) {
+        Connection raw = lease.physical.raw;
+        try {
+            for (Statement st : lease.statements) {
+                if (!st.isClosed()) st.close();
+            }
+            if (raw.isClosed()) return false;
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (raw.isReadOnly()) raw.setReadOnly(false);
+            if (raw.getTransactionIsolation() != lease.physical.defaultIsolation) {
+                raw.setTransactionIsolation(lease.physical.defaultIsolation);
+            }
+            raw.clearWarnings();
+            return !isExpired(lease.physical, System.currentTimeMillis());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void closePhysical(PhysicalConnection pc) {
+        try {
+            pc.raw.close();
+        } catch (SQLException ignored) {
+            // połączenie i tak wyrzucamy
+        }
+        physicallyClosed.incrementAndGet();
+    }
+
+    private static boolean isClosedQuietly(Statement st) {
+        try {
+            return st.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    // --- SPRZĄTANIE ---
+
+    private void housekeeping() {
+        try {
+            long now = System.currentTimeMillis();
+            evictIdle(now);
+            detectLeaks(now);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdle(long now) {
+        int keep = config.getMinIdle();
+        Iterator<PhysicalConnection> it = idle.descendingIterator(); // od najdłużej bezczynnych
+        int remaining = idle.size();
+        while (it.hasNext() && remaining > keep) {
+            PhysicalConnection pc = it.next();
+            if (now - pc.lastReturnedAt > config.getIdleTimeoutMs() || isExpired(pc, now)) {
+                if (idle.remove(pc)) {
+                    closePhysical(pc);
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    private void detectLeaks(long now) {
+        long threshold = config.getLeakDetectionThresholdMs();
+        if (threshold <= 0) return;
+        for (Lease lease : leased) {
+            if (!lease.leakReported && now - lease.borrowedAt > threshold) {
+                lease.leakReported = true;
+                leaks.incrementAndGet();
+                System.err.println("⚠️ Możliwy wyciek połączenia: wypożyczone " + (now - lease.borrowedAt)
+                        + " ms temu przez wątek " + lease.threadName);
+                lease.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    // --- METRYKI / ZAMYKANIE ---
+
+    public PoolStats getStats() {
+        long count = borrowed.get();
+        double avgMicros = count == 0 ? 0.0 : borrowNanos.get() / 1000.0 / count;
+        return new PoolStats(leased.size(), idle.size(), config.getMaxSize(),
+                created.get(), physicallyClosed.get(), count,
+                validationFailures.get(), timeouts.get(), leaks.get(), avgMicros);
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PhysicalConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            closePhysical(pc);
+        }
+        // Wypożyczone połączenia zostaną zamknięte fizycznie przy zwrocie (release sprawdza flagę closed)
+    }
+
+    // --- KLASY WEWNĘTRZNE ---
+
+    private static final class PhysicalConnection {
+        final Connection raw;
+        final long createdAt = System.currentTimeMillis();
+        final int defaultIsolation;
+        volatile long lastReturnedAt = createdAt;
+
+        PhysicalConnection(Connection raw) throws SQLException {
+            this.raw = raw;
+            this.defaultIsolation = raw.getTransactionIsolation();
+        }
+    }
+
+    /**
+     * Jedno wypożyczenie. Proxy jest ważne tylko do close() - potem każde wywołanie rzuca wyjątek,
+     * więc stary uchwyt nie może namieszać w połączeniu, które dostał już ktoś inny.
+     */
+    private final class Lease implements InvocationHandler {
+        final PhysicalConnection physical;
+        final int permits; // 1, a przy wypożyczeniu na wyłączność - cała pula
+        final Connection proxy;
+        final long borrowedAt = System.currentTimeMillis();
+        final String threadName = Thread.currentThread().getName();
+        final Throwable borrowSite;
+        final List<Statement> statements = new ArrayList<>();
+        volatile boolean returned;
+        volatile boolean leakReported;
+
+        Lease(PhysicalConnection physical, int permits) {
+            this.physical = physical;
+            this.permits = permits;
+            this.borrowSite = config.getLeakDetectionThresholdMs() > 0 ? new Throwable("Miejsce wypożyczenia połączenia") : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.raw.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "PooledConnection[" + physical.raw + "]";
+                default:
+                    break;
+            }
+            if (returned) throw new SQLException("Połączenie zostało już zwrócone do puli");
+            // Fizyczne połączenie nie wychodzi poza pulę - jego close() zamknąłby je pod następnym wypożyczającym
+            switch (method.getName()) {
+                case "unwrap": {
+                    Class<?> iface = (Class<?>) args[0];
+                    if (iface.isInstance(p)) return p;
+                    throw new SQLException("Pula nie udostępnia fizycznego połączenia (" + iface.getName() + ")");
+                }
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(p);
+                default:
+                    break;
+            }
+
+            try {
+                Object result = method.invoke(physical.raw, args);
+                if (result instanceof Statement st) {
+                    // Długie wypożyczenia (np. import) tworzą wiele Statementów - nie trzymamy zamkniętych
+                    if (statements.size() >= 32) statements.removeIf(ConnectionPool::isClosedQuietly);
+                    statements.add(st);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,7 +1,18 @@
 package com.budget.db;
 
+import com.budget.dao.BalanceLedgerDAO;
+import com.budget.dao.CategoryDAO;
+import com.budget.dao.CategoryRollupDAO;
+import com.budget.db.changelog.Change;
+import com.budget.db.changelog.ChangeLog;
+import com.budget.db.columnar.TransactionColumnStore;
+import com.budget.db.migration.Migrations;
+import com.budget.db.migration.SchemaMigrator;
+import com.budget.db.search.SearchIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -12,103 +23,221 @@ public class DatabaseService {
     private static final String USER = "sa";
     private static final String PASS = "";
 
+    // Statystyki puli, kolejki, indeksów itd. tylko z -Dlifeos.debug.stats=true
+    private static final boolean DEBUG_STATS = Boolean.getBoolean("lifeos.debug.stats");
+
+    // Wszystkie DAO wypożyczają połączenia z jednej puli zamiast otwierać nowe przez DriverManager
+    private static final ConnectionPool POOL = new ConnectionPool(DB_URL, USER, PASS, PoolConfig.fromSystemProperties());
+
+    /**
+     * Wypożycza połączenie z puli. Zamknięcie połączenia (try-with-resources) oddaje je do puli.
+     */
     public static Connection connect() throws SQLException {
-        return DriverManager.getConnection(DB_URL, USER, PASS);
+        return POOL.borrow();
     }
 
-    public static void initDatabase() {
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement()) {
-
-            // 1. TRANSAKCJE
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS transactions (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    type VARCHAR(20),
-                    category VARCHAR(100),
-                    amount DOUBLE,
-                    date DATE,
-                    description VARCHAR(255)
-                );
-            """);
-
-            // 2. BUDŻETY
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS category_budgets (
-                    category VARCHAR(100) PRIMARY KEY,
-                    monthly_limit DOUBLE
-                );
-            """);
-
-            // 3. ZADANIA
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS tasks (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    title VARCHAR(255) NOT NULL,
-                    is_done BOOLEAN DEFAULT FALSE,
-                    due_date DATE,
-                    priority VARCHAR(20)
-                );
-            """);
-
-            // 4. CELE
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS goals (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    name VARCHAR(255),
-                    target_amount DOUBLE,
-                    current_amount DOUBLE DEFAULT 0,
-                    deadline DATE
-                );
-            """);
-
-            // 5. PORTFELE
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS purses (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    name VARCHAR(100) NOT NULL,
-                    type VARCHAR(20) NOT NULL,
-                    allocated_amount DOUBLE DEFAULT 0.0,
-                    spent_amount DOUBLE DEFAULT 0.0,
-                    is_locked BOOLEAN DEFAULT FALSE,
-                    buffer_allowance DOUBLE DEFAULT 0.0
-                );
-            """);
-
-            // 6. NOWOŚĆ: PŁATNOŚCI CYKLICZNE (Recurring Payments)
-            // Przygotowane pod przyszłe funkcje Enterprise
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS recurring_transactions (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    name VARCHAR(100),
-                    amount DOUBLE,
-                    category VARCHAR(100),
-                    frequency VARCHAR(20), -- MONTHLY, WEEKLY
-                    day_of_month INT,
-                    is_active BOOLEAN DEFAULT TRUE
-                );
-            """);
-
-            // Dane startowe
-            seedDefaultData(stmt);
-
-            System.out.println("✅ Baza danych LifeOS Enterprise Ready.");
+    /**
+     * Połączenie na wyłączność (patrz {@link ConnectionPool#borrowExclusive}) - do {@code close()} inne wątki czekają na pulę.
+     */
+    public static Connection connectExclusive(long timeoutMs) throws SQLException {
+        return POOL.borrowExclusive(timeoutMs);
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    public static PoolStats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    // --- DZIENNIK ZMIAN (kopie przyrostowe; -Dlifeos.changelog=false wyłącza) ---
+
+    private static final ChangeLog CHANGE_LOG = openChangeLog();
+
+    private static ChangeLog openChangeLog() {
+        if (!Boolean.parseBoolean(System.getProperty("lifeos.changelog", "true"))) return null;
+        try {
+            return ChangeLog.fromSystemProperties(Path.of(System.getProperty("user.home"), "lifeos_changelog"));
+        } catch (IOException e) {
+            System.err.println("⚠️ Dziennik zmian niedostępny - kopie przyrostowe wyłączone: " + e.getMessage());
+            return null;
         }
     }
 
-    private static void seedDefaultData(Statement stmt) throws SQLException {
-        // Dodajemy przykładowe dane tylko jeśli baza jest pusta
-        if (!stmt.getConnection().createStatement().executeQuery("SELECT COUNT(*) FROM category_budgets").next()) {
-            stmt.execute("MERGE INTO category_budgets (category, monthly_limit) KEY(category) VALUES ('Jedzenie', 2000.0)");
-            stmt.execute("MERGE INTO category_budgets (category, monthly_limit) KEY(category) VALUES ('Paliwo', 800.0)");
-            stmt.execute("MERGE INTO category_budgets (category, monthly_limit) KEY(category) VALUES ('Dom', 3000.0)");
+    /**
+     * Dziennik zmian albo null, gdy jest wyłączony.
+     */
+    public static ChangeLog getChangeLog() {
+        return CHANGE_LOG;
+    }
+
+    public static boolean isChangeLogEnabled() {
+        return CHANGE_LOG != null;
+    }
+
+    // --- WYSZUKIWANIE (indeks zasilany z dziennika zmian, plik obok bazy) ---
+
+    private static final SearchIndex SEARCH_INDEX =
+            new SearchIndex(Path.of(System.getProperty("user.home"), "lifeos_search.idx"), CHANGE_LOG);
+
+    public static SearchIndex getSearchIndex() {
+        return SEARCH_INDEX;
+    }
+
+    // --- ANALITYKA (kolumnowy snapshot transakcji, łatany z dziennika zmian) ---
+
+    private static final TransactionColumnStore TRANSACTION_COLUMNS = new TransactionColumnStore(CHANGE_LOG);
+
+    public static TransactionColumnStore getTransactionColumns() {
+        return TRANSACTION_COLUMNS;
+    }
+
+    /**
+     * Do wywołania po zmianach z pominięciem dziennika (SQL wprost, migracje) - następna kopia musi być pełna.
+     */
+    public static void invalidateBackupCheckpoint() {
+        if (CHANGE_LOG != null) CHANGE_LOG.invalidateCheckpoint();
+    }
+
+    /**
+     * Odkłada zmianę do dziennika - trafi do niego przy {@link #commit}, razem z resztą transakcji.
+     */
+    public static void logChange(Change change) {
+        if (CHANGE_LOG != null) CHANGE_LOG.stage(change);
+    }
+
+    /**
+     * Odkłada do dziennika aktualny stan wiersza (czytany na połączeniu transakcji).
+     */
+    public static void logRow(Connection conn, String table, String keyColumn, Object key) throws SQLException {
+        if (CHANGE_LOG != null) CHANGE_LOG.stageRow(conn, table, keyColumn, key);
+    }
+
+    public static void logDelete(String table, String keyColumn, Object key) {
+        if (CHANGE_LOG != null) CHANGE_LOG.stage(Change.delete(table, keyColumn, key));
+    }
+
+    /**
+     * Commit transakcji zapisującej - każdy zapis DAO zatwierdza przez tę metodę, żeby jego zmiany trafiły do dziennika.
+     */
+    public static void commit(Connection conn) throws SQLException {
+        if (CHANGE_LOG != null) {
+            CHANGE_LOG.commit(conn);
+        } else {
+            conn.commit();
+            // bez dziennika indeks i snapshot nie dostaną tej zmiany
+            SEARCH_INDEX.markStale();
+            TRANSACTION_COLUMNS.markStale();
+        }
+    }
+
+    public static void rollback(Connection conn) throws SQLException {
+        if (CHANGE_LOG != null) CHANGE_LOG.rollback(conn);
+        else conn.rollback();
+    }
+
+    // --- ZAPISY (opcjonalnie odroczone: -Dlifeos.db.writeBehind=true) ---
+
+    private static final WriteBehindQueue WRITE_BEHIND =
+            Boolean.getBoolean("lifeos.db.writeBehind") ? WriteBehindQueue.fromSystemProperties() : null;
+
+    public static boolean isWriteBehindEnabled() {
+        return WRITE_BEHIND != null;
+    }
+
+    /**
+     * Wykonuje mutację: od razu we własnej transakcji albo - w trybie write-behind - odkłada ją do kolejki,
+     * gdzie zostanie zatwierdzona razem z innymi. Błędy zapisu odroczonego są tylko logowane.
+     *
+     * @param table       tabela, której wersja w {@link QueryCache} zostanie podbita po commicie
+     * @param coalesceKey zapisy z tym samym kluczem mogą zostać scalone do ostatniego (patrz {@link WriteBehindQueue})
+     */
+    public static void write(String table, Object coalesceKey, SqlWrite write) throws SQLException {
+        if (WRITE_BEHIND != null) {
+            WRITE_BEHIND.submit(table, coalesceKey, write);
+            return;
+        }
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            try {
+                write.execute(conn);
+                commit(conn);
+            } catch (SQLException | RuntimeException e) {
+                // Także RuntimeException: połączenie wraca do puli bez otwartej transakcji i bez zmian w dzienniku
+                rollback(conn);
+                throw e;
+            } finally {
+                QueryCache.invalidate(table);
+            }
+        }
+    }
+
+    /**
+     * Bariera read-your-writes: czeka na zatwierdzenie wszystkich zleconych dotąd zapisów (bez write-behind nic nie robi).
+     */
+    public static void awaitWrites() {
+        if (WRITE_BEHIND != null) WRITE_BEHIND.flush();
+    }
+
+    /**
+     * Wstrzymuje zapisy odroczone (po zatwierdzeniu zaległych) do {@link #resumeWrites()} - bez write-behind nic nie robi.
+     */
+    public static void pauseWrites() {
+        if (WRITE_BEHIND != null) WRITE_BEHIND.pause();
+    }
+
+    public static void resumeWrites() {
+        if (WRITE_BEHIND != null) WRITE_BEHIND.resume();
+    }
+
+    /**
+     * Czy wypisywać statystyki (puli, kolejki, indeksów, snapshotu, importu) - domyślnie wyłączone.
+     */
+    public static boolean isDebugStats() {
+        return DEBUG_STATS;
+    }
+
+    // Wywoływać przy zamykaniu aplikacji
+    public static void shutdown() {
+        if (WRITE_BEHIND != null) {
+            WRITE_BEHIND.close(); // dopisuje resztę kolejki, zanim zamkniemy pulę
+            if (DEBUG_STATS) System.out.println(WRITE_BEHIND.getStats());
+        }
+        SEARCH_INDEX.save();
+        if (DEBUG_STATS) {
+            System.out.println(SEARCH_INDEX.getStats());
+            System.out.println(TRANSACTION_COLUMNS.getStats());
+        }
+        if (CHANGE_LOG != null) {
+            CHANGE_LOG.close();
+            if (DEBUG_STATS) System.out.println(CHANGE_LOG.getStats());
+        }
+        if (DEBUG_STATS) System.out.println(POOL.getStats());
+        POOL.close();
+    }
+
+    /**
+     * Doprowadza schemat do najnowszej wersji (patrz {@link Migrations}).
+     * Gdy baza jest aktualna, kosztuje to jedno zapytanie o schema_version.
+     */
+    public static void initDatabase() {
+        QueryCache.registerEventHandlers();
+        try (Connection conn = connect()) {
+            SchemaMigrator migrator = new SchemaMigrator(Migrations.all());
+            int applied = migrator.migrate(conn);
+            if (applied > 0) {
+                System.out.println("✅ Baza danych LifeOS Enterprise Ready (schemat V" + migrator.latestVersion() + ").");
+                // Zmian schematu nie ma w dzienniku - przyrosty nie dałyby się nałożyć na starszą pełną kopię
+                invalidateBackupCheckpoint();
+                CategoryDAO.invalidateCache();
+                SEARCH_INDEX.invalidate();
+                TRANSACTION_COLUMNS.invalidate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
         }
     }
 
     public static void clearAllData() {
+        // Jak w resetUserData: zaległy zapis z kolejki nie może wrócić po TRUNCATE; nowe czekają do końca czyszczenia
+        pauseWrites();
         try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
             stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
             stmt.execute("TRUNCATE TABLE transactions");
@@ -116,8 +245,44 @@ public class DatabaseService {
             stmt.execute("TRUNCATE TABLE goals");
             stmt.execute("TRUNCATE TABLE purses");
             stmt.execute("TRUNCATE TABLE recurring_transactions");
+            stmt.execute("TRUNCATE TABLE recurring_occurrences");
+            stmt.execute("TRUNCATE TABLE habits");
+            stmt.execute("TRUNCATE TABLE habit_history");
+            stmt.execute("TRUNCATE TABLE balance_monthly");
+            stmt.execute("TRUNCATE TABLE monthly_category_totals");
+            stmt.execute("UPDATE balance_total SET income_minor = 0, expense_minor = 0, tx_count = 0");
             stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
-            initDatabase(); // Odtwórz strukturę i seed
-        } catch (SQLException e) { e.printStackTrace(); }
+            QueryCache.invalidateAll();
+            invalidateBackupCheckpoint(); // TRUNCATE omija dziennik
+            SEARCH_INDEX.invalidate();
+            TRANSACTION_COLUMNS.invalidate();
+            initDatabase(); // Upewnij się, że schemat jest aktualny
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            resumeWrites();
+        }
+    }
+
+    /**
+     * Reset z ustawień: usuwa transakcje, zadania i cele (portfele, budżety i reguły zostają).
+     * DELETE omija DAO, więc tak jak przy {@link #clearAllData()} unieważniamy wszystko, co jest liczone z tych tabel.
+     */
+    public static void resetUserData() throws SQLException {
+        awaitWrites(); // zapis z kolejki nie może wrócić po resecie
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            // Autocommit celowo: rebuild() poniżej liczy tabele pochodne na INNYCH połączeniach z puli
+            // i musi już widzieć puste tabele. Nie zamieniać na jedną transakcję z przebudową.
+            conn.setAutoCommit(true);
+            stmt.execute("DELETE FROM transactions");
+            stmt.execute("DELETE FROM tasks");
+            stmt.execute("DELETE FROM goals");
+        }
+        new BalanceLedgerDAO().rebuild();
+        new CategoryRollupDAO().rebuild();
+        QueryCache.invalidateAll();
+        invalidateBackupCheckpoint(); // DELETE z pominięciem DAO nie trafia do dziennika zmian
+        SEARCH_INDEX.invalidate();
+        TRANSACTION_COLUMNS.invalidate();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.budget.db;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Ustawienia puli połączeń. Wartości domyślne można nadpisać właściwościami systemowymi
+ * (np. -Dlifeos.db.pool.maxSize=8).
+ */
+@Getter
+@Builder
+public class PoolConfig {
+
+    // Maksymalna liczba fizycznych połączeń (wypożyczonych + bezczynnych)
+    @Builder.Default
+    private final int maxSize = 10;
+
+    // Ile bezczynnych połączeń zostawiamy "na ciepło" przy sprzątaniu
+    @Builder.Default
+    private final int minIdle = 2;
+
+    // Po tylu ms bezczynności połączenie jest zamykane (powyżej minIdle)
+    @Builder.Default
+    private final long idleTimeoutMs = 5 * 60_000L;
+
+    // Maksymalny czas życia fizycznego połączenia (0 = bez limitu)
+    @Builder.Default
+    private final long maxLifetimeMs = 30 * 60_000L;
+
+    // Jak długo borrow() czeka na wolne połączenie
+    @Builder.Default
+    private final long connectionTimeoutMs = 10_000L;
+
+    // Połączenie bezczynne dłużej niż tyle ms jest sprawdzane przez isValid() przed wydaniem
+    @Builder.Default
+    private final long validationIntervalMs = 5_000L;
+
+    @Builder.Default
+    private final int validationTimeoutSec = 2;
+
+    // Po tylu ms wypożyczenia zgłaszamy podejrzenie wycieku (0 = wyłączone)
+    @Builder.Default
+    private final long leakDetectionThresholdMs = 30_000L;
+
+    // Co ile ms działa wątek sprzątający (wycieki, bezczynne połączenia)
+    @Builder.Default
+    private final long housekeepingIntervalMs = 15_000L;
+
+    public static PoolConfig defaults() {
+        return PoolConfig.builder().build();
+    }
+
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig d = defaults();
+        return PoolConfig.builder()
+                .maxSize(Integer.getInteger("lifeos.db.pool.maxSize", d.maxSize))
+                .minIdle(Integer.getInteger("lifeos.db.pool.minIdle", d.minIdle))
+                .idleTimeoutMs(Long.getLong("lifeos.db.pool.idleTimeoutMs", d.idleTimeoutMs))
+                .maxLifetimeMs(Long.getLong("lifeos.db.pool.maxLifetimeMs", d.maxLifetimeMs))
+                .connectionTimeoutMs(Long.getLong("lifeos.db.pool.connectionTimeoutMs", d.connectionTimeoutMs))
+                .validationIntervalMs(Long.getLong("lifeos.db.pool.validationIntervalMs", d.validationIntervalMs))
+                .validationTimeoutSec(Integer.getInteger("lifeos.db.pool.validationTimeoutSec", d.validationTimeoutSec))
+                .leakDetectionThresholdMs(Long.getLong("lifeos.db.pool.leakDetectionThresholdMs", d.leakDetectionThresholdMs))
+                .housekeepingIntervalMs(Long.getLong("lifeos.db.pool.housekeepingIntervalMs", d.housekeepingIntervalMs))
+                .build();
+    }
+}
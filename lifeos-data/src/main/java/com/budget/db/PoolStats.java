@@ -0,0 +1,25 @@
+package com.budget.db;
+
+/**
+ * Migawka metryk puli połączeń (do logów / ekranu ustawień).
+ */
+public record PoolStats(
+        int active,
+        int idle,
+        int maxSize,
+        long totalCreated,
+        long totalClosed,
+        long totalBorrowed,
+        long validationFailures,
+        long timeouts,
+        long leaksDetected,
+        double avgBorrowMicros
+) {
+    @Override
+    public String toString() {
+        return String.format("Pula DB: aktywne=%d, bezczynne=%d/%d, utworzone=%d, zamknięte=%d, wypożyczenia=%d, " +
+                        "nieważne=%d, timeouty=%d, wycieki=%d, śr. checkout=%.1f µs",
+                active, idle, maxSize, totalCreated, totalClosed, totalBorrowed,
+                validationFailures, timeouts, leaksDetected, avgBorrowMicros);
+    }
+}
@@ -0,0 +1,153 @@
+package com.budget.db;
+
+import com.budget.infrastructure.EventBus;
+import com.budget.infrastructure.events.DataClearedEvent;
+import com.budget.modules.finance.events.TransactionAddedEvent;
+import com.budget.modules.goals.events.GoalAddedEvent;
+import com.budget.modules.tasks.events.TaskUpdatedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache odczytów DAO (read-through) z wersjonowaniem per tabela.
+ * <p>
+ * Każda tabela ma licznik wersji podbijany po zatwierdzeniu zapisu ({@link #invalidate}). Wpis pamięta wersje tabel,
+ * z których został zbudowany, i jest ważny dopóki żadna z nich się nie zmieniła - nie trzeba śledzić, które zapytania
+ * dotyczą którego wiersza. Wersje są pobierane PRZED odczytem z bazy, więc zapis zatwierdzony w trakcie ładowania
+ * unieważnia właśnie załadowany wpis, zamiast zostawić w cache stare dane.
+ * <p>
+ * Wartości w cache nie wychodzą na zewnątrz: zapytania zwracające encje podają funkcję kopiującą
+ * ({@link #get(String, List, Supplier, UnaryOperator, String...)}) i każdy wywołujący dostaje własne kopie.
+ * Wariant bez kopiowania jest tylko dla wartości niemutowalnych (liczby, niemodyfikowalne kolekcje rekordów).
+ * <p>
+ * Cache jest lokalny dla procesu. Baza działa z AUTO_SERVER=TRUE, więc drugi proces (druga instancja aplikacji,
+ * konsola H2) może pisać do tego samego pliku - takie zapisy nie podbijają tu wersji i odczyty mogą zwracać
+ * stare dane aż do zapisu tej samej tabeli w tym procesie. Przy pracy kilku procesów na jednej bazie
+ * cache trzeba wyłączyć: -Dlifeos.db.cache.maxEntries=0 (rozmiar, 0 wyłącza cache).
+ */
+public final class QueryCache {
+
+    private static final int MAX_ENTRIES = Integer.getInteger("lifeos.db.cache.maxEntries", 256);
+
+    private static final Map<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+    // Podbijane przez invalidateAll() - unieważnia wszystko naraz
+    private static final AtomicLong EPOCH = new AtomicLong();
+
+    private static final Map<Key, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicBoolean eventsRegistered = new AtomicBoolean();
+
+    private QueryCache() {}
+
+    /**
+     * Zwraca wynik z cache albo ładuje go przez {@code loader}. Tylko dla wyników niemutowalnych -
+     * ten sam obiekt trafia do wszystkich wywołujących.
+     *
+     * @param query  nazwa zapytania (unikalna w obrębie aplikacji, np. "PurseDAO.getAllPurses")
+     * @param params parametry zapytania (część klucza)
+     * @param tables tabele, od których zależy wynik
+     */
+    public static <T> T get(String query, List<?> params, Supplier<T> loader, String... tables) {
+        return get(query, params, loader, UnaryOperator.identity(), tables);
+    }
+
+    /**
+     * Jak {@link #get(String, List, Supplier, String...)}, ale wywołujący dostaje {@code copy} wartości z cache -
+     * także przy chybieniu, żeby nikt nie trzymał referencji do obiektu, który zostaje w cache.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String query, List<?> params, Supplier<T> loader, UnaryOperator<T> copy, String... tables) {
+        if (MAX_ENTRIES <= 0) return loader.get();
+
+        Key key = new Key(query, params);
+        long[] versions = snapshot(tables);
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(key);
+            if (entry != null && Arrays.equals(entry.versions, versions)) {
+                hits.incrementAndGet();
+                return copy.apply((T) entry.value);
+            }
+        }
+
+        misses.incrementAndGet();
+        T value = loader.get();
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, new Entry(value, versions));
+        }
+        return copy.apply(value);
+    }
+
+    /** Kopia listy z kopiami elementów - do użycia jako {@code copy} dla list encji. */
+    public static <E> UnaryOperator<List<E>> copyEach(UnaryOperator<E> copy) {
+        return list -> {
+            List<E> result = new ArrayList<>(list.size());
+            for (E element : list) result.add(copy.apply(element));
+            return result;
+        };
+    }
+
+    /**
+     * Podbija wersje tabel. Wołać PO zatwierdzeniu zapisu (wcześniej równoległy odczyt mógłby zapisać stare dane z nową wersją).
+     */
+    public static void invalidate(String... tables) {
+        for (String table : tables) {
+            VERSIONS.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public static void invalidateAll() {
+        EPOCH.incrementAndGet();
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    private static long[] snapshot(String[] tables) {
+        long[] v = new long[tables.length + 1];
+        v[0] = EPOCH.get();
+        for (int i = 0; i < tables.length; i++) {
+            v[i + 1] = VERSIONS.computeIfAbsent(tables[i], t -> new AtomicLong()).get();
+        }
+        return v;
+    }
+
+    /**
+     * Unieważnianie po zdarzeniach domenowych - dla zmian, które nie przechodzą przez DAO tego modułu.
+     * Wywoływane raz przy starcie (z {@link DatabaseService#initDatabase()}).
+     */
+    public static void registerEventHandlers() {
+        if (!eventsRegistered.compareAndSet(false, true)) return;
+        EventBus.subscribe(TransactionAddedEvent.class, e -> invalidate("transactions"));
+        EventBus.subscribe(TaskUpdatedEvent.class, e -> invalidate("tasks"));
+        EventBus.subscribe(GoalAddedEvent.class, e -> invalidate("goals"));
+        EventBus.subscribe(DataClearedEvent.class, e -> invalidateAll());
+    }
+
+    public static String getStats() {
+        int size;
+        synchronized (ENTRIES) {
+            size = ENTRIES.size();
+        }
+        return String.format("Cache zapytań: wpisy=%d/%d, trafienia=%d, chybienia=%d", size, MAX_ENTRIES, hits.get(), misses.get());
+    }
+
+    private record Key(String query, List<?> params) {}
+
+    private record Entry(Object value, long[] versions) {}
+}
@@ -0,0 +1,13 @@
+package com.budget.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Pojedyncza mutacja wykonywana na podanym połączeniu. Nie zatwierdza i nie zamyka połączenia -
+ * robi to {@link DatabaseService#write} (od razu) albo {@link WriteBehindQueue} (razem z całą paczką).
+ */
+@FunctionalInterface
+public interface SqlWrite {
+    void execute(Connection conn) throws SQLException;
+}
@@ -0,0 +1,264 @@
+package com.budget.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Kolejka zapisów odroczonych (write-behind) z grupowym commitem.
+ * <p>
+ * Szybkie akcje UI (odhaczanie zadań, dodawanie transakcji z palety, zmiana budżetu) trafiają do ograniczonej kolejki,
+ * a jeden wątek zapisuje je paczkami - cała paczka to jedna transakcja JDBC i jeden commit (jeden fsync H2).
+ * <p>
+ * Zapisy z tym samym kluczem scalania (np. status jednego zadania) są łączone: w kolejce zostaje tylko ostatni,
+ * przeniesiony na koniec, więc wykona się po wszystkim, co zlecono przed nim. Klucza używać wyłącznie dla zapisów
+ * ustawiających stan bezwzględnie (UPDATE ... SET x = ?, MERGE), nigdy dla przyrostowych.
+ * <p>
+ * {@link #flush()} to bariera: wraca dopiero, gdy wszystko zlecone wcześniej jest zatwierdzone.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    private final int capacity;
+    private final int maxBatch;
+    private final long maxDelayMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private final Condition resumed = lock.newCondition();
+
+    // Kolejność wstawienia = kolejność wykonania; zapisy bez klucza dostają unikalny klucz
+    private final LinkedHashMap<Object, Pending> pending = new LinkedHashMap<>();
+    private long submittedSeq;
+    private long completedSeq;
+    private boolean closed;
+    private boolean paused;
+
+    private final Thread writer;
+
+    // --- METRYKI ---
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public WriteBehindQueue(int capacity, int maxBatch, long maxDelayMs) {
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+        this.maxDelayMs = maxDelayMs;
+        this.writer = new Thread(this::run, "lifeos-db-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static WriteBehindQueue fromSystemProperties() {
+        return new WriteBehindQueue(
+                Integer.getInteger("lifeos.db.writeBehind.capacity", 1024),
+                Integer.getInteger("lifeos.db.writeBehind.maxBatch", 256),
+                Long.getLong("lifeos.db.writeBehind.maxDelayMs", 5L));
+    }
+
+    /**
+     * Dodaje zapis do kolejki. Gdy kolejka jest pełna, czeka na miejsce (backpressure zamiast nieograniczonej pamięci).
+     *
+     * @param table       tabela do unieważnienia w {@link QueryCache} po zapisaniu paczki
+     * @param coalesceKey klucz scalania albo null, gdy zapis musi się wykonać zawsze
+     */
+    public void submit(String table, Object coalesceKey, SqlWrite write) {
+        lock.lock();
+        try {
+            while (paused && !closed) {
+                resumed.awaitUninterruptibly();
+            }
+            if (closed) throw new IllegalStateException("Kolejka zapisów jest zamknięta");
+            Object key = coalesceKey != null ? coalesceKey : new Object();
+            if (pending.remove(key) != null) {
+                coalesced.incrementAndGet();
+            } else {
+                while (pending.size() >= capacity && !closed) {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+            pending.put(key, new Pending(table, write, ++submittedSeq));
+            submitted.incrementAndGet();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Bariera read-your-writes: czeka, aż wszystkie zlecone dotąd zapisy zostaną zatwierdzone.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = submittedSeq;
+            while (completedSeq < target) {
+                committed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wstrzymuje przyjmowanie zapisów i czeka, aż wszystko zlecone wcześniej zostanie zatwierdzone.
+     * Do {@link #resume()} wątek zapisujący nie dotyka bazy, a {@code submit} czeka (np. na czas odtwarzania kopii).
+     */
+    public void pause() {
+        lock.lock();
+        try {
+            paused = true;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    public void resume() {
+        lock.lock();
+        try {
+            paused = false;
+            resumed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- WĄTEK ZAPISUJĄCY ---
+
+    private void run() {
+        while (true) {
+            List<Pending> batch = nextBatch();
+            if (batch == null) return;
+            try {
+                execute(batch);
+            } finally {
+                // Zawsze - inaczej flush() i pełna kolejka czekałyby w nieskończoność
+                lock.lock();
+                try {
+                    completedSeq = batch.get(batch.size() - 1).seq;
+                    committed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private List<Pending> nextBatch() {
+        lock.lock();
+        try {
+            while (pending.isEmpty()) {
+                if (closed) return null;
+                notEmpty.awaitUninterruptibly();
+            }
+            // Okno grupowego commitu: chwila na dołączenie kolejnych zapisów z tej samej serii
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+            long left;
+            while (pending.size() < maxBatch && !closed && (left = deadline - System.nanoTime()) > 0) {
+                try {
+                    notEmpty.awaitNanos(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            List<Pending> batch = new ArrayList<>(Math.min(pending.size(), maxBatch));
+            Iterator<Map.Entry<Object, Pending>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < maxBatch) {
+                batch.add(it.next().getValue());
+                it.remove();
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void execute(List<Pending> batch) {
+        try (Connection conn = DatabaseService.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pending p : batch) {
+                    p.write.execute(conn);
+                }
+                DatabaseService.commit(conn);
+                batches.incrementAndGet();
+            } catch (SQLException | RuntimeException e) {
+                DatabaseService.rollback(conn);
+                // Jeden błędny zapis nie może zablokować reszty paczki - powtarzamy pojedynczo
+                executeOneByOne(conn, batch);
+            }
+        } catch (SQLException | RuntimeException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("⚠️ Nie udało się zapisać paczki " + batch.size() + " zmian: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            // Po commicie (albo porażce) - odczyty z cache muszą zobaczyć nowy stan
+            batch.stream().map(Pending::table).distinct().forEach(QueryCache::invalidate);
+        }
+    }
+
+    private void executeOneByOne(Connection conn, List<Pending> batch) throws SQLException {
+        for (Pending p : batch) {
+            try {
+                p.write.execute(conn);
+                DatabaseService.commit(conn);
+            } catch (SQLException | RuntimeException e) {
+                // RuntimeException (np. NPE w zapisie DAO) też - nie może zabić jedynego wątku zapisującego
+                DatabaseService.rollback(conn);
+                failed.incrementAndGet();
+                System.err.println("⚠️ Odrzucono zapis z kolejki: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        batches.incrementAndGet();
+    }
+
+    // --- METRYKI / ZAMYKANIE ---
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public String getStats() {
+        return String.format("Kolejka zapisów: zlecone=%d, scalone=%d, paczki=%d, błędy=%d",
+                submitted.get(), coalesced.get(), batches.get(), failed.get());
+    }
+
+    /**
+     * Zapisuje wszystko, co zostało w kolejce, i zatrzymuje wątek.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            resumed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Pending(String table, SqlWrite write, long seq) {}
+}
@@ -0,0 +1,57 @@
+package com.budget.db.changelog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Jedna zmiana wiersza w dzienniku zmian: obraz wiersza po zapisie (UPSERT) albo klucz usuniętego wiersza (DELETE).
+ * <p>
+ * Zapisujemy stan, nie operację ("ustaw wiersz na X", nie "dodaj 10 zł"), więc odtworzenie tej samej zmiany
+ * drugi raz nic nie psuje - na tym opiera się odtwarzanie od punktu kontrolnego pełnej kopii.
+ *
+ * @param columns dla UPSERT wszystkie zapisywane kolumny (razem z kluczem), dla DELETE tylko klucz
+ * @param values  wartości w kolejności {@code columns}: null, Integer, Long, String, Boolean, Double, BigDecimal,
+ *                LocalDate, LocalDateTime albo byte[]
+ */
+public record Change(Op op, String table, String keyColumn, List<String> columns, List<Object> values) {
+
+    public enum Op { UPSERT, DELETE }
+
+    // Nazwy trafiają do SQL przy odtwarzaniu - tylko zwykłe identyfikatory
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    public Change {
+        columns = List.copyOf(columns);
+        values = Collections.unmodifiableList(new ArrayList<>(values)); // List.copyOf nie przyjmuje null
+        if (columns.size() != values.size()) {
+            throw new IllegalArgumentException("Liczba kolumn i wartości się nie zgadza: " + table);
+        }
+        requireIdentifier(table);
+        requireIdentifier(keyColumn);
+        columns.forEach(Change::requireIdentifier);
+        if (!columns.contains(keyColumn)) {
+            throw new IllegalArgumentException("Zmiana " + table + " bez kolumny klucza " + keyColumn);
+        }
+    }
+
+    public static Change upsert(String table, String keyColumn, List<String> columns, List<Object> values) {
+        return new Change(Op.UPSERT, table, keyColumn, columns, values);
+    }
+
+    public static Change delete(String table, String keyColumn, Object key) {
+        return new Change(Op.DELETE, table, keyColumn, List.of(keyColumn), Arrays.asList(key));
+    }
+
+    public Object key() {
+        return values.get(columns.indexOf(keyColumn));
+    }
+
+    private static void requireIdentifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Niedozwolona nazwa w dzienniku zmian: " + name);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.budget.db.changelog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Binarny format ramek dziennika zmian (segmenty i kopie przyrostowe używają tego samego).
+ * <pre>
+ * ramka:  [int długość treści][int CRC32 treści][treść]
+ * treść:  [long lsn][long committedAt][int liczba zmian] zmiana*
+ * zmiana: [byte op][nazwa tabeli][nazwa klucza][int liczba kolumn] ([nazwa kolumny][wartość])*
+ * nazwa:  [int indeks] - indeks nazwy już użytej w tej ramce albo -1, po którym idzie nowa nazwa (tekst)
+ * </pre>
+ * Nazwy tabel i kolumn powtarzają się w każdej zmianie, więc w ramce zapisujemy każdą tylko raz -
+ * paczka 1000 transakcji z importu to wtedy głównie same wartości.
+ */
+public final class ChangeCodec {
+
+    static final int HEADER_BYTES = 8;
+    // Zabezpieczenie przed alokacją gigabajtów po przeczytaniu śmieci jako długości
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+
+    private static final byte T_NULL = 0, T_INT = 1, T_LONG = 2, T_STRING = 3, T_BOOLEAN = 4,
+            T_DOUBLE = 5, T_DECIMAL = 6, T_DATE = 7, T_TIMESTAMP = 8, T_BYTES = 9;
+
+    private ChangeCodec() {}
+
+    /**
+     * Ramka odczytana z pliku: zdekodowane zmiany i ich dokładne bajty (do kopiowania bez ponownego kodowania).
+     */
+    public record Frame(ChangeSet changeSet, byte[] bytes) {}
+
+    /**
+     * Uszkodzona albo urwana ramka (zły CRC, niepełny zapis przy awarii).
+     */
+    public static class CorruptFrameException extends IOException {
+        public CorruptFrameException(String message) {
+            super(message);
+        }
+    }
+
+    // --- ZAPIS ---
+
+    public static byte[] encode(ChangeSet set) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(payload);
+            Map<String, Integer> names = new HashMap<>();
+            out.writeLong(set.lsn());
+            out.writeLong(set.committedAt());
+            out.writeInt(set.changes().size());
+            for (Change c : set.changes()) {
+                out.writeByte(c.op().ordinal());
+                writeName(out, names, c.table());
+                writeName(out, names, c.keyColumn());
+                out.writeInt(c.columns().size());
+                for (int i = 0; i < c.columns().size(); i++) {
+                    writeName(out, names, c.columns().get(i));
+                    writeValue(out, c.values().get(i));
+                }
+            }
+            out.flush();
+
+            byte[] body = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(HEADER_BYTES + body.length);
+            DataOutputStream header = new DataOutputStream(frame);
+            header.writeInt(body.length);
+            header.writeInt((int) crc.getValue());
+            header.write(body);
+            return frame.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream nie rzuca IOException
+        }
+    }
+
+    private static void writeName(DataOutputStream out, Map<String, Integer> names, String name) throws IOException {
+        Integer index = names.get(name);
+        if (index != null) {
+            out.writeInt(index);
+        } else {
+            names.put(name, names.size());
+            out.writeInt(-1);
+            writeString(out, name);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object v) throws IOException {
+        if (v == null) {
+            out.writeByte(T_NULL);
+        } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            out.writeByte(T_INT);
+            out.writeInt(((Number) v).intValue());
+        } else if (v instanceof Long l) {
+            out.writeByte(T_LONG);
+            out.writeLong(l);
+        } else if (v instanceof String s) {
+            out.writeByte(T_STRING);
+            writeString(out, s);
+        } else if (v instanceof Boolean b) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean(b);
+        } else if (v instanceof Double || v instanceof Float) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble(((Number) v).doubleValue());
+        } else if (v instanceof BigDecimal d) {
+            out.writeByte(T_DECIMAL);
+            writeString(out, d.toPlainString());
+        } else if (v instanceof LocalDate d) {
+            out.writeByte(T_DATE);
+            out.writeLong(d.toEpochDay());
+        } else if (v instanceof java.sql.Date d) {
+            writeValue(out, d.toLocalDate());
+        } else if (v instanceof LocalDateTime t) {
+            out.writeByte(T_TIMESTAMP);
+            writeString(out, t.toString());
+        } else if (v instanceof java.sql.Timestamp t) {
+            writeValue(out, t.toLocalDateTime());
+        } else if (v instanceof byte[] bytes) {
+            out.writeByte(T_BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            throw new IllegalArgumentException("Nieobsługiwany typ w dzienniku zmian: " + v.getClass().getName());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // --- ODCZYT ---
+
+    /**
+     * Czyta następną ramkę. Zwraca null na czystym końcu strumienia.
+     *
+     * @throws CorruptFrameException gdy ramka jest urwana albo nie zgadza się jej CRC
+     */
+    public static Frame read(InputStream in) throws IOException {
+        byte[] header = new byte[HEADER_BYTES];
+        int n = in.readNBytes(header, 0, HEADER_BYTES);
+        if (n == 0) return null;
+        if (n < HEADER_BYTES) throw new CorruptFrameException("Urwany nagłówek ramki");
+
+        int length = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16) | ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        int expectedCrc = ((header[4] & 0xFF) << 24) | ((header[5] & 0xFF) << 16) | ((header[6] & 0xFF) << 8) | (header[7] & 0xFF);
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES) throw new CorruptFrameException("Niepoprawna długość ramki: " + length);
+
+        byte[] bytes = new byte[HEADER_BYTES + length];
+        System.arraycopy(header, 0, bytes, 0, HEADER_BYTES);
+        if (in.readNBytes(bytes, HEADER_BYTES, length) < length) throw new CorruptFrameException("Urwana treść ramki");
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER_BYTES, length);
+        if ((int) crc.getValue() != expectedCrc) throw new CorruptFrameException("Niezgodna suma CRC ramki");
+
+        return new Frame(decode(bytes), bytes);
+    }
+
+    private static ChangeSet decode(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(frame, HEADER_BYTES, frame.length - HEADER_BYTES));
+        List<String> names = new ArrayList<>();
+        try {
+            long lsn = in.readLong();
+            long committedAt = in.readLong();
+            int count = in.readInt();
+            List<Change> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Change.Op op = Change.Op.values()[in.readByte()];
+                String table = readName(in, names);
+                String keyColumn = readName(in, names);
+                int columnCount = in.readInt();
+                List<String> columns = new ArrayList<>(columnCount);
+                List<Object> values = new ArrayList<>(columnCount);
+                for (int c = 0; c < columnCount; c++) {
+                    columns.add(readName(in, names));
+                    values.add(readValue(in));
+                }
+                changes.add(new Change(op, table, keyColumn, columns, values));
+            }
+            return new ChangeSet(lsn, committedAt, changes);
+        } catch (EOFException | RuntimeException e) {
+            // CRC się zgadza, a treść nie - ramka z nowszej wersji formatu albo błąd zapisu
+            throw new CorruptFrameException("Nieczytelna treść ramki: " + e);
+        }
+    }
+
+    private static String readName(DataInputStream in, List<String> names) throws IOException {
+        int index = in.readInt();
+        if (index >= 0) return names.get(index);
+        String name = readString(in);
+        names.add(name);
+        return name;
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case T_NULL -> null;
+            case T_INT -> in.readInt();
+            case T_LONG -> in.readLong();
+            case T_STRING -> readString(in);
+            case T_BOOLEAN -> in.readBoolean();
+            case T_DOUBLE -> in.readDouble();
+            case T_DECIMAL -> new BigDecimal(readString(in));
+            case T_DATE -> LocalDate.ofEpochDay(in.readLong());
+            case T_TIMESTAMP -> LocalDateTime.parse(readString(in));
+            case T_BYTES -> readBytes(in);
+            default -> throw new CorruptFrameException("Nieznany typ wartości: " + tag);
+        };
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) throw new CorruptFrameException("Niepoprawna długość danych: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) throw new CorruptFrameException("Niepoprawna długość tekstu: " + length);
+        return new String(in.readNBytes(length), UTF_8);
+    }
+}
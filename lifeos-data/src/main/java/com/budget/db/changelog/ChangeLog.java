@@ -0,0 +1,414 @@
+package com.budget.db.changelog;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Dziennik zmian: każdy zatwierdzony zapis DAO dopisuje ramkę z obrazami zmienionych wierszy (patrz {@link ChangeCodec}).
+ * Na nim opierają się kopie przyrostowe - zamiast całej bazy eksportujemy tylko ramki od ostatniego punktu kontrolnego.
+ * <p>
+ * DAO odkładają zmiany w trakcie transakcji ({@link #stage}, {@link #stageRow}); {@link #commit} zatwierdza połączenie
+ * i dopisuje odłożone zmiany pod jedną blokadą, więc kolejność ramek (LSN) jest dokładnie kolejnością commitów.
+ * Zmiany wycofanej transakcji nigdy nie trafiają do pliku.
+ * <p>
+ * Ramki są dopisywane do segmentów {@code <pierwszy LSN>.log}; po przekroczeniu rozmiaru zaczynamy nowy segment.
+ * Przy otwarciu ostatni segment jest sprawdzany sumami CRC, a urwany koniec (awaria w trakcie zapisu) obcinany.
+ * Segmenty w całości objęte punktem kontrolnym są usuwane - te zmiany są już w kopiach.
+ * <p>
+ * Ramka powstaje dopiero po commicie bazy. Jeśli proces padnie między commitem a zapisem ramki, zmiana jest w bazie,
+ * a w dzienniku jej nie ma. Dlatego znacznik {@code open} leży na dysku przez cały czas pracy i znika w {@link #close()}.
+ * Gdy przy otwarciu znacznik wciąż jest, poprzednie zamknięcie nie było czyste i punkt kontrolny jest kasowany
+ * (następna kopia pełna). Tak samo przy każdym błędzie zapisu ramki.
+ */
+public class ChangeLog implements AutoCloseable {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    // Istnieje, dopóki dziennik jest otwarty - po awarii procesu zostaje na dysku
+    private static final String OPEN_MARKER_FILE = "open";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean fsync;
+
+    // Blokada commitu: commit bazy i dopisanie ramki muszą iść w tej samej kolejności
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ThreadLocal<List<Change>> staged = ThreadLocal.withInitial(ArrayList::new);
+    private final List<Consumer<ChangeSet>> listeners = new CopyOnWriteArrayList<>();
+    private FileChannel segment;
+    private long segmentSize;
+    private volatile long lastLsn;
+
+    // --- METRYKI ---
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private ChangeLog(Path dir, long segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Otwiera (albo zakłada) dziennik w katalogu {@code dir}, odtwarzając ostatni LSN z segmentów.
+     */
+    public static ChangeLog open(Path dir, long segmentBytes, boolean fsync) throws IOException {
+        ChangeLog log = new ChangeLog(dir, segmentBytes, fsync);
+        log.recover();
+        return log;
+    }
+
+    public static ChangeLog fromSystemProperties(Path dir) throws IOException {
+        return open(dir,
+                Long.getLong("lifeos.changelog.segmentBytes", 16L * 1024 * 1024),
+                Boolean.parseBoolean(System.getProperty("lifeos.changelog.fsync", "true")));
+    }
+
+    // --- ODKŁADANIE ZMIAN (w transakcji wywołującego) ---
+
+    public void stage(Change change) {
+        staged.get().add(change);
+    }
+
+    /**
+     * Czyta aktualny stan wiersza (na połączeniu transakcji) i odkłada go jako UPSERT - albo DELETE, gdy wiersza już nie ma.
+     * Dla zapisów, które nie mają pod ręką całego wiersza (UPDATE jednej kolumny, INSERT z wartościami domyślnymi).
+     */
+    public void stageRow(Connection conn, String table, String keyColumn, Object key) throws SQLException {
+        // Sprawdzenie nazw przed sklejeniem SQL
+        Change.delete(table, keyColumn, key);
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM " + table + " WHERE " + keyColumn + " = ?")) {
+            ps.setObject(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    stage(Change.delete(table, keyColumn, key));
+                    return;
+                }
+                ResultSetMetaData meta = rs.getMetaData();
+                List<String> columns = new ArrayList<>(meta.getColumnCount());
+                List<Object> values = new ArrayList<>(meta.getColumnCount());
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    columns.add(meta.getColumnLabel(i).toLowerCase(Locale.ROOT));
+                    values.add(rs.getObject(i));
+                }
+                stage(Change.upsert(table, keyColumn, columns, values));
+            }
+        }
+    }
+
+    /**
+     * Zatwierdza połączenie i dopisuje zmiany odłożone przez ten wątek jako jedną ramkę.
+     * <p>
+     * Błąd zapisu dziennika po udanym commicie (I/O albo np. nieobsługiwany typ wartości) nie cofa transakcji -
+     * dane są w bazie, brakuje ich tylko w dzienniku. Wtedy kasujemy punkt kontrolny: kolejna kopia musi być pełna,
+     * bo przyrostowa pominęłaby tę zmianę.
+     */
+    public void commit(Connection conn) throws SQLException {
+        List<Change> pending = takeStaged();
+        if (pending.isEmpty()) {
+            conn.commit();
+            return;
+        }
+        lock.lock();
+        try {
+            conn.commit();
+            ChangeSet set = append(pending);
+            notifyListeners(set);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Słuchacz zatwierdzonych zmian (np. indeks wyszukiwania). Wywoływany pod blokadą commitu, w kolejności LSN,
+     * już po dopisaniu ramki - musi być szybki i nie może sam zapisywać do bazy.
+     * Dostaje zmiany także wtedy, gdy zapis ramki się nie udał (dane i tak są w bazie).
+     */
+    public void addListener(Consumer<ChangeSet> listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners(ChangeSet set) {
+        for (Consumer<ChangeSet> listener : listeners) {
+            try {
+                listener.accept(set);
+            } catch (RuntimeException e) {
+                // Błąd słuchacza nie może zablokować commitów
+                System.err.println("⚠️ Błąd słuchacza dziennika zmian (LSN " + set.lsn() + "): " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public void rollback(Connection conn) throws SQLException {
+        discardStaged();
+        conn.rollback();
+    }
+
+    public void discardStaged() {
+        staged.get().clear();
+    }
+
+    private List<Change> takeStaged() {
+        List<Change> list = staged.get();
+        if (list.isEmpty()) return List.of();
+        List<Change> copy = List.copyOf(list);
+        list.clear();
+        return copy;
+    }
+
+    // --- ZAPIS SEGMENTÓW (pod blokadą) ---
+
+    private ChangeSet append(List<Change> pending) {
+        long lsn = lastLsn + 1;
+        ChangeSet set = new ChangeSet(lsn, System.currentTimeMillis(), pending);
+        try {
+            byte[] frame = ChangeCodec.encode(set);
+            if (segment == null || segmentSize >= segmentBytes) roll(lsn);
+            ByteBuffer buf = ByteBuffer.wrap(frame);
+            while (buf.hasRemaining()) {
+                segment.write(buf);
+            }
+            if (fsync) segment.force(false);
+            segmentSize += frame.length;
+            lastLsn = lsn;
+            frames.incrementAndGet();
+            changes.addAndGet(pending.size());
+            bytes.addAndGet(frame.length);
+        } catch (IOException | RuntimeException e) {
+            // Każdy błąd - commit bazy już się odbył, więc zmiana nie może zniknąć z kopii bez śladu
+            failures.incrementAndGet();
+            System.err.println("⚠️ Nie udało się zapisać dziennika zmian (LSN " + lsn + "): " + e.getMessage());
+            e.printStackTrace();
+            try {
+                if (segment != null) segment.truncate(segmentSize).position(segmentSize); // bez połówki ramki na końcu
+            } catch (IOException ignored) { /* zgłoszone wyżej */ }
+            invalidateCheckpoint();
+        }
+        return set;
+    }
+
+    private void roll(long firstLsn) throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+            segment = null;
+        }
+        segment = FileChannel.open(segmentPath(firstLsn),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentSize = 0;
+    }
+
+    /**
+     * Odtwarza ostatni LSN z ostatniego segmentu i obcina urwaną końcówkę.
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        Path marker = dir.resolve(OPEN_MARKER_FILE);
+        if (Files.exists(marker)) {
+            // Poprzedni proces nie zamknął dziennika - mógł zatwierdzić w bazie zmianę bez ramki
+            System.err.println("⚠️ Dziennik zmian nie został poprawnie zamknięty.");
+            invalidateCheckpoint();
+        } else {
+            Files.createFile(marker);
+        }
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            lastLsn = checkpoint().orElse(0L);
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        long expected = firstLsn(last);
+        long validBytes = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(last), 64 * 1024)) {
+            ChangeCodec.Frame frame;
+            while ((frame = ChangeCodec.read(in)) != null) {
+                if (frame.changeSet().lsn() != expected) {
+                    throw new ChangeCodec.CorruptFrameException("LSN " + frame.changeSet().lsn() + " zamiast " + expected);
+                }
+                expected++;
+                validBytes += frame.bytes().length;
+            }
+        } catch (ChangeCodec.CorruptFrameException e) {
+            System.err.println("⚠️ Dziennik zmian: obcinam uszkodzony koniec " + last.getFileName()
+                    + " od bajtu " + validBytes + " (" + e.getMessage() + ")");
+        }
+        segment = FileChannel.open(last, StandardOpenOption.WRITE);
+        if (segment.size() > validBytes) segment.truncate(validBytes);
+        segment.position(validBytes);
+        segmentSize = validBytes;
+        lastLsn = expected - 1;
+
+        long checkpoint = checkpoint().orElse(0L);
+        if (lastLsn < checkpoint) {
+            // Utracone ramki są już w kopii - numerujemy dalej od punktu kontrolnego, w nowym segmencie,
+            // żeby żaden LSN nie oznaczał dwóch różnych zmian
+            System.err.println("⚠️ Dziennik zmian kończy się na LSN " + lastLsn + ", punkt kontrolny to " + checkpoint);
+            lastLsn = checkpoint;
+            segment.close();
+            segment = null;
+        }
+    }
+
+    // --- ODCZYT ---
+
+    public long lastLsn() {
+        return lastLsn;
+    }
+
+    /**
+     * Ramka przekazywana przy odczycie zakresu - może rzucić IOException (np. przy zapisie do kopii).
+     */
+    @FunctionalInterface
+    public interface FrameConsumer {
+        void accept(ChangeCodec.Frame frame) throws IOException;
+    }
+
+    /**
+     * Przekazuje po kolei ramki o LSN z przedziału (afterLsn, toLsn].
+     *
+     * @throws IOException gdy w dzienniku brakuje którejś ramki z zakresu (usunięty segment, obcięty plik)
+     */
+    public void read(long afterLsn, long toLsn, FrameConsumer consumer) throws IOException {
+        long expected = afterLsn + 1;
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() && expected <= toLsn; i++) {
+            long nextFirst = i + 1 < segments.size() ? firstLsn(segments.get(i + 1)) : Long.MAX_VALUE;
+            if (nextFirst <= expected) continue; // cały segment przed zakresem
+
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(segments.get(i)), 64 * 1024)) {
+                ChangeCodec.Frame frame;
+                while (expected <= toLsn && (frame = ChangeCodec.read(in)) != null) {
+                    long lsn = frame.changeSet().lsn();
+                    if (lsn < expected) continue;
+                    if (lsn != expected) break; // luka - zgłoszona niżej
+                    consumer.accept(frame);
+                    expected++;
+                }
+            }
+        }
+        if (expected <= toLsn) {
+            throw new IOException("W dzienniku zmian brakuje ramki LSN " + expected + " (potrzebne do " + toLsn + ")");
+        }
+    }
+
+    // --- PUNKT KONTROLNY ---
+
+    /**
+     * LSN objęty ostatnią kopią (pełną albo przyrostową); pusty, gdy następna kopia musi być pełna.
+     */
+    public OptionalLong checkpoint() {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return OptionalLong.empty();
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+            return OptionalLong.of(Long.parseLong(props.getProperty("lsn")));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Nieczytelny punkt kontrolny dziennika zmian: " + e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Zapisuje punkt kontrolny (atomowo) i usuwa segmenty, których wszystkie ramki są już w kopiach.
+     */
+    public void checkpoint(long lsn) throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        Properties props = new Properties();
+        props.setProperty("lsn", Long.toString(lsn));
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, "LifeOS - ostatni LSN objety kopia zapasowa");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> segments = segments();
+        // Ostatni (bieżący) segment zostaje zawsze
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstLsn(segments.get(i + 1)) - 1 <= lsn) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Usuwa punkt kontrolny - po zmianie, której dziennik nie opisuje (migracja schematu, czyszczenie bazy, odtworzenie kopii).
+     */
+    public void invalidateCheckpoint() {
+        try {
+            if (Files.deleteIfExists(dir.resolve(CHECKPOINT_FILE))) {
+                System.err.println("⚠️ Dziennik zmian: następna kopia zapasowa musi być pełna.");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // --- HELPERY ---
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted() // nazwy mają stałą długość, więc kolejność tekstowa = kolejność LSN
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return dir.resolve(String.format("%020d%s", firstLsn, SEGMENT_SUFFIX));
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public String getStats() {
+        return String.format("Dziennik zmian: LSN=%d, ramki=%d, zmiany=%d, %.1f KB, błędy=%d",
+                lastLsn, frames.get(), changes.get(), bytes.get() / 1024.0, failures.get());
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.force(false);
+                segment.close();
+                segment = null;
+            }
+            // Ostatni krok - gdy coś wyżej zawiedzie, następne otwarcie potraktuje zamknięcie jako awarię
+            Files.deleteIfExists(dir.resolve(OPEN_MARKER_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
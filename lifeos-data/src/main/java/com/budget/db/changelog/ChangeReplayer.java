@@ -0,0 +1,101 @@
+package com.budget.db.changelog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nanosi ramki dziennika na bazę (odtwarzanie kopii przyrostowych). Nie zatwierdza - robi to wywołujący.
+ * <p>
+ * UPSERT to MERGE po kluczu, DELETE to usunięcie po kluczu - oba idempotentne, więc ramki, które były już
+ * w pełnej kopii, można bezpiecznie nałożyć drugi raz. Przygotowane zapytania są współdzielone między ramkami
+ * (import miliona transakcji to jedno zapytanie MERGE, nie milion).
+ */
+public class ChangeReplayer implements AutoCloseable {
+
+    private final Connection conn;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Set<String> tables = new LinkedHashSet<>();
+    private long applied;
+
+    public ChangeReplayer(Connection conn) {
+        this.conn = conn;
+    }
+
+    public void apply(ChangeSet set) throws SQLException {
+        for (Change c : set.changes()) {
+            PreparedStatement ps = statements.computeIfAbsent(sql(c), this::prepare);
+            for (int i = 0; i < c.values().size(); i++) {
+                ps.setObject(i + 1, c.values().get(i));
+            }
+            ps.executeUpdate();
+            tables.add(c.table());
+            applied++;
+        }
+    }
+
+    /**
+     * Wstawione z jawnym ID wiersze nie przesuwają licznika AUTO_INCREMENT - ustawiamy go za największym kluczem,
+     * żeby kolejny INSERT aplikacji nie trafił w istniejący wiersz.
+     */
+    public void restartIdentities() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : tables) {
+                String column = identityColumn(table);
+                if (column == null) continue;
+                long next;
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) + 1 FROM " + table)) {
+                    rs.next();
+                    next = rs.getLong(1);
+                }
+                stmt.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + next);
+            }
+        }
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    private String identityColumn(String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ? AND IS_IDENTITY = 'YES'""")) {
+            ps.setString(1, table.toUpperCase(Locale.ROOT));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static String sql(Change c) {
+        if (c.op() == Change.Op.DELETE) {
+            return "DELETE FROM " + c.table() + " WHERE " + c.keyColumn() + " = ?";
+        }
+        return "MERGE INTO " + c.table() + " (" + String.join(", ", c.columns()) + ") KEY(" + c.keyColumn() + ") VALUES ("
+                + "?, ".repeat(c.columns().size() - 1) + "?)";
+    }
+
+    private PreparedStatement prepare(String sql) {
+        try {
+            return conn.prepareStatement(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Nie można przygotować zapytania odtwarzania: " + sql, e);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement ps : statements.values()) {
+            ps.close();
+        }
+        statements.clear();
+    }
+}
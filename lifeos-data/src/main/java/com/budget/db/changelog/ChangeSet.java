@@ -0,0 +1,16 @@
+package com.budget.db.changelog;
+
+import java.util.List;
+
+/**
+ * Zmiany z jednego commitu - w dzienniku zapisywane jako jedna ramka, więc po awarii albo są wszystkie, albo żadna.
+ *
+ * @param lsn         numer kolejny w dzienniku (rosnący o 1, w kolejności commitów)
+ * @param committedAt czas commitu (epoch millis)
+ */
+public record ChangeSet(long lsn, long committedAt, List<Change> changes) {
+
+    public ChangeSet {
+        changes = List.copyOf(changes);
+    }
+}
@@ -0,0 +1,224 @@
+package com.budget.db.columnar;
+
+import com.budget.dao.CategoryDAO;
+import com.budget.dao.TransactionDAO;
+import com.budget.db.DatabaseService;
+import com.budget.db.changelog.ChangeLog;
+import com.budget.db.changelog.ChangeSet;
+import com.budget.model.Category;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+import com.budget.modules.finance.domain.TransactionAnalytics;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Analityka transakcji (wykresy, raporty, dashboard) na kolumnowym snapshocie w pamięci zamiast na listach
+ * obiektów Transaction czytanych z bazy przy każdym odświeżeniu.
+ * <p>
+ * Snapshot ładuje się raz, przy pierwszym zapytaniu, z {@link TransactionDAO}, a potem jest łatany przyrostowo
+ * zmianami z {@link ChangeLog} (każdy zatwierdzony zapis DAO, w kolejności commitów). Bez dziennika
+ * (-Dlifeos.changelog=false) każdy commit oznacza snapshot jako nieaktualny i kolejne zapytanie ładuje go od nowa.
+ */
+public class TransactionColumnStore implements TransactionAnalytics {
+
+    private static final int LOAD_PAGE = 10_000;
+
+    private final CategoryDAO categories = new CategoryDAO();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loadMonitor = new Object();
+
+    // Pod blokadą zapisu
+    private TransactionColumns columns;
+    // Zmiany zatwierdzone w trakcie ładowania - nakładane na koniec (ponowne nałożenie zmiany nic nie psuje)
+    private List<ChangeSet> pendingWhileLoading;
+    private volatile boolean stale;
+
+    public TransactionColumnStore(ChangeLog changeLog) {
+        if (changeLog != null) changeLog.addListener(this::apply);
+    }
+
+    // --- ZAPYTANIA ---
+
+    @Override
+    public long sumMinor(LocalDate from, LocalDate toExclusive, TransactionType type) {
+        byte code = TransactionColumns.typeCode(type);
+        return read(c -> c.sumByType(day(from, Integer.MIN_VALUE), day(toExclusive, Integer.MAX_VALUE))[code], 0L);
+    }
+
+    @Override
+    public int count(LocalDate from, LocalDate toExclusive) {
+        return read(c -> c.count(day(from, Integer.MIN_VALUE), day(toExclusive, Integer.MAX_VALUE)), 0);
+    }
+
+    @Override
+    public Map<Category, Long> sumByCategoryMinor(LocalDate from, LocalDate toExclusive, TransactionType type) {
+        byte code = TransactionColumns.typeCode(type);
+        return read(c -> {
+            long[] sums = c.sumByCategory(day(from, Integer.MIN_VALUE), day(toExclusive, Integer.MAX_VALUE), code);
+            Map<Category, Long> totals = new HashMap<>();
+            for (int i = 0; i < sums.length; i++) {
+                if (sums[i] != 0) totals.put(categories.getById(i), sums[i]);
+            }
+            return totals;
+        }, Map.of());
+    }
+
+    @Override
+    public long[] sumByDayMinor(LocalDate from, LocalDate toExclusive, TransactionType type) {
+        int days = (int) Math.max(0, ChronoUnit.DAYS.between(from, toExclusive));
+        int[] bounds = new int[days + 1];
+        int first = (int) from.toEpochDay();
+        for (int i = 0; i <= days; i++) bounds[i] = first + i;
+        return sumByBucket(bounds, type);
+    }
+
+    @Override
+    public long[] sumByMonthMinor(YearMonth from, YearMonth toInclusive, TransactionType type) {
+        int months = (int) Math.max(0, ChronoUnit.MONTHS.between(from, toInclusive) + 1);
+        int[] bounds = new int[months + 1];
+        for (int i = 0; i <= months; i++) bounds[i] = (int) from.plusMonths(i).atDay(1).toEpochDay();
+        return sumByBucket(bounds, type);
+    }
+
+    private long[] sumByBucket(int[] bounds, TransactionType type) {
+        if (bounds.length == 1) return new long[0];
+        byte code = TransactionColumns.typeCode(type);
+        return read(c -> c.sumByBucket(bounds, code), new long[bounds.length - 1]);
+    }
+
+    private static int day(LocalDate date, int open) {
+        return date == null ? open : (int) date.toEpochDay();
+    }
+
+    private interface Query<T> {
+        T run(TransactionColumns columns);
+    }
+
+    private <T> T read(Query<T> query, T whenUnavailable) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return columns != null ? query.run(columns) : whenUnavailable;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- AKTUALIZACJA ---
+
+    // Słuchacz dziennika (pod blokadą commitu)
+    private void apply(ChangeSet set) {
+        lock.writeLock().lock();
+        try {
+            if (columns != null) columns.apply(set);
+            else if (pendingWhileLoading != null) pendingWhileLoading.add(set);
+            // bez snapshotu i ładowania: zmiana jest w bazie - ładowanie ją uwzględni
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bez dziennika: coś zostało zapisane, snapshot trzeba załadować przy następnym zapytaniu.
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Dane zmieniły się z pominięciem DAO (reset, odtworzenie kopii, migracja) - zapomina snapshot.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            columns = null;
+            stale = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- ŁADOWANIE ---
+
+    private void ensureLoaded() {
+        if (isReady()) return;
+        synchronized (loadMonitor) {
+            if (isReady()) return;
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                columns = null;
+                pendingWhileLoading = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            stale = false; // zapisy w trakcie ładowania ustawią go ponownie
+            try {
+                TransactionColumns loaded = new TransactionColumns();
+                TransactionDAO dao = new TransactionDAO();
+                // Strony po ID, nie jeden spójny odczyt: co zmieniło się w trakcie, jest w pendingWhileLoading
+                int afterId = Integer.MIN_VALUE;
+                List<Transaction> page;
+                do {
+                    page = dao.getTransactionsAfterId(afterId, LOAD_PAGE);
+                    for (Transaction t : page) {
+                        loaded.put(t.getId(), TransactionColumns.typeCode(t.getType()), categories.findId(t.getCategory()),
+                                t.getAmountMinor(), t.getDate());
+                    }
+                    if (!page.isEmpty()) afterId = page.get(page.size() - 1).getId();
+                } while (page.size() == LOAD_PAGE);
+
+                lock.writeLock().lock();
+                try {
+                    for (ChangeSet set : pendingWhileLoading) loaded.apply(set);
+                    loaded.compact();
+                    columns = loaded;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (DatabaseService.isDebugStats()) System.out.printf("✅ Snapshot analityczny transakcji: %d wierszy, %d kategorii, %.1f MB (%.0f ms)%n",
+                        loaded.rows(), loaded.categoryCount(), loaded.columnBytes() / (1024.0 * 1024.0),
+                        (System.nanoTime() - start) / 1e6);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                stale = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pendingWhileLoading = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return columns != null && !stale;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getStats() {
+        lock.readLock().lock();
+        try {
+            if (columns == null) return "Snapshot analityczny: niezaładowany";
+            return String.format("Snapshot analityczny: wiersze=%d, ogon=%d, kategorie=%d, %.1f MB",
+                    columns.rows(), columns.tailRows(), columns.categoryCount(), columns.columnBytes() / (1024.0 * 1024.0));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.budget.db.columnar;
+
+import com.budget.db.changelog.Change;
+import com.budget.db.changelog.ChangeSet;
+import com.budget.model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Transakcje jako kolumny tablic prymitywów: dzień (epochDay), kwota w groszach, klucz kategorii ({@code category_id}
+ * z bazy - gęsty, więc od razu indeks tablicy sum) i kod typu.
+ * <p>
+ * Wiersze [0, sortedCount) są posortowane po dniu, więc zakres dat to dwa wyszukiwania binarne. Nowe wiersze trafiają
+ * na koniec (ogon w kolejności zapisu, przeglądany w całości), usunięte dostają typ {@link #DELETED} i kwotę 0.
+ * Gdy ogon albo usunięte urosną, {@link #compact()} scala wszystko z powrotem w jedną posortowaną część.
+ * <p>
+ * Grupowania liczą od razu wszystkie typy (licznik na parę grupa x typ) i wybierają potrzebny na końcu - pętla
+ * nie ma wtedy warunku na typ, który przy przeplatanych przychodach i wydatkach co drugi wiersz myli predykcję skoków.
+ * Usunięte wiersze lądują w osobnym, pomijanym liczniku. Nie jest bezpieczny wątkowo - synchronizuje {@link TransactionColumnStore}.
+ */
+final class TransactionColumns {
+
+    // INCOME i EXPENSE to kody TransactionType z kolumny type
+    static final byte OTHER = 0;
+    static final byte INCOME = 1;
+    static final byte EXPENSE = 2;
+    static final byte DELETED = 3;
+    // Liczba typów jako przesunięcie: indeks licznika to (grupa << TYPE_BITS) | typ
+    private static final int TYPE_BITS = 2;
+
+    private static final String TABLE = "transactions";
+    // Ogon i usunięte scalamy, gdy przekroczą 1/8 posortowanej części - ale nie częściej niż co tyle wierszy
+    private static final int MIN_COMPACT = 4096;
+
+    private int[] epochDay = new int[16];
+    private long[] amountMinor = new long[16];
+    private int[] categoryId = new int[16];
+    private byte[] type = new byte[16];
+    private int[] id = new int[16];
+    private int size;
+    private int sortedCount;
+    private int deletedCount;
+
+    // ID transakcji -> wiersz + 1 (0 = brak). ID z kolumny IDENTITY są gęste, więc tablica wychodzi taniej niż mapa
+    private int[] rowOfId = new int[16];
+    // Największy klucz kategorii + 1 (rozmiar tablic sum) i klucze, które wystąpiły
+    private int categoryLimit;
+    private final BitSet categories = new BitSet();
+
+    static byte typeCode(TransactionType type) {
+        return type == null ? OTHER : (byte) type.getCode();
+    }
+
+    // Kod z obrazu wiersza w dzienniku; nieznany kod liczy się jak OTHER
+    private static byte typeCode(Object code) {
+        return code instanceof Number n && (n.intValue() == INCOME || n.intValue() == EXPENSE) ? n.byteValue() : OTHER;
+    }
+
+    // --- ZAPIS ---
+
+    void put(int txId, byte typeCode, int category, long amount, LocalDate date) {
+        if (txId < 0 || category < 0 || date == null) return;
+        remove(txId);
+        if (size == epochDay.length) grow(size + (size >> 1));
+        epochDay[size] = (int) date.toEpochDay();
+        amountMinor[size] = amount;
+        categoryId[size] = category;
+        if (category >= categoryLimit) categoryLimit = category + 1;
+        categories.set(category);
+        type[size] = typeCode;
+        id[size] = txId;
+        if (txId >= rowOfId.length) {
+            rowOfId = Arrays.copyOf(rowOfId, Math.max(txId + 1, rowOfId.length + (rowOfId.length >> 1)));
+        }
+        rowOfId[txId] = size + 1;
+        // Wiersze dopisywane chronologicznie (typowy import) przedłużają posortowaną część zamiast ogona
+        if (sortedCount == size && (size == 0 || epochDay[size - 1] <= epochDay[size])) sortedCount++;
+        size++;
+    }
+
+    void remove(int txId) {
+        if (txId < 0 || txId >= rowOfId.length || rowOfId[txId] == 0) return;
+        int row = rowOfId[txId] - 1;
+        rowOfId[txId] = 0;
+        type[row] = DELETED;
+        amountMinor[row] = 0;
+        deletedCount++;
+    }
+
+    /**
+     * Nakłada zmiany transakcji z jednego commitu (pozostałe tabele pomija). Odtworzenie tej samej zmiany drugi raz
+     * niczego nie psuje - obraz wiersza zastępuje poprzedni.
+     */
+    void apply(ChangeSet set) {
+        for (Change change : set.changes()) {
+            if (!TABLE.equalsIgnoreCase(change.table()) || !(change.key() instanceof Number key)) continue;
+            if (change.op() == Change.Op.DELETE) {
+                remove(key.intValue());
+            } else if (value(change, "amount_minor") instanceof Number amount
+                    && value(change, "date") instanceof LocalDate date
+                    && value(change, "category_id") instanceof Number category) {
+                put(key.intValue(), typeCode(value(change, "type")), category.intValue(), amount.longValue(), date);
+            }
+        }
+        if (needsCompaction()) compact();
+    }
+
+    // Obraz wiersza w dzienniku ma nazwy kolumn małymi literami
+    private static Object value(Change change, String column) {
+        int i = change.columns().indexOf(column);
+        return i >= 0 ? change.values().get(i) : null;
+    }
+
+    private boolean needsCompaction() {
+        int threshold = Math.max(MIN_COMPACT, sortedCount >> 3);
+        return size - sortedCount > threshold || deletedCount > threshold;
+    }
+
+    /**
+     * Scala posortowaną część z posortowanym ogonem (bez usuniętych) - O(n) plus sortowanie samego ogona.
+     */
+    void compact() {
+        long[] tailKeys = new long[size - sortedCount];
+        int tail = 0;
+        for (int row = sortedCount; row < size; row++) {
+            if (type[row] != DELETED) tailKeys[tail++] = ((long) epochDay[row] << 32) | row;
+        }
+        Arrays.sort(tailKeys, 0, tail);
+
+        int live = size - deletedCount;
+        int capacity = Math.max(16, live + (live >> 3));
+        int[] newDay = new int[capacity];
+        long[] newAmount = new long[capacity];
+        int[] newCategory = new int[capacity];
+        byte[] newType = new byte[capacity];
+        int[] newId = new int[capacity];
+
+        int out = 0;
+        int main = 0;
+        int k = 0;
+        while (main < sortedCount || k < tail) {
+            if (main < sortedCount && type[main] == DELETED) {
+                main++;
+                continue;
+            }
+            int row = k >= tail || (main < sortedCount && epochDay[main] <= (int) (tailKeys[k] >> 32))
+                    ? main++
+                    : (int) tailKeys[k++];
+            newDay[out] = epochDay[row];
+            newAmount[out] = amountMinor[row];
+            newCategory[out] = categoryId[row];
+            newType[out] = type[row];
+            newId[out] = id[row];
+            rowOfId[id[row]] = out + 1;
+            out++;
+        }
+        epochDay = newDay;
+        amountMinor = newAmount;
+        categoryId = newCategory;
+        type = newType;
+        id = newId;
+        size = out;
+        sortedCount = out;
+        deletedCount = 0;
+    }
+
+    private void grow(int capacity) {
+        epochDay = Arrays.copyOf(epochDay, capacity);
+        amountMinor = Arrays.copyOf(amountMinor, capacity);
+        categoryId = Arrays.copyOf(categoryId, capacity);
+        type = Arrays.copyOf(type, capacity);
+        id = Arrays.copyOf(id, capacity);
+    }
+
+    // --- SKANY ZAKRESOWE (dni jako epochDay, zakres [fromDay, toDay)) ---
+
+    /**
+     * Sumy kwot wg typu: indeks {@link #OTHER}, {@link #INCOME}, {@link #EXPENSE} (i pusty {@link #DELETED}).
+     */
+    long[] sumByType(int fromDay, int toDay) {
+        long[] sums = new long[1 << TYPE_BITS];
+        int hi = lowerBound(toDay);
+        for (int row = lowerBound(fromDay); row < hi; row++) {
+            sums[type[row]] += amountMinor[row];
+        }
+        for (int row = sortedCount; row < size; row++) {
+            if (inRange(epochDay[row], fromDay, toDay)) sums[type[row]] += amountMinor[row];
+        }
+        return sums;
+    }
+
+    int count(int fromDay, int toDay) {
+        int count = 0;
+        int hi = lowerBound(toDay);
+        for (int row = lowerBound(fromDay); row < hi; row++) {
+            if (type[row] != DELETED) count++;
+        }
+        for (int row = sortedCount; row < size; row++) {
+            if (type[row] != DELETED && inRange(epochDay[row], fromDay, toDay)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * GROUP BY kategoria: indeks to klucz kategorii ({@code category_id}).
+     */
+    long[] sumByCategory(int fromDay, int toDay, byte t) {
+        long[] sums = new long[categoryLimit << TYPE_BITS];
+        int hi = lowerBound(toDay);
+        for (int row = lowerBound(fromDay); row < hi; row++) {
+            sums[categoryId[row] << TYPE_BITS | type[row]] += amountMinor[row];
+        }
+        for (int row = sortedCount; row < size; row++) {
+            if (inRange(epochDay[row], fromDay, toDay)) sums[categoryId[row] << TYPE_BITS | type[row]] += amountMinor[row];
+        }
+        return ofType(sums, t);
+    }
+
+    /**
+     * GROUP BY przedział dat: {@code bounds} to rosnące początki przedziałów i na końcu koniec ostatniego
+     * (dni, miesiące...), wynik ma {@code bounds.length - 1} elementów.
+     */
+    long[] sumByBucket(int[] bounds, byte t) {
+        int buckets = bounds.length - 1;
+        long[] sums = new long[buckets << TYPE_BITS];
+        int hi = lowerBound(bounds[buckets]);
+        int b = 0;
+        for (int row = lowerBound(bounds[0]); row < hi; row++) {
+            while (epochDay[row] >= bounds[b + 1]) b++;
+            sums[b << TYPE_BITS | type[row]] += amountMinor[row];
+        }
+        for (int row = sortedCount; row < size; row++) {
+            if (inRange(epochDay[row], bounds[0], bounds[buckets])) {
+                int i = Arrays.binarySearch(bounds, epochDay[row]);
+                sums[(i >= 0 ? i : -i - 2) << TYPE_BITS | type[row]] += amountMinor[row];
+            }
+        }
+        return ofType(sums, t);
+    }
+
+    // Z liczników grupa x typ wybiera kolumnę jednego typu
+    private static long[] ofType(long[] sums, byte t) {
+        long[] result = new long[sums.length >> TYPE_BITS];
+        for (int i = 0; i < result.length; i++) result[i] = sums[i << TYPE_BITS | t];
+        return result;
+    }
+
+    // Pierwszy wiersz posortowanej części z dniem >= day
+    private int lowerBound(int day) {
+        int lo = 0;
+        int hi = sortedCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDay[mid] < day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static boolean inRange(int day, int fromDay, int toDay) {
+        return day >= fromDay && day < toDay;
+    }
+
+    // --- STATYSTYKI ---
+
+    int rows() {
+        return size - deletedCount;
+    }
+
+    int tailRows() {
+        return size - sortedCount;
+    }
+
+    int categoryCount() {
+        return categories.cardinality();
+    }
+
+    // Pamięć kolumn: 4 + 8 + 4 + 1 + 4 bajty na wiersz plus tablica ID
+    long columnBytes() {
+        return (long) epochDay.length * 21 + (long) rowOfId.length * 4;
+    }
+}
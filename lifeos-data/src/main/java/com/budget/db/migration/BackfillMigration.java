@@ -0,0 +1,96 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Migracja danych wykonywana w paczkach (np. przeliczenie kolumny dla całej historii transakcji).
+ * <p>
+ * Każda paczka jest osobną transakcją, a po niej zapisujemy ostatni przetworzony klucz
+ * w schema_backfill_progress. Przerwana migracja (zamknięcie aplikacji, błąd) rusza od tego miejsca.
+ */
+public abstract class BackfillMigration implements Migration {
+
+    private final int version;
+    private final String description;
+    private final int batchSize;
+
+    protected BackfillMigration(int version, String description, int batchSize) {
+        this.version = version;
+        this.description = description;
+        this.batchSize = batchSize;
+    }
+
+    @Override public int version() { return version; }
+    @Override public String description() { return description; }
+
+    @Override
+    public String checksum() {
+        return Checksums.sha256(getClass().getName() + "\n" + description + "\n" + checksumSource());
+    }
+
+    // Treść wpływająca na wynik migracji (np. SQL paczki) - zmiana = inna suma kontrolna
+    protected abstract String checksumSource();
+
+    /**
+     * Przetwarza jedną paczkę wierszy o kluczu większym niż {@code afterKey}.
+     *
+     * @return ostatni przetworzony klucz albo -1, gdy nie ma już nic do zrobienia
+     */
+    protected abstract long processChunk(Connection conn, long afterKey, int batchSize) throws SQLException;
+
+    // Opcjonalny krok przed pierwszą paczką (np. ALTER TABLE ADD COLUMN IF NOT EXISTS)
+    protected void prepare(Connection conn) throws SQLException {}
+
+    @Override
+    public final void apply(Connection conn) throws SQLException {
+        prepare(conn);
+        conn.commit();
+
+        long key = loadCheckpoint(conn);
+        long chunks = 0;
+        while (true) {
+            long last = processChunk(conn, key, batchSize);
+            if (last < 0) break;
+            key = last;
+            saveCheckpoint(conn, key);
+            conn.commit();
+            if (++chunks % 50 == 0) {
+                System.out.println("   ... V" + version + ": przetworzono do klucza " + key);
+            }
+        }
+        clearCheckpoint(conn);
+    }
+
+    private long loadCheckpoint(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT last_key FROM schema_backfill_progress WHERE version = ?")) {
+            ps.setInt(1, version);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    long key = rs.getLong(1);
+                    System.out.println("↻ Wznawiam migrację V" + version + " od klucza " + key);
+                    return key;
+                }
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private void saveCheckpoint(Connection conn, long key) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "MERGE INTO schema_backfill_progress (version, last_key, updated_at) KEY(version) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+            ps.setInt(1, version);
+            ps.setLong(2, key);
+            ps.executeUpdate();
+        }
+    }
+
+    private void clearCheckpoint(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM schema_backfill_progress WHERE version = ?")) {
+            ps.setInt(1, version);
+            ps.executeUpdate();
+        }
+    }
+}
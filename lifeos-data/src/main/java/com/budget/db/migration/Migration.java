@@ -0,0 +1,24 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Pojedynczy, numerowany krok zmiany schematu.
+ * Wersje muszą rosnąć, a raz wdrożonej migracji nie wolno edytować - zmianę wykrywa suma kontrolna.
+ */
+public interface Migration {
+
+    int version();
+
+    String description();
+
+    // Suma kontrolna treści migracji zapisywana w schema_version
+    String checksum();
+
+    /**
+     * Wykonuje migrację na połączeniu z wyłączonym autocommitem.
+     * Uwaga: DDL w H2 zatwierdza transakcję niejawnie, więc instrukcje powinny być idempotentne (IF NOT EXISTS).
+     */
+    void apply(Connection conn) throws SQLException;
+}
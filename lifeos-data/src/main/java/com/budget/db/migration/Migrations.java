@@ -0,0 +1,211 @@
+package com.budget.db.migration;
+
+import java.util.List;
+
+/**
+ * Rejestr wszystkich migracji schematu, w kolejności wersji.
+ * Nowe zmiany dopisujemy na końcu jako kolejny numer - istniejących NIE edytujemy.
+ */
+public final class Migrations {
+
+    private Migrations() {}
+
+    public static List<Migration> all() {
+        return List.of(
+                // V1: schemat bazowy (IF NOT EXISTS, bo starsze instalacje mają już te tabele)
+                new SqlMigration(1, "Schemat bazowy",
+                        """
+                        CREATE TABLE IF NOT EXISTS transactions (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            type VARCHAR(20),
+                            category VARCHAR(100),
+                            amount DOUBLE,
+                            date DATE,
+                            description VARCHAR(255)
+                        )""",
+                        """
+                        CREATE TABLE IF NOT EXISTS category_budgets (
+                            category VARCHAR(100) PRIMARY KEY,
+                            monthly_limit DOUBLE
+                        )""",
+                        """
+                        CREATE TABLE IF NOT EXISTS tasks (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            title VARCHAR(255) NOT NULL,
+                            is_done BOOLEAN DEFAULT FALSE,
+                            due_date DATE,
+                            priority VARCHAR(20)
+                        )""",
+                        """
+                        CREATE TABLE IF NOT EXISTS goals (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            name VARCHAR(255),
+                            target_amount DOUBLE,
+                            current_amount DOUBLE DEFAULT 0,
+                            deadline DATE
+                        )""",
+                        """
+                        CREATE TABLE IF NOT EXISTS purses (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            name VARCHAR(100) NOT NULL,
+                            type VARCHAR(20) NOT NULL,
+                            allocated_amount DOUBLE DEFAULT 0.0,
+                            spent_amount DOUBLE DEFAULT 0.0,
+                            is_locked BOOLEAN DEFAULT FALSE,
+                            buffer_allowance DOUBLE DEFAULT 0.0
+                        )""",
+                        """
+                        CREATE TABLE IF NOT EXISTS recurring_transactions (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            name VARCHAR(100),
+                            amount DOUBLE,
+                            category VARCHAR(100),
+                            frequency VARCHAR(20), -- MONTHLY, WEEKLY
+                            day_of_month INT,
+                            is_active BOOLEAN DEFAULT TRUE
+                        )"""),
+
+                // V2: indeksy pod zapytania zakresowe (malejące - listy sortujemy od najnowszych)
+                new SqlMigration(2, "Indeksy dat transakcji",
+                        "CREATE INDEX IF NOT EXISTS idx_transactions_date ON transactions(date DESC, id DESC)",
+                        "CREATE INDEX IF NOT EXISTS idx_transactions_category_date ON transactions(category, date DESC)"),
+
+                // V3: log audytowy portfeli (używany przez PurseDAO.logAudit, wcześniej nigdy nie tworzony)
+                new SqlMigration(3, "Log audytowy portfeli",
+                        """
+                        CREATE TABLE IF NOT EXISTS purse_audit_log (
+                            id INT AUTO_INCREMENT PRIMARY KEY,
+                            purse_id INT NOT NULL,
+                            action_type VARCHAR(30) NOT NULL,
+                            amount DOUBLE,
+                            reason VARCHAR(255),
+                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        )""",
+                        "CREATE INDEX IF NOT EXISTS idx_purse_audit_purse ON purse_audit_log(purse_id, created_at)"),
+
+                // V4: domyślne budżety - tylko dla pustej tabeli
+                new SqlMigration(4, "Domyślne budżety",
+                        """
+                        INSERT INTO category_budgets (category, monthly_limit)
+                        SELECT * FROM (VALUES ('Jedzenie', 2000.0), ('Paliwo', 800.0), ('Dom', 3000.0))
+                        WHERE NOT EXISTS (SELECT 1 FROM category_budgets)"""),
+
+                // V5: utrzymywane saldo (BalanceLedgerDAO) - sumy miesięczne + jeden wiersz z sumą całkowitą
+                new SqlMigration(5, "Księga sald",
+                        """
+                        CREATE TABLE IF NOT EXISTS balance_monthly (
+                            month_start DATE PRIMARY KEY,
+                            income DOUBLE DEFAULT 0 NOT NULL,
+                            expense DOUBLE DEFAULT 0 NOT NULL,
+                            tx_count INT DEFAULT 0 NOT NULL
+                        )""",
+                        """
+                        CREATE TABLE IF NOT EXISTS balance_total (
+                            id INT PRIMARY KEY,
+                            income DOUBLE DEFAULT 0 NOT NULL,
+                            expense DOUBLE DEFAULT 0 NOT NULL,
+                            tx_count INT DEFAULT 0 NOT NULL
+                        )""",
+                        """
+                        INSERT INTO balance_monthly (month_start, income, expense, tx_count)
+                        SELECT month_start, SUM(income), SUM(expense), COUNT(*) FROM (
+                            SELECT CAST(DATE_TRUNC('MONTH', date) AS DATE) AS month_start,
+                                   CASE WHEN type = 'PRZYCHÓD' THEN amount ELSE 0 END AS income,
+                                   CASE WHEN type = 'WYDATEK' THEN amount ELSE 0 END AS expense
+                            FROM transactions WHERE date IS NOT NULL
+                        ) GROUP BY month_start""",
+                        """
+                        INSERT INTO balance_total (id, income, expense, tx_count)
+                        SELECT 1, COALESCE(SUM(income), 0), COALESCE(SUM(expense), 0), COALESCE(SUM(tx_count), 0)
+                        FROM balance_monthly"""),
+
+                // V6: sumy miesiąc x kategoria x typ (CategoryRollupDAO) - wykresy i budżety bez grupowania surowych wierszy
+                new SqlMigration(6, "Sumy miesięczne per kategoria",
+                        """
+                        CREATE TABLE IF NOT EXISTS monthly_category_totals (
+                            month_start DATE NOT NULL,
+                            category VARCHAR(100) NOT NULL,
+                            type VARCHAR(20) NOT NULL,
+                            total DOUBLE DEFAULT 0 NOT NULL,
+                            tx_count INT DEFAULT 0 NOT NULL,
+                            PRIMARY KEY (month_start, type, category)
+                        )""",
+                        """
+                        INSERT INTO monthly_category_totals (month_start, category, type, total, tx_count)
+                        SELECT month_start, category, type, SUM(amount), COUNT(*) FROM (
+                            SELECT CAST(DATE_TRUNC('MONTH', date) AS DATE) AS month_start,
+                                   COALESCE(category, 'Inne') AS category, type, amount
+                            FROM transactions WHERE date IS NOT NULL AND type IS NOT NULL
+                        ) GROUP BY month_start, category, type"""),
+
+                // V7: transactions.amount -> amount_minor (przepisanie tabeli, wznawialne)
+                new TransactionAmountMinorMigration(),
+
+                // V8: wszystkie kwoty jako BIGINT w groszach (Money); tabele pochodne liczone od nowa z amount_minor (wznawialne)
+                new MoneyMinorUnitsMigration(),
+
+                // V9: punkty wznowienia importu CSV (CsvImportService) - zapisywane w tej samej transakcji co paczka wierszy
+                new SqlMigration(9, "Punkty wznowienia importu CSV",
+                        """
+                        CREATE TABLE IF NOT EXISTS import_checkpoints (
+                            source VARCHAR(1024) PRIMARY KEY,
+                            file_size BIGINT NOT NULL,
+                            file_modified BIGINT NOT NULL,
+                            byte_offset BIGINT NOT NULL,
+                            line_number BIGINT NOT NULL,
+                            rows_imported BIGINT DEFAULT 0 NOT NULL,
+                            rows_rejected BIGINT DEFAULT 0 NOT NULL,
+                            updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        )"""),
+
+                // V10: słownik kategorii i typ jako kod - transactions.category_id / type TINYINT (przepisanie tabeli, wznawialne)
+                new TransactionCategoryKeyMigration(),
+
+                // V11: reguły cykliczne zapisywane do transactions (RecurringTransactionScheduler); klucz wystąpienia
+                // (reguła:dzień) pilnuje, żeby żadne nie powstało dwa razy. Istniejące reguły startują od dnia migracji.
+                new SqlMigration(11, "Wystąpienia transakcji cyklicznych",
+                        "ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS type TINYINT DEFAULT 2 NOT NULL",
+                        "ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS start_date DATE DEFAULT CURRENT_DATE NOT NULL",
+                        "ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS materialized_through DATE",
+                        """
+                        CREATE TABLE IF NOT EXISTS recurring_occurrences (
+                            occurrence_key VARCHAR(40) PRIMARY KEY,
+                            rule_id INT NOT NULL,
+                            occurrence_date DATE NOT NULL,
+                            transaction_id INT
+                        )""",
+                        "CREATE INDEX IF NOT EXISTS idx_recurring_occurrences_rule ON recurring_occurrences(rule_id, occurrence_date)"),
+
+                // V12: zadania cykliczne - seria od due_date do recurring_end_date, wystąpienia liczy TaskOccurrences
+                new SqlMigration(12, "Zadania cykliczne",
+                        "ALTER TABLE tasks ADD COLUMN IF NOT EXISTS recurring_pattern VARCHAR(20)",
+                        "ALTER TABLE tasks ADD COLUMN IF NOT EXISTS recurring_end_date DATE"),
+
+                // V13: historia nawyku jako jeden blob na nawyk (format HabitHistoryCodec) - wczytywana jednym zapytaniem
+                new SqlMigration(13, "Skompresowana historia nawyków",
+                        """
+                        CREATE TABLE IF NOT EXISTS habit_history (
+                            habit_id BIGINT PRIMARY KEY,
+                            data VARBINARY NOT NULL,
+                            updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        )
+                        """),
+
+                // V14: definicje nawyków ze stałym ID - historia z habit_history wraca do tego samego nawyku po restarcie
+                new SqlMigration(14, "Nawyki",
+                        """
+                        CREATE TABLE IF NOT EXISTS habits (
+                            id BIGINT PRIMARY KEY,
+                            name VARCHAR(255),
+                            description VARCHAR(1000),
+                            category VARCHAR(30),
+                            frequency VARCHAR(20),
+                            start_date DATE,
+                            end_date DATE,
+                            active BOOLEAN DEFAULT TRUE NOT NULL,
+                            target_streak INT DEFAULT 0 NOT NULL
+                        )
+                        """)
+        );
+    }
+}
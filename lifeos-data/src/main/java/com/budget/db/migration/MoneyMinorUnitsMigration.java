@@ -0,0 +1,96 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * V8: wszystkie kwoty jako BIGINT w groszach (Money); tabele pochodne liczone od nowa z {@code amount_minor}.
+ * <p>
+ * DDL w H2 zatwierdza transakcję niejawnie, więc po przerwaniu część kolumn może być już przeniesiona.
+ * Dlatego każdą kolumnę sprawdzamy osobno: przepisanie wartości tylko dopóki stara kolumna istnieje,
+ * a ADD/DROP zawsze z IF (NOT) EXISTS. Sumy w tabelach pochodnych i tak liczymy od nowa z transakcji.
+ */
+class MoneyMinorUnitsMigration implements Migration {
+
+    // tabela, stara kolumna DOUBLE, nowa kolumna BIGINT
+    private static final String[][] CONVERTED = {
+            {"category_budgets", "monthly_limit", "monthly_limit_minor"},
+            {"goals", "target_amount", "target_amount_minor"},
+            {"goals", "current_amount", "current_amount_minor"},
+            {"purses", "allocated_amount", "allocated_minor"},
+            {"purses", "spent_amount", "spent_minor"},
+            {"purses", "buffer_allowance", "buffer_allowance_minor"},
+            {"recurring_transactions", "amount", "amount_minor"},
+            {"purse_audit_log", "amount", "amount_minor"}
+    };
+
+    // Tabele pochodne - stare wartości nie są potrzebne, kolumny zakładamy puste i wypełniamy z transakcji
+    private static final String[][] RECOMPUTED = {
+            {"balance_monthly", "income", "income_minor"},
+            {"balance_monthly", "expense", "expense_minor"},
+            {"balance_total", "income", "income_minor"},
+            {"balance_total", "expense", "expense_minor"},
+            {"monthly_category_totals", "total", "total_minor"}
+    };
+
+    private static final String ADD_SQL = "ALTER TABLE %s ADD COLUMN IF NOT EXISTS %s BIGINT DEFAULT 0 NOT NULL";
+    // ROUND przed CAST - jak w V7
+    private static final String COPY_SQL = "UPDATE %s SET %s = CAST(ROUND(COALESCE(%s, 0) * 100) AS BIGINT)";
+    private static final String DROP_SQL = "ALTER TABLE %s DROP COLUMN IF EXISTS %s";
+
+    private static final String[] ROLLUP_SQL = {
+            "DELETE FROM balance_monthly",
+            """
+            INSERT INTO balance_monthly (month_start, income_minor, expense_minor, tx_count)
+            SELECT month_start, SUM(income), SUM(expense), COUNT(*) FROM (
+                SELECT CAST(DATE_TRUNC('MONTH', date) AS DATE) AS month_start,
+                       CASE WHEN type = 'PRZYCHÓD' THEN amount_minor ELSE 0 END AS income,
+                       CASE WHEN type = 'WYDATEK' THEN amount_minor ELSE 0 END AS expense
+                FROM transactions WHERE date IS NOT NULL
+            ) GROUP BY month_start""",
+            """
+            MERGE INTO balance_total (id, income_minor, expense_minor, tx_count) KEY(id)
+            SELECT 1, COALESCE(SUM(income_minor), 0), COALESCE(SUM(expense_minor), 0), COALESCE(SUM(tx_count), 0)
+            FROM balance_monthly""",
+            "DELETE FROM monthly_category_totals",
+            """
+            INSERT INTO monthly_category_totals (month_start, category, type, total_minor, tx_count)
+            SELECT month_start, category, type, SUM(amount_minor), COUNT(*) FROM (
+                SELECT CAST(DATE_TRUNC('MONTH', date) AS DATE) AS month_start,
+                       COALESCE(category, 'Inne') AS category, type, amount_minor
+                FROM transactions WHERE date IS NOT NULL AND type IS NOT NULL
+            ) GROUP BY month_start, category, type"""
+    };
+
+    @Override public int version() { return 8; }
+    @Override public String description() { return "Kwoty w groszach"; }
+
+    @Override
+    public String checksum() {
+        StringBuilder content = new StringBuilder(ADD_SQL).append('\n').append(COPY_SQL).append('\n').append(DROP_SQL);
+        for (String[] c : CONVERTED) content.append('\n').append(String.join(",", c));
+        for (String[] c : RECOMPUTED) content.append('\n').append(String.join(",", c));
+        return Checksums.sha256(content + "\n" + String.join("\n", ROLLUP_SQL));
+    }
+
+    @Override
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String[] c : CONVERTED) {
+                // Brak starej kolumny = poprzednia próba już ją przeniosła; nowej nie nadpisujemy zerami
+                if (!SchemaQueries.columnExists(conn, c[0].toUpperCase(), c[1].toUpperCase())) continue;
+                stmt.execute(String.format(ADD_SQL, c[0], c[2]));
+                stmt.executeUpdate(String.format(COPY_SQL, c[0], c[2], c[1]));
+                stmt.execute(String.format(DROP_SQL, c[0], c[1]));
+            }
+            for (String[] c : RECOMPUTED) {
+                stmt.execute(String.format(DROP_SQL, c[0], c[1]));
+                stmt.execute(String.format(ADD_SQL, c[0], c[2]));
+            }
+            for (String sql : ROLLUP_SQL) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.budget.db.migration;
+
+import org.h2.api.ErrorCode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Doprowadza schemat bazy do najnowszej wersji.
+ * <p>
+ * Szybka ścieżka przy starcie to jedno zapytanie o MAX(version). Dopiero gdy wersja się różni,
+ * sprawdzamy sumy kontrolne wdrożonych migracji i wykonujemy brakujące po kolei.
+ */
+public class SchemaMigrator {
+
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(List<Migration> migrations) {
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort((a, b) -> Integer.compare(a.version(), b.version()));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).version() == sorted.get(i - 1).version()) {
+                throw new IllegalStateException("Zduplikowana wersja migracji: V" + sorted.get(i).version());
+            }
+        }
+        this.migrations = List.copyOf(sorted);
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+    }
+
+    /**
+     * @return liczba wykonanych migracji (0 = schemat był aktualny)
+     */
+    public int migrate(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        int target = latestVersion();
+        if (current == target) return 0; // szybka ścieżka
+
+        if (current > target) {
+            System.err.println("⚠️ Schemat bazy (V" + current + ") jest nowszy niż aplikacja (V" + target + ").");
+            return 0;
+        }
+
+        validateApplied(conn);
+
+        int applied = 0;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (Migration m : migrations) {
+                if (m.version() <= current) continue;
+                long start = System.currentTimeMillis();
+                try {
+                    m.apply(conn);
+                    recordApplied(conn, m, System.currentTimeMillis() - start);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw new SQLException("Migracja V" + m.version() + " (" + m.description() + ") nie powiodła się", e);
+                }
+                applied++;
+                System.out.println("✅ Migracja V" + m.version() + ": " + m.description()
+                        + " (" + (System.currentTimeMillis() - start) + " ms)");
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return applied;
+    }
+
+    /**
+     * Porównuje sumy kontrolne wdrożonych migracji z kodem. Rzuca wyjątek, gdy ktoś zmienił
+     * migrację już zapisaną w bazie.
+     */
+    public void validateApplied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        for (Migration m : migrations) {
+            String stored = applied.get(m.version());
+            if (stored != null && !stored.equals(m.checksum())) {
+                throw new IllegalStateException("Suma kontrolna migracji V" + m.version() + " (" + m.description()
+                        + ") nie zgadza się z bazą: " + stored + " != " + m.checksum());
+            }
+        }
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ErrorCode.TABLE_OR_VIEW_NOT_FOUND_1
+                    && e.getErrorCode() != ErrorCode.TABLE_OR_VIEW_NOT_FOUND_DATABASE_EMPTY_1) {
+                throw e;
+            }
+            createVersionTables(conn);
+            return 0;
+        }
+    }
+
+    private void createVersionTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    description VARCHAR(255),
+                    checksum VARCHAR(64) NOT NULL,
+                    installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    execution_ms BIGINT
+                );
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_backfill_progress (
+                    version INT PRIMARY KEY,
+                    last_key BIGINT,
+                    updated_at TIMESTAMP
+                );
+            """);
+        }
+    }
+
+    private void recordApplied(Connection conn, Migration m, long executionMs) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+            ps.setInt(1, m.version());
+            ps.setString(2, m.description());
+            ps.setString(3, m.checksum());
+            ps.setLong(4, executionMs);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Pytania o bieżący schemat dla migracji w Javie, które muszą wiedzieć, na którym kroku przerwała poprzednia próba.
+ * Nazwy jak w INFORMATION_SCHEMA - wielkimi literami.
+ */
+final class SchemaQueries {
+
+    private SchemaQueries() {}
+
+    static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Jawnie wstawione ID nie przesuwają licznika AUTO_INCREMENT
+    static void restartIdentity(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            long nextId;
+            try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+                rs.next();
+                nextId = rs.getLong(1);
+            }
+            stmt.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId);
+        }
+    }
+}
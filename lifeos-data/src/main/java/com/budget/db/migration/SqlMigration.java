@@ -0,0 +1,37 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Migracja złożona z listy instrukcji SQL wykonywanych po kolei.
+ */
+public class SqlMigration implements Migration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final String checksum;
+
+    public SqlMigration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+        this.checksum = Checksums.sha256(String.join("\n;\n", this.statements));
+    }
+
+    @Override public int version() { return version; }
+    @Override public String description() { return description; }
+    @Override public String checksum() { return checksum; }
+
+    @Override
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
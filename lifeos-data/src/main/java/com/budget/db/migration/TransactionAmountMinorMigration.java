@@ -0,0 +1,78 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * V7: kwoty transakcji w groszach ({@code amount_minor BIGINT}) zamiast {@code amount DOUBLE}.
+ * <p>
+ * Tabelę przepisujemy jednym INSERT ... SELECT do nowej i podmieniamy - UPDATE nowej kolumny wiersz po wierszu
+ * na milionie transakcji trwa w H2 kilka razy dłużej. Każdy krok da się powtórzyć: przerwana migracja
+ * (zamknięcie aplikacji w trakcie) przy następnym starcie sprząta kopię albo kończy podmianę.
+ */
+class TransactionAmountMinorMigration implements Migration {
+
+    private static final String CREATE_SQL = """
+            CREATE TABLE transactions_minor (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                type VARCHAR(20),
+                category VARCHAR(100),
+                amount_minor BIGINT DEFAULT 0 NOT NULL,
+                date DATE,
+                description VARCHAR(255)
+            )""";
+
+    // ROUND przed CAST - double 0.29 * 100 to 28.999..., a CAST sam obcina
+    private static final String COPY_SQL = """
+            INSERT INTO transactions_minor (id, type, category, amount_minor, date, description) DIRECT
+            SELECT id, type, category, CAST(ROUND(COALESCE(amount, 0) * 100) AS BIGINT), date, description
+            FROM transactions ORDER BY id""";
+
+    // Te same indeksy co w V2 - znikają razem ze starą tabelą
+    private static final String[] INDEX_SQL = {
+            "CREATE INDEX IF NOT EXISTS idx_transactions_date ON transactions(date DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_category_date ON transactions(category, date DESC)"
+    };
+
+    @Override public int version() { return 7; }
+    @Override public String description() { return "Kwoty transakcji w groszach"; }
+
+    @Override
+    public String checksum() {
+        return Checksums.sha256(CREATE_SQL + "\n" + COPY_SQL + "\n" + String.join("\n", INDEX_SQL));
+    }
+
+    @Override
+    public void apply(Connection conn) throws SQLException {
+        boolean hasOld = SchemaQueries.tableExists(conn, "TRANSACTIONS");
+        boolean hasCopy = SchemaQueries.tableExists(conn, "TRANSACTIONS_MINOR");
+
+        try (Statement stmt = conn.createStatement()) {
+            if (hasOld && !SchemaQueries.columnExists(conn, "TRANSACTIONS", "AMOUNT")) {
+                // Podmiana już się odbyła (przerwano przed zapisem wersji) - zostały najwyżej indeksy
+                createIndexes(stmt);
+                return;
+            }
+            if (hasOld) {
+                // Niedokończona kopia z poprzedniej próby - zaczynamy od nowa
+                if (hasCopy) stmt.execute("DROP TABLE transactions_minor");
+                stmt.execute(CREATE_SQL);
+                int copied = stmt.executeUpdate(COPY_SQL);
+                conn.commit();
+                System.out.println("   ... V7: przepisano " + copied + " transakcji");
+                stmt.execute("DROP TABLE transactions");
+            }
+            stmt.execute("ALTER TABLE transactions_minor RENAME TO transactions");
+
+            SchemaQueries.restartIdentity(conn, "transactions");
+            createIndexes(stmt);
+        }
+    }
+
+    private static void createIndexes(Statement stmt) throws SQLException {
+        for (String sql : INDEX_SQL) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.budget.db.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * V10: kategorie w słowniku {@code categories}, a w transakcjach tylko klucz {@code category_id INT};
+ * typ jako kod {@code TINYINT} (1 = przychód, 2 = wydatek, patrz TransactionType) zamiast tekstu.
+ * <p>
+ * Wiersz transakcji traci dwa napisy, indeks (kategoria, data) robi się kilka razy mniejszy, a grupowanie
+ * po kategorii porównuje liczby. Tabelę przepisujemy tak jak w V7 ({@link TransactionAmountMinorMigration}):
+ * jedna kopia INSERT ... SELECT i podmiana, każdy krok da się powtórzyć po przerwaniu.
+ * Nazwy kategorii są przycinane i puste zamieniane na "Inne" - tak samo jak robi to model (Category.of).
+ * <p>
+ * Bez klucza obcego: H2 dokłada do niego własny indeks na samym {@code category_id} (nie korzysta z indeksu
+ * (kategoria, data)), czyli trzeci indeks do aktualizacji przy każdym imporcie. Klucze nadaje wyłącznie
+ * CategoryDAO, a kategorii się nie usuwa.
+ */
+class TransactionCategoryKeyMigration implements Migration {
+
+    private static final String CREATE_CATEGORIES_SQL = """
+            CREATE TABLE IF NOT EXISTS categories (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                name VARCHAR(100) NOT NULL,
+                CONSTRAINT uq_categories_name UNIQUE (name)
+            )""";
+
+    // Także kategorie z samych budżetów - słownik ma znać wszystko, co użytkownik już nazwał
+    private static final String FILL_CATEGORIES_SQL = """
+            MERGE INTO categories (name) KEY (name)
+            SELECT DISTINCT COALESCE(NULLIF(TRIM(category), ''), 'Inne') FROM transactions
+            UNION
+            SELECT DISTINCT TRIM(category) FROM category_budgets WHERE TRIM(category) <> ''""";
+
+    private static final String CREATE_SQL = """
+            CREATE TABLE transactions_keyed (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                type TINYINT,
+                category_id INT NOT NULL,
+                amount_minor BIGINT DEFAULT 0 NOT NULL,
+                date DATE,
+                description VARCHAR(255)
+            )""";
+
+    // Nieznany tekst typu zostaje NULL-em (tak jak wcześniej: nie wchodzi ani do przychodów, ani do wydatków)
+    private static final String COPY_SQL = """
+            INSERT INTO transactions_keyed (id, type, category_id, amount_minor, date, description) DIRECT
+            SELECT t.id, CASE t.type WHEN 'PRZYCHÓD' THEN 1 WHEN 'WYDATEK' THEN 2 END, c.id, t.amount_minor, t.date, t.description
+            FROM transactions t JOIN categories c ON c.name = COALESCE(NULLIF(TRIM(t.category), ''), 'Inne')
+            ORDER BY t.id""";
+
+    private static final String[] INDEX_SQL = {
+            "CREATE INDEX IF NOT EXISTS idx_transactions_date ON transactions(date DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_category_date ON transactions(category_id, date DESC)"
+    };
+
+    // Sumy kategorii trzeba przeliczyć tylko, gdy przycięcie nazw coś zmieniło (" Jedzenie" i "Jedzenie" to teraz jedno)
+    private static final String STALE_ROLLUP_SQL = """
+            SELECT 1 FROM monthly_category_totals m
+            WHERE m.tx_count > 0 AND NOT EXISTS (SELECT 1 FROM categories c WHERE c.name = m.category) LIMIT 1""";
+
+    private static final String[] ROLLUP_SQL = {
+            "DELETE FROM monthly_category_totals",
+            """
+            INSERT INTO monthly_category_totals (month_start, category, type, total_minor, tx_count)
+            SELECT month_start, category, type, SUM(amount_minor), COUNT(*) FROM (
+                SELECT CAST(DATE_TRUNC('MONTH', t.date) AS DATE) AS month_start, c.name AS category,
+                       CASE t.type WHEN 1 THEN 'PRZYCHÓD' WHEN 2 THEN 'WYDATEK' END AS type, t.amount_minor
+                FROM transactions t JOIN categories c ON c.id = t.category_id
+                WHERE t.date IS NOT NULL AND t.type IS NOT NULL
+            ) GROUP BY month_start, category, type"""
+    };
+
+    @Override public int version() { return 10; }
+    @Override public String description() { return "Słownik kategorii i kody typów transakcji"; }
+
+    @Override
+    public String checksum() {
+        return Checksums.sha256(String.join("\n", CREATE_CATEGORIES_SQL, FILL_CATEGORIES_SQL, CREATE_SQL, COPY_SQL,
+                String.join("\n", INDEX_SQL), STALE_ROLLUP_SQL, String.join("\n", ROLLUP_SQL)));
+    }
+
+    @Override
+    public void apply(Connection conn) throws SQLException {
+        boolean hasOld = SchemaQueries.tableExists(conn, "TRANSACTIONS");
+        boolean hasCopy = SchemaQueries.tableExists(conn, "TRANSACTIONS_KEYED");
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_CATEGORIES_SQL);
+            boolean swapped = hasOld && !SchemaQueries.columnExists(conn, "TRANSACTIONS", "CATEGORY");
+            if (!swapped) {
+                if (hasOld) {
+                    // Niedokończona kopia z poprzedniej próby - zaczynamy od nowa
+                    if (hasCopy) stmt.execute("DROP TABLE transactions_keyed");
+                    stmt.executeUpdate(FILL_CATEGORIES_SQL);
+                    stmt.execute(CREATE_SQL);
+                    int copied = stmt.executeUpdate(COPY_SQL);
+                    conn.commit();
+                    System.out.println("   ... V10: przepisano " + copied + " transakcji");
+                    stmt.execute("DROP TABLE transactions");
+                }
+                stmt.execute("ALTER TABLE transactions_keyed RENAME TO transactions");
+                SchemaQueries.restartIdentity(conn, "transactions");
+            }
+            // Po podmianie (także przerwanej przed zapisem wersji) zostają indeksy i sumy
+            for (String sql : INDEX_SQL) {
+                stmt.execute(sql);
+            }
+            boolean staleRollup;
+            try (ResultSet rs = stmt.executeQuery(STALE_ROLLUP_SQL)) {
+                staleRollup = rs.next();
+            }
+            if (staleRollup) {
+                for (String sql : ROLLUP_SQL) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.budget.db.search;
+
+import com.budget.db.changelog.Change;
+import com.budget.db.changelog.ChangeSet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Indeks odwrócony: token -> rosnąca lista numerów dokumentów. Bez synchronizacji - pilnuje jej {@link SearchIndex}.
+ * <p>
+ * Dokumenty dostają kolejne numery, więc dopisanie do listy zawsze zachowuje porządek. Zmiana dokumentu to nowy numer
+ * i nagrobek na starym (bez szukania starych tokenów); nagrobki są sprzątane hurtem, gdy jest ich więcej niż żywych.
+ * Tokeny leżą w {@link TreeMap}, więc zapytanie prefiksowe to jeden zakres {@code subMap}.
+ */
+final class InvertedIndex {
+
+    // Krótki prefiks ("a") pasuje do tysięcy tokenów - bierzemy najczęstsze
+    private static final int MAX_EXPANSIONS = 256;
+    // Ranking liczymy dla najnowszych trafień - przy bardzo ogólnym zapytaniu starsze i tak nie wejdą do wyników
+    private static final int MAX_SCORED = 20_000;
+    private static final int WINDOW = 64 * 1024;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 4096;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // numer dokumentu -> klucz (rodzaj w najwyższych bitach, ID niżej)
+    private long[] docKeys = new long[1024];
+    private int docCount;
+    private LongIntMap live = new LongIntMap(1024);
+    private final BitSet deleted = new BitSet();
+    private int tombstones;
+    private long postingCount;
+
+    // LSN ostatniej nałożonej ramki dziennika (-1 = nieznany)
+    long appliedLsn = -1;
+
+    // --- ZMIANY ---
+
+    void put(SearchKind kind, long id, String text) {
+        remove(kind, id);
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        if (tokens.isEmpty()) return;
+
+        int doc = docCount++;
+        if (doc == docKeys.length) docKeys = Arrays.copyOf(docKeys, doc * 2);
+        long key = key(kind, id);
+        docKeys[doc] = key;
+        live.put(key, doc);
+        for (String token : tokens) {
+            terms.computeIfAbsent(token, t -> new Postings()).add(doc);
+        }
+        postingCount += tokens.size();
+    }
+
+    void remove(SearchKind kind, long id) {
+        int doc = live.remove(key(kind, id));
+        if (doc < 0) return;
+        deleted.set(doc);
+        tombstones++;
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > live.size()) compact();
+    }
+
+    void apply(ChangeSet set) {
+        for (Change change : set.changes()) {
+            SearchKind kind = SearchKind.forTable(change.table());
+            if (kind == null || !(change.key() instanceof Number key)) continue;
+            if (change.op() == Change.Op.DELETE) remove(kind, key.longValue());
+            else put(kind, key.longValue(), kind.text(change));
+        }
+        appliedLsn = Math.max(appliedLsn, set.lsn());
+    }
+
+    private static long key(SearchKind kind, long id) {
+        return ((long) kind.ordinal() << 56) | id;
+    }
+
+    // --- WYSZUKIWANIE ---
+
+    /**
+     * Dokumenty zawierające każdy token zapytania jako prefiks któregoś swojego tokenu, od najlepszych.
+     * Wynik: idf pasujących tokenów (pełne dopasowanie liczy się bardziej niż prefiks), remis - nowszy dokument.
+     */
+    List<SearchHit> search(List<String> query, int limit) {
+        if (query.isEmpty() || live.isEmpty() || limit <= 0) return List.of();
+
+        List<List<Expansion>> perToken = new ArrayList<>(query.size());
+        for (String token : query) {
+            List<Expansion> expansions = expand(token);
+            if (expansions.isEmpty()) return List.of(); // wszystkie tokeny muszą pasować
+            perToken.add(expansions);
+        }
+        // Najpierw najrzadsze - przecięcie szybko maleje
+        perToken.sort(Comparator.comparingLong(InvertedIndex::totalPostings));
+
+        int[] candidates = newestMatches(perToken);
+        if (candidates.length == 0) return List.of();
+        double[] scores = new double[candidates.length];
+        double[] best = new double[candidates.length];
+        for (List<Expansion> expansions : perToken) {
+            Arrays.fill(best, 0);
+            for (Expansion e : expansions) {
+                matchCandidates(e, candidates, best);
+            }
+            for (int j = 0; j < candidates.length; j++) scores[j] += best[j];
+        }
+
+        // Kopiec najsłabszych z najlepszych `limit`
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                Comparator.<Integer>comparingDouble(j -> scores[j]).thenComparingInt(j -> candidates[j]));
+        for (int j = 0; j < candidates.length; j++) {
+            top.add(j);
+            if (top.size() > limit) top.poll();
+        }
+        List<SearchHit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int j = top.poll();
+            long key = docKeys[candidates[j]];
+            hits.add(new SearchHit(SearchKind.values()[(int) (key >>> 56)], key & 0x00FF_FFFF_FFFF_FFFFL, scores[j]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private List<Expansion> expand(String prefix) {
+        SortedMap<String, Postings> range = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+        List<Expansion> expansions = new ArrayList<>();
+        double n = live.size();
+        for (Map.Entry<String, Postings> entry : range.entrySet()) {
+            Postings postings = entry.getValue();
+            if (postings.size == 0) continue;
+            double idf = Math.log(1 + n / postings.size);
+            String token = entry.getKey();
+            double weight = token.length() == prefix.length() ? idf : idf * (0.5 + 0.5 * prefix.length() / token.length());
+            expansions.add(new Expansion(postings, weight));
+        }
+        if (expansions.size() > MAX_EXPANSIONS) {
+            expansions.sort(Comparator.comparingInt((Expansion e) -> e.postings.size).reversed());
+            expansions = new ArrayList<>(expansions.subList(0, MAX_EXPANSIONS));
+        }
+        return expansions;
+    }
+
+    private static long totalPostings(List<Expansion> expansions) {
+        long total = 0;
+        for (Expansion e : expansions) total += e.postings.size;
+        return total;
+    }
+
+    /**
+     * Najnowsze (największe numery) dokumenty pasujące do wszystkich tokenów, rosnąco. Przecięcie liczymy oknami
+     * od końca i kończymy po {@link #MAX_SCORED} trafieniach - koszt zależy od liczby wyników, nie od rozmiaru indeksu.
+     */
+    private int[] newestMatches(List<List<Expansion>> perToken) {
+        int[] found = new int[Math.min(MAX_SCORED, live.size())];
+        int count = 0;
+        BitSet matches = new BitSet(WINDOW);
+        BitSet docs = new BitSet(WINDOW);
+        for (int hi = docCount; hi > 0 && count < found.length; hi -= WINDOW) {
+            int lo = Math.max(0, hi - WINDOW);
+            matches.clear();
+            for (int t = 0; t < perToken.size(); t++) {
+                BitSet target = t == 0 ? matches : docs;
+                target.clear();
+                for (Expansion e : perToken.get(t)) {
+                    int[] postings = e.postings.docs;
+                    for (int i = lowerBound(e.postings, lo); i < e.postings.size && postings[i] < hi; i++) {
+                        target.set(postings[i] - lo);
+                    }
+                }
+                if (t > 0) matches.and(docs);
+                if (matches.isEmpty()) break;
+            }
+            for (int bit = matches.length() - 1; bit >= 0 && count < found.length; bit = matches.previousSetBit(bit - 1)) {
+                if (!deleted.get(lo + bit)) found[count++] = lo + bit;
+            }
+        }
+        int[] ascending = new int[count];
+        for (int i = 0; i < count; i++) ascending[i] = found[count - 1 - i];
+        return ascending;
+    }
+
+    // best[j] = max(best[j], waga) dla kandydatów obecnych na liście rozwinięcia
+    private static void matchCandidates(Expansion e, int[] candidates, double[] best) {
+        int[] docs = e.postings.docs;
+        int from = lowerBound(e.postings, candidates[0]);
+        int to = lowerBound(e.postings, candidates[candidates.length - 1] + 1);
+        if (to - from > 16 * candidates.length) {
+            // Mało kandydatów na długiej liście - szukanie binarne zamiast przechodzenia całej listy
+            for (int j = 0; j < candidates.length && from < to; j++) {
+                int i = Arrays.binarySearch(docs, from, to, candidates[j]);
+                if (i >= 0) {
+                    if (e.weight > best[j]) best[j] = e.weight;
+                    from = i + 1;
+                } else {
+                    from = -i - 1;
+                }
+            }
+            return;
+        }
+        // Obie listy rosnące - scalanie
+        for (int i = from, j = 0; i < to && j < candidates.length; ) {
+            if (docs[i] < candidates[j]) i++;
+            else if (docs[i] > candidates[j]) j++;
+            else {
+                if (e.weight > best[j]) best[j] = e.weight;
+                i++;
+                j++;
+            }
+        }
+    }
+
+    // Pierwsza pozycja na liście z numerem >= doc
+    private static int lowerBound(Postings p, int doc) {
+        int low = 0, high = p.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (p.docs[mid] < doc) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private record Expansion(Postings postings, double weight) {}
+
+    // --- SPRZĄTANIE ---
+
+    /**
+     * Usuwa nagrobki i numeruje dokumenty od nowa (z zachowaniem kolejności, więc listy zostają posortowane).
+     */
+    void compact() {
+        int[] remap = remap();
+        long[] keys = new long[Math.max(1024, live.size())];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (remap[doc] >= 0) keys[next++] = docKeys[doc];
+        }
+        postingCount = 0;
+        for (Iterator<Postings> it = terms.values().iterator(); it.hasNext(); ) {
+            Postings p = it.next();
+            int size = 0;
+            for (int i = 0; i < p.size; i++) {
+                int doc = remap[p.docs[i]];
+                if (doc >= 0) p.docs[size++] = doc;
+            }
+            p.size = size;
+            if (size == 0) it.remove();
+            else p.trim();
+            postingCount += size;
+        }
+        live.replaceAll(doc -> remap[doc]);
+        docKeys = keys;
+        docCount = next;
+        deleted.clear();
+        tombstones = 0;
+    }
+
+    private int[] remap() {
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            remap[doc] = deleted.get(doc) ? -1 : next++;
+        }
+        return remap;
+    }
+
+    // --- ZAPIS / ODCZYT (bez nagrobków, listy jako różnice kolejnych numerów) ---
+
+    void write(DataOutputStream out) throws IOException {
+        int[] remap = remap();
+        out.writeLong(appliedLsn);
+        out.writeInt(live.size());
+        for (int doc = 0; doc < docCount; doc++) {
+            if (remap[doc] >= 0) out.writeLong(docKeys[doc]);
+        }
+        int termCount = 0;
+        for (Postings p : terms.values()) {
+            if (liveCount(p, remap) > 0) termCount++;
+        }
+        out.writeInt(termCount);
+        for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+            Postings p = entry.getValue();
+            int count = liveCount(p, remap);
+            if (count == 0) continue;
+            out.writeUTF(entry.getKey());
+            writeVarInt(out, count);
+            int previous = -1;
+            for (int i = 0; i < p.size; i++) {
+                int doc = remap[p.docs[i]];
+                if (doc < 0) continue;
+                writeVarInt(out, doc - previous);
+                previous = doc;
+            }
+        }
+    }
+
+    static InvertedIndex read(DataInputStream in) throws IOException {
+        InvertedIndex index = new InvertedIndex();
+        index.appliedLsn = in.readLong();
+        int docs = in.readInt();
+        if (docs < 0) throw new IOException("Niepoprawna liczba dokumentów: " + docs);
+        index.docKeys = new long[Math.max(1024, docs)];
+        index.live = new LongIntMap(docs);
+        for (int doc = 0; doc < docs; doc++) {
+            long key = in.readLong();
+            index.docKeys[doc] = key;
+            index.live.put(key, doc);
+        }
+        index.docCount = docs;
+        int termCount = in.readInt();
+        for (int t = 0; t < termCount; t++) {
+            String token = in.readUTF();
+            int count = readVarInt(in);
+            Postings p = new Postings(count);
+            int doc = -1;
+            for (int i = 0; i < count; i++) {
+                doc += readVarInt(in);
+                if (doc >= docs) throw new IOException("Numer dokumentu poza zakresem w tokenie " + token);
+                p.add(doc);
+            }
+            index.terms.put(token, p);
+            index.postingCount += count;
+        }
+        return index;
+    }
+
+    private static int liveCount(Postings p, int[] remap) {
+        int count = 0;
+        for (int i = 0; i < p.size; i++) {
+            if (remap[p.docs[i]] >= 0) count++;
+        }
+        return count;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Niepoprawna liczba w indeksie");
+    }
+
+    // --- STATYSTYKI ---
+
+    int documents() {
+        return live.size();
+    }
+
+    int terms() {
+        return terms.size();
+    }
+
+    long postings() {
+        return postingCount;
+    }
+
+    int tombstones() {
+        return tombstones;
+    }
+
+    /**
+     * Rosnąca lista numerów dokumentów jednego tokenu.
+     */
+    private static final class Postings {
+        int[] docs;
+        int size;
+
+        Postings() {
+            this(2);
+        }
+
+        Postings(int capacity) {
+            docs = new int[Math.max(1, capacity)];
+        }
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) return;
+            if (size == docs.length) docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+            docs[size++] = doc;
+        }
+
+        void trim() {
+            if (docs.length > size * 2 && docs.length > 8) docs = Arrays.copyOf(docs, size);
+        }
+    }
+}
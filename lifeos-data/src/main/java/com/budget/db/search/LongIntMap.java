@@ -0,0 +1,106 @@
+package com.budget.db.search;
+
+import java.util.Arrays;
+
+/**
+ * Mapa long -> int bez pudełkowania (adresowanie otwarte, sondowanie liniowe). Dla miliona dokumentów
+ * HashMap&lt;Long, Integer&gt; to ~80 MB samych obiektów, tu dwie tablice.
+ */
+final class LongIntMap {
+
+    private static final int MISSING = -1;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Wartość albo -1, gdy klucza nie ma.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == EMPTY) return MISSING;
+        }
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == EMPTY) size++;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Usuwa klucz i zwraca jego wartość albo -1.
+     */
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return MISSING;
+            i = (i + 1) & mask;
+        }
+        int value = values[i];
+        // Przesuwamy w lukę elementy z tego samego ciągu sondowania, żeby get() nie zatrzymał się na pustym miejscu
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return value;
+    }
+
+    interface ValueMapper {
+        int map(int value);
+    }
+
+    void replaceAll(ValueMapper mapper) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) values[i] = mapper.map(values[i]);
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,7 @@
+package com.budget.db.search;
+
+/**
+ * Trafienie z indeksu: dokument i jego wynik (większy = lepszy). Tekst do wyświetlenia dociąga {@code SearchService}.
+ */
+public record SearchHit(SearchKind kind, long id, double score) {
+}
@@ -0,0 +1,298 @@
+package com.budget.db.search;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.changelog.ChangeLog;
+import com.budget.db.changelog.ChangeSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Wyszukiwanie pełnotekstowe po opisach i kategoriach transakcji, tytułach zadań i nazwach celów.
+ * <p>
+ * Indeks jest aktualizowany przyrostowo z {@link ChangeLog} - każdy zatwierdzony zapis DAO trafia do niego w kolejności
+ * commitów, bez zmian w samych DAO. Przy zamknięciu aplikacji indeks jest zapisywany obok bazy razem z LSN ostatniej
+ * ramki, a przy starcie doczytuje tylko ramki dopisane później. Gdy ich już nie ma (usunięte po kopii) albo plik
+ * jest uszkodzony, indeks budujemy od nowa z tabel.
+ * <p>
+ * Bez dziennika (-Dlifeos.changelog=false) każdy commit oznacza indeks jako nieaktualny i kolejne wyszukiwanie
+ * przebudowuje go z bazy. Indeks ładuje się leniwie, przy pierwszym wyszukiwaniu.
+ */
+public class SearchIndex {
+
+    // Nagłówek pliku: [int magic "LOSX"][int wersja], dalej InvertedIndex.write
+    private static final int MAGIC = 0x4C4F5358;
+    private static final int VERSION = 1;
+    private static final int SCAN_PAGE = 10_000;
+
+    private final Path file;
+    private final ChangeLog changeLog;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loadMonitor = new Object();
+
+    // Pod blokadą zapisu
+    private InvertedIndex index;
+    // Zmiany zatwierdzone w trakcie ładowania - nakładane po doczytaniu dziennika
+    private List<ChangeSet> pendingWhileLoading;
+    private volatile boolean stale;
+
+    public SearchIndex(Path file, ChangeLog changeLog) {
+        this.file = file;
+        this.changeLog = changeLog;
+        if (changeLog != null) changeLog.addListener(this::apply);
+    }
+
+    // --- WYSZUKIWANIE ---
+
+    /**
+     * Najlepsze dopasowania zapytania; każde słowo zapytania jest prefiksem ("bie chl" znajdzie "Biedronka - chleb").
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        if (tokens.isEmpty()) return List.of();
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return index != null ? index.search(tokens, limit) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- AKTUALIZACJA ---
+
+    // Słuchacz dziennika (pod blokadą commitu)
+    private void apply(ChangeSet set) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) index.apply(set);
+            else if (pendingWhileLoading != null) pendingWhileLoading.add(set);
+            // bez indeksu i ładowania: zmiana jest w bazie i w dzienniku - ładowanie ją uwzględni
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bez dziennika: coś zostało zapisane, indeks trzeba przebudować przy następnym wyszukiwaniu.
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Dane zmieniły się z pominięciem DAO (reset, odtworzenie kopii, migracja) - zapomina indeks i jego plik.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            index = null;
+            stale = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("⚠️ Nie udało się usunąć pliku indeksu wyszukiwania: " + e.getMessage());
+        }
+    }
+
+    // --- ŁADOWANIE ---
+
+    private void ensureLoaded() {
+        if (isReady()) return;
+        synchronized (loadMonitor) {
+            if (isReady()) return;
+            long start = System.nanoTime();
+            boolean fromFile = index == null && !stale;
+            lock.writeLock().lock();
+            try {
+                index = null;
+                pendingWhileLoading = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                InvertedIndex loaded = fromFile ? readSnapshot() : null;
+                if (loaded == null || !install(loaded)) {
+                    stale = false; // zapisy w trakcie budowania ustawią go ponownie
+                    InvertedIndex built = new InvertedIndex();
+                    built.appliedLsn = changeLog != null ? changeLog.lastLsn() : -1;
+                    scanDatabase(built);
+                    fromFile = false;
+                    if (!install(built)) {
+                        // Dziennik obcięty w trakcie budowania - lepszy prawie aktualny indeks niż żaden
+                        System.err.println("⚠️ Indeks wyszukiwania niekompletny - zostanie przebudowany przy następnym wyszukiwaniu");
+                        lock.writeLock().lock();
+                        try {
+                            index = built;
+                            stale = true;
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                }
+                if (DatabaseService.isDebugStats()) {
+                    System.out.printf("✅ Indeks wyszukiwania %s: %d dokumentów, %d tokenów (%.0f ms)%n",
+                            fromFile ? "wczytany" : "zbudowany", index.documents(), index.terms(),
+                            (System.nanoTime() - start) / 1e6);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                stale = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pendingWhileLoading = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null && !stale;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Doczytuje z dziennika ramki po {@code appliedLsn} indeksu, nakłada zmiany zebrane w trakcie ładowania i publikuje indeks.
+     * Zwraca false, gdy w dzienniku brakuje ramek (indeks trzeba zbudować z bazy).
+     * <p>
+     * Ramki z dysku czytamy bez blokady: słuchacz {@link #apply} działa pod blokadą commitu dziennika, więc trzymanie
+     * blokady indeksu przez cały odczyt wstrzymałoby każdy commit DAO. W tym czasie słuchacz tylko dopisuje zmiany
+     * do {@code pendingWhileLoading} - blokada jest potrzebna dopiero do ich nałożenia i publikacji.
+     */
+    private boolean install(InvertedIndex loaded) {
+        long replayedTo = loaded.appliedLsn;
+        if (changeLog != null) {
+            // Ramki po "last" zostały dopisane już po utworzeniu pendingWhileLoading, więc trafią tam przez słuchacza
+            long last = changeLog.lastLsn();
+            if (replayedTo > last) return false; // dziennik założony od nowa - plik nie pasuje do bazy
+            if (replayedTo < last) {
+                try {
+                    changeLog.read(replayedTo, last, frame -> loaded.apply(frame.changeSet()));
+                } catch (IOException e) {
+                    System.err.println("⚠️ Indeks wyszukiwania: " + e.getMessage());
+                    return false;
+                }
+                replayedTo = last;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (ChangeSet set : pendingWhileLoading) {
+                if (set.lsn() > replayedTo) loaded.apply(set);
+            }
+            index = loaded;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Czyta tabele stronami po kluczu (krótkie zapytania zamiast jednego kursora na miliony wierszy - H2 przy
+     * długim leniwym odczycie potrafi zgubić stronę: "Chunk ... not found"). Strony nie są spójnym zrzutem,
+     * ale wszystko zatwierdzone od początku budowania i tak zostanie nałożone z dziennika w {@link #install}.
+     */
+    private void scanDatabase(InvertedIndex target) throws SQLException {
+        try (Connection conn = DatabaseService.connect()) {
+            for (SearchKind kind : SearchKind.values()) {
+                String sql = "SELECT id, " + String.join(", ", kind.getTextColumns()) + " FROM " + kind.getTable()
+                        + " WHERE id > ? ORDER BY id LIMIT " + SCAN_PAGE;
+                int columns = kind.getTextColumns().size();
+                StringBuilder text = new StringBuilder();
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    long lastId = Long.MIN_VALUE;
+                    int rows;
+                    do {
+                        rows = 0;
+                        pstmt.setLong(1, lastId);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                text.setLength(0);
+                                for (int i = 0; i < columns; i++) {
+                                    SearchKind.appendText(text, kind.getTextColumns().get(i), rs.getObject(i + 2));
+                                }
+                                lastId = rs.getLong(1);
+                                target.put(kind, lastId, text.toString());
+                                rows++;
+                            }
+                        }
+                    } while (rows == SCAN_PAGE);
+                }
+            }
+        }
+    }
+
+    // --- PLIK INDEKSU ---
+
+    /**
+     * Zapisuje indeks obok bazy (atomowo). Wywoływane przy zamykaniu aplikacji.
+     */
+    public void save() {
+        lock.readLock().lock();
+        try {
+            if (index == null || stale) return;
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                index.write(out);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Nie udało się zapisać indeksu wyszukiwania: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private InvertedIndex readSnapshot() {
+        // Bez dziennika nie wiadomo, co zmieniło się od zapisu pliku
+        if (changeLog == null || !Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            return InvertedIndex.read(in);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Nieczytelny plik indeksu wyszukiwania - buduję od nowa: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public String getStats() {
+        lock.readLock().lock();
+        try {
+            if (index == null) return "Indeks wyszukiwania: niezaładowany";
+            return String.format("Indeks wyszukiwania: dokumenty=%d, tokeny=%d, wpisy=%d, nagrobki=%d, LSN=%d",
+                    index.documents(), index.terms(), index.postings(), index.tombstones(), index.appliedLsn);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
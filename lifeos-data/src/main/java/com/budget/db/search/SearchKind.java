@@ -0,0 +1,62 @@
+package com.budget.db.search;
+
+import com.budget.dao.CategoryDAO;
+import com.budget.db.changelog.Change;
+
+import java.util.List;
+
+/**
+ * Rodzaje przeszukiwanych dokumentów: tabela i kolumny, z których bierzemy tekst.
+ * Klucz kategorii transakcji jest zamieniany na nazwę - szukamy po tym, co widzi użytkownik.
+ */
+public enum SearchKind {
+    TRANSACTION("transactions", "category_id", "description"),
+    TASK("tasks", "title"),
+    GOAL("goals", "name");
+
+    private static final CategoryDAO CATEGORIES = new CategoryDAO();
+
+    private final String table;
+    private final List<String> textColumns;
+
+    SearchKind(String table, String... textColumns) {
+        this.table = table;
+        this.textColumns = List.of(textColumns);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    List<String> getTextColumns() {
+        return textColumns;
+    }
+
+    static SearchKind forTable(String table) {
+        for (SearchKind kind : values()) {
+            if (kind.table.equalsIgnoreCase(table)) return kind;
+        }
+        return null;
+    }
+
+    // Tekst dokumentu z obrazu wiersza w dzienniku (kolumny małymi literami)
+    String text(Change change) {
+        StringBuilder text = new StringBuilder();
+        for (String column : textColumns) {
+            int i = change.columns().indexOf(column);
+            if (i >= 0) appendText(text, column, change.values().get(i));
+        }
+        return text.toString();
+    }
+
+    // Wartość kolumny jako tekst dokumentu (pusta pomijana)
+    static void appendText(StringBuilder text, String column, Object value) {
+        if (value == null) return;
+        if (value instanceof Number key && "category_id".equals(column)) {
+            text.append(CATEGORIES.getById(key.intValue()).getName());
+        } else {
+            text.append(value);
+        }
+        text.append(' ');
+    }
+}
@@ -0,0 +1,53 @@
+package com.budget.db.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dzieli tekst na tokeny indeksu: małe litery, bez polskich znaków ("Żółty" i "zolty" to ten sam token),
+ * separatorem jest wszystko poza literami i cyframi. Ten sam podział dla dokumentów i zapytań.
+ */
+final class SearchTokenizer {
+
+    // Jednoliterowe tokeny (poza cyframi) tylko zaśmiecają listy; bardzo długie obcinamy
+    private static final int MIN_LENGTH = 2;
+    private static final int MAX_LENGTH = 40;
+
+    private SearchTokenizer() {}
+
+    /**
+     * Unikalne tokeny w kolejności wystąpienia.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder(16);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (token.length() < MAX_LENGTH) token.append(fold(c));
+            } else if (!token.isEmpty()) {
+                if (token.length() >= MIN_LENGTH || Character.isDigit(token.charAt(0))) tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return switch (lower) {
+            case 'ą' -> 'a';
+            case 'ć' -> 'c';
+            case 'ę' -> 'e';
+            case 'ł' -> 'l';
+            case 'ń' -> 'n';
+            case 'ó' -> 'o';
+            case 'ś' -> 's';
+            case 'ź', 'ż' -> 'z';
+            default -> lower;
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.budget.service;
+
+/**
+ * Postęp kopii zapasowej przekazywany do UI. {@code rowsTotal} to szacunek z metadanych H2 (może się minąć o kilka wierszy).
+ */
+public record BackupProgress(Phase phase, long rowsDone, long rowsTotal, long bytesWritten) {
+
+    public enum Phase { EXPORT, VERIFY, DONE }
+
+    // Eksport to ~90% czasu, weryfikacja resztę
+    public double fraction() {
+        return switch (phase) {
+            case EXPORT -> rowsTotal <= 0 ? 0.0 : 0.9 * Math.min(1.0, (double) rowsDone / rowsTotal);
+            case VERIFY -> 0.9;
+            case DONE -> 1.0;
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.budget.service;
+
+import java.nio.file.Path;
+
+/**
+ * Wynik {@link BackupService#createBackup} / {@link BackupService#createIncrementalBackup}: zweryfikowany plik kopii
+ * i jego rozmiary. Dla kopii przyrostowej {@code rows} to liczba zmian wierszy, a {@code rawBytes} - rozmiar ramek dziennika.
+ */
+public record BackupResult(Path file, boolean incremental, long rows, long rawBytes, long fileBytes, long elapsedNanos) {
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d %s, %.1f MB -> %.1f MB gzip, %.1f s",
+                file.getFileName(), rows, incremental ? "zmian wierszy" : "wierszy",
+                rawBytes / 1_048_576.0, fileBytes / 1_048_576.0, elapsedNanos / 1e9);
+    }
+}
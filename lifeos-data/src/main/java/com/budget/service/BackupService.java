@@ -0,0 +1,507 @@
+package com.budget.service;
+
+import com.budget.dao.BalanceLedgerDAO;
+import com.budget.dao.CategoryDAO;
+import com.budget.dao.CategoryRollupDAO;
+import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
+import com.budget.db.changelog.ChangeCodec;
+import com.budget.db.changelog.ChangeLog;
+import com.budget.db.changelog.ChangeReplayer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Kopia zapasowa "na gorąco" przez SCRIPT H2 - bez kopiowania otwartego pliku .mv.db.
+ * <p>
+ * SCRIPT to jedno polecenie, więc widzi spójny stan bazy, a aplikacja może w tym czasie normalnie działać.
+ * Wynik (skrypt SQL) jest kompresowany w locie gzipem i zapisywany przez {@link FileChannel} do pliku .part.
+ * Tempo eksportu jest ograniczane (-Dlifeos.backup.maxBytesPerSec, 0 = bez limitu), żeby kopia nie zabierała
+ * połączeń i CPU interfejsowi. Na koniec plik jest odtwarzany do bazy w pamięci i porównywany z tym, co zapisaliśmy -
+ * dopiero poprawna kopia dostaje docelową nazwę. Kopia, która nie zmieści się w wolnej pamięci, jest weryfikowana
+ * w tymczasowej bazie plikowej (usuwanej po sprawdzeniu).
+ * <p>
+ * Kopia przyrostowa to ramki {@link ChangeLog} od ostatniego punktu kontrolnego (pełnej albo poprzedniej przyrostowej
+ * kopii) - rozmiar zależy od liczby zmian, nie od wielkości bazy. Pełna kopia zapisuje w pierwszej linii LSN dziennika
+ * sprzed eksportu; ramki zatwierdzone w trakcie SCRIPT mogą już być w kopii, ale ich ponowne nałożenie niczego nie psuje
+ * (obrazy wierszy, nie przyrosty). {@link #restore} odtwarza pełną kopię i nakłada po kolei przyrosty.
+ */
+public class BackupService {
+
+    private static final long MAX_BYTES_PER_SEC = Long.getLong("lifeos.backup.maxBytesPerSec", 16L * 1024 * 1024);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Ile restore czeka na zwrot wszystkich połączeń z puli
+    private static final long RESTORE_QUIESCE_TIMEOUT_MS = Long.getLong("lifeos.backup.restoreQuiesceTimeoutMs", 30_000);
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Odtworzona baza w pamięci zajmuje kilka razy więcej niż sam skrypt (wiersze + indeksy)
+    private static final int MEMORY_PER_SCRIPT_BYTE = 6;
+
+    // Komentarz SCRIPT przed danymi każdej tabeli, np. "-- 10 +/- SELECT COUNT(*) FROM PUBLIC.TRANSACTIONS;"
+    private static final Pattern TABLE_COMMENT = Pattern.compile("^-- \\d+ \\+/- SELECT COUNT\\(\\*\\) FROM (\\w+)\\.(\\w+);$");
+    private static final String INSERT_PREFIX = "INSERT INTO ";
+    // Pierwsza linia pełnej kopii (komentarz SQL - RUNSCRIPT go pomija)
+    private static final String LSN_HEADER = "-- lifeos-changelog-lsn: ";
+
+    // Nagłówek kopii przyrostowej: [int magic "LOIC"][int wersja][long od LSN (wyłącznie)][long do LSN], potem ramki
+    private static final int INCREMENT_MAGIC = 0x4C4F4943;
+    private static final int INCREMENT_VERSION = 1;
+
+    /**
+     * Tworzy skompresowaną (gzip) kopię bazy w {@code target} i weryfikuje ją.
+     *
+     * @param progress wywoływany z wątku kopii (nie z wątku UI), najwyżej co 100 ms
+     */
+    public BackupResult createBackup(Path target, Consumer<BackupProgress> progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        DatabaseService.awaitWrites(); // zapisy z kolejki write-behind mają trafić do kopii
+
+        ChangeLog changeLog = DatabaseService.getChangeLog();
+        long checkpointLsn = changeLog != null ? changeLog.lastLsn() : -1;
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        // Tabela -> liczba wierszy zapisanych do skryptu (klucz w formie "SCHEMA"."TABELA")
+        Map<String, Long> written = new LinkedHashMap<>();
+        long rows = 0;
+        long scriptBytes = 0;
+        try {
+            try (Connection conn = DatabaseService.connect();
+                 Statement stmt = conn.createStatement()) {
+                long rowsTotal = estimateRows(stmt);
+                Throttle throttle = new Throttle(MAX_BYTES_PER_SEC);
+                long lastReport = 0;
+
+                try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                     GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                     ResultSet rs = stmt.executeQuery("SCRIPT")) {
+                    if (changeLog != null) {
+                        byte[] header = (LSN_HEADER + checkpointLsn + "\n").getBytes(UTF_8);
+                        out.write(header);
+                        scriptBytes += header.length;
+                    }
+                    while (rs.next()) {
+                        String sql = rs.getString(1);
+                        byte[] bytes = (sql + "\n").getBytes(UTF_8);
+                        out.write(bytes);
+                        scriptBytes += bytes.length;
+
+                        if (sql.startsWith(INSERT_PREFIX)) {
+                            long n = countInsertedRows(sql);
+                            written.merge(insertTarget(sql), n, Long::sum);
+                            rows += n;
+                        } else {
+                            Matcher m = TABLE_COMMENT.matcher(sql);
+                            if (m.matches()) written.putIfAbsent(quote(m.group(1)) + "." + quote(m.group(2)), 0L);
+                        }
+
+                        throttle.acquire(bytes.length);
+                        long now = System.nanoTime();
+                        if (progress != null && now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                            lastReport = now;
+                            progress.accept(new BackupProgress(BackupProgress.Phase.EXPORT, rows, rowsTotal, scriptBytes));
+                        }
+                    }
+                    out.finish();
+                    channel.force(true);
+                }
+            }
+
+            if (progress != null) {
+                progress.accept(new BackupProgress(BackupProgress.Phase.VERIFY, rows, rows, scriptBytes));
+            }
+            verify(part, written, scriptBytes);
+            moveIntoPlace(part, target);
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        // Od teraz kopie przyrostowe liczą się od tej kopii
+        if (changeLog != null) changeLog.checkpoint(checkpointLsn);
+
+        BackupResult result = new BackupResult(target, false, rows, scriptBytes, Files.size(target), System.nanoTime() - start);
+        if (progress != null) {
+            progress.accept(new BackupProgress(BackupProgress.Phase.DONE, rows, rows, scriptBytes));
+        }
+        System.out.println("✅ Kopia zapasowa: " + result);
+        return result;
+    }
+
+    // --- KOPIE PRZYROSTOWE ---
+
+    /**
+     * Zapisuje do {@code target} (gzip) zmiany z dziennika od ostatniego punktu kontrolnego i przesuwa punkt kontrolny.
+     *
+     * @throws IllegalStateException gdy dziennik jest wyłączony albo nie ma punktu kontrolnego (potrzebna pełna kopia)
+     */
+    public BackupResult createIncrementalBackup(Path target, Consumer<BackupProgress> progress) throws IOException {
+        long start = System.nanoTime();
+        ChangeLog changeLog = DatabaseService.getChangeLog();
+        if (changeLog == null) throw new IllegalStateException("Dziennik zmian jest wyłączony (-Dlifeos.changelog=false)");
+        DatabaseService.awaitWrites();
+
+        long fromLsn = changeLog.checkpoint().orElseThrow(() ->
+                new IllegalStateException("Brak punktu kontrolnego - najpierw utwórz pełną kopię zapasową"));
+        long toLsn = changeLog.lastLsn();
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        long[] written = new long[2]; // zmiany, bajty ramek
+        try {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                DataOutputStream out = new DataOutputStream(gzip);
+                out.writeInt(INCREMENT_MAGIC);
+                out.writeInt(INCREMENT_VERSION);
+                out.writeLong(fromLsn);
+                out.writeLong(toLsn);
+                long[] lastReport = {0};
+                changeLog.read(fromLsn, toLsn, frame -> {
+                    out.write(frame.bytes());
+                    written[0] += frame.changeSet().changes().size();
+                    written[1] += frame.bytes().length;
+                    long now = System.nanoTime();
+                    if (progress != null && now - lastReport[0] >= PROGRESS_INTERVAL_NANOS) {
+                        lastReport[0] = now;
+                        progress.accept(new BackupProgress(BackupProgress.Phase.EXPORT,
+                                frame.changeSet().lsn() - fromLsn, toLsn - fromLsn, written[1]));
+                    }
+                });
+                out.flush();
+                gzip.finish();
+                channel.force(true);
+            }
+
+            if (progress != null) {
+                progress.accept(new BackupProgress(BackupProgress.Phase.VERIFY, toLsn - fromLsn, toLsn - fromLsn, written[1]));
+            }
+            Increment check = scanIncrement(part);
+            if (check.fromLsn() != fromLsn || check.toLsn() != toLsn || check.changes() != written[0]) {
+                throw new IOException("Weryfikacja kopii przyrostowej nie powiodła się: odczytano " + check.changes()
+                        + " zmian, zapisano " + written[0]);
+            }
+            moveIntoPlace(part, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        changeLog.checkpoint(toLsn);
+
+        BackupResult result = new BackupResult(target, true, written[0], written[1], Files.size(target), System.nanoTime() - start);
+        if (progress != null) {
+            progress.accept(new BackupProgress(BackupProgress.Phase.DONE, toLsn - fromLsn, toLsn - fromLsn, written[1]));
+        }
+        System.out.println("✅ Kopia przyrostowa (LSN " + fromLsn + " -> " + toLsn + "): " + result);
+        return result;
+    }
+
+    // --- ODTWARZANIE ---
+
+    /**
+     * Zastępuje bieżącą bazę pełną kopią i nakłada na nią kopie przyrostowe (w dowolnej kolejności - są sortowane po LSN).
+     * Cały łańcuch jest sprawdzany (CRC ramek, ciągłość LSN) przed dotknięciem bazy.
+     * <p>
+     * Na czas odtwarzania zapisy odroczone są wstrzymane, a pula przejęta na wyłączność (czekamy na zwrot wszystkich
+     * połączeń), więc nikt nie pisze do bazy w trakcie DROP ALL OBJECTS. Przed usunięciem bieżący stan trafia do
+     * skryptu bezpieczeństwa; gdy odtwarzanie się nie uda, baza wraca do tego stanu.
+     */
+    public RestoreResult restore(Path fullBackup, List<Path> increments) throws IOException, SQLException {
+        long start = System.nanoTime();
+
+        OptionalLong baseLsn = readBaseLsn(fullBackup);
+        List<Increment> chain = new ArrayList<>();
+        for (Path file : increments) {
+            chain.add(scanIncrement(file));
+        }
+        chain.sort(Comparator.comparingLong(Increment::fromLsn));
+        if (!chain.isEmpty() && baseLsn.isEmpty()) {
+            throw new IOException("Pełna kopia " + fullBackup.getFileName()
+                    + " nie ma punktu kontrolnego dziennika - nie można nałożyć na nią kopii przyrostowych");
+        }
+        long covered = baseLsn.orElse(0L);
+        for (Increment inc : chain) {
+            if (inc.fromLsn() > covered) {
+                throw new IOException("Luka w łańcuchu kopii: brak zmian LSN " + (covered + 1) + ".." + inc.fromLsn()
+                        + " przed " + inc.file().getFileName());
+            }
+            covered = Math.max(covered, inc.toLsn());
+        }
+
+        long replayed;
+        DatabaseService.pauseWrites();
+        try {
+            try (Connection conn = DatabaseService.connectExclusive(RESTORE_QUIESCE_TIMEOUT_MS);
+                 Statement stmt = conn.createStatement()) {
+                Path safety = Files.createTempFile("lifeos-before-restore", ".sql.gz");
+                stmt.execute("SCRIPT TO '" + sqlPath(safety) + "' COMPRESSION GZIP");
+                try {
+                    replayed = replaceDatabase(conn, stmt, fullBackup, baseLsn.orElse(0L), chain);
+                } catch (IOException | SQLException | RuntimeException e) {
+                    restoreSafetyScript(conn, safety, e);
+                    throw e;
+                }
+                Files.deleteIfExists(safety);
+            } finally {
+                QueryCache.invalidateAll();
+            }
+
+            // Kopia mogła powstać na starszym schemacie; tabele pochodne liczymy od nowa z odtworzonych transakcji.
+            // Przebudowy biorą własne połączenia, więc dopiero po oddaniu wyłącznego.
+            DatabaseService.initDatabase();
+            new BalanceLedgerDAO().rebuild();
+            new CategoryRollupDAO().rebuild();
+        } finally {
+            DatabaseService.resumeWrites();
+        }
+        QueryCache.invalidateAll();
+        ChangeLog changeLog = DatabaseService.getChangeLog();
+        if (changeLog != null) changeLog.invalidateCheckpoint(); // odtworzonego stanu nie ma w dzienniku
+        CategoryDAO.invalidateCache(); // klucze z kopii mogą wskazywać inne nazwy
+        DatabaseService.getSearchIndex().invalidate();
+        DatabaseService.getTransactionColumns().invalidate();
+
+        RestoreResult result = new RestoreResult(fullBackup, chain.size(), replayed, System.nanoTime() - start);
+        System.out.println("✅ Odtworzono kopię: " + result);
+        return result;
+    }
+
+    private static long replaceDatabase(Connection conn, Statement stmt, Path fullBackup, long baseLsn, List<Increment> chain)
+            throws IOException, SQLException {
+        stmt.execute("DROP ALL OBJECTS");
+        stmt.execute("RUNSCRIPT FROM '" + sqlPath(fullBackup) + "' COMPRESSION GZIP");
+
+        conn.setAutoCommit(false);
+        try (ChangeReplayer replayer = new ChangeReplayer(conn)) {
+            // Ramki starsze niż to, co już nałożone, cofnęłyby nowszy stan - pomijamy je
+            long[] applied = {baseLsn};
+            for (Increment inc : chain) {
+                readIncrement(inc.file(), frame -> {
+                    if (frame.changeSet().lsn() <= applied[0]) return;
+                    replayer.apply(frame.changeSet());
+                    applied[0] = frame.changeSet().lsn();
+                });
+                conn.commit();
+            }
+            replayer.restartIdentities();
+            conn.commit();
+            return replayer.getApplied();
+        } catch (IOException | SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Przywraca stan sprzed odtwarzania; gdy i to się nie uda, skrypt zostaje na dysku do ręcznego RUNSCRIPT
+    private static void restoreSafetyScript(Connection conn, Path safety, Exception cause) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+            stmt.execute("RUNSCRIPT FROM '" + sqlPath(safety) + "' COMPRESSION GZIP");
+            Files.deleteIfExists(safety);
+            System.err.println("⚠️ Odtwarzanie kopii nie powiodło się - przywrócono poprzedni stan bazy");
+        } catch (SQLException | IOException | RuntimeException e) {
+            cause.addSuppressed(e);
+            System.err.println("⚠️ Nie udało się przywrócić poprzedniego stanu bazy - skrypt bezpieczeństwa: " + safety);
+        }
+    }
+
+    private static String sqlPath(Path file) {
+        return file.toAbsolutePath().toString().replace("'", "''");
+    }
+
+    private record Increment(Path file, long fromLsn, long toLsn, long changes) {}
+
+    @FunctionalInterface
+    private interface FrameHandler {
+        void accept(ChangeCodec.Frame frame) throws IOException, SQLException;
+    }
+
+    /**
+     * Czyta kopię przyrostową, sprawdzając nagłówek, CRC każdej ramki i ciągłość LSN od początku do końca zakresu.
+     */
+    private static Increment readIncrement(Path file, FrameHandler handler) throws IOException, SQLException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (in.readInt() != INCREMENT_MAGIC) throw new IOException(file.getFileName() + " nie jest kopią przyrostową LifeOS");
+            int version = in.readInt();
+            if (version != INCREMENT_VERSION) throw new IOException(file.getFileName() + ": nieznana wersja formatu " + version);
+            long fromLsn = in.readLong();
+            long toLsn = in.readLong();
+
+            long expected = fromLsn + 1;
+            long changes = 0;
+            ChangeCodec.Frame frame;
+            while ((frame = ChangeCodec.read(in)) != null) {
+                if (frame.changeSet().lsn() != expected) {
+                    throw new IOException(file.getFileName() + ": LSN " + frame.changeSet().lsn() + " zamiast " + expected);
+                }
+                if (handler != null) handler.accept(frame);
+                changes += frame.changeSet().changes().size();
+                expected++;
+            }
+            if (expected != toLsn + 1) {
+                throw new IOException(file.getFileName() + " jest niekompletna: kończy się na LSN " + (expected - 1) + " zamiast " + toLsn);
+            }
+            return new Increment(file, fromLsn, toLsn, changes);
+        } catch (EOFException e) {
+            throw new IOException(file.getFileName() + ": urwany nagłówek kopii przyrostowej", e);
+        }
+    }
+
+    // Sam odczyt kontrolny, bez nakładania zmian
+    private static Increment scanIncrement(Path file) throws IOException {
+        try {
+            return readIncrement(file, null);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e); // bez handlera nic nie rzuca SQLException
+        }
+    }
+
+    // LSN dziennika zapisany w pierwszej linii pełnej kopii (brak w kopiach sprzed dziennika zmian)
+    private static OptionalLong readBaseLsn(Path fullBackup) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(fullBackup)), UTF_8))) {
+            String first = reader.readLine();
+            if (first != null && first.startsWith(LSN_HEADER)) {
+                return OptionalLong.of(Long.parseLong(first.substring(LSN_HEADER.length()).trim()));
+            }
+            return OptionalLong.empty();
+        }
+    }
+
+    // --- WERYFIKACJA ---
+
+    /**
+     * Odtwarza kopię do świeżej bazy i sprawdza, czy każda tabela ma tyle wierszy, ile zapisaliśmy.
+     */
+    private void verify(Path backup, Map<String, Long> written, long scriptBytes) throws IOException, SQLException {
+        Path tempDir = fitsInMemory(scriptBytes) ? null : Files.createTempDirectory("lifeos-backup-verify");
+        String url = tempDir == null
+                ? "jdbc:h2:mem:lifeos_backup_verify_" + System.nanoTime()
+                : "jdbc:h2:" + tempDir.resolve("verify").toAbsolutePath();
+        try {
+            restoreAndCompare(url, backup, written);
+        } finally {
+            if (tempDir != null) deleteRecursively(tempDir);
+        }
+    }
+
+    private static void restoreAndCompare(String url, Path backup, Map<String, Long> written) throws IOException, SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM '" + backup.toAbsolutePath().toString().replace("'", "''") + "' COMPRESSION GZIP");
+
+            for (Map.Entry<String, Long> e : written.entrySet()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + e.getKey())) {
+                    rs.next();
+                    long restored = rs.getLong(1);
+                    if (restored != e.getValue()) {
+                        throw new IOException("Weryfikacja kopii nie powiodła się: " + e.getKey()
+                                + " ma " + restored + " wierszy, zapisano " + e.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean fitsInMemory(long scriptBytes) {
+        Runtime rt = Runtime.getRuntime();
+        long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+        return scriptBytes * MEMORY_PER_SCRIPT_BYTE < free;
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("⚠️ Nie udało się usunąć katalogu weryfikacji: " + dir);
+        }
+    }
+
+    // --- HELPERY ---
+
+    private static long estimateRows(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT COALESCE(SUM(ROW_COUNT_ESTIMATE), 0) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC'")) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // SCRIPT zapisuje wiersze INSERT-a po jednym w linii, "(" na początku; znaki sterujące w danych są escapowane (U&'...')
+    private static long countInsertedRows(String insert) {
+        long n = 0;
+        for (int i = insert.indexOf("\n("); i >= 0; i = insert.indexOf("\n(", i + 2)) n++;
+        return n;
+    }
+
+    private static String insertTarget(String insert) {
+        int end = insert.indexOf(' ', INSERT_PREFIX.length());
+        return insert.substring(INSERT_PREFIX.length(), end < 0 ? insert.length() : end);
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier + '"';
+    }
+
+    private static void moveIntoPlace(Path part, Path target) throws IOException {
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Prosty limiter tempa: po każdym zapisie czeka, jeśli wyprzedzamy zadaną liczbę bajtów na sekundę.
+     */
+    private static final class Throttle {
+        private final long bytesPerSec;
+        private final long start = System.nanoTime();
+        private long bytes;
+
+        Throttle(long bytesPerSec) {
+            this.bytesPerSec = bytesPerSec;
+        }
+
+        void acquire(int n) throws InterruptedIOException {
+            if (bytesPerSec <= 0) return;
+            bytes += n;
+            long dueNanos = (long) (bytes * 1e9 / bytesPerSec);
+            long aheadNanos = dueNanos - (System.nanoTime() - start);
+            if (aheadNanos < TimeUnit.MILLISECONDS.toNanos(5)) return; // nie usypiamy na pojedyncze mikrosekundy
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Kopia zapasowa przerwana");
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.budget.service;
+
+import com.budget.dao.BudgetDAO;
+import com.budget.dao.CategoryRollupDAO;
+import com.budget.model.Category;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ujednolica kategorie z importu: "jedzenie", " JEDZENIE " i "Jedzenie" to ta sama kategoria.
+ * <p>
+ * Znane kategorie (z transakcji i budżetów) wygrywają ze swoją pisownią; nowa kategoria dostaje pisownię
+ * pierwszego wystąpienia w pliku (CAPS LOCKIEM zamieniany na "Wielką literą"). Nie jest bezpieczny wątkowo -
+ * import woła go w wątku zapisu, w kolejności pliku, dzięki czemu wynik nie zależy od podziału na fragmenty.
+ */
+class CategoryNormalizer {
+
+    // Surowe wartości z pliku powtarzają się w kółko - pamiętamy wynik, ale nie bez końca (śmieciowe pliki)
+    private static final int MAX_MEMO = 10_000;
+
+    private final Map<String, Category> canonical = new HashMap<>();
+    private final Map<String, Category> memo = new HashMap<>();
+
+    CategoryNormalizer() {
+        // Budżety najpierw - ich pisownię użytkownik wpisał ręcznie
+        for (String category : new BudgetDAO().getAllBudgetsMinor().keySet()) {
+            canonical.putIfAbsent(key(category), Category.of(category));
+        }
+        for (String category : new CategoryRollupDAO().getKnownCategories()) {
+            canonical.putIfAbsent(key(category), Category.of(category));
+        }
+    }
+
+    Category normalize(String raw) {
+        Category cached = memo.get(raw);
+        if (cached != null) return cached;
+
+        String key = key(raw);
+        Category result = key.isEmpty()
+                ? Category.DEFAULT
+                : canonical.computeIfAbsent(key, k -> Category.of(display(raw)));
+        if (memo.size() < MAX_MEMO) memo.put(raw, result);
+        return result;
+    }
+
+    private static String key(String category) {
+        return category.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String display(String raw) {
+        String s = raw.strip().replaceAll("\\s+", " ");
+        if (s.equals(s.toUpperCase(Locale.ROOT)) && !s.equals(s.toLowerCase(Locale.ROOT))) {
+            s = s.toLowerCase(Locale.ROOT);
+        }
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
@@ -0,0 +1,363 @@
+package com.budget.service;
+
+import com.budget.model.Category;
+import com.budget.model.Money;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Parsowanie i walidacja fragmentu pliku CSV z transakcjami. Bez stanu współdzielonego - {@link CsvImportService}
+ * woła {@link #parse} równolegle dla wielu fragmentów.
+ * <p>
+ * Kolumny są rozpoznawane po nagłówku (nasze eksporty: "ID;Data;Typ;Kategoria;Kwota;Opis" i "...;Opis;Kwota",
+ * oraz angielskie odpowiedniki), separator po tym, którego w nagłówku jest najwięcej. Pola w cudzysłowach
+ * mogą zawierać separator i nowe linie - rekord kończy się na '\n' poza cudzysłowem ({@link RecordScanner}),
+ * także przy cięciu pliku na fragmenty.
+ */
+final class CsvChunkParser {
+
+    // Rozmiary kolumn w tabeli transactions
+    private static final int MAX_CATEGORY = 100;
+    private static final int MAX_DESCRIPTION = 255;
+
+    private final char separator;
+    private final int columnCount;
+    private final int dateCol;
+    private final int typeCol;
+    private final int categoryCol;
+    private final int amountCol;
+    private final int descriptionCol;
+
+    /**
+     * Fragment pliku: pełne linie od {@code offset}, {@code bytes} to widok na zmapowany plik.
+     */
+    record Chunk(int index, long offset, ByteBuffer bytes) {
+        long endOffset() {
+            return offset + bytes.remaining();
+        }
+    }
+
+    /**
+     * Wynik fragmentu. {@code rows} nie mają jeszcze kategorii - surowa wartość z pliku jest pod tym samym indeksem
+     * w {@code rawCategories}, a normalizuje ją etap zapisu (w kolejności pliku). Dopiero znormalizowana nazwa
+     * staje się współdzieloną {@link Category} - śmieciowe warianty z pliku nie trafiają do puli.
+     */
+    record ParsedChunk(int index, long endOffset, int lineCount, List<Transaction> rows, List<String> rawCategories,
+                       List<RowError> errors) {}
+
+    /**
+     * Odrzucony wiersz; {@code lineInChunk} to linia fizyczna (od 0), w której zaczyna się rekord - numer w pliku
+     * nadaje etap zapisu.
+     */
+    record RowError(int lineInChunk, String message, String content) {}
+
+    private CsvChunkParser(char separator, int columnCount, int dateCol, int typeCol, int categoryCol,
+                           int amountCol, int descriptionCol) {
+        this.separator = separator;
+        this.columnCount = columnCount;
+        this.dateCol = dateCol;
+        this.typeCol = typeCol;
+        this.categoryCol = categoryCol;
+        this.amountCol = amountCol;
+        this.descriptionCol = descriptionCol;
+    }
+
+    /**
+     * Rozpoznaje separator i kolumny z linii nagłówka.
+     *
+     * @throws IOException gdy brakuje kolumny daty albo kwoty
+     */
+    static CsvChunkParser fromHeader(String header) throws IOException {
+        if (!header.isEmpty() && header.charAt(0) == '﻿') header = header.substring(1); // BOM z Excela
+        char separator = ';';
+        long best = -1;
+        for (char candidate : new char[]{';', ',', '\t'}) {
+            long count = header.chars().filter(c -> c == candidate).count();
+            if (count > best) {
+                best = count;
+                separator = candidate;
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        new CsvChunkParser(separator, 0, -1, -1, -1, -1, -1).split(header, 0, header.length(), names);
+        int date = -1, type = -1, category = -1, amount = -1, description = -1;
+        for (int i = 0; i < names.size(); i++) {
+            switch (names.get(i).strip().toLowerCase(Locale.ROOT)) {
+                case "data", "date", "data operacji", "data transakcji" -> date = i;
+                case "typ", "type" -> type = i;
+                case "kategoria", "category" -> category = i;
+                case "kwota", "amount", "kwota operacji" -> amount = i;
+                case "opis", "description", "tytuł", "tytul", "title" -> description = i;
+                default -> { /* np. ID - pomijamy, nowe ID nada baza */ }
+            }
+        }
+        if (date < 0 || amount < 0) {
+            throw new IOException("Nieznany nagłówek CSV (wymagane kolumny Data i Kwota): " + header);
+        }
+        return new CsvChunkParser(separator, names.size(), date, type, category, amount, description);
+    }
+
+    RecordScanner recordScanner() {
+        return new RecordScanner(separator);
+    }
+
+    // --- PARSOWANIE FRAGMENTU ---
+
+    ParsedChunk parse(Chunk chunk) {
+        CharBuffer text;
+        try {
+            CharsetDecoder decoder = UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            text = decoder.decode(chunk.bytes().duplicate());
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException(e); // przy REPLACE nie występuje
+        }
+
+        List<Transaction> rows = new ArrayList<>();
+        List<String> rawCategories = new ArrayList<>();
+        List<RowError> errors = new ArrayList<>();
+        List<String> fields = new ArrayList<>(columnCount + 2);
+        char[] chars = text.array();
+        int end = text.arrayOffset() + text.limit();
+        RecordScanner scanner = recordScanner();
+        int line = 0;
+        int start = text.arrayOffset();
+        while (start < end) {
+            int eol = start;
+            int newlines = 0;
+            while (eol < end && !scanner.next(chars[eol])) {
+                if (chars[eol] == '\n') newlines++;
+                eol++;
+            }
+            int contentEnd = eol > start && chars[eol - 1] == '\r' ? eol - 1 : eol;
+            if (contentEnd > start) {
+                String raw = new String(chars, start, contentEnd - start);
+                try {
+                    fields.clear();
+                    split(raw, 0, raw.length(), fields);
+                    rows.add(toTransaction(fields));
+                    rawCategories.add(categoryCol >= 0 && categoryCol < fields.size()
+                            ? truncate(fields.get(categoryCol).strip(), MAX_CATEGORY) : "");
+                } catch (RowException e) {
+                    errors.add(new RowError(line, e.getMessage(), raw));
+                }
+            }
+            line += newlines + 1;
+            start = eol + 1;
+        }
+        return new ParsedChunk(chunk.index(), chunk.endOffset(), line, rows, rawCategories, errors);
+    }
+
+    // Dzieli linię na pola; "..." z "" jako cudzysłowem w środku
+    private void split(String line, int from, int to, List<String> out) {
+        StringBuilder quoted = null;
+        int i = from;
+        while (i <= to) {
+            if (i < to && line.charAt(i) == '"') {
+                if (quoted == null) quoted = new StringBuilder();
+                quoted.setLength(0);
+                i++;
+                while (i < to) {
+                    char c = line.charAt(i);
+                    if (c == '"') {
+                        if (i + 1 < to && line.charAt(i + 1) == '"') {
+                            quoted.append('"');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    quoted.append(c);
+                    i++;
+                }
+                out.add(quoted.toString());
+                while (i < to && line.charAt(i) != separator) i++; // śmieci po zamykającym cudzysłowie
+                i++;
+            } else {
+                int next = line.indexOf(separator, i);
+                if (next < 0 || next > to) next = to;
+                out.add(line.substring(i, next));
+                i = next + 1;
+            }
+        }
+    }
+
+    private Transaction toTransaction(List<String> fields) throws RowException {
+        if (fields.size() > columnCount && descriptionCol >= 0) {
+            // Opis z separatorem w środku (eksport bez cudzysłowów) - nadmiarowe pola należą do opisu
+            int surplus = fields.size() - columnCount;
+            List<String> parts = fields.subList(descriptionCol, descriptionCol + surplus + 1);
+            String joined = String.join(String.valueOf(separator), parts);
+            parts.clear();
+            fields.add(descriptionCol, joined);
+        }
+        if (fields.size() <= Math.max(dateCol, amountCol)) {
+            throw new RowException("Za mało kolumn (" + fields.size() + " z " + columnCount + ")");
+        }
+
+        LocalDate date = parseDate(fields.get(dateCol).strip());
+        long amount = parseAmount(fields.get(amountCol).strip());
+        TransactionType type = typeCol >= 0 && typeCol < fields.size() ? normalizeType(fields.get(typeCol)) : null;
+        if (type == null) {
+            // Wyciągi bankowe: bez kolumny typu o kierunku decyduje znak kwoty
+            type = amount < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+        }
+        amount = Math.abs(amount);
+        if (amount == 0) throw new RowException("Kwota zerowa");
+
+        String description = descriptionCol >= 0 && descriptionCol < fields.size()
+                ? truncate(fields.get(descriptionCol).strip(), MAX_DESCRIPTION) : "";
+        return Transaction.ofMinor(0, type, null, amount, date, description);
+    }
+
+    // --- WARTOŚCI ---
+
+    // yyyy-MM-dd (nasz eksport) albo dd.MM.yyyy (polskie banki), bez DateTimeFormattera - to gorąca pętla
+    static LocalDate parseDate(String s) throws RowException {
+        try {
+            if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+                return LocalDate.of(digits(s, 0, 4), digits(s, 5, 7), digits(s, 8, 10));
+            }
+            if (s.length() == 10 && s.charAt(2) == '.' && s.charAt(5) == '.') {
+                return LocalDate.of(digits(s, 6, 10), digits(s, 3, 5), digits(s, 0, 2));
+            }
+        } catch (DateTimeException e) {
+            throw new RowException("Niepoprawna data: " + s);
+        }
+        throw new RowException("Nieznany format daty: " + s);
+    }
+
+    private static int digits(String s, int from, int to) throws RowException {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') throw new RowException("Niepoprawna data: " + s);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Kwota w groszach: szybka ścieżka dla "-1234.56" / "1234,5", reszta (spacje tysięcy, więcej miejsc) przez {@link Money#parse}.
+     */
+    static long parseAmount(String s) throws RowException {
+        int i = 0;
+        int n = s.length();
+        boolean negative = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long units = 0;
+        int unitDigits = 0;
+        while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9' && unitDigits < 15) {
+            units = units * 10 + (s.charAt(i++) - '0');
+            unitDigits++;
+        }
+        long cents = 0;
+        int centDigits = 0;
+        if (i < n && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+            i++;
+            while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9' && centDigits < 2) {
+                cents = cents * 10 + (s.charAt(i++) - '0');
+                centDigits++;
+            }
+            if (centDigits == 1) cents *= 10;
+        }
+        if (i == n && unitDigits + centDigits > 0) {
+            long minor = units * Money.MINOR_PER_UNIT + cents;
+            return negative ? -minor : minor;
+        }
+        try {
+            return Money.parse(s.replace("zł", "").replace("PLN", ""));
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new RowException("Niepoprawna kwota: " + s);
+        }
+    }
+
+    /**
+     * "przychód" / "INCOME" / "wydatek"... -> typ transakcji; pusty -> null (o typie zdecyduje znak kwoty).
+     */
+    static TransactionType normalizeType(String raw) throws RowException {
+        String s = raw.strip().toUpperCase(Locale.ROOT);
+        return switch (s) {
+            case "" -> null;
+            case "PRZYCHÓD", "PRZYCHOD", "INCOME", "UZNANIE", "WPŁYW", "WPLYW" -> TransactionType.INCOME;
+            case "WYDATEK", "EXPENSE", "OBCIĄŻENIE", "OBCIAZENIE" -> TransactionType.EXPENSE;
+            default -> throw new RowException("Nieznany typ: " + raw.strip());
+        };
+    }
+
+    private static String truncate(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max);
+    }
+
+    /**
+     * Wyszukuje końce rekordów: '\n' poza polem w cudzysłowie. Reguły jak w {@link #split} - cudzysłów otwiera pole
+     * tylko na jego początku, "" w środku pola to znak cudzysłowu. Działa na znakach i na bajtach UTF-8
+     * (cudzysłów, separator i '\n' są w ASCII, więc nie trafią w środek znaku wielobajtowego).
+     * Stan zaczyna się od początku rekordu - fragmenty pliku zawsze na nim się zaczynają.
+     */
+    static final class RecordScanner {
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int QUOTE_IN_QUOTED = 3; // '"' w polu w cudzysłowie: koniec pola albo ""
+
+        private final char separator;
+        private int state = FIELD_START;
+
+        RecordScanner(char separator) {
+            this.separator = separator;
+        }
+
+        // true, gdy c to '\n' kończący rekord
+        boolean next(int c) {
+            switch (state) {
+                case QUOTED -> {
+                    if (c == '"') state = QUOTE_IN_QUOTED;
+                    return false;
+                }
+                case QUOTE_IN_QUOTED, FIELD_START -> {
+                    if (c == '"') {
+                        state = QUOTED;
+                        return false;
+                    }
+                }
+                default -> { }
+            }
+            if (c == '\n') {
+                state = FIELD_START;
+                return true;
+            }
+            state = c == separator ? FIELD_START : UNQUOTED;
+            return false;
+        }
+    }
+
+    /**
+     * Błąd walidacji pojedynczego wiersza (bez stack trace - przy milionie wierszy to czysty koszt).
+     */
+    static final class RowException extends Exception {
+        RowException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.budget.service;
+
+/**
+ * Odrzucony wiersz importu: numer linii w pliku (nagłówek to linia 1), powód i oryginalna treść.
+ */
+public record CsvImportError(long line, String message, String content) {
+}
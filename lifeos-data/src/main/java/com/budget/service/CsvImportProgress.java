@@ -0,0 +1,11 @@
+package com.budget.service;
+
+/**
+ * Postęp importu CSV przekazywany do UI (po każdym zapisanym fragmencie pliku).
+ */
+public record CsvImportProgress(long bytesDone, long bytesTotal, long rowsImported, long rowsRejected) {
+
+    public double fraction() {
+        return bytesTotal <= 0 ? 1.0 : Math.min(1.0, (double) bytesDone / bytesTotal);
+    }
+}
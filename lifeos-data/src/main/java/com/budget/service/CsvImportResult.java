@@ -0,0 +1,21 @@
+package com.budget.service;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Wynik {@link CsvImportService#importTransactions}. Liczniki obejmują też wcześniejsze, przerwane podejścia do pliku.
+ *
+ * @param errors          pierwsze odrzucone wiersze (pełna lista jest w {@code rejectsFile})
+ * @param rejectsFile     plik z odrzuconymi wierszami albo null, gdy wszystkie przeszły
+ * @param resumedFromLine linia, od której wznowiono import, albo 0 przy imporcie od początku
+ */
+public record CsvImportResult(long imported, long rejected, List<CsvImportError> errors, Path rejectsFile,
+                              long resumedFromLine, long elapsedNanos) {
+
+    @Override
+    public String toString() {
+        return String.format("zaimportowano %d, odrzucono %d%s, %.1f s", imported, rejected,
+                resumedFromLine > 0 ? " (wznowiono od linii " + resumedFromLine + ")" : "", elapsedNanos / 1e9);
+    }
+}
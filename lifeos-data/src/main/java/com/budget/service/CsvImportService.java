@@ -0,0 +1,340 @@
+package com.budget.service;
+
+import com.budget.dao.ImportCheckpoint;
+import com.budget.dao.ImportCheckpointDAO;
+import com.budget.dao.TransactionBatchWriter;
+import com.budget.db.DatabaseService;
+import com.budget.model.Transaction;
+import com.budget.service.CsvChunkParser.Chunk;
+import com.budget.service.CsvChunkParser.ParsedChunk;
+import com.budget.service.CsvChunkParser.RowError;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Import transakcji z CSV (nasze eksporty i wyciągi bankowe) - także pliki z milionami linii, przy stałym zużyciu pamięci.
+ * <p>
+ * Potok:
+ * <ol>
+ *   <li>wątek czytający mapuje plik oknami po 64 MB i tnie je na fragmenty ~1 MB zakończone końcem rekordu
+ *       ('\n' poza cudzysłowem; widoki na zmapowany bufor, bez kopiowania),</li>
+ *   <li>fragmenty są parsowane i walidowane równolegle w {@link ForkJoinPool},</li>
+ *   <li>wątek wywołujący odbiera wyniki w kolejności pliku, normalizuje kategorie i zapisuje każdy fragment
+ *       jednym commitem {@link TransactionBatchWriter} - razem z punktem wznowienia.</li>
+ * </ol>
+ * Kolejka między etapami jest ograniczona, więc gdy baza nie nadąża, czytanie i parsowanie stają, zamiast zapełniać pamięć.
+ * Przerwany import (błąd, zamknięcie aplikacji) wznawia się od pierwszego niezapisanego fragmentu - bez duplikatów.
+ * Odrzucone wiersze trafiają do pliku "nazwa.odrzucone.csv" obok importowanego.
+ */
+public class CsvImportService {
+
+    private static final int CHUNK_BYTES = Integer.getInteger("lifeos.import.chunkBytes", 1024 * 1024);
+    private static final int WINDOW_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // Znacznik końca pliku w kolejce fragmentów
+    private static final Future<ParsedChunk> END = CompletableFuture.completedFuture(null);
+
+    private final ImportCheckpointDAO checkpointDAO = new ImportCheckpointDAO();
+    private final int chunkBytes;
+    private final int windowBytes;
+
+    public CsvImportService() {
+        this(CHUNK_BYTES, WINDOW_BYTES);
+    }
+
+    // Małe okna i fragmenty w testach - granice wypadają w środku rekordów bez plików po 64 MB
+    CsvImportService(int chunkBytes, int windowBytes) {
+        this.chunkBytes = chunkBytes;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Pod ścieżką przerwanego importu leży inny plik - wznowienie dopisałoby go od środka.
+     * Po {@link #discardCheckpoint} plik importuje się od początku.
+     */
+    public static class StaleCheckpointException extends IOException {
+        public StaleCheckpointException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Importuje transakcje z pliku CSV, wznawiając przerwany wcześniej import tego samego pliku.
+     *
+     * @param progress wywoływany z wątku importu (nie z wątku UI) po każdym zapisanym fragmencie; może być null
+     * @throws StaleCheckpointException gdy plik zmienił się od przerwanego importu
+     * @throws IOException              gdy pliku nie da się przeczytać albo nagłówek jest nieznany
+     */
+    public CsvImportResult importTransactions(Path csv, Consumer<CsvImportProgress> progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Consumer<CsvImportProgress> onProgress = progress != null ? progress : p -> {};
+        Path file = csv.toAbsolutePath().normalize();
+        String source = file.toString();
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        ImportCheckpoint checkpoint = checkpointDAO.find(source);
+        if (checkpoint != null && (checkpoint.fileSize() != size || checkpoint.fileModified() != modified)) {
+            throw new StaleCheckpointException("Plik " + file.getFileName() + " zmienił się od przerwanego importu (linia "
+                    + checkpoint.lineNumber() + ")");
+        }
+        DatabaseService.awaitWrites();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long headerEnd = readHeaderEnd(channel, size);
+            CsvChunkParser parser = CsvChunkParser.fromHeader(readHeader(channel, headerEnd));
+            long offset = checkpoint != null ? checkpoint.byteOffset() : headerEnd;
+            long line = checkpoint != null ? checkpoint.lineNumber() : 2;
+            long imported = checkpoint != null ? checkpoint.rowsImported() : 0;
+            long rejected = checkpoint != null ? checkpoint.rowsRejected() : 0;
+            if (checkpoint != null) {
+                System.out.println("⚠️ Wznawiam import " + file.getFileName() + " od linii " + line);
+            }
+
+            int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            BlockingQueue<Future<ParsedChunk>> queue = new ArrayBlockingQueue<>(2 * parallelism + 2);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            ChunkReader reader = new ChunkReader(channel, offset, size, parser, pool, queue, chunkBytes, windowBytes);
+            Thread readerThread = new Thread(reader, "csv-import-reader");
+            readerThread.setDaemon(true);
+
+            Path rejectsFile = rejectsFile(file);
+            List<CsvImportError> errors = new ArrayList<>();
+            CategoryNormalizer categories = new CategoryNormalizer();
+            BufferedWriter rejects = null;
+            readerThread.start();
+            TransactionBatchWriter writer = new TransactionBatchWriter(Integer.MAX_VALUE, false);
+            try {
+                while (true) {
+                    ParsedChunk chunk = next(queue);
+                    if (chunk == null) break;
+
+                    for (int i = 0; i < chunk.rows().size(); i++) {
+                        Transaction t = chunk.rows().get(i);
+                        t.setCategory(categories.normalize(chunk.rawCategories().get(i)));
+                        writer.add(t);
+                    }
+                    if (!chunk.errors().isEmpty()) {
+                        if (rejects == null) rejects = openRejects(rejectsFile, checkpoint != null);
+                        for (RowError e : chunk.errors()) {
+                            long errorLine = line + e.lineInChunk();
+                            rejects.write(errorLine + ";" + e.message().replace(';', ',') + ";" + e.content());
+                            rejects.newLine();
+                            if (errors.size() < MAX_REPORTED_ERRORS) {
+                                errors.add(new CsvImportError(errorLine, e.message(), e.content()));
+                            }
+                        }
+                        // Odrzucone wiersze na dysk przed commitem - po awarii mogą się najwyżej powtórzyć, nie zginąć
+                        rejects.flush();
+                    }
+
+                    imported += chunk.rows().size();
+                    rejected += chunk.errors().size();
+                    line += chunk.lineCount();
+                    writer.flush(ImportCheckpointDAO.save(new ImportCheckpoint(source, size, modified,
+                            chunk.endOffset(), line, imported, rejected)));
+                    onProgress.accept(new CsvImportProgress(chunk.endOffset(), size, imported, rejected));
+                }
+            } catch (IOException | SQLException | RuntimeException e) {
+                // Niepełny fragment nie może trafić do bazy bez swojego punktu wznowienia
+                writer.discard();
+                throw e;
+            } finally {
+                reader.stop();
+                readerThread.interrupt();
+                pool.shutdownNow();
+                try {
+                    writer.close();
+                } finally {
+                    if (rejects != null) rejects.close();
+                }
+            }
+
+            checkpointDAO.delete(source);
+            boolean anyRejects = rejected > 0 && Files.exists(rejectsFile);
+            CsvImportResult result = new CsvImportResult(imported, rejected, List.copyOf(errors),
+                    anyRejects ? rejectsFile : null, checkpoint != null ? checkpoint.lineNumber() : 0,
+                    System.nanoTime() - start);
+            System.out.println("✅ Import CSV " + file.getFileName() + ": " + result);
+            return result;
+        }
+    }
+
+    /**
+     * Zapomina przerwany import pliku - następny import zacznie go od początku.
+     */
+    public void discardCheckpoint(Path csv) {
+        checkpointDAO.delete(csv.toAbsolutePath().normalize().toString());
+    }
+
+    public static Path rejectsFile(Path csv) {
+        String name = csv.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".odrzucone.csv");
+    }
+
+    // --- ODBIÓR FRAGMENTÓW ---
+
+    // Następny fragment w kolejności pliku albo null na końcu; błąd czytania/parsowania przerywa import
+    private static ParsedChunk next(BlockingQueue<Future<ParsedChunk>> queue) throws IOException {
+        try {
+            Future<ParsedChunk> future = queue.take();
+            return future == END ? null : future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import przerwany");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Błąd parsowania CSV", cause);
+        }
+    }
+
+    private static BufferedWriter openRejects(Path file, boolean resumed) throws IOException {
+        boolean append = resumed && Files.exists(file);
+        BufferedWriter out = Files.newBufferedWriter(file, UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        if (!append) {
+            out.write("Linia;Błąd;Treść");
+            out.newLine();
+        }
+        return out;
+    }
+
+    // --- NAGŁÓWEK ---
+
+    // Pozycja pierwszego bajtu za linią nagłówka
+    private static long readHeaderEnd(FileChannel channel, long size) throws IOException {
+        if (size == 0) throw new IOException("Plik CSV jest pusty");
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(size, MAX_HEADER_BYTES));
+        channel.read(buf, 0);
+        for (int i = 0; i < buf.position(); i++) {
+            if (buf.get(i) == '\n') return i + 1;
+        }
+        if (size <= MAX_HEADER_BYTES) return size; // sam nagłówek, bez danych
+        throw new IOException("Nie znaleziono końca nagłówka CSV w pierwszych " + MAX_HEADER_BYTES / 1024 + " KB");
+    }
+
+    private static String readHeader(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) headerEnd);
+        channel.read(buf, 0);
+        String header = new String(buf.array(), 0, buf.position(), UTF_8);
+        return header.strip();
+    }
+
+    // --- CZYTANIE I PARSOWANIE ---
+
+    /**
+     * Mapuje plik oknami i tnie je na fragmenty zakończone końcem rekordu. Każdy fragment od razu idzie do puli,
+     * a jego Future - do kolejki; pełna kolejka wstrzymuje czytanie.
+     */
+    private static final class ChunkReader implements Runnable {
+
+        private final FileChannel channel;
+        private final long from;
+        private final long size;
+        private final CsvChunkParser parser;
+        private final ForkJoinPool pool;
+        private final BlockingQueue<Future<ParsedChunk>> queue;
+        private final int chunkBytes;
+        private final int windowBytes;
+        private volatile boolean stopped;
+
+        ChunkReader(FileChannel channel, long from, long size, CsvChunkParser parser, ForkJoinPool pool,
+                    BlockingQueue<Future<ParsedChunk>> queue, int chunkBytes, int windowBytes) {
+            this.channel = channel;
+            this.from = from;
+            this.size = size;
+            this.parser = parser;
+            this.pool = pool;
+            this.queue = queue;
+            this.chunkBytes = chunkBytes;
+            this.windowBytes = windowBytes;
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                readChunks();
+                put(END);
+            } catch (Exception e) {
+                if (!stopped) put(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        private void readChunks() throws IOException {
+            int index = 0;
+            long windowStart = from;
+            while (windowStart < size && !stopped) {
+                long windowLength = Math.min(windowBytes, size - windowStart);
+                boolean last = windowStart + windowLength == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                int length = (int) windowLength;
+                int position = 0;
+                while (position < length && !stopped) {
+                    int end = chunkEnd(window, position, length, last);
+                    if (end < 0) break; // niepełny rekord na końcu okna - dalej od niego w następnym oknie
+                    Chunk chunk = new Chunk(index++, windowStart + position, window.slice(position, end - position));
+                    put(pool.submit(() -> parser.parse(chunk)));
+                    position = end;
+                }
+                if (position == 0 && !stopped) {
+                    throw new IOException("Rekord dłuższy niż " + windowBytes / 1024 + " KB (bajt " + windowStart
+                            + ") - niezamknięty cudzysłów?");
+                }
+                windowStart += position;
+            }
+        }
+
+        /**
+         * Koniec fragmentu zaczynającego się w position: za pierwszym końcem rekordu po chunkBytes, -1 gdy trzeba
+         * następnego okna. Cudzysłowy trzeba śledzić od początku fragmentu, więc przeglądamy każdy bajt.
+         */
+        private int chunkEnd(ByteBuffer window, int position, int length, boolean last) {
+            int target = (int) Math.min((long) position + chunkBytes, length);
+            CsvChunkParser.RecordScanner scanner = parser.recordScanner();
+            for (int i = position; i < length; i++) {
+                if (scanner.next(window.get(i)) && i + 1 >= target) return i + 1;
+            }
+            return last ? length : -1;
+        }
+
+        private void put(Future<ParsedChunk> future) {
+            try {
+                while (!stopped && !queue.offer(future, 100, TimeUnit.MILLISECONDS)) {
+                    // czekamy, aż zapis odbierze fragment
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
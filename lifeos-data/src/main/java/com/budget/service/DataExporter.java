@@ -1,45 +1,81 @@
 package com.budget.service;
 
+import com.budget.dao.TransactionDAO;
+import com.budget.dao.TransactionFilter;
 import com.budget.model.Transaction;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 public class DataExporter {
 
     public void exportTransactionsToCSV(List<Transaction> transactions, Stage stage) {
+        File file = chooseCsvFile(stage);
+        if (file == null) return;
+
+        try (PrintWriter writer = openCsv(file)) {
+            for (Transaction t : transactions) {
+                writeRow(writer, t);
+            }
+            System.out.println("Eksport zakończony sukcesem: " + file.getAbsolutePath());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Eksport prosto z bazy - wiersze czytane kursorem i od razu zapisywane do pliku,
+     * więc pamięć nie rośnie z liczbą transakcji.
+     */
+    public void exportTransactionsToCSV(TransactionDAO dao, LocalDate from, LocalDate toExclusive,
+                                        TransactionFilter filter, Stage stage) {
+        File file = chooseCsvFile(stage);
+        if (file == null) return;
+
+        try (PrintWriter writer = openCsv(file)) {
+            dao.forEachTransaction(from, toExclusive, filter, TransactionDAO.DEFAULT_FETCH_SIZE, true,
+                    t -> writeRow(writer, t));
+            System.out.println("Eksport zakończony sukcesem: " + file.getAbsolutePath());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private File chooseCsvFile(Stage stage) {
         // Okno wyboru gdzie zapisać plik
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Zapisz raport finansowy");
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Pliki CSV (*.csv)", "*.csv"));
         fileChooser.setInitialFileName("finanse_raport.csv");
+        return fileChooser.showSaveDialog(stage);
+    }
 
-        File file = fileChooser.showSaveDialog(stage);
+    private static PrintWriter openCsv(File file) throws Exception {
+        PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024));
+        // Nagłówek Excela
+        writer.println("ID;Data;Typ;Kategoria;Opis;Kwota");
+        return writer;
+    }
 
-        if (file != null) {
-            try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
-                // Nagłówek Excela
-                writer.println("ID;Data;Typ;Kategoria;Opis;Kwota");
-
-                // Dane
-                for (Transaction t : transactions) {
-                    writer.printf("%d;%s;%s;%s;%s;%.2f%n",
-                            t.getId(),
-                            t.getDate(),
-                            t.getType(),
-                            t.getCategory(),
-                            t.getDescription(),
-                            t.getAmount());
-                }
-                System.out.println("Eksport zakończony sukcesem: " + file.getAbsolutePath());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    private static void writeRow(PrintWriter writer, Transaction t) {
+        writer.printf("%d;%s;%s;%s;%s;%.2f%n",
+                t.getId(),
+                t.getDate(),
+                t.getType(),
+                t.getCategory(),
+                t.getDescription(),
+                t.getAmount());
     }
+
     public void exportHtmlReport(String htmlContent, String defaultFileName, Stage stage) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Zapisz Raport Finansowy");
@@ -2,21 +2,62 @@ package com.budget.service;
 
 import com.budget.dao.PurseDAO;
 import com.budget.db.DatabaseService;
+import com.budget.db.QueryCache;
+import com.budget.model.Money;
 import com.budget.modules.finance.domain.Purse;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PurseService {
 
+    // Konflikt blokad (timeout, zakleszczenie) ponawiamy kilka razy z rosnącym, losowym odstępem
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MS = 4;
+
+    // Kody H2: zakleszczenie (SQLState 40001), przekroczony czas oczekiwania na blokadę, równoległa zmiana wiersza
+    private static final String SQLSTATE_DEADLOCK = "40001";
+    private static final int H2_LOCK_TIMEOUT = 50200;
+    private static final int H2_CONCURRENT_UPDATE = 90131;
+
+    // Licznik ponowień (konfliktów blokad) - zamiast wypisywania każdego na stderr
+    private static final AtomicLong retries = new AtomicLong();
+
     private final PurseDAO purseDAO = new PurseDAO();
 
     /**
      * Bezpieczny transfer środków między portfelami (Atomic Transaction).
      */
     public void transferFunds(int fromId, int toId, double amount, String reason) throws Exception {
-        if (amount <= 0) throw new IllegalArgumentException("Kwota musi być dodatnia");
+        transferFundsMinor(fromId, toId, Money.fromDouble(amount), reason);
+    }
+
+    /**
+     * Transfer w groszach. Oba portfele są blokowane (FOR UPDATE) na czas transakcji, więc równoległe transfery
+     * nie gubią swoich zmian; konflikt blokad jest ponawiany do {@link #MAX_ATTEMPTS} razy, błędy biznesowe - nie.
+     */
+    public void transferFundsMinor(int fromId, int toId, long amountMinor, String reason) throws Exception {
+        if (amountMinor <= 0) throw new IllegalArgumentException("Kwota musi być dodatnia");
+        if (fromId == toId) throw new IllegalArgumentException("Portfel źródłowy i docelowy muszą być różne");
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transferOnce(fromId, toId, amountMinor, reason);
+                return;
+            } catch (SQLException e) {
+                if (!isLockConflict(e) || attempt >= MAX_ATTEMPTS) throw e;
+                retries.incrementAndGet();
+                if (DatabaseService.isDebugStats()) {
+                    System.err.printf("⚠️ Konflikt blokad przy transferze (próba %d/%d): %s%n", attempt, MAX_ATTEMPTS, e.getMessage());
+                }
+                backoff(attempt, e);
+            }
+        }
+    }
 
+    private void transferOnce(int fromId, int toId, long amountMinor, String reason) throws Exception {
         // Otwieramy połączenie, ale NIE zamykamy go w try-with-resources od razu,
         // musimy mieć kontrolę nad commit/rollback.
         Connection conn = null;
@@ -25,40 +66,38 @@ public class PurseService {
             conn = DatabaseService.connect();
             conn.setAutoCommit(false); // START TRANSAKCJI
 
-            // 1. Pobierz stan portfeli
-            Purse fromPurse = purseDAO.getPurseById(conn, fromId);
-            Purse toPurse = purseDAO.getPurseById(conn, toId);
+            // 1. Pobierz i zablokuj portfele - zawsze rosnąco po ID, żeby transfery A->B i B->A nie zakleszczyły się
+            Purse first = purseDAO.getPurseForUpdate(conn, Math.min(fromId, toId));
+            Purse second = purseDAO.getPurseForUpdate(conn, Math.max(fromId, toId));
+            Purse fromPurse = fromId < toId ? first : second;
+            Purse toPurse = fromId < toId ? second : first;
 
             if (fromPurse == null || toPurse == null) throw new Exception("Nie znaleziono portfela.");
 
-            // 2. Walidacja biznesowa
-            if (fromPurse.getAllocatedAmount() < amount) {
+            // 2. Walidacja biznesowa (na zablokowanym, aktualnym stanie)
+            if (fromPurse.getAllocatedMinor() < amountMinor) {
                 throw new Exception("Niewystarczające środki w portfelu źródłowym: " + fromPurse.getName());
             }
             if (fromPurse.isLocked() && !"BREAK_GLASS".equals(reason)) {
                 throw new Exception("Portfel źródłowy jest ZABLOKOWANY. Wymagana procedura awaryjna.");
             }
 
-            // 3. Obliczenia
-            double newFromAmount = fromPurse.getAllocatedAmount() - amount;
-            double newToAmount = toPurse.getAllocatedAmount() + amount;
-
-            // 4. Zapis zmian (Wszystko na tym samym conn!)
-            purseDAO.updatePurseAllocation(conn, fromId, newFromAmount);
-            purseDAO.updatePurseAllocation(conn, toId, newToAmount);
+            // 3. Zapis zmian jako delty (Wszystko na tym samym conn!)
+            purseDAO.addToPurseAllocation(conn, fromId, -amountMinor);
+            purseDAO.addToPurseAllocation(conn, toId, amountMinor);
 
-            // 5. Logowanie operacji
-            purseDAO.logAudit(conn, fromId, "TRANSFER_OUT", amount, "Do: " + toPurse.getName() + " | " + reason);
-            purseDAO.logAudit(conn, toId, "TRANSFER_IN", amount, "Od: " + fromPurse.getName() + " | " + reason);
+            // 4. Logowanie operacji
+            purseDAO.logAudit(conn, fromId, "TRANSFER_OUT", amountMinor, "Do: " + toPurse.getName() + " | " + reason);
+            purseDAO.logAudit(conn, toId, "TRANSFER_IN", amountMinor, "Od: " + fromPurse.getName() + " | " + reason);
 
-            conn.commit(); // ZATWIERDZENIE ZMIAN
-            System.out.println("✅ Transfer zakończony sukcesem.");
+            DatabaseService.commit(conn); // ZATWIERDZENIE ZMIAN (razem z wpisem do dziennika zmian)
+            QueryCache.invalidate("purses");
 
         } catch (Exception e) {
             if (conn != null) {
                 try {
-                    conn.rollback(); // COFNIĘCIE ZMIAN W RAZIE BŁĘDU
-                    System.err.println("⚠️ Transakcja wycofana: " + e.getMessage());
+                    DatabaseService.rollback(conn); // COFNIĘCIE ZMIAN W RAZIE BŁĘDU
+                    if (DatabaseService.isDebugStats()) System.err.println("⚠️ Transakcja wycofana: " + e.getMessage());
                 } catch (SQLException rollbackEx) {
                     rollbackEx.printStackTrace();
                 }
@@ -70,4 +109,28 @@ public class PurseService {
             }
         }
     }
-}
\ No newline at end of file
+
+    // --- PONAWIANIE ---
+
+    /** Liczba ponowionych prób transferu od startu aplikacji. */
+    public static long getRetryCount() {
+        return retries.get();
+    }
+
+    private static boolean isLockConflict(SQLException e) {
+        return SQLSTATE_DEADLOCK.equals(e.getSQLState())
+                || e.getErrorCode() == H2_LOCK_TIMEOUT
+                || e.getErrorCode() == H2_CONCURRENT_UPDATE;
+    }
+
+    // Wykładniczo rosnące okno z losowym punktem - ponawiający nie trafiają znowu w tę samą chwilę
+    private static void backoff(int attempt, SQLException cause) throws SQLException {
+        long window = BASE_BACKOFF_MS << (attempt - 1);
+        try {
+            Thread.sleep(1 + ThreadLocalRandom.current().nextLong(window));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
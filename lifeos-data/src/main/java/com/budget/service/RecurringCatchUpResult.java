@@ -0,0 +1,19 @@
+package com.budget.service;
+
+import java.time.LocalDate;
+
+/**
+ * Wynik jednego nadrabiania reguł cyklicznych.
+ *
+ * @param created wystąpienia zapisane teraz jako transakcje
+ * @param skipped wystąpienia, które miały już klucz w bazie (zapisane wcześniej, np. przez drugi proces)
+ * @param nextDue najbliższe przyszłe wystąpienie którejkolwiek reguły albo null, gdy żadnego nie ma
+ */
+public record RecurringCatchUpResult(int rules, int created, int skipped, LocalDate nextDue, long elapsedNanos) {
+
+    @Override
+    public String toString() {
+        return String.format("%d reguł, zapisano %d wystąpień, pominięto %d, następne: %s (%.0f ms)",
+                rules, created, skipped, nextDue != null ? nextDue : "brak", elapsedNanos / 1_000_000.0);
+    }
+}
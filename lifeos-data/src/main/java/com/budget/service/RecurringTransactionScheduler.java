@@ -0,0 +1,208 @@
+package com.budget.service;
+
+import com.budget.dao.RecurringOccurrence;
+import com.budget.dao.RecurringTransactionDAO;
+import com.budget.dao.TransactionBatchWriter;
+import com.budget.db.DatabaseService;
+import com.budget.model.RecurringTransaction;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Zapisuje wystąpienia reguł cyklicznych ({@code recurring_transactions}) jako zwykłe transakcje.
+ * <ul>
+ *   <li>Przy starcie nadrabia wszystko, co wypadło od ostatniego uruchomienia (także po miesiącach przerwy) -
+ *       jedną paczką {@link TransactionBatchWriter}, czyli jednym commitem razem z kluczami wystąpień i pozycjami reguł.</li>
+ *   <li>Każde wystąpienie ma klucz reguła:dzień w {@code recurring_occurrences}; istniejące klucze są pomijane,
+ *       więc powtórne nadrabianie (albo drugi proces) nie podwaja transakcji.</li>
+ *   <li>Między nadrabianiami wątek śpi do północy dnia najbliższego wystąpienia, zamiast sprawdzać reguły co chwilę.
+ *       Zmiana reguł przez {@link #addRule}/{@link #setActive} budzi go od razu - po zatwierdzeniu zapisu.</li>
+ * </ul>
+ * Użycie: {@link #start()} przy starcie aplikacji, {@link #close()} przed {@code DatabaseService.shutdown()}.
+ */
+public class RecurringTransactionScheduler implements AutoCloseable {
+
+    // Czas snu liczy zegar monotoniczny, który stoi, gdy komputer jest uśpiony - dłużej nie śpimy, żeby po wybudzeniu nadrobić
+    private static final Duration MAX_SLEEP = Duration.ofHours(6);
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final RecurringTransactionDAO dao = new RecurringTransactionDAO();
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    private boolean wakeRequested;
+    private boolean closed;
+    private Thread worker;
+
+    public RecurringTransactionScheduler() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public RecurringTransactionScheduler(Clock clock) {
+        this.clock = clock;
+    }
+
+    // --- REGUŁY ---
+
+    public List<RecurringTransaction> getActiveRules() {
+        return dao.getActiveRules();
+    }
+
+    public void addRule(RecurringTransaction rule) {
+        if (rule.getPattern() == null) throw new IllegalArgumentException("Reguła cykliczna wymaga częstotliwości");
+        if (rule.getAmountMinor() <= 0) throw new IllegalArgumentException("Kwota musi być dodatnia");
+        dao.addRule(rule);
+        // Przy zapisie odroczonym reguła mogłaby jeszcze nie być w bazie, gdy obudzony wątek ją czyta
+        DatabaseService.awaitWrites();
+        wakeUp();
+    }
+
+    public void setActive(int ruleId, boolean active) {
+        dao.setActive(ruleId, active);
+        DatabaseService.awaitWrites();
+        wakeUp();
+    }
+
+    // --- NADRABIANIE ---
+
+    public RecurringCatchUpResult catchUp() throws SQLException {
+        return catchUp(LocalDate.now(clock));
+    }
+
+    /**
+     * Zapisuje wszystkie wystąpienia aktywnych reguł do {@code today} włącznie, których jeszcze nie ma.
+     * Przy błędzie (np. wystąpienie zapisane równolegle przez drugi proces) paczka jest wycofywana w całości -
+     * następne wywołanie zobaczy zapisane już klucze i dopisze resztę.
+     */
+    public synchronized RecurringCatchUpResult catchUp(LocalDate today) throws SQLException {
+        long start = System.nanoTime();
+        List<RecurringTransaction> rules = dao.getActiveRules();
+        List<RecurringOccurrence> due = new ArrayList<>();
+        Map<Integer, LocalDate> cursors = new HashMap<>();
+        int skipped = 0;
+        LocalDate nextDue = null;
+
+        for (RecurringTransaction rule : rules) {
+            LocalDate next = rule.nextDue();
+            if (next != null && !next.isAfter(today)) {
+                Set<LocalDate> existing = dao.findOccurrenceDates(rule.getId(), rule.getMaterializedThrough());
+                for (LocalDate day = next; !day.isAfter(today); day = rule.nextOccurrence(day)) {
+                    if (existing.contains(day)) skipped++;
+                    else due.add(new RecurringOccurrence(rule.getId(), day, rule.toTransaction(day)));
+                }
+                cursors.put(rule.getId(), today);
+                next = rule.nextOccurrence(today);
+            }
+            if (next != null && (nextDue == null || next.isBefore(nextDue))) nextDue = next;
+        }
+
+        if (!cursors.isEmpty()) {
+            try (TransactionBatchWriter writer = new TransactionBatchWriter(Integer.MAX_VALUE, true)) {
+                for (RecurringOccurrence o : due) {
+                    writer.add(o.transaction());
+                }
+                writer.flush(RecurringTransactionDAO.saveOccurrences(due, cursors));
+            }
+        }
+        return new RecurringCatchUpResult(rules.size(), due.size(), skipped, nextDue, System.nanoTime() - start);
+    }
+
+    // --- WĄTEK ---
+
+    public void start() {
+        lock.lock();
+        try {
+            if (worker != null || closed) return;
+            worker = new Thread(this::run, "lifeos-recurring");
+            worker.setDaemon(true);
+            worker.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Budzi wątek, żeby od razu przeliczył reguły (np. po dodaniu reguły z datą startu w przeszłości).
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            wakeRequested = true;
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Duration sleep;
+            try {
+                RecurringCatchUpResult result = catchUp();
+                if (result.created() > 0) System.out.println("✅ Transakcje cykliczne: " + result);
+                sleep = untilStartOf(result.nextDue());
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("⚠️ Zapis transakcji cyklicznych nie powiódł się: " + e.getMessage());
+                sleep = RETRY_DELAY;
+            }
+            if (!await(sleep)) return;
+        }
+    }
+
+    private Duration untilStartOf(LocalDate day) {
+        if (day == null) return MAX_SLEEP;
+        Duration left = Duration.between(clock.instant(), day.atStartOfDay(clock.getZone()).toInstant());
+        if (left.isNegative()) return Duration.ZERO;
+        return left.compareTo(MAX_SLEEP) > 0 ? MAX_SLEEP : left;
+    }
+
+    // Czeka podany czas albo do wakeUp(); false = harmonogram zamknięty
+    private boolean await(Duration sleep) {
+        lock.lock();
+        try {
+            long nanos = sleep.toNanos();
+            while (!closed && !wakeRequested && nanos > 0) {
+                nanos = wakeUp.awaitNanos(nanos);
+            }
+            wakeRequested = false;
+            return !closed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread toJoin;
+        lock.lock();
+        try {
+            closed = true;
+            wakeUp.signal();
+            toJoin = worker;
+        } finally {
+            lock.unlock();
+        }
+        if (toJoin == null) return;
+        try {
+            // Trwające nadrabianie kończy się commitem albo wycofaniem - czekamy na nie przed zamknięciem puli
+            toJoin.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
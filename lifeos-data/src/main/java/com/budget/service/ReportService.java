@@ -1,32 +1,39 @@
 package com.budget.service;
 
+import com.budget.dao.CategoryRollupDAO;
 import com.budget.dao.PurseDAO;
 import com.budget.dao.TransactionDAO;
+import com.budget.model.Money;
 import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
 import com.budget.modules.finance.domain.Purse;
 
 import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class ReportService {
 
     private final TransactionDAO transactionDAO = new TransactionDAO();
     private final PurseDAO purseDAO = new PurseDAO();
+    private final CategoryRollupDAO rollupDAO = new CategoryRollupDAO();
 
     // Główna metoda generująca treść HTML
     public String generateMonthlyReportHtml(YearMonth month) {
         // 1. POBIERANIE DANYCH
         List<Transaction> transactions = transactionDAO.getTransactionsForMonth(month.getYear(), month.getMonthValue());
         List<Purse> purses = purseDAO.getAllPurses();
+        // Sumy z tabeli monthly_category_totals - kilkadziesiąt wierszy zamiast grupowania transakcji
+        // Kwoty w groszach - sumy dokładne, formatowane dopiero przy wypisywaniu
+        Map<String, Long> incomeByCategory = rollupDAO.getCategoryTotalsMinor(month, TransactionType.INCOME);
+        Map<String, Long> expenseByCategory = rollupDAO.getCategoryTotalsMinor(month, TransactionType.EXPENSE);
 
-        double totalIncome = transactions.stream().filter(t -> "PRZYCHÓD".equals(t.getType())).mapToDouble(Transaction::getAmount).sum();
-        double totalExpense = transactions.stream().filter(t -> "WYDATEK".equals(t.getType())).mapToDouble(Transaction::getAmount).sum();
-        double savings = totalIncome - totalExpense;
-        double savingsRate = (totalIncome > 0) ? (savings / totalIncome) * 100 : 0;
+        long totalIncome = sum(incomeByCategory);
+        long totalExpense = sum(expenseByCategory);
+        long savings = totalIncome - totalExpense;
+        double savingsRate = (totalIncome > 0) ? Money.percent(savings, totalIncome) : 0;
 
         // 2. ANALIZA ANOMALII (AI INSIGHTS)
-        List<String> insights = detectAnomalies(month, transactions);
+        List<String> insights = detectAnomalies(expenseByCategory, totalIncome, totalExpense);
 
         // 3. BUDOWANIE HTML
         StringBuilder html = new StringBuilder();
@@ -49,15 +56,15 @@ public class ReportService {
         // KPI
         html.append("""
             <div class='kpi-box'>
-                <div class='kpi'><h3>Przychody</h3><p class='positive'>+%.2f PLN</p></div>
-                <div class='kpi'><h3>Wydatki</h3><p class='negative'>-%.2f PLN</p></div>
-                <div class='kpi'><h3>Oszczędności</h3><p style='color: %s'>%.2f PLN</p></div>
+                <div class='kpi'><h3>Przychody</h3><p class='positive'>+%s PLN</p></div>
+                <div class='kpi'><h3>Wydatki</h3><p class='negative'>-%s PLN</p></div>
+                <div class='kpi'><h3>Oszczędności</h3><p style='color: %s'>%s PLN</p></div>
                 <div class='kpi'><h3>Savings Rate</h3><p>%.1f%%</p></div>
             </div>
             """.formatted(
-                totalIncome,
-                totalExpense,
-                savings >= 0 ? "#28a745" : "#dc3545", savings,
+                Money.format(totalIncome),
+                Money.format(totalExpense),
+                savings >= 0 ? "#28a745" : "#dc3545", Money.format(savings),
                 savingsRate));
 
         // AI INSIGHTS
@@ -72,8 +79,9 @@ public class ReportService {
         html.append("<div class='section-title'>💳 Status Portfeli (Purses)</div>");
         html.append("<table><tr><th>Portfel</th><th>Typ</th><th>Alokacja</th><th>Wydano</th><th>Dostępne</th></tr>");
         for (Purse p : purses) {
-            html.append("<tr><td>%s</td><td>%s</td><td>%.2f</td><td>%.2f</td><td><b>%.2f</b></td></tr>"
-                    .formatted(p.getName(), p.getType(), p.getAllocatedAmount(), p.getSpentAmount(), p.getAvailable()));
+            html.append("<tr><td>%s</td><td>%s</td><td>%s</td><td>%s</td><td><b>%s</b></td></tr>"
+                    .formatted(p.getName(), p.getType(), Money.format(p.getAllocatedMinor()), Money.format(p.getSpentMinor()),
+                            Money.format(p.getAvailableMinor())));
         }
         html.append("</table>");
 
@@ -81,10 +89,10 @@ public class ReportService {
         html.append("<div class='section-title'>📄 Szczegółowy Wykaz Transakcji</div>");
         html.append("<table><tr><th>Data</th><th>Kategoria</th><th>Opis</th><th>Kwota</th><th>Typ</th></tr>");
         for (Transaction t : transactions) {
-            html.append("<tr><td>%s</td><td>%s</td><td>%s</td><td class='%s'>%.2f</td><td>%s</td></tr>"
+            html.append("<tr><td>%s</td><td>%s</td><td>%s</td><td class='%s'>%s</td><td>%s</td></tr>"
                     .formatted(t.getDate(), t.getCategory(), t.getDescription(),
-                            t.getType().equals("PRZYCHÓD") ? "positive" : "negative",
-                            t.getAmount(), t.getType()));
+                            t.getType() == TransactionType.INCOME ? "positive" : "negative",
+                            Money.format(t.getAmountMinor()), t.getType()));
         }
         html.append("</table>");
 
@@ -95,25 +103,19 @@ public class ReportService {
     }
 
     // Prosta logika wykrywania anomalii (porównanie z poprzednim miesiącem by było lepsze, tu uproszczone)
-    private List<String> detectAnomalies(YearMonth currentMonth, List<Transaction> transactions) {
+    private List<String> detectAnomalies(Map<String, Long> categorySpend, long income, long expense) {
         List<String> tips = new ArrayList<>();
 
         // 1. Analiza kategorii wydatków
-        Map<String, Double> categorySpend = transactions.stream()
-                .filter(t -> "WYDATEK".equals(t.getType()))
-                .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
 
         // Sprawdzamy czy jakaś kategoria przekracza np. 1000 zł (prosty próg na start)
-        for (Map.Entry<String, Double> entry : categorySpend.entrySet()) {
-            if (entry.getValue() > 1000) {
-                tips.add("⚠️ <b>Wysokie wydatki:</b> Kategoria '" + entry.getKey() + "' pochłonęła aż " + String.format("%.2f", entry.getValue()) + " PLN w tym miesiącu.");
+        for (Map.Entry<String, Long> entry : categorySpend.entrySet()) {
+            if (entry.getValue() > 1000 * Money.MINOR_PER_UNIT) {
+                tips.add("⚠️ <b>Wysokie wydatki:</b> Kategoria '" + entry.getKey() + "' pochłonęła aż " + Money.format(entry.getValue()) + " PLN w tym miesiącu.");
             }
         }
 
         // 2. Savings Rate check
-        double income = transactions.stream().filter(t -> "PRZYCHÓD".equals(t.getType())).mapToDouble(Transaction::getAmount).sum();
-        double expense = transactions.stream().filter(t -> "WYDATEK".equals(t.getType())).mapToDouble(Transaction::getAmount).sum();
-
         if (income > 0 && (income - expense) < 0) {
             tips.add("🚨 <b>Burn Rate Alert:</b> Wydajesz więcej niż zarabiasz! Bilans ujemny.");
         }
@@ -123,4 +125,10 @@ public class ReportService {
         }
         return tips;
     }
+
+    private static long sum(Map<String, Long> totals) {
+        long total = 0;
+        for (long v : totals.values()) total += v;
+        return total;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.budget.service;
+
+import java.nio.file.Path;
+
+/**
+ * Wynik {@link BackupService#restore}: pełna kopia i liczba nałożonych na nią kopii przyrostowych.
+ */
+public record RestoreResult(Path fullBackup, int increments, long changesReplayed, long elapsedNanos) {
+
+    @Override
+    public String toString() {
+        return String.format("%s + %d kopii przyrostowych (%d zmian), %.1f s",
+                fullBackup.getFileName(), increments, changesReplayed, elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,19 @@
+package com.budget.service;
+
+import com.budget.db.search.SearchKind;
+
+/**
+ * Wynik wyszukiwania gotowy do wyświetlenia: tytuł (opis, nazwa zadania/celu) i linia szczegółów.
+ */
+public record SearchResult(SearchKind kind, long id, String title, String detail, double score) {
+
+    @Override
+    public String toString() {
+        String icon = switch (kind) {
+            case TRANSACTION -> "💳";
+            case TASK -> "✅";
+            case GOAL -> "🎯";
+        };
+        return icon + " " + title + (detail.isEmpty() ? "" : " — " + detail);
+    }
+}
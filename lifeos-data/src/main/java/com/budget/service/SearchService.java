@@ -0,0 +1,90 @@
+package com.budget.service;
+
+import com.budget.dao.CategoryDAO;
+import com.budget.db.DatabaseService;
+import com.budget.db.search.SearchHit;
+import com.budget.db.search.SearchKind;
+import com.budget.model.Money;
+import com.budget.model.TransactionType;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wyszukiwanie dla palety komend: ranking z {@link com.budget.db.search.SearchIndex}, a treść do wyświetlenia
+ * dociągana z bazy tylko dla zwróconych trafień (jedno zapytanie po kluczach na rodzaj dokumentu).
+ */
+public class SearchService {
+
+    public static final int DEFAULT_LIMIT = 8;
+
+    private final CategoryDAO categories = new CategoryDAO();
+
+    public List<SearchResult> search(String query, int limit) {
+        List<SearchHit> hits = DatabaseService.getSearchIndex().search(query, limit);
+        if (hits.isEmpty()) return List.of();
+
+        Map<SearchKind, List<Long>> idsByKind = new EnumMap<>(SearchKind.class);
+        for (SearchHit hit : hits) {
+            idsByKind.computeIfAbsent(hit.kind(), k -> new ArrayList<>()).add(hit.id());
+        }
+        Map<SearchKind, Map<Long, String[]>> rows = new EnumMap<>(SearchKind.class);
+        try (Connection conn = DatabaseService.connect()) {
+            for (Map.Entry<SearchKind, List<Long>> entry : idsByKind.entrySet()) {
+                rows.put(entry.getKey(), load(conn, entry.getKey(), entry.getValue()));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return List.of();
+        }
+
+        // Kolejność rankingu; wiersze usunięte po zbudowaniu listy trafień pomijamy
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            String[] row = rows.get(hit.kind()).get(hit.id());
+            if (row != null) results.add(new SearchResult(hit.kind(), hit.id(), row[0], row[1], hit.score()));
+        }
+        return results;
+    }
+
+    private Map<Long, String[]> load(Connection conn, SearchKind kind, List<Long> ids) throws SQLException {
+        String sql = switch (kind) {
+            case TRANSACTION -> "SELECT id, description, category_id, type, amount_minor, date FROM transactions";
+            case TASK -> "SELECT id, title, is_done, due_date FROM tasks";
+            case GOAL -> "SELECT id, name, current_amount_minor, target_amount_minor FROM goals";
+        } + " WHERE id IN (" + "?, ".repeat(ids.size() - 1) + "?)";
+
+        Map<Long, String[]> rows = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) pstmt.setLong(i + 1, ids.get(i));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) rows.put(rs.getLong("id"), describe(kind, rs));
+            }
+        }
+        return rows;
+    }
+
+    private String[] describe(SearchKind kind, ResultSet rs) throws SQLException {
+        return switch (kind) {
+            case TRANSACTION -> {
+                String description = rs.getString("description");
+                String category = categories.getById(rs.getInt("category_id")).getName();
+                long amount = rs.getLong("amount_minor");
+                String sign = rs.getInt("type") == TransactionType.EXPENSE.getCode() ? "-" : "+";
+                String title = description == null || description.isBlank() ? category : description;
+                yield new String[]{title, rs.getDate("date") + " · " + category + " · " + sign + Money.formatPln(amount)};
+            }
+            case TASK -> {
+                Date due = rs.getDate("due_date");
+                String status = rs.getBoolean("is_done") ? "zrobione" : "do zrobienia";
+                yield new String[]{rs.getString("title"), due != null ? status + " · termin " + due : status};
+            }
+            case GOAL -> new String[]{rs.getString("name"),
+                    Money.formatPln(rs.getLong("current_amount_minor")) + " / " + Money.formatPln(rs.getLong("target_amount_minor"))};
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.budget.bench;
+
+import com.budget.db.DatabaseService;
+import com.budget.service.PurseService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Przepustowość równoległych transferów między portfelami ({@link PurseService#transferFundsMinor}) na prawdziwej bazie H2.
+ * Mało portfeli = dużo konfliktów blokad, więc widać koszt ponawiania. Na końcu sprawdza, że suma środków się nie zmieniła.
+ * Zwykła klasa z main - uruchamiać na osobnym katalogu domowym, bo zakłada własne portfele:
+ * <pre>
+ * mvn -pl lifeos-core,lifeos-data install -DskipTests &amp;&amp; mvn -pl lifeos-data test-compile
+ * java -Duser.home=/tmp/lifeos-bench -cp lifeos-data/target/classes:lifeos-data/target/test-classes:lifeos-core/target/classes:&lt;h2.jar&gt; \
+ *      com.budget.bench.PurseTransferBenchmark [wątki] [transfery na wątek] [portfele]
+ * </pre>
+ */
+public class PurseTransferBenchmark {
+
+    private static final long START_BALANCE_MINOR = 1_000_000_00L;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int transfersPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int purseCount = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        DatabaseService.initDatabase();
+        List<Integer> purses = createPurses(purseCount);
+        long totalBefore = totalAllocated(purses);
+
+        PurseService service = new PurseService();
+        AtomicLong failed = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers.add(pool.submit(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = purses.get(random.nextInt(purseCount));
+                    int to = purses.get(random.nextInt(purseCount));
+                    if (from == to) to = purses.get((purses.indexOf(from) + 1) % purseCount);
+                    try {
+                        service.transferFundsMinor(from, to, 1 + random.nextInt(10_000), "bench");
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) worker.get();
+        long elapsedNs = System.nanoTime() - start;
+        pool.shutdown();
+
+        long transfers = (long) threads * transfersPerThread;
+        long totalAfter = totalAllocated(purses);
+        System.out.printf("%d wątków x %d transferów na %d portfelach: %.0f ms, %.0f transferów/s, nieudane %d, suma %s%n",
+                threads, transfersPerThread, purseCount, elapsedNs / 1e6, transfers / (elapsedNs / 1e9), failed.get(),
+                totalBefore == totalAfter ? "bez zmian" : "ZMIENIONA: " + totalBefore + " -> " + totalAfter);
+
+        deletePurses(purses);
+        DatabaseService.shutdown();
+    }
+
+    private static List<Integer> createPurses(int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO purses (name, type, allocated_minor) VALUES (?, 'FLEXIBLE', ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < count; i++) {
+                pstmt.setString(1, "bench " + i);
+                pstmt.setLong(2, START_BALANCE_MINOR);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    keys.next();
+                    ids.add(keys.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static long totalAllocated(List<Integer> purses) throws SQLException {
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(SUM(allocated_minor), 0) FROM purses WHERE id IN ("
+                     + String.join(",", purses.stream().map(String::valueOf).toList()) + ")")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void deletePurses(List<Integer> purses) throws SQLException {
+        String ids = String.join(",", purses.stream().map(String::valueOf).toList());
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM purse_audit_log WHERE purse_id IN (" + ids + ")");
+            stmt.execute("DELETE FROM purses WHERE id IN (" + ids + ")");
+        }
+    }
+}
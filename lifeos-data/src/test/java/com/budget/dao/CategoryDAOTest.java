@@ -0,0 +1,58 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.model.Category;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CategoryDAOTest {
+
+    @Test
+    void missingKeysAreLoadedOneByOne() throws SQLException {
+        DatabaseService.initDatabase();
+        CategoryDAO dao = new CategoryDAO();
+        dao.getAllCategories();
+        int loads = CategoryDAO.fullLoads();
+        String prefix = "słownik" + System.nanoTime() + " ";
+
+        // Import z wieloma nowymi kategoriami: każda to jeden odczyt/zapis, słownik nie jest czytany od nowa
+        for (int i = 0; i < 50; i++) {
+            Category category = Category.of(prefix + i);
+            assertEquals(-1, dao.findId(category));
+            int id = dao.getOrCreateId(category);
+            assertEquals(id, dao.findId(category));
+            assertEquals(category, dao.getById(id));
+        }
+        assertSame(Category.DEFAULT, dao.getById(Integer.MAX_VALUE));
+
+        // Wiersz dopisany z pominięciem DAO (drugi proces) - doczytany pojedynczo, po kluczu i po nazwie
+        int external = insertDirectly(prefix + "z zewnątrz");
+        assertEquals(Category.of(prefix + "z zewnątrz"), dao.getById(external));
+        int otherExternal = insertDirectly(prefix + "drugi proces");
+        assertEquals(otherExternal, dao.findId(Category.of(prefix + "drugi proces")));
+        assertEquals(otherExternal, dao.getOrCreateId(Category.of(prefix + "drugi proces")));
+
+        assertEquals(loads, CategoryDAO.fullLoads());
+    }
+
+    private static int insertDirectly(String name) throws SQLException {
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement("INSERT INTO categories (name) VALUES (?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+}
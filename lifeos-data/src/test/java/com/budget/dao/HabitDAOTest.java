@@ -0,0 +1,41 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.model.Habit;
+import com.budget.model.HabitCategory;
+import com.budget.model.HabitFrequency;
+import com.budget.model.HabitRecord;
+import com.budget.modules.habits.HabitServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitDAOTest {
+
+    @Test
+    void habitKeepsItsIdAndHistoryAcrossRestart() {
+        DatabaseService.initDatabase();
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        HabitServiceImpl service = new HabitServiceImpl(new HabitDAO(), new HabitHistoryDAO());
+        Habit habit = service.createHabit(Habit.builder().name("Basen").category(HabitCategory.HEALTH)
+                .frequency(HabitFrequency.WEEKLY).startDate(day).active(true).targetStreak(4).build());
+        service.addRecord(new HabitRecord(null, habit.getId(), day, true, "1 km", 3));
+        DatabaseService.awaitWrites();
+
+        HabitServiceImpl restarted = new HabitServiceImpl(new HabitDAO(), new HabitHistoryDAO());
+        Habit loaded = restarted.getHabitById(habit.getId());
+        assertEquals("Basen", loaded.getName());
+        assertEquals(HabitFrequency.WEEKLY, loaded.getFrequency());
+        assertEquals(4, loaded.getTargetStreak());
+        assertEquals("1 km", restarted.getRecordForHabitAndDate(habit.getId(), day).getNotes());
+        assertTrue(restarted.createHabit(Habit.builder().name("Nowy").build()).getId() > habit.getId());
+
+        restarted.deleteHabit(habit.getId());
+        DatabaseService.awaitWrites();
+        assertNull(new HabitServiceImpl(new HabitDAO(), new HabitHistoryDAO()).getHabitById(habit.getId()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.changelog.Change;
+import com.budget.model.Category;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionDAOBatchTest {
+
+    @Test
+    void failedBatchWritesNothing() throws SQLException {
+        DatabaseService.initDatabase();
+        long before = count();
+
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            rows.add(new Transaction(0, TransactionType.EXPENSE, Category.of("Jedzenie"), 10.0, LocalDate.now(), "wiersz " + i));
+        }
+        // Trzecia paczka (po 10) pada na zbyt długim opisie - dwie pierwsze nie mogą zostać w bazie
+        rows.get(22).setDescription("x".repeat(300));
+
+        assertThrows(SQLException.class, () -> new TransactionDAO().addTransactions(rows, 10));
+        assertEquals(before, count());
+        assertEquals(0, rows.get(0).getId());
+    }
+
+    @Test
+    void rolledBackBatchLeavesNothingInChangeLog() throws SQLException {
+        DatabaseService.initDatabase();
+        String marker = "paczka-" + System.nanoTime();
+        List<Change> logged = new CopyOnWriteArrayList<>();
+        DatabaseService.getChangeLog().addListener(set -> set.changes().stream()
+                .filter(c -> c.table().equals("transactions") && c.values().contains(marker))
+                .forEach(logged::add));
+
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // Nowa kategoria w drugiej paczce - jej commit nie może zabrać ze sobą wierszy pierwszej
+            Category category = Category.of(i == 15 ? "Nowa " + marker : "Jedzenie");
+            rows.add(new Transaction(0, TransactionType.EXPENSE, category, 10.0, LocalDate.now(), marker));
+        }
+        rows.get(22).setDescription("x".repeat(300));
+
+        assertThrows(SQLException.class, () -> new TransactionDAO().addTransactions(rows, 10));
+        assertTrue(logged.isEmpty());
+    }
+
+    @Test
+    void closeWithoutCommitRollsBack() throws SQLException {
+        DatabaseService.initDatabase();
+        long before = count();
+        try (TransactionBatchWriter writer = new TransactionBatchWriter(2, true, false)) {
+            for (int i = 0; i < 5; i++) {
+                writer.add(new Transaction(0, TransactionType.EXPENSE, Category.of("Jedzenie"), 1.0, LocalDate.now(), "bez commitu"));
+            }
+        }
+        assertEquals(before, count());
+    }
+
+    private static long count() throws SQLException {
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM transactions")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.db.changelog.Change;
+import com.budget.model.Category;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionDAODeleteTest {
+
+    @Test
+    void deleteCorrectsLedgerAndLogsOnce() throws SQLException {
+        DatabaseService.initDatabase();
+        TransactionDAO dao = new TransactionDAO();
+        long before = dao.getCurrentBalanceMinor();
+
+        Transaction t = new Transaction(0, TransactionType.INCOME, Category.of("Jedzenie"), 12.5, LocalDate.now(), "do usunięcia");
+        dao.addTransaction(t);
+        DatabaseService.awaitWrites();
+        assertEquals(before + 12_50, dao.getCurrentBalanceMinor());
+
+        List<Change> deletes = new CopyOnWriteArrayList<>();
+        DatabaseService.getChangeLog().addListener(set -> set.changes().stream()
+                .filter(c -> c.table().equals("transactions") && c.values().contains(t.getId()))
+                .forEach(deletes::add));
+
+        dao.deleteTransaction(t.getId());
+        // Druga próba nie znajduje wiersza - nic nie odejmuje, nic nie loguje
+        dao.delete(t.getId());
+        DatabaseService.awaitWrites();
+
+        assertEquals(before, dao.getCurrentBalanceMinor());
+        assertEquals(1, deletes.size());
+    }
+}
@@ -0,0 +1,68 @@
+package com.budget.dao;
+
+import com.budget.db.DatabaseService;
+import com.budget.model.Category;
+import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TransactionDAOStreamTest {
+
+    // Daty poza danymi innych testów - kilka wierszy na dzień, więc strony kończą się w środku dnia
+    private static final LocalDate FROM = LocalDate.of(1991, 1, 1);
+    private static final LocalDate TO = FROM.plusDays(10);
+
+    @Test
+    void pagesCoverRangeInOrderWithoutDuplicates() throws SQLException {
+        TransactionDAO dao = seeded();
+        List<Integer> expected = ids(dao.getTransactions(FROM, TO, TransactionFilter.all()));
+
+        for (boolean reuseRow : new boolean[] {false, true}) {
+            List<Integer> streamed = new ArrayList<>();
+            dao.forEachTransaction(FROM, TO, TransactionFilter.all(), 7, reuseRow, t -> streamed.add(t.getId()));
+            assertEquals(expected, streamed);
+            assertEquals(streamed.size(), new HashSet<>(streamed).size());
+        }
+    }
+
+    @Test
+    void limitAndFilterAreKeptAcrossPages() throws SQLException {
+        TransactionDAO dao = seeded();
+        TransactionFilter filter = TransactionFilter.builder().type(TransactionType.INCOME).limit(9).build();
+
+        List<Integer> streamed = new ArrayList<>();
+        dao.forEachTransaction(FROM, TO, filter, 4, false, t -> {
+            assertSame(TransactionType.INCOME, t.getType());
+            streamed.add(t.getId());
+        });
+        assertEquals(ids(dao.getTransactions(FROM, TO, filter)), streamed);
+        assertEquals(9, streamed.size());
+    }
+
+    private static TransactionDAO seeded() throws SQLException {
+        DatabaseService.initDatabase();
+        TransactionDAO dao = new TransactionDAO();
+        if (dao.countTransactions(FROM, TO, TransactionFilter.all()) == 0) {
+            List<Transaction> rows = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                TransactionType type = i % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+                rows.add(new Transaction(0, type, Category.of("Jedzenie"), 1.0 + i, FROM.plusDays(i % 10), "strumień " + i));
+            }
+            dao.addTransactions(rows, 50);
+        }
+        return dao;
+    }
+
+    private static List<Integer> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package com.budget.db;
+
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Wrapper;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    @Test
+    void unwrapNeverExposesPhysicalConnection() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:pool_" + System.nanoTime(), "sa", "",
+                PoolConfig.defaults())) {
+            Connection conn = pool.borrow();
+
+            assertSame(conn, conn.unwrap(Connection.class));
+            assertSame(conn, conn.unwrap(Wrapper.class));
+            assertTrue(conn.isWrapperFor(Connection.class));
+            assertFalse(conn.isWrapperFor(JdbcConnection.class));
+            assertThrows(SQLException.class, () -> conn.unwrap(JdbcConnection.class));
+
+            conn.close();
+            assertThrows(SQLException.class, () -> conn.unwrap(Connection.class));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.budget.db;
+
+import com.budget.dao.BalanceLedgerDAO;
+import com.budget.dao.CategoryRollupDAO;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DatabaseServiceResetTest {
+
+    @Test
+    void resetClearsDataAndDerivedTables() throws SQLException {
+        DatabaseService.initDatabase();
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO transactions (type, category_id, amount_minor, date) VALUES (2, 1, 12500, CURRENT_DATE)");
+            stmt.execute("INSERT INTO tasks (title) VALUES ('test resetu')");
+        }
+        new BalanceLedgerDAO().rebuild();
+        new CategoryRollupDAO().rebuild();
+
+        DatabaseService.resetUserData();
+
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions"));
+        assertEquals(0, count("SELECT COUNT(*) FROM tasks"));
+        assertEquals(0, count("SELECT COUNT(*) FROM balance_monthly"));
+        assertEquals(0, count("SELECT COALESCE(SUM(tx_count), 0) FROM balance_total"));
+        assertEquals(0, count("SELECT COUNT(*) FROM monthly_category_totals"));
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
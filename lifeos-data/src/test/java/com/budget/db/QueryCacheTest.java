@@ -0,0 +1,46 @@
+package com.budget.db;
+
+import com.budget.modules.finance.domain.Purse;
+import com.budget.modules.finance.domain.PurseType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class QueryCacheTest {
+
+    @Test
+    void callersGetCopiesAndCachedValueStaysIntact() {
+        String table = "cache_test_" + System.nanoTime();
+        AtomicInteger loads = new AtomicInteger();
+        List<Purse> loaded = new ArrayList<>(List.of(new Purse(1, "Jedzenie", PurseType.FLEXIBLE, 100_00, 0, false, 0)));
+
+        List<Purse> first = get(table, loaded, loads);
+        assertNotSame(loaded, first);
+        assertNotSame(loaded.get(0), first.get(0));
+        // Modyfikacja kopii (także przy chybieniu) nie może trafić do cache
+        first.get(0).setSpentMinor(99_00);
+        first.clear();
+
+        List<Purse> second = get(table, loaded, loads);
+        assertEquals(1, loads.get());
+        assertEquals(1, second.size());
+        assertEquals(0, second.get(0).getSpentMinor());
+        assertNotSame(second.get(0), get(table, loaded, loads).get(0));
+
+        QueryCache.invalidate(table);
+        get(table, loaded, loads);
+        assertEquals(2, loads.get());
+    }
+
+    private static List<Purse> get(String table, List<Purse> loaded, AtomicInteger loads) {
+        return QueryCache.get("QueryCacheTest." + table, List.of(), () -> {
+            loads.incrementAndGet();
+            return loaded;
+        }, QueryCache.copyEach(Purse::copy), table);
+    }
+}
@@ -0,0 +1,56 @@
+package com.budget.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+
+    @Test
+    void flushReturnsWhenQueuedWriteThrowsRuntimeException() {
+        // Zbiór, nie licznik: zapisy z paczki, w której coś padło, są powtarzane pojedynczo
+        Set<Integer> executed = ConcurrentHashMap.newKeySet();
+        try (WriteBehindQueue queue = new WriteBehindQueue(4, 2, 1)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                queue.submit("tasks", null, conn -> executed.add(-1));
+                queue.submit("tasks", null, conn -> {
+                    throw new NullPointerException("zapis z pustą datą");
+                });
+                // Więcej niż pojemność kolejki - submit nie może zawisnąć po błędzie wątku zapisującego
+                for (int i = 0; i < 10; i++) {
+                    int n = i;
+                    queue.submit("tasks", null, conn -> executed.add(n));
+                }
+                queue.flush();
+            });
+            assertEquals(11, executed.size());
+            assertEquals(1, queue.getFailedCount());
+        }
+    }
+
+    @Test
+    void submitWaitsWhilePaused() throws InterruptedException {
+        Set<Integer> executed = ConcurrentHashMap.newKeySet();
+        try (WriteBehindQueue queue = new WriteBehindQueue(4, 2, 1)) {
+            queue.submit("tasks", null, conn -> executed.add(1));
+            queue.pause();
+            assertEquals(Set.of(1), executed); // pause() czeka na zaległe zapisy
+
+            Thread writer = new Thread(() -> queue.submit("tasks", null, conn -> executed.add(2)));
+            writer.start();
+            writer.join(200);
+            assertTrue(writer.isAlive());
+
+            queue.resume();
+            writer.join(30_000);
+            queue.flush();
+            assertEquals(Set.of(1, 2), executed);
+        }
+    }
+}
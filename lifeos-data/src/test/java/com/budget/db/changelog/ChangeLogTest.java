@@ -0,0 +1,51 @@
+package com.budget.db.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void failedFrameAfterCommitForcesFullBackup() throws Exception {
+        try (ChangeLog log = ChangeLog.open(dir, 1 << 20, false);
+             Connection conn = DriverManager.getConnection("jdbc:h2:mem:changelog_" + System.nanoTime())) {
+            conn.setAutoCommit(false);
+            log.checkpoint(0);
+
+            // Typ, którego kodek nie zna - baza zatwierdza, ramka nie powstaje
+            log.stage(Change.upsert("tasks", "id", List.of("id", "title"), List.of(1, new Object())));
+            log.commit(conn);
+
+            assertEquals(0, log.lastLsn());
+            assertFalse(log.checkpoint().isPresent());
+        }
+    }
+
+    @Test
+    void uncleanShutdownForcesFullBackup() throws Exception {
+        ChangeLog crashed = ChangeLog.open(dir, 1 << 20, false);
+        crashed.checkpoint(0);
+        // bez close() - jak po awarii procesu
+
+        try (ChangeLog reopened = ChangeLog.open(dir, 1 << 20, false)) {
+            assertFalse(reopened.checkpoint().isPresent());
+            reopened.checkpoint(0);
+        }
+        try (ChangeLog clean = ChangeLog.open(dir, 1 << 20, false)) {
+            assertTrue(clean.checkpoint().isPresent());
+        }
+        crashed.close(); // tylko zwolnienie pliku segmentu
+    }
+}
@@ -0,0 +1,139 @@
+package com.budget.db.columnar;
+
+import com.budget.db.changelog.Change;
+import com.budget.db.changelog.ChangeSet;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionColumnsTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 400;
+    private static final int CATEGORIES = 7;
+    private static final byte[] TYPES = {TransactionColumns.OTHER, TransactionColumns.INCOME, TransactionColumns.EXPENSE};
+
+    private record Row(int day, byte type, int category, long amount) {}
+
+    @Test
+    void scansMatchListComputationAcrossUpdatesDeletesAndCompaction() {
+        Random random = new Random(16);
+        TransactionColumns columns = new TransactionColumns();
+        Map<Integer, Row> expected = new HashMap<>();
+
+        // Import chronologiczny - wszystko ląduje w posortowanej części
+        int nextId = 1;
+        for (int day = 0; day < DAYS; day += 1 + random.nextInt(2)) {
+            for (int k = random.nextInt(3); k >= 0; k--) put(columns, expected, nextId++, day, random);
+        }
+        assertEquals(0, columns.tailRows());
+        check(columns, expected, random);
+
+        for (int round = 0; round < 3; round++) {
+            for (int op = 0; op < 300; op++) {
+                List<Integer> ids = new ArrayList<>(expected.keySet());
+                int choice = random.nextInt(3);
+                if (choice == 0 || ids.isEmpty()) {
+                    put(columns, expected, nextId++, random.nextInt(DAYS), random); // nowy wiersz w ogonie
+                } else if (choice == 1) {
+                    // Zmiana istniejącego (z posortowanej części albo z ogona) - stary wiersz usunięty, nowy w ogonie
+                    put(columns, expected, ids.get(random.nextInt(ids.size())), random.nextInt(DAYS), random);
+                } else {
+                    int id = ids.get(random.nextInt(ids.size()));
+                    columns.remove(id);
+                    expected.remove(id);
+                }
+            }
+            columns.remove(Integer.MAX_VALUE); // nieznane ID - bez zmian
+            check(columns, expected, random);
+
+            columns.compact();
+            assertEquals(0, columns.tailRows());
+            assertEquals(expected.size(), columns.rows());
+            check(columns, expected, random);
+        }
+    }
+
+    @Test
+    void changeSetsReplayIdempotently() {
+        TransactionColumns columns = new TransactionColumns();
+        List<String> cols = List.of("id", "type", "category_id", "amount_minor", "date", "description");
+        ChangeSet set = new ChangeSet(1, 0, List.of(
+                Change.upsert("transactions", "id", cols, List.of(1, 1, 2, 100_00L, START, "pensja")),
+                Change.upsert("transactions", "id", cols, List.of(2, 2, 3, 40_00L, START.plusDays(3), "zakupy")),
+                Change.upsert("transactions", "id", cols, List.of(3, 2, 3, 5_00L, START.plusDays(1), "kawa")),
+                Change.upsert("goals", "id", List.of("id", "name"), List.of(4, "inna tabela")),
+                Change.upsert("transactions", "id", cols, List.of(2, 2, 3, 45_00L, START.plusDays(3), "zakupy - korekta")),
+                Change.delete("transactions", "id", 3)));
+
+        columns.apply(set);
+        columns.apply(set);
+
+        int from = (int) START.toEpochDay();
+        assertEquals(2, columns.rows());
+        assertEquals(2, columns.count(from, from + 10));
+        assertArrayEquals(new long[] {0, 100_00, 45_00, 0}, columns.sumByType(from, from + 10));
+        assertArrayEquals(new long[] {0, 0, 0, 45_00}, columns.sumByCategory(from, from + 10, TransactionColumns.EXPENSE));
+        assertArrayEquals(new long[] {100_00, 0}, columns.sumByBucket(new int[] {from, from + 2, from + 10}, TransactionColumns.INCOME));
+    }
+
+    private static void put(TransactionColumns columns, Map<Integer, Row> expected, int id, int day, Random random) {
+        Row row = new Row(day, TYPES[random.nextInt(TYPES.length)], random.nextInt(CATEGORIES), 1 + random.nextInt(100_000));
+        columns.put(id, row.type(), row.category(), row.amount(), START.plusDays(day));
+        expected.put(id, row);
+    }
+
+    private static void check(TransactionColumns columns, Map<Integer, Row> expected, Random random) {
+        assertEquals(expected.size(), columns.rows());
+        for (int i = 0; i < 20; i++) {
+            int from = random.nextInt(DAYS + 20) - 10;
+            int to = from + random.nextInt(DAYS);
+            int base = (int) START.toEpochDay();
+
+            long[] byType = columns.sumByType(base + from, base + to);
+            assertEquals(0, byType[TransactionColumns.DELETED]);
+            for (byte t : TYPES) {
+                assertEquals(sum(expected, from, to, t, -1), byType[t]);
+                long[] byCategory = columns.sumByCategory(base + from, base + to, t);
+                for (int c = 0; c < CATEGORIES; c++) {
+                    assertEquals(sum(expected, from, to, t, c), c < byCategory.length ? byCategory[c] : 0);
+                }
+            }
+            assertEquals(expected.values().stream().filter(r -> r.day() >= from && r.day() < to).count(),
+                    columns.count(base + from, base + to));
+
+            // Przedziały różnej długości, także puste i jednodniowe
+            int[] bounds = new int[1 + random.nextInt(8)];
+            bounds[0] = from;
+            for (int b = 1; b < bounds.length; b++) bounds[b] = bounds[b - 1] + random.nextInt(90);
+            int[] epochBounds = new int[bounds.length];
+            for (int b = 0; b < bounds.length; b++) epochBounds[b] = base + bounds[b];
+            if (bounds.length < 2) continue;
+            for (byte t : TYPES) {
+                long[] byBucket = columns.sumByBucket(epochBounds, t);
+                assertEquals(bounds.length - 1, byBucket.length);
+                for (int b = 0; b < byBucket.length; b++) {
+                    assertEquals(sum(expected, bounds[b], bounds[b + 1], t, -1), byBucket[b]);
+                }
+            }
+        }
+    }
+
+    private static long sum(Map<Integer, Row> rows, int from, int to, byte type, int category) {
+        long sum = 0;
+        for (Row r : rows.values()) {
+            if (r.day() >= from && r.day() < to && r.type() == type && (category < 0 || r.category() == category)) {
+                sum += r.amount();
+            }
+        }
+        return sum;
+    }
+}
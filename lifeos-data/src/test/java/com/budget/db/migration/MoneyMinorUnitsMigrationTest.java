@@ -0,0 +1,71 @@
+package com.budget.db.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MoneyMinorUnitsMigrationTest {
+
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:v8_" + System.nanoTime());
+        conn.setAutoCommit(false);
+        for (Migration m : Migrations.all()) {
+            if (m.version() < 8) m.apply(conn);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO goals (name, target_amount, current_amount) VALUES ('Wakacje', 1234.56, 0.29)");
+            stmt.execute("INSERT INTO purses (name, type, allocated_amount, spent_amount) VALUES ('Jedzenie', 'MONTHLY', 800, 12.5)");
+            stmt.execute("INSERT INTO transactions (type, category, amount_minor, date) VALUES ('WYDATEK', 'Jedzenie', 1250, DATE '2024-03-05')");
+        }
+        conn.commit();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void resumesAfterInterruptedRun() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Poprzednia próba przeniosła target_amount i zdążyła usunąć balance_monthly.income
+            stmt.execute("ALTER TABLE goals ADD COLUMN target_amount_minor BIGINT DEFAULT 0 NOT NULL");
+            stmt.execute("UPDATE goals SET target_amount_minor = 123456");
+            stmt.execute("ALTER TABLE goals DROP COLUMN target_amount");
+            stmt.execute("ALTER TABLE balance_monthly DROP COLUMN income");
+        }
+
+        Migration v8 = new MoneyMinorUnitsMigration();
+        v8.apply(conn);
+        v8.apply(conn); // i jeszcze raz - np. przerwanie przed zapisem wersji
+        conn.commit();
+
+        assertEquals(123456, queryLong("SELECT target_amount_minor FROM goals"));
+        assertEquals(29, queryLong("SELECT current_amount_minor FROM goals"));
+        assertEquals(80000, queryLong("SELECT allocated_minor FROM purses"));
+        assertEquals(1250, queryLong("SELECT spent_minor FROM purses"));
+        assertEquals(1250, queryLong("SELECT expense_minor FROM balance_total WHERE id = 1"));
+        assertEquals(1250, queryLong("SELECT total_minor FROM monthly_category_totals"));
+        assertFalse(SchemaQueries.columnExists(conn, "PURSES", "SPENT_AMOUNT"));
+        assertFalse(SchemaQueries.columnExists(conn, "BALANCE_MONTHLY", "EXPENSE"));
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.budget.db.search;
+
+import com.budget.db.changelog.Change;
+import com.budget.db.changelog.ChangeLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tokenizerFoldsPolishLettersAndDropsNoise() {
+        assertEquals(List.of("zolta", "lodz", "7"), SearchTokenizer.tokenize("Żółta Łódź, a 7 x ŻÓŁTA"));
+        assertEquals(List.of(), SearchTokenizer.tokenize(" - , "));
+        assertEquals(40, SearchTokenizer.tokenize("a".repeat(100)).get(0).length());
+    }
+
+    @Test
+    void everyQueryTokenMustMatchAsPrefix() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(SearchKind.TASK, 1, "Biedronka - chleb");
+        index.put(SearchKind.TASK, 2, "Biedronka mleko");
+        index.put(SearchKind.GOAL, 1, "Chleb domowy");
+
+        assertEquals(List.of(new SearchHitKey(SearchKind.TASK, 1)), keys(index, "bie chl"));
+        assertEquals(2, keys(index, "chleb").size());
+
+        index.remove(SearchKind.TASK, 1);
+        assertTrue(keys(index, "bie chl").isEmpty());
+        // Nowy tekst zastępuje stary - stare tokeny przestają pasować
+        index.put(SearchKind.TASK, 2, "Lidl");
+        assertTrue(keys(index, "biedronka").isEmpty());
+        assertEquals(List.of(new SearchHitKey(SearchKind.TASK, 2)), keys(index, "lid"));
+    }
+
+    @Test
+    void compactionAndSnapshotKeepResults() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        for (int id = 0; id < 6000; id++) {
+            index.put(SearchKind.TASK, id, "zadanie nr" + id + (id % 2 == 0 ? " parzyste" : ""));
+        }
+        // Więcej nagrobków niż żywych dokumentów - indeks się kompaktuje
+        for (int id = 0; id < 5000; id++) index.remove(SearchKind.TASK, id);
+        index.appliedLsn = 42;
+        assertEquals(1000, index.documents());
+        assertEquals(500, keys(index, "parzyste").size());
+        assertEquals(List.of(new SearchHitKey(SearchKind.TASK, 5998)), keys(index, "nr5998"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        InvertedIndex read = InvertedIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(42, read.appliedLsn);
+        assertEquals(1000, read.documents());
+        assertEquals(keys(index, "parzyste"), keys(read, "parzyste"));
+        assertTrue(keys(read, "nr4999").isEmpty());
+    }
+
+    @Test
+    void savedIndexReplaysChangeLogOnLoad() throws Exception {
+        Path file = dir.resolve("search.idx");
+        try (ChangeLog log = ChangeLog.open(dir.resolve("log"), 1 << 20, false);
+             Connection conn = DriverManager.getConnection("jdbc:h2:mem:search_" + System.nanoTime())) {
+            conn.setAutoCommit(false);
+            SearchIndex first = new SearchIndex(file, log);
+            assertTrue(first.search("sekwoja", 10).isEmpty()); // zbudowany z bazy, w której jej nie ma
+
+            commit(log, conn, Change.upsert("tasks", "id", List.of("id", "title"), List.of(900_001L, "Sekwoja olbrzymia")));
+            assertEquals(List.of(new SearchHitKey(SearchKind.TASK, 900_001)), keys(first.search("sekwoja", 10)));
+            first.save();
+
+            // Po zapisie pliku: usunięcie zadania i nowy cel - nowy indeks musi je doczytać z dziennika
+            commit(log, conn, Change.delete("tasks", "id", 900_001L));
+            commit(log, conn, Change.upsert("goals", "id", List.of("id", "name"), List.of(900_002L, "Sekwoja w ogrodzie")));
+            SearchIndex reloaded = new SearchIndex(file, log);
+            assertEquals(List.of(new SearchHitKey(SearchKind.GOAL, 900_002)), keys(reloaded.search("sekwoja", 10)));
+        }
+
+        // Dziennik założony od nowa nie pasuje do pliku - indeks budowany z bazy
+        try (ChangeLog fresh = ChangeLog.open(dir.resolve("log2"), 1 << 20, false)) {
+            assertTrue(new SearchIndex(file, fresh).search("sekwoja", 10).isEmpty());
+        }
+    }
+
+    private record SearchHitKey(SearchKind kind, long id) {}
+
+    private static void commit(ChangeLog log, Connection conn, Change change) throws Exception {
+        log.stage(change);
+        log.commit(conn);
+    }
+
+    private static List<SearchHitKey> keys(InvertedIndex index, String query) {
+        return keys(index.search(SearchTokenizer.tokenize(query), 10_000));
+    }
+
+    private static List<SearchHitKey> keys(List<SearchHit> hits) {
+        return hits.stream().map(h -> new SearchHitKey(h.kind(), h.id())).toList();
+    }
+}
@@ -0,0 +1,55 @@
+package com.budget.service;
+
+import com.budget.db.DatabaseService;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackupServiceRestoreTest {
+
+    @Test
+    void failedRestoreBringsBackPreviousState() throws IOException, SQLException {
+        DatabaseService.initDatabase();
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO tasks (title) VALUES ('przed odtwarzaniem')");
+        }
+        long tasks = count("SELECT COUNT(*) FROM tasks");
+
+        // Kopia, która pada w połowie RUNSCRIPT - po DROP ALL OBJECTS
+        Path broken = Files.createTempFile("lifeos-broken", ".sql.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(broken))) {
+            out.write("CREATE TABLE tasks (id INT);\nTO NIE JEST SQL;\n".getBytes(UTF_8));
+        }
+        try {
+            assertThrows(SQLException.class, () -> new BackupService().restore(broken, List.of()));
+        } finally {
+            Files.deleteIfExists(broken);
+        }
+
+        assertEquals(tasks, count("SELECT COUNT(*) FROM tasks"));
+        assertEquals(1, count("SELECT COUNT(*) FROM tasks WHERE title = 'przed odtwarzaniem'"));
+        // Pula wróciła do normalnej pracy
+        assertEquals(0, DatabaseService.getPoolStats().active());
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.budget.service;
+
+import com.budget.db.DatabaseService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvImportServiceTest {
+
+    @Test
+    void importWithoutProgressListener(@TempDir Path dir) throws IOException, SQLException {
+        DatabaseService.initDatabase();
+        Path csv = dir.resolve("wyciag.csv");
+        Files.writeString(csv, "Data;Kwota;Opis\n2024-03-01;-12,50;Piekarnia\n2024-03-02;-40,00;Paliwo\n", UTF_8);
+
+        CsvImportResult result = new CsvImportService().importTransactions(csv, null);
+
+        assertEquals(2, result.imported());
+        assertEquals(0, result.rejected());
+    }
+
+    @Test
+    void quotedAndMultilineFieldsAcrossWindowBoundaries(@TempDir Path dir) throws IOException, SQLException {
+        DatabaseService.initDatabase();
+        String marker = "okna" + System.nanoTime();
+        StringBuilder csv = new StringBuilder("Data;Kwota;Opis\n");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            String description = switch (i % 4) {
+                case 0 -> marker + " zwykły " + i;
+                case 1 -> marker + " średnik; w środku " + i;
+                case 2 -> marker + " dwie\nlinie " + i;
+                default -> marker + " \"cytat\"\r\ni koniec " + i;
+            };
+            expected.add(description);
+            String field = i % 4 == 0 ? description : '"' + description.replace("\"", "\"\"") + '"';
+            csv.append(String.format("2024-03-%02d;-1,%02d;", 1 + i % 28, i % 100)).append(field)
+                    .append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        Path file = dir.resolve("okna.csv");
+        Files.writeString(file, csv, UTF_8);
+
+        // Okno mieści kilka rekordów, fragment ~jeden - granice wypadają w środku pól w cudzysłowie
+        CsvImportResult result = new CsvImportService(40, 200).importTransactions(file, null);
+
+        assertEquals(120, result.imported());
+        assertEquals(0, result.rejected());
+        assertEquals(expected, descriptions(marker));
+    }
+
+    @Test
+    void rejectedRowsAreReportedWithFileLines(@TempDir Path dir) throws IOException, SQLException {
+        DatabaseService.initDatabase();
+        String marker = "odrzut" + System.nanoTime();
+        Path file = dir.resolve("bledy.csv");
+        Files.writeString(file, "Data;Kwota;Opis\n"
+                + "2024-03-01;-1,00;\"" + marker + " pierwsza\nz nową linią\"\n"
+                + "2024-13-01;-1,00;zła data\n"
+                + "2024-03-02;0;zero\n"
+                + "2024-03-03;abc;kwota\n"
+                + "2024-03-04;-2,00;" + marker + " druga\n", UTF_8);
+
+        CsvImportResult result = new CsvImportService(20, 64).importTransactions(file, null);
+
+        assertEquals(2, result.imported());
+        assertEquals(3, result.rejected());
+        // Linie fizyczne - rekord z nową linią zajmuje dwie
+        assertEquals(List.of(4L, 5L, 6L), result.errors().stream().map(CsvImportError::line).toList());
+        assertEquals(List.of(marker + " pierwsza\nz nową linią", marker + " druga"), descriptions(marker));
+        List<String> rejects = Files.readAllLines(result.rejectsFile(), UTF_8);
+        assertEquals(4, rejects.size());
+        assertTrue(rejects.get(1).startsWith("4;"));
+    }
+
+    @Test
+    void interruptedImportResumesWithoutDuplicates(@TempDir Path dir) throws IOException, SQLException {
+        DatabaseService.initDatabase();
+        String marker = "wznow" + System.nanoTime();
+        StringBuilder csv = new StringBuilder("Data;Kwota;Opis\n");
+        for (int i = 0; i < 50; i++) {
+            csv.append("2024-04-01;-3,00;").append(marker).append(' ').append(i).append('\n');
+        }
+        Path file = dir.resolve("przerwany.csv");
+        Files.writeString(file, csv, UTF_8);
+        CsvImportService service = new CsvImportService(100, 4096);
+
+        // Przerwanie po drugim zapisanym fragmencie - jak zamknięcie aplikacji w trakcie importu
+        AtomicInteger chunks = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> service.importTransactions(file, p -> {
+            if (chunks.incrementAndGet() == 2) throw new IllegalStateException("przerwane");
+        }));
+        int firstRun = descriptions(marker).size();
+        assertTrue(firstRun > 0 && firstRun < 50, "zapisane przed przerwaniem: " + firstRun);
+
+        CsvImportResult resumed = service.importTransactions(file, null);
+
+        assertTrue(resumed.resumedFromLine() > 2);
+        assertEquals(50, resumed.imported());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) expected.add(marker + " " + i);
+        assertEquals(expected, descriptions(marker));
+    }
+
+    private static List<String> descriptions(String marker) throws SQLException {
+        List<String> result = new ArrayList<>();
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT description FROM transactions WHERE description LIKE ? ORDER BY id")) {
+            pstmt.setString(1, marker + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) result.add(rs.getString(1));
+            }
+        }
+        return result;
+    }
+}
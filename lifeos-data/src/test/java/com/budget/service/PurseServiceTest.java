@@ -0,0 +1,126 @@
+package com.budget.service;
+
+import com.budget.db.DatabaseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PurseServiceTest {
+
+    private static final long START_MINOR = 500_00;
+
+    private final List<Integer> purses = new ArrayList<>();
+
+    @BeforeEach
+    void createPurses() throws SQLException {
+        DatabaseService.initDatabase();
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO purses (name, type, allocated_minor) VALUES (?, 'FLEXIBLE', ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < 2; i++) {
+                pstmt.setString(1, "test transferu " + i);
+                pstmt.setLong(2, START_MINOR);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    keys.next();
+                    purses.add(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    void deletePurses() throws SQLException {
+        String ids = purses.get(0) + "," + purses.get(1);
+        try (Connection conn = DatabaseService.connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM purse_audit_log WHERE purse_id IN (" + ids + ")");
+            stmt.execute("DELETE FROM purses WHERE id IN (" + ids + ")");
+        }
+    }
+
+    @Test
+    void lockConflictIsRetriedAndAppliedOnce() throws Exception {
+        int from = purses.get(0);
+        int to = purses.get(1);
+        long retriesBefore = PurseService.getRetryCount();
+
+        CompletableFuture<Void> transfer;
+        // Inna transakcja trzyma portfel docelowy dłużej niż czas oczekiwania na blokadę (1 s w H2):
+        // pierwsza próba blokuje źródło, nie dostaje celu i musi się wycofać
+        try (Connection holder = DatabaseService.connect()) {
+            holder.setAutoCommit(false);
+            try (Statement stmt = holder.createStatement()) {
+                stmt.executeQuery("SELECT * FROM purses WHERE id = " + to + " FOR UPDATE").close();
+            }
+            transfer = CompletableFuture.runAsync(() -> {
+                try {
+                    new PurseService().transferFundsMinor(from, to, 120_00, "test");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (PurseService.getRetryCount() == retriesBefore && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(PurseService.getRetryCount() > retriesBefore, "transfer nie trafił na konflikt blokad");
+            assertFalse(transfer.isDone());
+            holder.rollback();
+        }
+
+        transfer.get(10, TimeUnit.SECONDS);
+        assertEquals(START_MINOR - 120_00, allocated(from));
+        assertEquals(START_MINOR + 120_00, allocated(to));
+        assertEquals(1, auditRows(from, "TRANSFER_OUT"));
+        assertEquals(1, auditRows(to, "TRANSFER_IN"));
+    }
+
+    @Test
+    void businessErrorIsNotRetriedAndChangesNothing() throws Exception {
+        int from = purses.get(0);
+        int to = purses.get(1);
+        long retriesBefore = PurseService.getRetryCount();
+
+        assertThrows(Exception.class, () -> new PurseService().transferFundsMinor(from, to, START_MINOR + 1, "test"));
+
+        assertEquals(retriesBefore, PurseService.getRetryCount());
+        assertEquals(START_MINOR, allocated(from));
+        assertEquals(START_MINOR, allocated(to));
+        assertEquals(0, auditRows(from, "TRANSFER_OUT"));
+    }
+
+    private static long allocated(int purseId) throws SQLException {
+        return single("SELECT allocated_minor FROM purses WHERE id = ?", purseId, null);
+    }
+
+    private static long auditRows(int purseId, String action) throws SQLException {
+        return single("SELECT COUNT(*) FROM purse_audit_log WHERE purse_id = ? AND action_type = ?", purseId, action);
+    }
+
+    private static long single(String sql, int purseId, String action) throws SQLException {
+        try (Connection conn = DatabaseService.connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, purseId);
+            if (action != null) pstmt.setString(2, action);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
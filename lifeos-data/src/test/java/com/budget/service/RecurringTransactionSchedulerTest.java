@@ -0,0 +1,136 @@
+package com.budget.service;
+
+import com.budget.db.DatabaseService;
+import com.budget.model.Category;
+import com.budget.model.RecurringPattern;
+import com.budget.model.RecurringTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecurringTransactionSchedulerTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Warsaw");
+
+    private final List<RecurringTransaction> rules = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        DatabaseService.initDatabase();
+    }
+
+    // Reguły zostają w bazie testów - wyłączamy je, żeby nie nadrabiały się w innych testach
+    @AfterEach
+    void deactivateRules() {
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler();
+        for (RecurringTransaction rule : rules) scheduler.setActive(rule.getId(), false);
+    }
+
+    @Test
+    void catchUpClampsMonthEndAndResumesFromCursor() throws SQLException {
+        RecurringTransaction rule = rule(RecurringPattern.MONTHLY, LocalDate.of(2024, 1, 31), 31);
+        new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 5, 15))).addRule(rule);
+
+        new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 5, 15))).catchUp();
+        assertEquals(List.of(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 31),
+                LocalDate.of(2024, 4, 30)), dates(rule));
+
+        // Ten sam dzień drugi raz - nic nowego; po przerwie tylko brakujące wystąpienie
+        new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 5, 15))).catchUp();
+        new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 6, 1))).catchUp();
+        assertEquals(5, dates(rule).size());
+        assertEquals(LocalDate.of(2024, 5, 31), dates(rule).get(4));
+    }
+
+    @Test
+    void leapDayRuleFallsBackToFebruaryEnd() throws SQLException {
+        RecurringTransaction rule = rule(RecurringPattern.YEARLY, LocalDate.of(2024, 2, 29), 0);
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(clockAt(LocalDate.of(2028, 3, 1)));
+        scheduler.addRule(rule);
+
+        scheduler.catchUp();
+
+        assertEquals(List.of(LocalDate.of(2024, 2, 29), LocalDate.of(2025, 2, 28), LocalDate.of(2026, 2, 28),
+                LocalDate.of(2027, 2, 28), LocalDate.of(2028, 2, 29)), dates(rule));
+    }
+
+    @Test
+    void existingOccurrenceKeysAreNotWrittenAgain() throws SQLException {
+        RecurringTransaction rule = rule(RecurringPattern.WEEKLY, LocalDate.of(2024, 3, 4), 0);
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 3, 31)));
+        scheduler.addRule(rule);
+        scheduler.catchUp();
+        assertEquals(4, dates(rule).size());
+
+        // Pozycja reguły cofnięta (jak w drugim procesie, który jej jeszcze nie widział) - klucze wystąpień chronią przed dublami
+        execute("UPDATE recurring_transactions SET materialized_through = NULL WHERE id = ?", rule.getId());
+        RecurringCatchUpResult result = new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 4, 1))).catchUp();
+
+        List<LocalDate> dates = dates(rule);
+        assertEquals(5, dates.size()); // doszedł tylko poniedziałek 1 kwietnia
+        assertEquals(LocalDate.of(2024, 4, 1), dates.get(4));
+        assertEquals(4, result.skipped());
+    }
+
+    @Test
+    void addedRuleWakesWorkerAfterCommit() throws Exception {
+        try (RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(clockAt(LocalDate.of(2024, 5, 15)))) {
+            scheduler.start();
+            RecurringTransaction rule = rule(RecurringPattern.DAILY, LocalDate.of(2024, 5, 1), 0);
+            scheduler.addRule(rule);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (dates(rule).size() < 15 && System.nanoTime() < deadline) Thread.sleep(20);
+            assertEquals(15, dates(rule).size());
+        }
+    }
+
+    private RecurringTransaction rule(RecurringPattern pattern, LocalDate start, int dayOfMonth) {
+        RecurringTransaction rule = RecurringTransaction.builder()
+                .name("cykliczna " + pattern + " " + System.nanoTime())
+                .category(Category.of("Rachunki"))
+                .amountMinor(10_00)
+                .pattern(pattern)
+                .dayOfMonth(dayOfMonth)
+                .startDate(start)
+                .build();
+        rules.add(rule);
+        return rule;
+    }
+
+    private static Clock clockAt(LocalDate day) {
+        return Clock.fixed(day.atTime(12, 0).atZone(ZONE).toInstant(), ZONE);
+    }
+
+    private static List<LocalDate> dates(RecurringTransaction rule) throws SQLException {
+        List<LocalDate> dates = new ArrayList<>();
+        try (Connection conn = DatabaseService.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT date FROM transactions WHERE description = ? ORDER BY date")) {
+            pstmt.setString(1, rule.getName());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) dates.add(rs.getDate(1).toLocalDate());
+            }
+        }
+        return dates;
+    }
+
+    private static void execute(String sql, int id) throws SQLException {
+        try (Connection conn = DatabaseService.connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.budget.controller;
 
+import com.budget.infrastructure.AsyncRunner;
 import com.budget.model.Habit;
 import com.budget.model.HabitCategory;
 import com.budget.model.HabitFrequency;
 import com.budget.model.HabitRecord;
 import com.budget.modules.habits.HabitService;
+import com.budget.modules.habits.HabitStats;
 import javafx.fxml.FXML;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
@@ -49,6 +51,8 @@ public class HabitsController {
     
     private HabitService habitService;
     private Habit selectedHabit;
+    // Statystyki z serwisu (liczone z historii nawyku), odświeżane razem z tabelą
+    private Map<Long, HabitStats> habitStats = Map.of();
     
     public void setHabitService(HabitService habitService) {
         this.habitService = habitService;
@@ -70,9 +74,9 @@ public class HabitsController {
         categoryColumn.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleObjectProperty<>(cellData.getValue().getCategory()));
         streakColumn.setCellValueFactory(cellData -> 
-            new javafx.beans.property.SimpleIntegerProperty(cellData.getValue().getCurrentStreak()).asObject());
+            new javafx.beans.property.SimpleIntegerProperty(statsOf(cellData.getValue()).currentStreak()).asObject());
         completionRateColumn.setCellValueFactory(cellData -> 
-            new javafx.beans.property.SimpleDoubleProperty(cellData.getValue().getCompletionRate()).asObject());
+            new javafx.beans.property.SimpleDoubleProperty(statsOf(cellData.getValue()).completionRate()).asObject());
         activeColumn.setCellValueFactory(cellData -> 
             new javafx.beans.property.SimpleBooleanProperty(cellData.getValue().isActive()).asObject());
     }
@@ -113,9 +117,14 @@ public class HabitsController {
     private void loadHabits() {
         habitsTable.getItems().clear();
         List<Habit> habits = habitService.getAllHabits();
+        habitStats = habitService.getHabitStats(LocalDate.now());
         habitsTable.getItems().addAll(habits);
     }
     
+    private HabitStats statsOf(Habit habit) {
+        return habitStats.getOrDefault(habit.getId(), HabitStats.empty(habit.getId()));
+    }
+    
     private void loadTodayHabits() {
         todayHabitsList.getItems().clear();
         List<Habit> todayHabits = habitService.getHabitsForToday();
@@ -153,10 +162,11 @@ public class HabitsController {
     }
     
     private void updateHabitStats(Habit habit) {
-        currentStreakLabel.setText(String.valueOf(habit.getCurrentStreak()));
-        bestStreakLabel.setText(String.valueOf(habitService.getBestStreak(habit.getId())));
-        completionRateLabel.setText(String.format("%.1f%%", habit.getCompletionRate()));
-        totalRecordsLabel.setText(String.valueOf(habit.getRecords() != null ? habit.getRecords().size() : 0));
+        HabitStats stats = statsOf(habit);
+        currentStreakLabel.setText(String.valueOf(stats.currentStreak()));
+        bestStreakLabel.setText(String.valueOf(stats.bestStreak()));
+        completionRateLabel.setText(String.format("%.1f%%", stats.completionRate()));
+        totalRecordsLabel.setText(String.valueOf(stats.trackedDays()));
     }
     
     private void createStreakChart(Habit habit) {
@@ -202,9 +212,11 @@ public class HabitsController {
         habit.setTargetStreak(targetStreakSpinner.getValue());
         habit.setActive(activeCheckBox.isSelected());
         
-        habitService.createHabit(habit);
-        loadHabits();
-        loadTodayHabits();
+        // Zapis do bazy w tle - nie na wątku FX
+        AsyncRunner.run(() -> { habitService.createHabit(habit); }, () -> {
+            loadHabits();
+            loadTodayHabits();
+        });
         clearForm();
     }
     
@@ -221,18 +233,22 @@ public class HabitsController {
         selectedHabit.setTargetStreak(targetStreakSpinner.getValue());
         selectedHabit.setActive(activeCheckBox.isSelected());
         
-        habitService.updateHabit(selectedHabit);
-        loadHabits();
-        loadTodayHabits();
+        Habit habit = selectedHabit;
+        AsyncRunner.run(() -> { habitService.updateHabit(habit); }, () -> {
+            loadHabits();
+            loadTodayHabits();
+        });
     }
     
     @FXML
     private void handleDeleteHabit() {
         if (selectedHabit == null) return;
         
-        habitService.deleteHabit(selectedHabit.getId());
-        loadHabits();
-        loadTodayHabits();
+        Long habitId = selectedHabit.getId();
+        AsyncRunner.run(() -> habitService.deleteHabit(habitId), () -> {
+            loadHabits();
+            loadTodayHabits();
+        });
         clearForm();
     }
     
@@ -250,8 +266,7 @@ public class HabitsController {
             .orElse(null);
             
         if (habitToComplete != null) {
-            habitService.completeHabitForToday(habitToComplete.getId(), "", 3);
-            loadTodayHabits();
+            AsyncRunner.run(() -> habitService.completeHabitForToday(habitToComplete.getId(), "", 3), this::loadTodayHabits);
         }
     }
     
@@ -268,8 +283,7 @@ public class HabitsController {
             .orElse(null);
             
         if (habitToUncomplete != null) {
-            habitService.uncompleteHabitForToday(habitToUncomplete.getId());
-            loadTodayHabits();
+            AsyncRunner.run(() -> habitService.uncompleteHabitForToday(habitToUncomplete.getId()), this::loadTodayHabits);
         }
     }
     
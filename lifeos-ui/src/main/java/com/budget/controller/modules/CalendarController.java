@@ -1,8 +1,10 @@
 package com.budget.controller.modules;
 
+import com.budget.dao.TaskDAO;
 import com.budget.dao.TransactionDAO;
 import com.budget.infrastructure.AsyncRunner;
 import com.budget.model.Transaction;
+import com.budget.modules.tasks.TaskOccurrence;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
@@ -10,6 +12,8 @@ import javafx.scene.layout.VBox;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class CalendarController {
     @FXML private GridPane calendarGrid;
@@ -17,6 +21,7 @@ public class CalendarController {
 
     private YearMonth currentYearMonth = YearMonth.now();
     private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final TaskDAO taskDAO = new TaskDAO();
 
     @FXML
     public void initialize() {
@@ -29,8 +34,14 @@ public class CalendarController {
     public void refreshCalendar() {
         calMonthLabel.setText((currentYearMonth.getMonth().name() + " " + currentYearMonth.getYear()).toUpperCase());
 
-        AsyncRunner.run(() -> transactionDAO.getTransactionsForMonth(currentYearMonth.getYear(), currentYearMonth.getMonthValue()),
-                transactions -> {
+        YearMonth month = currentYearMonth;
+        AsyncRunner.run(() -> new CalendarData(
+                transactionDAO.getTransactionsForMonth(month.getYear(), month.getMonthValue()),
+                // Zadania cykliczne rozwijane tylko w dni tego miesiąca
+                taskDAO.getOccurrences(month.atDay(1), month.atEndOfMonth()).stream()
+                        .collect(Collectors.groupingBy(TaskOccurrence::date, Collectors.counting()))),
+                data -> {
+                    List<Transaction> transactions = data.transactions;
                     calendarGrid.getChildren().clear();
 
                     // Nagłówki
@@ -66,6 +77,13 @@ public class CalendarController {
                             cell.getChildren().add(dot);
                         }
 
+                        long tasks = data.tasksByDay.getOrDefault(date, 0L);
+                        if (tasks > 0) {
+                            Label taskDot = new Label(tasks + " zadań");
+                            taskDot.setStyle("-fx-font-size: 9px; -fx-text-fill: #fcc419;");
+                            cell.getChildren().add(taskDot);
+                        }
+
                         // Kliknięcie (dla uproszczenia: wysyłamy zdarzenie lub wywołujemy metodę w DashboardController)
                         // Tutaj w wersji modułowej najlepiej użyć EventBus do komunikacji z rodzicem
 
@@ -75,4 +93,6 @@ public class CalendarController {
                     }
                 });
     }
+
+    private record CalendarData(List<Transaction> transactions, Map<LocalDate, Long> tasksByDay) {}
 }
\ No newline at end of file
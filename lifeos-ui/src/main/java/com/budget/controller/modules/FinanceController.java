@@ -1,13 +1,22 @@
 package com.budget.controller.modules;
 
 import com.budget.dao.BudgetDAO;
+import com.budget.dao.CategoryRollupDAO;
 import com.budget.dao.PurseDAO;
 import com.budget.dao.TransactionDAO;
+import com.budget.dao.TransactionFilter;
+import com.budget.db.DatabaseService;
 import com.budget.infrastructure.AsyncRunner;
 import com.budget.infrastructure.EventBus;
+import com.budget.model.Category;
+import com.budget.model.Money;
 import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
 import com.budget.modules.finance.domain.Purse;
 import com.budget.modules.finance.events.TransactionAddedEvent;
+import com.budget.service.SearchResult;
+import com.budget.service.SearchService;
+import com.budget.ui.PagedTransactionList;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -37,14 +46,17 @@ public class FinanceController {
     @FXML private Label balanceLabel, incomeLabel, expenseLabel, monthLabel;
     @FXML private TableView<Transaction> transactionTable;
     @FXML private TableColumn<Transaction, LocalDate> colDate;
-    @FXML private TableColumn<Transaction, String> colCategory, colDesc, colType;
+    @FXML private TableColumn<Transaction, Category> colCategory;
+    @FXML private TableColumn<Transaction, String> colDesc;
+    @FXML private TableColumn<Transaction, TransactionType> colType;
     @FXML private TableColumn<Transaction, Double> colAmount;
     @FXML private PieChart expenseChart;
     @FXML private LineChart<String, Number> trendChart;
 
     // Inputs
     @FXML private TextField amountField, descField;
-    @FXML private ComboBox<String> typeBox, categoryBox;
+    @FXML private ComboBox<TransactionType> typeBox;
+    @FXML private ComboBox<String> categoryBox;
     @FXML private DatePicker datePicker;
 
     // --- UI: Tab 2 (Budżet) ---
@@ -61,6 +73,8 @@ public class FinanceController {
     private final TransactionDAO transactionDAO = new TransactionDAO();
     private final PurseDAO purseDAO = new PurseDAO();
     private final BudgetDAO budgetDAO = new BudgetDAO();
+    private final CategoryRollupDAO rollupDAO = new CategoryRollupDAO();
+    private final SearchService searchService = new SearchService();
 
     private YearMonth currentMonth = YearMonth.now();
     private final ObservableList<String> commandHistory = FXCollections.observableArrayList();
@@ -85,16 +99,22 @@ public class FinanceController {
         }
 
         AsyncRunner.run(() -> {
-            List<Transaction> transactions = transactionDAO.getTransactionsForMonth(currentMonth.getYear(), currentMonth.getMonthValue());
+            DatabaseService.awaitWrites(); // read-your-writes w trybie write-behind
+            LocalDate from = currentMonth.atDay(1);
+            // Tabela dociąga wiersze stronami w trakcie przewijania; tu liczymy tylko ich liczbę
+            PagedTransactionList rows = new PagedTransactionList(transactionDAO, from, from.plusMonths(1), TransactionFilter.all());
+            // Wykres dzienny z kolumnowego snapshotu - bez ładowania transakcji miesiąca jako obiektów
+            long[] dailyExpenses = DatabaseService.getTransactionColumns().sumByDayMinor(from, from.plusMonths(1), TransactionType.EXPENSE);
+            Map<String, Long> spentByCategory = rollupDAO.getCategoryTotalsMinor(currentMonth, TransactionType.EXPENSE);
             List<Purse> purses = purseDAO.getAllPurses();
-            Map<String, Double> budgets = budgetDAO.getAllBudgets();
-            return new FinanceData(transactions, purses, budgets);
+            Map<String, Long> budgets = budgetDAO.getAllBudgetsMinor();
+            return new FinanceData(rows, dailyExpenses, spentByCategory, purses, budgets);
         }, data -> {
-            if (transactionTable != null) transactionTable.getItems().setAll(data.transactions);
-            updateChart(data.transactions);
-            updateTrendChart(data.transactions);
-            updateSummary(data.transactions, data.purses);
-            renderBudgetList(data.transactions, data.budgets);
+            if (transactionTable != null) transactionTable.setItems(data.rows);
+            updateChart(data.spentByCategory);
+            updateTrendChart(data.dailyExpenses);
+            updateSummary(data.purses);
+            renderBudgetList(data.spentByCategory, data.budgets);
         });
     }
 
@@ -158,10 +178,23 @@ public class FinanceController {
         List<String> s = new ArrayList<>();
         if (cmd.startsWith("dodaj")) s.add("📊 " + input + " [opis]...");
         else if (cmd.startsWith("budżet")) s.add("📈 Przełącz na budżet");
-        else s.add("Szukaj: " + input);
+        else {
+            searchAsync(input);
+            return;
+        }
         commandResult.setItems(FXCollections.observableArrayList(s));
     }
 
+    // Wyszukiwanie przy każdym znaku; wynik pokazujemy tylko, jeśli użytkownik nie pisze już dalej
+    private void searchAsync(String input) {
+        AsyncRunner.run(() -> searchService.search(input, SearchService.DEFAULT_LIMIT), results -> {
+            if (!input.equals(commandField.getText())) return;
+            List<String> s = results.stream().map(SearchResult::toString).collect(Collectors.toList());
+            if (s.isEmpty()) s.add("🔍 Brak wyników dla: " + input);
+            commandResult.setItems(FXCollections.observableArrayList(s));
+        });
+    }
+
     private void navigateCommands(int dir) {
         int size = commandResult.getItems().size();
         if (size == 0) return;
@@ -177,7 +210,7 @@ public class FinanceController {
         if (cmd.startsWith("dodaj wydatek")) {
             try {
                 String[] p = cmd.split(" ", 4);
-                addTransactionDirect("WYDATEK", p.length > 3 ? p[3] : "Szybki wydatek", Double.parseDouble(p[2]), "Inne");
+                addTransactionDirect(TransactionType.EXPENSE, p.length > 3 ? p[3] : "Szybki wydatek", Money.parse(p[2]), Category.DEFAULT);
             } catch (Exception e) { showAlert("Błąd", "Format: dodaj wydatek KWOTA OPIS"); }
         } else if (cmd.contains("anuluj") || cmd.contains("esc")) {
             hideCommandPalette();
@@ -185,10 +218,11 @@ public class FinanceController {
         hideCommandPalette();
     }
 
-    private void addTransactionDirect(String type, String desc, double amount, String cat) {
-        Transaction t = new Transaction(0, type, cat, amount, LocalDate.now(), desc);
+    private void addTransactionDirect(TransactionType type, String desc, long amountMinor, Category cat) {
+        Transaction t = Transaction.ofMinor(0, type, cat, amountMinor, LocalDate.now(), desc);
         AsyncRunner.run(() -> {
             transactionDAO.addTransaction(t);
+            DatabaseService.awaitWrites(); // słuchacze zdarzenia dostają transakcję z nadanym ID
             EventBus.publish(new TransactionAddedEvent(t));
         }, this::refreshFinances);
     }
@@ -212,23 +246,21 @@ public class FinanceController {
 
     @FXML public void addTransaction() {
         try {
-            double amount = Double.parseDouble(amountField.getText().replace(",", "."));
-            addTransactionDirect(typeBox.getValue(), descField.getText(), amount, categoryBox.getValue());
+            long amountMinor = Money.parse(amountField.getText());
+            addTransactionDirect(typeBox.getValue(), descField.getText(), amountMinor, Category.of(categoryBox.getValue()));
             amountField.clear(); descField.clear();
         } catch (Exception e) { showAlert("Błąd", "Sprawdź dane transakcji."); }
     }
 
     // Reszta metod (metody pomocnicze, wykresy, budżet) - bez zmian w logice, tylko czystość kodu
-    private void renderBudgetList(List<Transaction> transactions, Map<String, Double> budgets) {
+    private void renderBudgetList(Map<String, Long> spentMap, Map<String, Long> budgets) {
         if (budgetListContainer == null) return;
         budgetListContainer.getChildren().clear();
-        Map<String, Double> spentMap = transactions.stream().filter(t -> "WYDATEK".equals(t.getType()))
-                .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
 
         budgets.forEach((cat, limit) -> {
             if (limit <= 0) return;
-            double spent = spentMap.getOrDefault(cat, 0.0);
-            double progress = spent / limit;
+            long spent = spentMap.getOrDefault(cat, 0L);
+            double progress = (double) spent / limit;
             VBox card = new VBox(5);
             card.getStyleClass().add("budget-card");
             if (progress >= 1.0) card.getStyleClass().add("budget-card-alert");
@@ -245,29 +277,28 @@ public class FinanceController {
         });
     }
 
-    private void updateChart(List<Transaction> transactions) {
+    private void updateChart(Map<String, Long> data) {
         if (expenseChart == null) return;
-        Map<String, Double> data = transactions.stream().filter(t -> "WYDATEK".equals(t.getType()))
-                .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
         ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-        data.forEach((k, v) -> pieData.add(new PieChart.Data(k, v)));
+        data.forEach((k, v) -> pieData.add(new PieChart.Data(k, Money.toDouble(v))));
         expenseChart.setData(pieData);
     }
 
-    private void updateTrendChart(List<Transaction> transactions) {
+    private void updateTrendChart(long[] dailyExpenses) {
         if (trendChart == null) return;
         trendChart.getData().clear();
         XYChart.Series<String, Number> series = new XYChart.Series<>();
-        transactions.stream().filter(t -> "WYDATEK".equals(t.getType()))
-                .collect(Collectors.groupingBy(Transaction::getDate, Collectors.summingDouble(Transaction::getAmount)))
-                .entrySet().stream().sorted(Map.Entry.comparingByKey())
-                .forEach(e -> series.getData().add(new XYChart.Data<>(e.getKey().format(DateTimeFormatter.ofPattern("dd")), e.getValue())));
+        for (int day = 0; day < dailyExpenses.length; day++) {
+            if (dailyExpenses[day] != 0) {
+                series.getData().add(new XYChart.Data<>(String.format("%02d", day + 1), Money.toDouble(dailyExpenses[day])));
+            }
+        }
         trendChart.getData().add(series);
     }
 
-    private void updateSummary(List<Transaction> t, List<Purse> p) {
-        double total = p.stream().mapToDouble(Purse::getAllocatedAmount).sum();
-        if (balanceLabel != null) balanceLabel.setText(String.format("%.2f PLN", total));
+    private void updateSummary(List<Purse> p) {
+        long total = p.stream().mapToLong(Purse::getAllocatedMinor).sum();
+        if (balanceLabel != null) balanceLabel.setText(Money.format(total) + " PLN");
     }
 
     private void setupTable() {
@@ -276,6 +307,8 @@ public class FinanceController {
         colDesc.setCellValueFactory(new PropertyValueFactory<>("description"));
         colAmount.setCellValueFactory(new PropertyValueFactory<>("amount"));
         colType.setCellValueFactory(new PropertyValueFactory<>("type"));
+        // Lista stronicowana jest tylko do odczytu i zawsze w porządku date DESC, id DESC - bez sortowania w tabeli
+        transactionTable.getColumns().forEach(c -> c.setSortable(false));
 
         colDate.setCellFactory(c -> new TableCell<>() {
             @Override protected void updateItem(LocalDate d, boolean e) { super.updateItem(d, e); if (!e && d != null) setText(d.format(DateTimeFormatter.ofPattern("dd.MM"))); }
@@ -286,7 +319,7 @@ public class FinanceController {
     }
 
     private void setupInputs() {
-        typeBox.getItems().addAll("PRZYCHÓD", "WYDATEK"); typeBox.getSelectionModel().selectFirst();
+        typeBox.getItems().addAll(TransactionType.values()); typeBox.getSelectionModel().selectFirst();
         categoryBox.getItems().addAll("Jedzenie", "Dom", "Paliwo", "Rozrywka", "Pensja", "Inne");
         newBudgetCategory.getItems().addAll(categoryBox.getItems());
         datePicker.setValue(LocalDate.now());
@@ -295,7 +328,7 @@ public class FinanceController {
     @FXML public void handleAddNewBudget() {
         try {
             String c = newBudgetCategory.getValue();
-            double l = Double.parseDouble(newBudgetLimit.getText());
+            long l = Money.parse(newBudgetLimit.getText());
             AsyncRunner.run(() -> budgetDAO.setBudget(c, l), this::refreshFinances);
         } catch(Exception e) { showAlert("Błąd", "Błędne dane"); }
     }
@@ -310,5 +343,5 @@ public class FinanceController {
     @FXML public void refreshBudgets() { refreshFinances(); }
 
     private void showAlert(String t, String c) { new Alert(Alert.AlertType.INFORMATION, c).showAndWait(); }
-    private record FinanceData(List<Transaction> transactions, List<Purse> purses, Map<String, Double> budgets) {}
+    private record FinanceData(PagedTransactionList rows, long[] dailyExpenses, Map<String, Long> spentByCategory, List<Purse> purses, Map<String, Long> budgets) {}
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.budget.dao.TransactionDAO;
 import com.budget.infrastructure.AsyncRunner;
 import com.budget.model.Task;
 import com.budget.model.Transaction;
+import com.budget.model.TransactionType;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -105,11 +106,11 @@ public class KokpitController {
                     box.setAlignment(Pos.CENTER_LEFT);
 
                     // Ikona typu (Przychód/Wydatek)
-                    Label icon = new Label("WYDATEK".equals(item.getType()) ? "📉" : "📈");
+                    Label icon = new Label(item.getType() == TransactionType.EXPENSE ? "📉" : "📈");
 
                     // Kategoria i Opis
                     VBox details = new VBox(2);
-                    Label cat = new Label(item.getCategory());
+                    Label cat = new Label(item.getCategory().getName());
                     cat.setStyle("-fx-text-fill: #8b92a1; -fx-font-size: 10px; -fx-font-weight: bold;");
                     Label desc = new Label(item.getDescription());
                     desc.setStyle("-fx-text-fill: white; -fx-font-size: 12px;");
@@ -119,7 +120,7 @@ public class KokpitController {
 
                     // Kwota z kolorem
                     Label amount = new Label(String.format("%.2f zł", item.getAmount()));
-                    if ("PRZYCHÓD".equals(item.getType())) {
+                    if (item.getType() == TransactionType.INCOME) {
                         amount.setStyle("-fx-text-fill: #51cf66; -fx-font-weight: bold;");
                     } else {
                         amount.setStyle("-fx-text-fill: white;");
@@ -1,23 +1,21 @@
 package com.budget.controller.modules;
 
-import com.budget.dao.TransactionDAO;
+import com.budget.db.DatabaseService;
 import com.budget.infrastructure.AsyncRunner;
-import com.budget.model.Transaction;
+import com.budget.model.Category;
+import com.budget.model.Money;
+import com.budget.model.TransactionType;
+import com.budget.modules.finance.domain.TransactionAnalytics;
 import javafx.fxml.FXML;
 import javafx.scene.chart.*;
 import javafx.scene.control.Label;
-import java.time.YearMonth;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ReportController {
     @FXML private Label repAvgIncome, repAvgExpense, repTotalSavings;
     @FXML private AreaChart<String, Number> reportTrendChart;
     @FXML private BarChart<String, Number> reportSavingsChart, reportCategoryChart;
 
-    private final TransactionDAO transactionDAO = new TransactionDAO();
-
     @FXML
     public void initialize() {
         // Domyślnie ładujemy raport przy starcie
@@ -31,27 +29,31 @@ public class ReportController {
     }
 
     public void refreshReports() {
-        AsyncRunner.run(() -> transactionDAO.getAllTransactions(), transactions -> {
-            if (transactions.isEmpty()) return;
+        // Sumy z kolumnowego snapshotu zamiast ładowania całej historii transakcji jako obiektów
+        TransactionAnalytics analytics = DatabaseService.getTransactionColumns();
+        AsyncRunner.run(() -> new ReportData(
+                analytics.count(null, null),
+                analytics.sumByCategoryMinor(null, null, TransactionType.EXPENSE),
+                analytics.sumMinor(null, null, TransactionType.INCOME),
+                analytics.sumMinor(null, null, TransactionType.EXPENSE)), data -> {
+            if (data.count == 0) return;
 
             // 1. Wykres Kategorii
-            Map<String, Double> byCat = transactions.stream()
-                    .filter(t -> "WYDATEK".equals(t.getType()))
-                    .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
-
             XYChart.Series<String, Number> catSeries = new XYChart.Series<>();
             catSeries.setName("Wydatki");
-            byCat.forEach((k, v) -> catSeries.getData().add(new XYChart.Data<>(k, v)));
+            data.expenseByCategory.forEach((k, v) -> catSeries.getData().add(new XYChart.Data<>(k.getName(), Money.toDouble(v))));
 
             reportCategoryChart.getData().clear();
             reportCategoryChart.getData().add(catSeries);
 
             // 2. Proste KPI (średnie)
-            double totalInc = transactions.stream().filter(t -> "PRZYCHÓD".equals(t.getType())).mapToDouble(Transaction::getAmount).sum();
-            double totalExp = transactions.stream().filter(t -> "WYDATEK".equals(t.getType())).mapToDouble(Transaction::getAmount).sum();
+            double totalInc = Money.toDouble(data.incomeMinor);
+            double totalExp = Money.toDouble(data.expenseMinor);
 
             repAvgIncome.setText(String.format("%.0f PLN", totalInc / 12)); // Uproszczenie
             repTotalSavings.setText(String.format("%.0f PLN", totalInc - totalExp));
         });
     }
-}
\ No newline at end of file
+
+    private record ReportData(int count, Map<Category, Long> expenseByCategory, long incomeMinor, long expenseMinor) {}
+}
@@ -1,27 +1,34 @@
 package com.budget.controller.modules;
 
+import com.budget.dao.BalanceLedgerDAO;
+import com.budget.dao.BalanceLedgerCheck;
+import com.budget.dao.CategoryRollupDAO;
 import com.budget.dao.TransactionDAO;
+import com.budget.dao.TransactionFilter;
 import com.budget.infrastructure.AsyncRunner;
 import com.budget.infrastructure.EventBus;
-import com.budget.model.Transaction;
 import com.budget.modules.finance.events.TransactionAddedEvent;
+import com.budget.service.BackupService;
+import com.budget.service.CsvImportService;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ProgressBar;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.time.LocalDate;
 import com.budget.db.DatabaseService;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.sql.Connection;
-import java.sql.Statement;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -30,6 +37,13 @@ import java.util.Optional;
 public class SettingsController {
 
     private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final BalanceLedgerDAO ledgerDAO = new BalanceLedgerDAO();
+    private final CategoryRollupDAO rollupDAO = new CategoryRollupDAO();
+    private final BackupService backupService = new BackupService();
+    private final CsvImportService importService = new CsvImportService();
+
+    @FXML private ProgressBar backupProgress;
+    @FXML private ProgressBar importProgress;
 
     /**
      * Eksportuje wszystkie transakcje do pliku .csv (Excel)
@@ -48,22 +62,22 @@ public class SettingsController {
 
         if (file != null) {
             AsyncRunner.run(() -> {
-                List<Transaction> all = transactionDAO.getAllTransactions();
-                try (PrintWriter writer = new PrintWriter(file)) {
+                try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024))) {
                     // Nagłówek CSV (separator ;)
                     writer.println("ID;Data;Typ;Kategoria;Kwota;Opis");
 
-                    // Dane
-                    for (Transaction t : all) {
-                        writer.printf("%d;%s;%s;%s;%.2f;%s%n",
-                                t.getId(),
-                                t.getDate(),
-                                t.getType(),
-                                t.getCategory(),
-                                t.getAmount(),
-                                t.getDescription().replace(";", ",") // Zabezpieczenie przed psuciem CSV
-                        );
-                    }
+                    // Dane czytane stronami - nie trzymamy całej tabeli w pamięci
+                    transactionDAO.forEachTransaction(null, null, TransactionFilter.all(),
+                            TransactionDAO.DEFAULT_FETCH_SIZE, true, t ->
+                                    writer.printf("%d;%s;%s;%s;%.2f;%s%n",
+                                            t.getId(),
+                                            t.getDate(),
+                                            t.getType(),
+                                            t.getCategory(),
+                                            t.getAmount(),
+                                            t.getDescription().replace(";", ",") // Zabezpieczenie przed psuciem CSV
+                                    ));
                     return true;
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -77,44 +91,185 @@ public class SettingsController {
     }
 
     /**
-     * Tworzy kopię zapasową pliku bazy danych
+     * Importuje transakcje z pliku .csv (nasz eksport albo wyciąg z banku). Przerwany import tego samego pliku jest wznawiany.
      */
     @FXML
-    public void createBackup(javafx.event.ActionEvent event) {
+    public void importData(javafx.event.ActionEvent event) {
         Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
 
-        // Lokalizacja oryginalnej bazy (zgodnie z Database.java)
-        String dbPath = System.getProperty("user.home") + "/lifeos_db.mv.db";
-        File originalDb = new File(dbPath);
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Importuj Transakcje");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Plik CSV", "*.csv"));
+
+        File file = fileChooser.showOpenDialog(stage);
+        if (file != null) runImport(file.toPath());
+    }
+
+    private void runImport(Path file) {
+        showProgress(importProgress, 0);
+        AsyncRunner.run(() -> {
+            try {
+                return importService.importTransactions(file,
+                        p -> Platform.runLater(() -> showProgress(importProgress, p.fraction())));
+            } catch (CsvImportService.StaleCheckpointException e) {
+                Platform.runLater(() -> askRestartImport(file, e.getMessage()));
+                return null;
+            } catch (Exception e) {
+                e.printStackTrace();
+                showError("Błąd", "Import przerwany - ponowny import tego pliku wznowi go od miejsca przerwania.\n" + e.getMessage());
+                return null;
+            }
+        }, result -> {
+            hideProgress(importProgress);
+            EventBus.publish(new TransactionAddedEvent(null)); // odświeżenie finansów (także po częściowym imporcie)
+            if (result == null) return;
+            String summary = "Zaimportowano transakcji: " + result.imported();
+            if (result.rejected() > 0) {
+                summary += "\nOdrzucone wiersze: " + result.rejected() + " (zapisane w " + result.rejectsFile().getFileName() + ")";
+                if (!result.errors().isEmpty()) summary += "\nnp. linia " + result.errors().get(0).line() + ": " + result.errors().get(0).message();
+            }
+            showInfo("Import", summary);
+        });
+    }
 
-        if (!originalDb.exists()) {
-            showError("Błąd", "Nie znaleziono pliku bazy danych: " + dbPath);
-            return;
+    private void askRestartImport(Path file, String reason) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Import CSV");
+        alert.setHeaderText(reason);
+        alert.setContentText("Zaimportować plik od początku? Transakcje z przerwanego importu zostaną w bazie.");
+        Optional<ButtonType> answer = alert.showAndWait();
+        if (answer.isPresent() && answer.get() == ButtonType.OK) {
+            importService.discardCheckpoint(file);
+            runImport(file);
         }
+    }
+
+    /**
+     * Tworzy kopię zapasową bazy "na gorąco" (SCRIPT H2, gzip) i sprawdza ją przed zapisaniem pod docelową nazwą
+     */
+    @FXML
+    public void createBackup(javafx.event.ActionEvent event) {
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
 
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Zapisz Kopię Zapasową");
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm"));
-        fileChooser.setInitialFileName("lifeos_backup_" + timestamp + ".db");
+        fileChooser.setInitialFileName("lifeos_backup_" + timestamp + ".sql.gz");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Skrypt SQL (gzip)", "*.sql.gz"));
 
         File destFile = fileChooser.showSaveDialog(stage);
 
         if (destFile != null) {
+            showProgress(backupProgress, 0);
             AsyncRunner.run(() -> {
                 try {
-                    Files.copy(originalDb.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    return true;
+                    return backupService.createBackup(destFile.toPath(),
+                            p -> Platform.runLater(() -> showProgress(backupProgress, p.fraction())));
                 } catch (Exception e) {
                     e.printStackTrace();
-                    return false;
+                    return null;
                 }
-            }, success -> {
-                if (success) showInfo("Backup", "Kopia zapasowa utworzona!");
-                else showError("Błąd", "Nie udało się skopiować bazy danych.");
+            }, result -> {
+                hideProgress(backupProgress);
+                if (result != null) showInfo("Backup", "Kopia zapasowa utworzona i zweryfikowana!\n" + result);
+                else showError("Błąd", "Nie udało się utworzyć kopii zapasowej.");
             });
         }
     }
 
+    /**
+     * Kopia przyrostowa: same zmiany z dziennika od ostatniej kopii (pełnej albo przyrostowej)
+     */
+    @FXML
+    public void createIncrementalBackup(javafx.event.ActionEvent event) {
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Zapisz Kopię Przyrostową");
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm"));
+        fileChooser.setInitialFileName("lifeos_incr_" + timestamp + ".changes.gz");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zmiany od ostatniej kopii (gzip)", "*.changes.gz"));
+
+        File destFile = fileChooser.showSaveDialog(stage);
+
+        if (destFile != null) {
+            showProgress(backupProgress, 0);
+            AsyncRunner.run(() -> {
+                try {
+                    return backupService.createIncrementalBackup(destFile.toPath(),
+                            p -> Platform.runLater(() -> showProgress(backupProgress, p.fraction())));
+                } catch (IllegalStateException e) {
+                    // Brak pełnej kopii / wyłączony dziennik - komunikat jest dla użytkownika
+                    showError("Kopia przyrostowa", e.getMessage());
+                    return null;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    showError("Błąd", "Nie udało się utworzyć kopii przyrostowej.");
+                    return null;
+                }
+            }, result -> {
+                hideProgress(backupProgress);
+                if (result != null) showInfo("Backup", "Kopia przyrostowa utworzona i zweryfikowana!\n" + result);
+            });
+        }
+    }
+
+    /**
+     * Odtwarza bazę z pełnej kopii i (opcjonalnie) kopii przyrostowych - zastępuje bieżące dane!
+     */
+    @FXML
+    public void restoreBackup(javafx.event.ActionEvent event) {
+        Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+
+        FileChooser fullChooser = new FileChooser();
+        fullChooser.setTitle("Wybierz Pełną Kopię");
+        fullChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Skrypt SQL (gzip)", "*.sql.gz"));
+        File fullFile = fullChooser.showOpenDialog(stage);
+        if (fullFile == null) return;
+
+        FileChooser incrementChooser = new FileChooser();
+        incrementChooser.setTitle("Kopie Przyrostowe (Anuluj = bez przyrostów)");
+        incrementChooser.setInitialDirectory(fullFile.getParentFile());
+        incrementChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zmiany od ostatniej kopii (gzip)", "*.changes.gz"));
+        List<File> incrementFiles = incrementChooser.showOpenMultipleDialog(stage);
+        List<Path> increments = incrementFiles == null ? List.of() : incrementFiles.stream().map(File::toPath).toList();
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Odtwarzanie Kopii");
+        alert.setHeaderText("Bieżące dane zostaną zastąpione kopią " + fullFile.getName());
+        alert.setContentText("Kopie przyrostowe do nałożenia: " + increments.size() + ". Kontynuować?");
+        Optional<ButtonType> answer = alert.showAndWait();
+        if (answer.isEmpty() || answer.get() != ButtonType.OK) return;
+
+        AsyncRunner.run(() -> {
+            try {
+                return backupService.restore(fullFile.toPath(), increments);
+            } catch (Exception e) {
+                e.printStackTrace();
+                showError("Błąd", "Nie udało się odtworzyć kopii:\n" + e.getMessage());
+                return null;
+            }
+        }, result -> {
+            if (result != null) {
+                showInfo("Odtwarzanie", "Dane odtworzone.\n" + result);
+                EventBus.publish(new TransactionAddedEvent(null)); // odświeżenie widoków jak po resecie
+            }
+        });
+    }
+
+    private void showProgress(ProgressBar bar, double progress) {
+        if (bar == null) return;
+        bar.setVisible(true);
+        bar.setManaged(true);
+        bar.setProgress(progress);
+    }
+
+    private void hideProgress(ProgressBar bar) {
+        if (bar == null) return;
+        bar.setVisible(false);
+        bar.setManaged(false);
+    }
+
     /**
      * Czyści całą bazę danych (niebezpieczne!)
      */
@@ -134,16 +289,9 @@ public class SettingsController {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             AsyncRunner.run(() -> {
-                try (Connection conn = DatabaseService.connect();
-                     Statement stmt = conn.createStatement()) {
-
-                    // Usuwamy dane z tabel
-                    stmt.execute("DELETE FROM transactions");
-                    stmt.execute("DELETE FROM tasks");
-                    stmt.execute("DELETE FROM goals");
-                    // Opcjonalnie reset sekwencji ID
-                    // stmt.execute("ALTER TABLE transactions ALTER COLUMN id RESTART WITH 1");
-
+                try {
+                    // Tabele pochodne, cache, indeks wyszukiwania i snapshot analityczny - wszystko w DatabaseService
+                    DatabaseService.resetUserData();
                     return true;
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -162,6 +310,21 @@ public class SettingsController {
         }
     }
 
+    /**
+     * Sprawdza księgę sald z transakcjami i w razie rozjazdu przelicza ją od nowa
+     */
+    @FXML
+    public void verifyLedger() {
+        AsyncRunner.run(() -> {
+            BalanceLedgerCheck check = ledgerDAO.verify();
+            if (!check.consistent()) ledgerDAO.rebuild();
+            return check;
+        }, check -> {
+            if (check.consistent()) showInfo("Księga sald", check.toString());
+            else showInfo("Księga sald", check + "\nKsięga została przebudowana.");
+        });
+    }
+
     // --- Helpery ---
 
     private void showInfo(String title, String content) {
@@ -1,10 +1,12 @@
 package com.budget.controller.modules;
 
 import com.budget.dao.TaskDAO;
+import com.budget.db.DatabaseService;
 import com.budget.infrastructure.AsyncRunner;
 import com.budget.model.Priority;
 import com.budget.model.Task;
 import com.budget.model.TaskStatus;
+import com.budget.modules.tasks.TaskOccurrences;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
@@ -40,7 +42,10 @@ public class TaskController {
     }
 
     public void refreshTasks() {
-        AsyncRunner.run(taskDAO::getAllTasks, tasks -> {
+        AsyncRunner.run(() -> {
+            DatabaseService.awaitWrites(); // lista ma pokazać właśnie odhaczone / dodane zadania
+            return taskDAO.getAllTasks();
+        }, tasks -> {
             taskListView.getItems().setAll(tasks);
         });
     }
@@ -122,16 +127,20 @@ public class TaskController {
                     Region spacer = new Region();
                     HBox.setHgrow(spacer, LayoutPriority.ALWAYS);
 
+                    // Zadanie cykliczne: najbliższe wystąpienie od dziś zamiast początku serii
+                    boolean series = TaskOccurrences.isSeries(item);
+                    LocalDate shownDate = series ? TaskOccurrences.next(item, LocalDate.now()) : item.getDueDate();
                     String dateStr = "";
-                    if (item.getDueDate() != null) {
-                        dateStr = item.getDueDate().format(DateTimeFormatter.ofPattern("dd.MM"));
+                    if (shownDate != null) {
+                        dateStr = shownDate.format(DateTimeFormatter.ofPattern("dd.MM"));
                     }
+                    if (series) dateStr = "↻ " + dateStr;
 
                     Label dateLbl = new Label(dateStr);
                     // Logika przeterminowania
                     if (item.getStatus() != TaskStatus.COMPLETED
-                            && item.getDueDate() != null
-                            && item.getDueDate().isBefore(LocalDate.now())) {
+                            && shownDate != null
+                            && shownDate.isBefore(LocalDate.now())) {
                         dateLbl.setStyle("-fx-text-fill: #ff6b6b; -fx-font-weight: bold;");
                         dateLbl.setText(dateStr + " (!)");
                     } else {
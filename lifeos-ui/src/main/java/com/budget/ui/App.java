@@ -1,5 +1,8 @@
 package com.budget.ui;
 
+import com.budget.dao.HabitDAO;
+import com.budget.dao.HabitHistoryDAO;
+import com.budget.db.DatabaseService;
 import com.budget.controller.DashboardController;
 import com.budget.controller.HabitsController;
 import com.budget.controller.GoalsController;
@@ -17,6 +20,7 @@ import com.budget.modules.finance.domain.PurseService;
 import com.budget.modules.finance.domain.PurseServiceImpl;
 import com.budget.modules.tasks.TaskService;
 import com.budget.modules.tasks.TaskServiceImpl;
+import com.budget.service.RecurringTransactionScheduler;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -40,6 +44,7 @@ public class App extends Application {
     private PurseService purseService;
     private TaskService taskService;
     private ReportService reportService;
+    private RecurringTransactionScheduler recurringScheduler;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
@@ -100,13 +105,19 @@ public class App extends Application {
 
     private void initializeServices() {
         // Inicjalizacja serwisów
-        this.habitService = new HabitServiceImpl();
+        // Historia nawyków z bazy (habit_history); każda zmiana wpisu zapisuje się od razu
+        this.habitService = new HabitServiceImpl(new HabitDAO(), new HabitHistoryDAO());
         this.purseService = new PurseServiceImpl();
         this.goalService = new GoalServiceImpl();
         this.taskService = new TaskServiceImpl();
-        this.dashboardService = new DashboardServiceImpl(habitService, purseService, goalService, taskService);
+        this.dashboardService = new DashboardServiceImpl(habitService, purseService, goalService, taskService,
+                DatabaseService.getTransactionColumns());
         this.reportService = new ReportServiceImpl(habitService, dashboardService, goalService, taskService, purseService);
 
+        // Nadrabia transakcje cykliczne w tle i śpi do najbliższego wystąpienia
+        this.recurringScheduler = new RecurringTransactionScheduler();
+        recurringScheduler.start();
+
         // Dodaj przykładowe dane
         initializeSampleData();
     }
@@ -270,6 +281,13 @@ public class App extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        if (recurringScheduler != null) recurringScheduler.close();
+        // Dopisuje odroczone zapisy i zamyka pulę połączeń
+        DatabaseService.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
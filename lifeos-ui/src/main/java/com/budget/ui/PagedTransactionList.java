@@ -0,0 +1,177 @@
+package com.budget.ui;
+
+import com.budget.dao.TransactionDAO;
+import com.budget.dao.TransactionFilter;
+import com.budget.dao.TransactionKey;
+import com.budget.model.Transaction;
+import com.budget.infrastructure.AsyncRunner;
+import javafx.collections.ObservableListBase;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lista transakcji dla TableView, która ładuje dane stronami dopiero gdy wiersz ma zostać narysowany.
+ * <p>
+ * TableView pyta tylko o widoczne indeksy, więc przewijanie nawet 100k wierszy kosztuje tyle,
+ * ile stron faktycznie pojawiło się na ekranie. W pamięci trzymamy kilka ostatnio używanych stron,
+ * resztę wyrzucamy. Kolejne strony czytamy przez keyset (date, id) od końca poprzedniej;
+ * tylko skok w nieznane miejsce (przeciągnięcie suwaka) wymaga jednego zapytania z OFFSET po samych kluczach.
+ * <p>
+ * Strony są czytane w tle ({@link AsyncRunner}), a do tego czasu {@link #get} zwraca null (pusty wiersz).
+ * Po załadowaniu lista zgłasza podmianę tych pozycji, a gdy strona okaże się krótsza niż wynikało z liczby
+ * wierszy (ktoś je usunął po policzeniu) - skraca się do faktycznego końca danych.
+ * <p>
+ * Lista jest tylko do odczytu - po zmianie danych należy utworzyć nową instancję.
+ * Konstruktor liczy wiersze w bazie (wywoływać w tle); resztę metod wyłącznie z wątku FX.
+ */
+public class PagedTransactionList extends ObservableListBase<Transaction> {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGES = 8;
+    // Ile granic stron wstecz wyznaczamy przy skoku suwakiem
+    private static final int BOUNDARY_WINDOW = 32;
+
+    private final TransactionDAO dao;
+    private final LocalDate from;
+    private final LocalDate toExclusive;
+    private final TransactionFilter filter;
+    private final int pageSize;
+    private int size;
+
+    // Załadowane strony (LRU - najdawniej użyta wypada pierwsza)
+    private final Map<Integer, List<Transaction>> pages;
+    // Klucz ostatniego wiersza każdej odwiedzonej strony - zostaje po wyrzuceniu strony, żeby wrócić do niej keysetem
+    private final Map<Integer, TransactionKey> pageEnds = new HashMap<>();
+    // Strony, po które poszło już zapytanie w tle
+    private final Set<Integer> loading = new HashSet<>();
+
+    public PagedTransactionList(TransactionDAO dao, LocalDate from, LocalDate toExclusive, TransactionFilter filter) {
+        this(dao, from, toExclusive, filter, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedTransactionList(TransactionDAO dao, LocalDate from, LocalDate toExclusive, TransactionFilter filter,
+                                int pageSize, int maxPages) {
+        this.dao = dao;
+        this.from = from;
+        this.toExclusive = toExclusive;
+        this.filter = filter;
+        this.pageSize = pageSize;
+        this.size = dao.countTransactions(from, toExclusive, filter);
+        this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public Transaction get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        int pageNo = index / pageSize;
+        List<Transaction> page = pages.get(pageNo);
+        if (page == null) {
+            requestPage(pageNo);
+            return null;
+        }
+        int offset = index % pageSize;
+        // Ostatnia ćwiartka strony na ekranie - następna idzie w tle, zanim użytkownik do niej dojdzie
+        if (offset >= pageSize - pageSize / 4 && (pageNo + 1) * pageSize < size) requestPage(pageNo + 1);
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    private void requestPage(int pageNo) {
+        if (pages.containsKey(pageNo) || !loading.add(pageNo)) return;
+        TransactionKey after = pageNo > 0 ? pageEnds.get(pageNo - 1) : null;
+        AsyncRunner.run(() -> {
+            try {
+                return fetchPage(pageNo, after);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }, result -> {
+            loading.remove(pageNo);
+            if (result != null) pageLoaded(result); // po błędzie strona zostanie pobrana przy następnym get()
+        });
+    }
+
+    // Wątek w tle: nie dotyka pól zmienianych na wątku FX
+    private LoadedPage fetchPage(int pageNo, TransactionKey after) {
+        Map<Integer, TransactionKey> ends = new HashMap<>();
+        if (pageNo > 0 && after == null) {
+            int knownEnd = loadPageEnds(pageNo, ends);
+            after = ends.get(pageNo - 1);
+            // Wiersze zniknęły od czasu policzenia - dane kończą się przed tą stroną
+            if (after == null) return new LoadedPage(pageNo, List.of(), ends, knownEnd);
+        }
+        List<Transaction> page = dao.getTransactionsPage(from, toExclusive, filter, after, pageSize);
+        int end = page.size() < pageSize ? pageNo * pageSize + page.size() : Integer.MAX_VALUE;
+        return new LoadedPage(pageNo, page, ends, end);
+    }
+
+    private void pageLoaded(LoadedPage loaded) {
+        int pageNo = loaded.pageNo();
+        List<Transaction> page = loaded.rows();
+        pageEnds.putAll(loaded.ends());
+        if (!page.isEmpty()) pageEnds.put(pageNo, TransactionKey.of(page.get(page.size() - 1)));
+        pages.put(pageNo, page);
+
+        if (loaded.end() < size) truncate(loaded.end());
+        int first = pageNo * pageSize;
+        int last = Math.min(size, first + page.size());
+        if (first >= last) return;
+        beginChange();
+        for (int i = first; i < last; i++) {
+            nextSet(i, null); // wcześniej był tu pusty wiersz
+        }
+        endChange();
+    }
+
+    // Krótka strona = koniec danych; pozycje za nim były pustymi wierszami
+    private void truncate(int newSize) {
+        int removed = size - newSize;
+        pages.keySet().removeIf(p -> p * pageSize >= newSize);
+        pageEnds.keySet().removeIf(p -> p * pageSize >= newSize);
+        size = newSize;
+        beginChange();
+        nextRemove(newSize, Collections.nCopies(removed, null));
+        endChange();
+    }
+
+    /**
+     * Skok w nieznane miejsce: jednym zapytaniem po samym indeksie wyznaczamy końce
+     * {@link #BOUNDARY_WINDOW} stron przed {@code pageNo}, żeby przewijanie stamtąd w górę i w dół szło keysetem.
+     *
+     * @return indeks końca danych, gdy kluczy jest mniej niż oczekiwano, w przeciwnym razie {@link Integer#MAX_VALUE}
+     */
+    private int loadPageEnds(int pageNo, Map<Integer, TransactionKey> ends) {
+        int firstPage = Math.max(0, pageNo - BOUNDARY_WINDOW);
+        int limit = (pageNo - firstPage) * pageSize;
+        List<TransactionKey> keys = dao.getTransactionKeys(from, toExclusive, filter, firstPage * pageSize, limit);
+        for (int p = firstPage; p < pageNo; p++) {
+            int last = (p - firstPage + 1) * pageSize - 1;
+            if (last >= keys.size()) break;
+            ends.put(p, keys.get(last));
+        }
+        return keys.size() < limit ? firstPage * pageSize + keys.size() : Integer.MAX_VALUE;
+    }
+
+    private record LoadedPage(int pageNo, List<Transaction> rows, Map<Integer, TransactionKey> ends, int end) {}
+}